@@ -0,0 +1,228 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.obsidiandynamics.blackstrom.bank.*;
+import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.blackstrom.monitor.*;
+
+/**
+ *  Measures the encoding and decoding throughput of each {@link MessageCodec} implementation
+ *  across the message types, using a {@link BankSettlement} as the application payload.<p>
+ *  
+ *  The cohort count applies to proposals and outcomes only, and the outcome metadata
+ *  parameter applies to outcomes only; the other message types repeat their measurements
+ *  across these parameters. The parameter space is large, and is best narrowed down with
+ *  {@code -p} when running from the command line.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+  public enum CodecType {
+    JACKSON_JSON {
+      @Override MessageCodec create(boolean mapPayload) {
+        return jackson(mapPayload, JacksonFormat.JSON);
+      }
+    },
+    
+    JACKSON_SMILE {
+      @Override MessageCodec create(boolean mapPayload) {
+        return jackson(mapPayload, JacksonFormat.SMILE);
+      }
+    },
+    
+    JACKSON_CBOR {
+      @Override MessageCodec create(boolean mapPayload) {
+        return jackson(mapPayload, JacksonFormat.CBOR);
+      }
+    },
+    
+    KRYO {
+      @Override MessageCodec create(boolean mapPayload) {
+        return new KryoMessageCodec(mapPayload, new KryoDefaultOutcomeMetadataExpansion(), new KryoBankExpansion());
+      }
+    },
+    
+    /** Payloads are always mapped (lazily), irrespective of the {@code mapPayload} setting. */
+    FLYWEIGHT {
+      @Override MessageCodec create(boolean mapPayload) {
+        return new FlyweightMessageCodec(new FlyweightKryoPayloadCodec(new KryoBankExpansion()));
+      }
+    };
+    
+    abstract MessageCodec create(boolean mapPayload);
+    
+    private static MessageCodec jackson(boolean mapPayload, JacksonFormat format) {
+      return new JacksonMessageCodec(mapPayload, format, new JacksonDefaultOutcomeMetadataExpansion(), new JacksonBankExpansion());
+    }
+  }
+  
+  public enum ObjectiveSize {
+    SMALL(2),
+    LARGE(256);
+    
+    private final int transfers;
+    
+    private ObjectiveSize(int transfers) {
+      this.transfers = transfers;
+    }
+    
+    BankSettlement create() {
+      final List<BalanceTransfer> transfers = new ArrayList<>(this.transfers);
+      for (int i = 0; i < this.transfers; i++) {
+        transfers.add(new BalanceTransfer(BankBranch.getId(i), i % 2 == 0 ? -1000 : 1000));
+      }
+      return BankSettlement.builder().withTransfers(transfers).build();
+    }
+  }
+  
+  @Param({"JACKSON_JSON", "JACKSON_SMILE", "JACKSON_CBOR", "KRYO", "FLYWEIGHT"})
+  public CodecType codec;
+  
+  @Param({"QUERY", "QUERY_RESPONSE", "COMMAND", "COMMAND_RESPONSE", "NOTICE", "PROPOSAL", "VOTE", "OUTCOME"})
+  public MessageType messageType;
+  
+  @Param({"2", "8", "32"})
+  public int cohorts;
+  
+  @Param({"SMALL", "LARGE"})
+  public ObjectiveSize objectiveSize;
+  
+  @Param({"true", "false"})
+  public boolean mapPayload;
+  
+  @Param({"true", "false"})
+  public boolean outcomeMetadata;
+  
+  private MessageCodec messageCodec;
+  
+  private Message message;
+  
+  private byte[] encoded;
+  
+  @Setup
+  public void setup() throws Exception {
+    messageCodec = codec.create(mapPayload);
+    message = createMessage(messageType, cohorts, objectiveSize.create(), outcomeMetadata);
+    encoded = messageCodec.encode(message);
+    EncodedSizeProfiler.record(encoded.length);
+    
+    if (mapPayload) {
+      final Message decoded = messageCodec.decode(encoded);
+      if (! message.equals(decoded)) {
+        throw new IllegalStateException("Round trip mismatch: expected " + message + ", got " + decoded);
+      }
+    }
+  }
+  
+  static Message createMessage(MessageType messageType, int cohorts, BankSettlement objective, boolean outcomeMetadata) {
+    final String xid = "X" + UUID.randomUUID();
+    final long timestamp = 1;
+    final int ttl = 1000;
+    final String[] cohortIds = new String[cohorts];
+    for (int i = 0; i < cohorts; i++) {
+      cohortIds[i] = BankBranch.getId(i);
+    }
+    
+    final FluentMessage<?> message;
+    switch (messageType) {
+      case QUERY:
+        message = new Query(xid, timestamp, objective, ttl);
+        break;
+      
+      case QUERY_RESPONSE:
+        message = new QueryResponse(xid, timestamp, objective);
+        break;
+      
+      case COMMAND:
+        message = new Command(xid, timestamp, objective, ttl);
+        break;
+      
+      case COMMAND_RESPONSE:
+        message = new CommandResponse(xid, timestamp, objective);
+        break;
+      
+      case NOTICE:
+        message = new Notice(xid, timestamp, objective);
+        break;
+      
+      case PROPOSAL:
+        message = new Proposal(xid, timestamp, cohortIds, objective, ttl);
+        break;
+      
+      case VOTE:
+        message = new Vote(xid, timestamp, new Response(cohortIds[0], Intent.ACCEPT, null));
+        break;
+      
+      case OUTCOME:
+        final Response[] responses = new Response[cohorts];
+        for (int i = 0; i < cohorts; i++) {
+          responses[i] = new Response(cohortIds[i], Intent.ACCEPT, null);
+        }
+        message = new Outcome(xid, timestamp, Resolution.COMMIT, null, responses, 
+                              outcomeMetadata ? new OutcomeMetadata(timestamp) : null);
+        break;
+      
+      default:
+        throw new UnsupportedOperationException("Unsupported message type " + messageType);
+    }
+    return message.withSource("bench");
+  }
+  
+  @Benchmark
+  public byte[] encode() throws Exception {
+    return messageCodec.encode(message);
+  }
+  
+  /**
+   *  Decodes the message and retrieves its payload, so that codecs that decode their payloads
+   *  lazily are measured on the same terms as those that don't.
+   *  
+   *  @return The decoded message.
+   *  @throws Exception If an error occurs.
+   */
+  @Benchmark
+  public Message decode() throws Exception {
+    final Message message = messageCodec.decode(encoded);
+    readPayload(message);
+    return message;
+  }
+  
+  static Object readPayload(Message message) {
+    switch (message.getMessageType()) {
+      case QUERY:
+        return ((Query) message).getObjective();
+      
+      case QUERY_RESPONSE:
+        return ((QueryResponse) message).getResult();
+      
+      case COMMAND:
+        return ((Command) message).getObjective();
+      
+      case COMMAND_RESPONSE:
+        return ((CommandResponse) message).getResult();
+      
+      case NOTICE:
+        return ((Notice) message).getEvent();
+      
+      case PROPOSAL:
+        return ((Proposal) message).getObjective();
+      
+      case VOTE:
+        return ((Vote) message).getResponse().getMetadata();
+      
+      case OUTCOME:
+        return ((Outcome) message).getMetadata();
+      
+      default:
+        throw new UnsupportedOperationException("Unsupported message type " + message.getMessageType());
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.obsidiandynamics.blackstrom.codec.CodecBenchmark.*;
+import com.obsidiandynamics.blackstrom.model.*;
+
+/**
+ *  Measures the trade-off between encoded size and CPU time of the {@link CompressingMessageCodec},
+ *  by encoding and decoding a proposal with and without compression. The encoded size is reported
+ *  by the {@link EncodedSizeProfiler}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+  @Param({"JACKSON_JSON", "KRYO"})
+  public CodecType codec;
+  
+  @Param({"SMALL", "LARGE"})
+  public ObjectiveSize objectiveSize;
+  
+  @Param({"true", "false"})
+  public boolean compressed;
+  
+  private MessageCodec messageCodec;
+  
+  private Message message;
+  
+  private byte[] encoded;
+  
+  @Setup
+  public void setup() throws Exception {
+    final MessageCodec delegate = codec.create(true);
+    messageCodec = compressed ? new CompressingMessageCodec(delegate) : delegate;
+    message = CodecBenchmark.createMessage(MessageType.PROPOSAL, 8, objectiveSize.create(), false);
+    encoded = messageCodec.encode(message);
+    EncodedSizeProfiler.record(encoded.length);
+    
+    final Message decoded = messageCodec.decode(encoded);
+    if (! message.equals(decoded)) {
+      throw new IllegalStateException("Round trip mismatch: expected " + message + ", got " + decoded);
+    }
+  }
+  
+  @Benchmark
+  public byte[] encode() throws Exception {
+    return messageCodec.encode(message);
+  }
+  
+  @Benchmark
+  public Message decode() throws Exception {
+    final Message message = messageCodec.decode(encoded);
+    CodecBenchmark.readPayload(message);
+    return message;
+  }
+}
@@ -0,0 +1,37 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import java.util.*;
+
+import org.openjdk.jmh.infra.*;
+import org.openjdk.jmh.profile.*;
+import org.openjdk.jmh.results.*;
+
+/**
+ *  Reports the encoded size of the benchmarked message as a secondary metric, so that it appears
+ *  in the results alongside the throughput and allocation figures. The size is recorded by the
+ *  benchmark's setup, which runs in the same (forked) VM as the profiler.
+ */
+public final class EncodedSizeProfiler implements InternalProfiler {
+  private static volatile int encodedSize = -1;
+  
+  static void record(int encodedSize) {
+    EncodedSizeProfiler.encodedSize = encodedSize;
+  }
+  
+  @Override
+  public String getDescription() {
+    return "Encoded message size";
+  }
+  
+  @Override
+  public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {}
+  
+  @Override
+  public Collection<? extends Result<?>> afterIteration(BenchmarkParams benchmarkParams, 
+                                                       IterationParams iterationParams, 
+                                                       IterationResult result) {
+    final int encodedSize = EncodedSizeProfiler.encodedSize;
+    if (encodedSize == -1) return Collections.emptyList();
+    return Collections.singletonList(new ScalarResult("\u00b7encoded.size", encodedSize, "B", AggregationPolicy.AVG));
+  }
+}
@@ -0,0 +1,85 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.fasterxml.jackson.databind.*;
+import com.obsidiandynamics.blackstrom.codec.CodecBenchmark.*;
+import com.obsidiandynamics.blackstrom.model.*;
+
+/**
+ *  Compares the {@link JacksonMessageCodec}'s streaming deserialization of a message against 
+ *  deserialization by way of an intermediate {@link JsonNode} tree, as was done prior to the
+ *  streaming deserializer.<p>
+ *  
+ *  The tree variant reads the encoded message into a tree and binds the tree to a message; it
+ *  thus carries the cost of materialising the tree on top of a (tree-traversing) streaming pass,
+ *  which is representative of the former deserializer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonDeserializationBenchmark {
+  public enum Deserialization {
+    STREAMING {
+      @Override Message decode(ObjectMapper mapper, byte[] encoded) throws Exception {
+        return mapper.readValue(encoded, Message.class);
+      }
+    },
+    
+    TREE {
+      @Override Message decode(ObjectMapper mapper, byte[] encoded) throws Exception {
+        return mapper.treeToValue(mapper.readTree(encoded), Message.class);
+      }
+    };
+    
+    abstract Message decode(ObjectMapper mapper, byte[] encoded) throws Exception;
+  }
+  
+  @Param({"JACKSON_JSON", "JACKSON_SMILE"})
+  public CodecType codec;
+  
+  @Param({"PROPOSAL", "OUTCOME"})
+  public MessageType messageType;
+  
+  @Param({"SMALL", "LARGE"})
+  public ObjectiveSize objectiveSize;
+  
+  @Param({"true", "false"})
+  public boolean mapPayload;
+  
+  @Param({"STREAMING", "TREE"})
+  public Deserialization deserialization;
+  
+  private ObjectMapper mapper;
+  
+  private Message message;
+  
+  private byte[] encoded;
+  
+  @Setup
+  public void setup() throws Exception {
+    final JacksonMessageCodec messageCodec = (JacksonMessageCodec) codec.create(mapPayload);
+    mapper = messageCodec.getMapper();
+    message = CodecBenchmark.createMessage(messageType, 8, objectiveSize.create(), true);
+    encoded = messageCodec.encode(message);
+    
+    if (mapPayload) {
+      final Message decoded = deserialization.decode(mapper, encoded);
+      if (! message.equals(decoded)) {
+        throw new IllegalStateException("Round trip mismatch: expected " + message + ", got " + decoded);
+      }
+    }
+  }
+  
+  @Benchmark
+  public Message decode() throws Exception {
+    final Message message = deserialization.decode(mapper, encoded);
+    CodecBenchmark.readPayload(message);
+    return message;
+  }
+}
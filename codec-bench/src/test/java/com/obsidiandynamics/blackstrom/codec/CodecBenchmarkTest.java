@@ -0,0 +1,78 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.blackstrom.codec.CodecBenchmark.*;
+import com.obsidiandynamics.blackstrom.codec.JacksonDeserializationBenchmark.*;
+import com.obsidiandynamics.blackstrom.model.*;
+
+public final class CodecBenchmarkTest {
+  /*
+   *  Runs each benchmark once for every combination of codec, message type and payload mapping,
+   *  which also verifies the round trip in the benchmark's setup.
+   */
+  @Test
+  public void testAllCombinations() throws Exception {
+    for (CodecType codec : CodecType.values()) {
+      for (MessageType messageType : MessageType.values()) {
+        if (messageType == MessageType.$UNKNOWN) continue;
+        for (boolean mapPayload : new boolean[] {true, false}) {
+          final CodecBenchmark benchmark = new CodecBenchmark();
+          benchmark.codec = codec;
+          benchmark.messageType = messageType;
+          benchmark.cohorts = 8;
+          benchmark.objectiveSize = ObjectiveSize.LARGE;
+          benchmark.mapPayload = mapPayload;
+          benchmark.outcomeMetadata = true;
+          benchmark.setup();
+          
+          assertNotNull(benchmark.encode());
+          assertEquals(messageType, benchmark.decode().getMessageType());
+        }
+      }
+    }
+  }
+  
+  @Test
+  public void testCompression() throws Exception {
+    for (CodecType codec : new CodecType[] {CodecType.JACKSON_JSON, CodecType.KRYO}) {
+      for (boolean compressed : new boolean[] {true, false}) {
+        final CompressionBenchmark benchmark = new CompressionBenchmark();
+        benchmark.codec = codec;
+        benchmark.objectiveSize = ObjectiveSize.LARGE;
+        benchmark.compressed = compressed;
+        benchmark.setup();
+        
+        assertNotNull(benchmark.encode());
+        assertEquals(MessageType.PROPOSAL, benchmark.decode().getMessageType());
+      }
+    }
+  }
+  
+  @Test
+  public void testJacksonDeserialization() throws Exception {
+    for (CodecType codec : new CodecType[] {CodecType.JACKSON_JSON, CodecType.JACKSON_SMILE}) {
+      for (MessageType messageType : new MessageType[] {MessageType.PROPOSAL, MessageType.OUTCOME}) {
+        for (Deserialization deserialization : Deserialization.values()) {
+          final JacksonDeserializationBenchmark benchmark = new JacksonDeserializationBenchmark();
+          benchmark.codec = codec;
+          benchmark.messageType = messageType;
+          benchmark.objectiveSize = ObjectiveSize.LARGE;
+          benchmark.mapPayload = true;
+          benchmark.deserialization = deserialization;
+          benchmark.setup();
+          
+          assertEquals(messageType, benchmark.decode().getMessageType());
+        }
+      }
+    }
+  }
+  
+  @Test
+  public void testObjectiveSize() {
+    assertEquals(2, ObjectiveSize.SMALL.create().getTransfers().size());
+    assertEquals(256, ObjectiveSize.LARGE.create().getTransfers().size());
+  }
+}
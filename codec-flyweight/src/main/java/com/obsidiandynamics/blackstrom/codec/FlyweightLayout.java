@@ -0,0 +1,88 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+/**
+ *  Describes the fixed-layout binary format of the {@link FlyweightMessageCodec}. All integers
+ *  are big-endian, and all offsets are relative to the start of the message.<p>
+ *  
+ *  The header has a fixed size, with the following layout:<br>
+ *  <pre>
+ *  0   u8   encoding version
+ *  1   u8   message type ordinal
+ *  2   u8   resolution ordinal (outcomes only)
+ *  3   u8   abort reason ordinal + 1, or 0 if unset (outcomes only)
+ *  4   i64  timestamp
+ *  12  i32  time to live (queries, commands and proposals only)
+ *  16  i32  offset of the XID
+ *  20  i32  offset of the source string
+ *  24  i32  offset of the cohorts table (proposals only)
+ *  28  i32  offset of the responses table (votes and outcomes only)
+ *  32  i32  offset of the payload (the objective, result, event or outcome metadata)
+ *  </pre>
+ *  
+ *  Absent fields have an offset of {@link #ABSENT}. The variable section that follows the
+ *  header comprises the following structures:<br>
+ *  <pre>
+ *  string    i32 length in bytes, followed by UTF-8 bytes; a null string has a length of
+ *            {@link #NULL_LENGTH} and no bytes
+ *  XID       a string, or a length of {@link #BINARY_XID_LENGTH} followed by the two i64
+ *            halves of a binary {@link com.obsidiandynamics.blackstrom.model.Xid}
+ *  table     i32 entry count, followed by an i32 offset per entry
+ *  response  u8 intent ordinal, i32 offset of the metadata payload, cohort string
+ *  payload   u8 payload tag, i32 length in bytes, followed by the encoded payload
+ *  </pre>
+ */
+final class FlyweightLayout {
+  private FlyweightLayout() {}
+  
+  static final int ENCODING_VERSION = 2;
+  
+  static final int ABSENT = -1;
+  
+  static final int NULL_LENGTH = -1;
+  
+  static final int BINARY_XID_LENGTH = -2;
+  
+  static final int BINARY_XID_SIZE = 20;
+  
+  static final int VERSION = 0;
+  
+  static final int MESSAGE_TYPE = 1;
+  
+  static final int RESOLUTION = 2;
+  
+  static final int ABORT_REASON = 3;
+  
+  static final int TIMESTAMP = 4;
+  
+  static final int TTL = 12;
+  
+  static final int XID_OFFSET = 16;
+  
+  static final int SOURCE_OFFSET = 20;
+  
+  static final int COHORTS_OFFSET = 24;
+  
+  static final int RESPONSES_OFFSET = 28;
+  
+  static final int PAYLOAD_OFFSET = 32;
+  
+  static final int HEADER_SIZE = 36;
+  
+  static final int RESPONSE_INTENT = 0;
+  
+  static final int RESPONSE_PAYLOAD_OFFSET = 1;
+  
+  static final int RESPONSE_COHORT = 5;
+  
+  static final int PAYLOAD_TAG = 0;
+  
+  static final int PAYLOAD_LENGTH = 1;
+  
+  static final int PAYLOAD_DATA = 5;
+  
+  /** An application payload, encoded by the {@link FlyweightPayloadCodec}. */
+  static final byte TAG_APPLICATION = 0;
+  
+  /** The monitor's {@link com.obsidiandynamics.blackstrom.monitor.OutcomeMetadata}, encoded as an i64. */
+  static final byte TAG_OUTCOME_METADATA = 1;
+}
@@ -0,0 +1,44 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import java.nio.*;
+
+import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.blackstrom.monitor.*;
+
+/**
+ *  A payload copied out of a flyweight message in its encoded form, decoded on first access
+ *  and re-emitted verbatim by the {@link FlyweightWriter}.
+ */
+final class FlyweightLazyPayload extends LazyPayload {
+  private final byte tag;
+  
+  private final byte[] bytes;
+  
+  private final FlyweightPayloadCodec payloadCodec;
+  
+  FlyweightLazyPayload(byte tag, byte[] bytes, FlyweightPayloadCodec payloadCodec) {
+    this.tag = tag;
+    this.bytes = bytes;
+    this.payloadCodec = payloadCodec;
+  }
+  
+  byte getTag() {
+    return tag;
+  }
+  
+  byte[] getBytes() {
+    return bytes;
+  }
+  
+  @Override
+  protected Object decode() throws Exception {
+    switch (tag) {
+      case FlyweightLayout.TAG_OUTCOME_METADATA:
+        return new OutcomeMetadata(ByteBuffer.wrap(bytes).getLong());
+      
+      case FlyweightLayout.TAG_APPLICATION:
+      default:
+        return FlyweightWriter.requirePayloadCodec(payloadCodec).decode(bytes);
+    }
+  }
+}
@@ -0,0 +1,279 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import static com.obsidiandynamics.blackstrom.codec.FlyweightLayout.*;
+
+import java.nio.*;
+import java.nio.charset.*;
+
+import com.obsidiandynamics.blackstrom.model.*;
+
+/**
+ *  A read-only view over a message encoded by the {@link FlyweightMessageCodec}, reading the
+ *  fields directly from the underlying {@link ByteBuffer} on demand. Fixed-size header fields
+ *  are read without allocation; strings are decoded on each access.<p>
+ *  
+ *  A full {@link Message} may be materialised with {@link #toMessage()}, deferring the
+ *  decoding of its payloads until they are first accessed.<p>
+ *  
+ *  The flyweight uses absolute reads, leaving the buffer's position unchanged. It must not
+ *  be used after the contents of the buffer have been overwritten.
+ */
+public final class FlyweightMessage {
+  public static final class MalformedMessageException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+    
+    MalformedMessageException(String m) { super(m); }
+  }
+  
+  private final ByteBuffer buffer;
+  
+  private final int base;
+  
+  private final FlyweightPayloadCodec payloadCodec;
+  
+  private FlyweightMessage(ByteBuffer buffer, FlyweightPayloadCodec payloadCodec) {
+    this.buffer = buffer;
+    this.payloadCodec = payloadCodec;
+    base = buffer.position();
+  }
+  
+  static FlyweightMessage wrap(ByteBuffer buffer, FlyweightPayloadCodec payloadCodec) {
+    if (buffer.remaining() < HEADER_SIZE) {
+      throw new MalformedMessageException("Buffer too short: " + buffer.remaining() + " bytes");
+    }
+    final int version = buffer.get(buffer.position() + VERSION);
+    if (version != ENCODING_VERSION) {
+      throw new MalformedMessageException("Unsupported encoding version " + version);
+    }
+    return new FlyweightMessage(buffer, payloadCodec);
+  }
+  
+  /**
+   *  Obtains the type of an encoded message from its header, without wrapping or validating the
+   *  rest of the message.
+   *  
+   *  @param buffer The encoded message.
+   *  @return The message type, or {@code null} if the header isn't in a supported form.
+   */
+  static MessageType peekType(ByteBuffer buffer) {
+    if (buffer.remaining() < HEADER_SIZE || buffer.get(buffer.position() + VERSION) != ENCODING_VERSION) {
+      return null;
+    }
+    
+    final MessageType[] types = MessageType.values();
+    final int ordinal = buffer.get(buffer.position() + MESSAGE_TYPE);
+    return ordinal >= 0 && ordinal < types.length ? types[ordinal] : null;
+  }
+  
+  private byte byteAt(int offset) {
+    return buffer.get(base + offset);
+  }
+  
+  private int intAt(int offset) {
+    return buffer.getInt(base + offset);
+  }
+  
+  private String stringAt(int offset) {
+    final int length = intAt(offset);
+    if (length == NULL_LENGTH) return null;
+    
+    final int start = base + offset + 4;
+    if (buffer.hasArray()) {
+      return new String(buffer.array(), buffer.arrayOffset() + start, length, StandardCharsets.UTF_8);
+    } else {
+      final byte[] bytes = new byte[length];
+      final ByteBuffer duplicate = buffer.duplicate();
+      duplicate.position(start);
+      duplicate.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+  }
+  
+  public MessageType getMessageType() {
+    return MessageType.values()[byteAt(MESSAGE_TYPE)];
+  }
+  
+  public String getXid() {
+    final Xid xid = getXidValue();
+    return xid != null ? xid.toString() : null;
+  }
+  
+  /**
+   *  Obtains the message's {@link Xid}, reading a binary xid without decoding a string.
+   *  
+   *  @return The xid (may be {@code null}).
+   */
+  public Xid getXidValue() {
+    final int offset = intAt(XID_OFFSET);
+    if (intAt(offset) == BINARY_XID_LENGTH) {
+      return new Xid(buffer.getLong(base + offset + 4), buffer.getLong(base + offset + 12));
+    } else {
+      return Xid.of(stringAt(offset));
+    }
+  }
+  
+  public long getTimestamp() {
+    return buffer.getLong(base + TIMESTAMP);
+  }
+  
+  public String getSource() {
+    final int offset = intAt(SOURCE_OFFSET);
+    return offset != ABSENT ? stringAt(offset) : null;
+  }
+  
+  /**
+   *  Obtains the time to live of a {@link Query}, {@link Command} or {@link Proposal}.
+   *  
+   *  @return The time to live, in milliseconds, or 0 for other message types.
+   */
+  public int getTtl() {
+    return intAt(TTL);
+  }
+  
+  public Resolution getResolution() {
+    return getMessageType() == MessageType.OUTCOME ? Resolution.values()[byteAt(RESOLUTION)] : null;
+  }
+  
+  public AbortReason getAbortReason() {
+    final int ordinalPlusOne = byteAt(ABORT_REASON);
+    return ordinalPlusOne != 0 ? AbortReason.values()[ordinalPlusOne - 1] : null;
+  }
+  
+  /**
+   *  Obtains the number of cohorts in a {@link Proposal}.
+   *  
+   *  @return The number of cohorts, or 0 for other message types.
+   */
+  public int getCohortCount() {
+    final int table = intAt(COHORTS_OFFSET);
+    return table != ABSENT ? intAt(table) : 0;
+  }
+  
+  public String getCohort(int index) {
+    return stringAt(intAt(FlyweightWriter.tableEntry(intAt(COHORTS_OFFSET), index)));
+  }
+  
+  /**
+   *  Obtains the number of responses in an {@link Outcome}; a {@link Vote} has exactly
+   *  one response.
+   *  
+   *  @return The number of responses, or 0 for other message types.
+   */
+  public int getResponseCount() {
+    final int table = intAt(RESPONSES_OFFSET);
+    return table != ABSENT ? intAt(table) : 0;
+  }
+  
+  private int responseRecord(int index) {
+    return intAt(FlyweightWriter.tableEntry(intAt(RESPONSES_OFFSET), index));
+  }
+  
+  public String getResponseCohort(int index) {
+    return stringAt(responseRecord(index) + RESPONSE_COHORT);
+  }
+  
+  public Intent getResponseIntent(int index) {
+    return Intent.values()[byteAt(responseRecord(index) + RESPONSE_INTENT)];
+  }
+  
+  public boolean hasPayload() {
+    return intAt(PAYLOAD_OFFSET) != ABSENT;
+  }
+  
+  /**
+   *  Copies out a payload in its encoded form.
+   */
+  private FlyweightLazyPayload payloadAt(int offset) {
+    if (offset == ABSENT) return null;
+    
+    final byte tag = byteAt(offset + PAYLOAD_TAG);
+    final byte[] bytes = new byte[intAt(offset + PAYLOAD_LENGTH)];
+    final ByteBuffer duplicate = buffer.duplicate();
+    duplicate.position(base + offset + PAYLOAD_DATA);
+    duplicate.get(bytes);
+    return new FlyweightLazyPayload(tag, bytes, payloadCodec);
+  }
+  
+  private String[] readCohorts() {
+    final String[] cohorts = new String[getCohortCount()];
+    for (int i = 0; i < cohorts.length; i++) {
+      cohorts[i] = getCohort(i);
+    }
+    return cohorts;
+  }
+  
+  private Response readResponse(int index) {
+    final int record = responseRecord(index);
+    final Object metadata = payloadAt(intAt(record + RESPONSE_PAYLOAD_OFFSET));
+    return new Response(getResponseCohort(index), getResponseIntent(index), metadata);
+  }
+  
+  private Response[] readResponses() {
+    final Response[] responses = new Response[getResponseCount()];
+    for (int i = 0; i < responses.length; i++) {
+      responses[i] = readResponse(i);
+    }
+    return responses;
+  }
+  
+  /**
+   *  Materialises a {@link Message} from the flyweight. Payloads are copied out of the buffer
+   *  in their encoded form, and decoded on first access.
+   *  
+   *  @return The materialised message.
+   */
+  public Message toMessage() {
+    final MessageType messageType = getMessageType();
+    final Xid xid = getXidValue();
+    final long timestamp = getTimestamp();
+    final Object payload = payloadAt(intAt(PAYLOAD_OFFSET));
+    final Message message;
+    
+    switch (messageType) {
+      case QUERY:
+        message = new Query(xid, timestamp, payload, getTtl());
+        break;
+      
+      case QUERY_RESPONSE:
+        message = new QueryResponse(xid, timestamp, payload);
+        break;
+      
+      case COMMAND:
+        message = new Command(xid, timestamp, payload, getTtl());
+        break;
+      
+      case COMMAND_RESPONSE:
+        message = new CommandResponse(xid, timestamp, payload);
+        break;
+      
+      case NOTICE:
+        message = new Notice(xid, timestamp, payload);
+        break;
+      
+      case PROPOSAL:
+        message = new Proposal(xid, timestamp, readCohorts(), payload, getTtl());
+        break;
+      
+      case VOTE:
+        message = new Vote(xid, timestamp, readResponse(0));
+        break;
+      
+      case OUTCOME:
+        message = new Outcome(xid, timestamp, getResolution(), getAbortReason(), readResponses(), payload);
+        break;
+      
+      case $UNKNOWN:
+      default:
+        throw new MalformedMessageException("Cannot deserialize message of type " + messageType);
+    }
+    
+    message.setSource(getSource());
+    return message;
+  }
+  
+  @Override
+  public String toString() {
+    return FlyweightMessage.class.getSimpleName() + " [messageType=" + getMessageType() + ", xid=" + getXid() + 
+        ", timestamp=" + getTimestamp() + ", source=" + getSource() + "]";
+  }
+}
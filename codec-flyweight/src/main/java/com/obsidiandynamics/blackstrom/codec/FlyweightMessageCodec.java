@@ -0,0 +1,74 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import java.nio.*;
+import java.util.*;
+
+import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.yconf.*;
+
+/**
+ *  A {@link MessageCodec} using a fixed-layout binary format (described in {@link FlyweightLayout}),
+ *  in which the header fields lie at known offsets, and the cohorts and responses are indexed
+ *  by offset tables. This allows the fields of an encoded message to be read in place through a
+ *  {@link FlyweightMessage}, materialising a full {@link Message} only when needed.<p>
+ *  
+ *  Application payloads are encoded by a pluggable {@link FlyweightPayloadCodec}, and are
+ *  always decoded lazily. The monitor's outcome metadata is encoded natively.
+ */
+@Y
+public final class FlyweightMessageCodec implements MessageCodec {
+  public static final int ENCODING_VERSION = FlyweightLayout.ENCODING_VERSION;
+  
+  private final FlyweightPayloadCodec payloadCodec;
+  
+  /**
+   *  Creates a codec.
+   *  
+   *  @param payloadCodec The codec for application payloads; may be {@code null} if the only
+   *                      payloads in use are outcome metadata.
+   */
+  public FlyweightMessageCodec(@YInject(name="payloadCodec") FlyweightPayloadCodec payloadCodec) {
+    this.payloadCodec = payloadCodec;
+  }
+  
+  /**
+   *  Wraps an encoded message in a {@link FlyweightMessage}, starting at the buffer's
+   *  current position.
+   *  
+   *  @param buffer The buffer containing the encoded message.
+   *  @return The flyweight.
+   */
+  public FlyweightMessage wrap(ByteBuffer buffer) {
+    return FlyweightMessage.wrap(buffer, payloadCodec);
+  }
+  
+  @Override
+  public byte[] encode(Message message) throws Exception {
+    return FlyweightWriter.write(message, payloadCodec);
+  }
+  
+  @Override
+  public String encodeText(Message message) throws Exception {
+    return Base64.getEncoder().encodeToString(encode(message));
+  }
+  
+  @Override
+  public Message decode(byte[] bytes) {
+    return wrap(ByteBuffer.wrap(bytes)).toMessage();
+  }
+  
+  @Override
+  public Message decodeText(String text) {
+    return decode(Base64.getDecoder().decode(text));
+  }
+  
+  @Override
+  public Message decodeBuffer(ByteBuffer buffer) {
+    return wrap(buffer).toMessage();
+  }
+  
+  @Override
+  public MessageType peekType(ByteBuffer buffer) {
+    return FlyweightMessage.peekType(buffer);
+  }
+}
@@ -0,0 +1,12 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+/**
+ *  Encodes application payloads (objectives, results, events and metadata) for the
+ *  {@link FlyweightMessageCodec}, which treats them as opaque byte arrays. Payloads are
+ *  only decoded when first accessed.
+ */
+public interface FlyweightPayloadCodec {
+  byte[] encode(Object payload) throws Exception;
+  
+  Object decode(byte[] bytes) throws Exception;
+}
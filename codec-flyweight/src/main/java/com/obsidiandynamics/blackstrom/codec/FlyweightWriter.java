@@ -0,0 +1,335 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import static com.obsidiandynamics.blackstrom.codec.FlyweightLayout.*;
+
+import java.nio.*;
+
+import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.blackstrom.monitor.*;
+
+/**
+ *  Encodes a {@link Message} in the {@link FlyweightLayout}. The encoded size is computed
+ *  upfront, so that the message is written into a single, exactly sized array.
+ */
+final class FlyweightWriter {
+  static final class MessageSerializationException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+    
+    MessageSerializationException(Throwable cause) {
+      super("Error serializing message", cause);
+    }
+  }
+  
+  static final class NoPayloadCodecException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+    
+    NoPayloadCodecException() {
+      super("No payload codec has been configured");
+    }
+  }
+  
+  /**
+   *  An encoded payload, pending its placement in the message.
+   */
+  private static final class PayloadBlob {
+    final byte tag;
+    
+    final byte[] bytes;
+    
+    PayloadBlob(byte tag, byte[] bytes) {
+      this.tag = tag;
+      this.bytes = bytes;
+    }
+    
+    int size() {
+      return PAYLOAD_DATA + bytes.length;
+    }
+  }
+  
+  private FlyweightWriter() {}
+  
+  static FlyweightPayloadCodec requirePayloadCodec(FlyweightPayloadCodec payloadCodec) {
+    if (payloadCodec == null) throw new NoPayloadCodecException();
+    return payloadCodec;
+  }
+  
+  static byte[] write(Message message, FlyweightPayloadCodec payloadCodec) throws Exception {
+    final MessageType messageType = message.getMessageType();
+    String[] cohorts = null;
+    Response[] responses = null;
+    Object payload = null;
+    int ttl = 0;
+    Resolution resolution = null;
+    AbortReason abortReason = null;
+    
+    switch (messageType) {
+      case QUERY:
+        ttl = ((Query) message).getTtl();
+        payload = ((Query) message).getRawObjective();
+        break;
+      
+      case QUERY_RESPONSE:
+        payload = ((QueryResponse) message).getRawResult();
+        break;
+      
+      case COMMAND:
+        ttl = ((Command) message).getTtl();
+        payload = ((Command) message).getRawObjective();
+        break;
+      
+      case COMMAND_RESPONSE:
+        payload = ((CommandResponse) message).getRawResult();
+        break;
+      
+      case NOTICE:
+        payload = ((Notice) message).getRawEvent();
+        break;
+      
+      case PROPOSAL:
+        cohorts = ((Proposal) message).getCohorts();
+        ttl = ((Proposal) message).getTtl();
+        payload = ((Proposal) message).getRawObjective();
+        break;
+      
+      case VOTE:
+        responses = new Response[] { ((Vote) message).getResponse() };
+        break;
+      
+      case OUTCOME:
+        final Outcome outcome = (Outcome) message;
+        responses = outcome.getResponses();
+        resolution = outcome.getResolution();
+        abortReason = outcome.getAbortReason();
+        payload = outcome.getRawMetadata();
+        break;
+      
+      case $UNKNOWN:
+      default:
+        final Throwable cause = new UnsupportedOperationException("Cannot serialize message of type " + messageType);
+        throw new MessageSerializationException(cause);
+    }
+    
+    // first pass: encode the payloads and size up the variable section
+    final Xid xid = message.getXidValue();
+    final String source = message.getSource();
+    int size = HEADER_SIZE + xidSize(xid);
+    if (source != null) size += stringSize(source);
+    if (cohorts != null) {
+      size += tableSize(cohorts.length);
+      for (String cohort : cohorts) size += stringSize(cohort);
+    }
+    
+    PayloadBlob[] responseBlobs = null;
+    if (responses != null) {
+      size += tableSize(responses.length);
+      responseBlobs = new PayloadBlob[responses.length];
+      for (int i = 0; i < responses.length; i++) {
+        size += RESPONSE_COHORT + stringSize(responses[i].getCohort());
+        responseBlobs[i] = encodePayload(responses[i].getRawMetadata(), payloadCodec);
+        if (responseBlobs[i] != null) size += responseBlobs[i].size();
+      }
+    }
+    
+    final PayloadBlob payloadBlob = encodePayload(payload, payloadCodec);
+    if (payloadBlob != null) size += payloadBlob.size();
+    
+    // second pass: write the header, followed by the variable section
+    final byte[] bytes = new byte[size];
+    final ByteBuffer buf = ByteBuffer.wrap(bytes);
+    buf.put(VERSION, (byte) ENCODING_VERSION);
+    buf.put(MESSAGE_TYPE, (byte) messageType.ordinal());
+    buf.put(RESOLUTION, resolution != null ? (byte) resolution.ordinal() : 0);
+    buf.put(ABORT_REASON, abortReason != null ? (byte) (abortReason.ordinal() + 1) : 0);
+    buf.putLong(TIMESTAMP, message.getTimestamp());
+    buf.putInt(TTL, ttl);
+    
+    int pos = HEADER_SIZE;
+    buf.putInt(XID_OFFSET, pos);
+    pos = writeXid(buf, pos, xid);
+    
+    if (source != null) {
+      buf.putInt(SOURCE_OFFSET, pos);
+      pos = writeString(buf, pos, source);
+    } else {
+      buf.putInt(SOURCE_OFFSET, ABSENT);
+    }
+    
+    if (cohorts != null) {
+      buf.putInt(COHORTS_OFFSET, pos);
+      final int table = pos;
+      buf.putInt(table, cohorts.length);
+      pos += tableSize(cohorts.length);
+      for (int i = 0; i < cohorts.length; i++) {
+        buf.putInt(tableEntry(table, i), pos);
+        pos = writeString(buf, pos, cohorts[i]);
+      }
+    } else {
+      buf.putInt(COHORTS_OFFSET, ABSENT);
+    }
+    
+    if (responses != null) {
+      buf.putInt(RESPONSES_OFFSET, pos);
+      final int table = pos;
+      buf.putInt(table, responses.length);
+      pos += tableSize(responses.length);
+      for (int i = 0; i < responses.length; i++) {
+        final int record = pos;
+        buf.putInt(tableEntry(table, i), record);
+        buf.put(record + RESPONSE_INTENT, (byte) responses[i].getIntent().ordinal());
+        pos = writeString(buf, record + RESPONSE_COHORT, responses[i].getCohort());
+        if (responseBlobs[i] != null) {
+          buf.putInt(record + RESPONSE_PAYLOAD_OFFSET, pos);
+          pos = writePayload(buf, pos, responseBlobs[i]);
+        } else {
+          buf.putInt(record + RESPONSE_PAYLOAD_OFFSET, ABSENT);
+        }
+      }
+    } else {
+      buf.putInt(RESPONSES_OFFSET, ABSENT);
+    }
+    
+    if (payloadBlob != null) {
+      buf.putInt(PAYLOAD_OFFSET, pos);
+      pos = writePayload(buf, pos, payloadBlob);
+    } else {
+      buf.putInt(PAYLOAD_OFFSET, ABSENT);
+    }
+    return bytes;
+  }
+  
+  static int tableEntry(int table, int index) {
+    return table + 4 + index * 4;
+  }
+  
+  private static int tableSize(int entries) {
+    return 4 + entries * 4;
+  }
+  
+  private static PayloadBlob encodePayload(Object payload, FlyweightPayloadCodec payloadCodec) throws Exception {
+    if (payload == null) {
+      return null;
+    } else if (payload instanceof FlyweightLazyPayload) {
+      final FlyweightLazyPayload lazy = (FlyweightLazyPayload) payload;
+      return new PayloadBlob(lazy.getTag(), lazy.getBytes());
+    } else if (payload instanceof LazyPayload) {
+      // a lazy payload originating from a different codec must be decoded first
+      return encodePayload(((LazyPayload) payload).get(), payloadCodec);
+    } else if (payload.getClass() == OutcomeMetadata.class) {
+      final byte[] bytes = new byte[8];
+      ByteBuffer.wrap(bytes).putLong(((OutcomeMetadata) payload).getProposalTimestamp());
+      return new PayloadBlob(TAG_OUTCOME_METADATA, bytes);
+    } else {
+      return new PayloadBlob(TAG_APPLICATION, requirePayloadCodec(payloadCodec).encode(payload));
+    }
+  }
+  
+  private static int writePayload(ByteBuffer buf, int pos, PayloadBlob blob) {
+    buf.put(pos + PAYLOAD_TAG, blob.tag);
+    buf.putInt(pos + PAYLOAD_LENGTH, blob.bytes.length);
+    System.arraycopy(blob.bytes, 0, buf.array(), pos + PAYLOAD_DATA, blob.bytes.length);
+    return pos + blob.size();
+  }
+  
+  private static int xidSize(Xid xid) {
+    if (xid == null) {
+      return stringSize(null);
+    } else {
+      return xid.isBinary() ? BINARY_XID_SIZE : stringSize(xid.toString());
+    }
+  }
+  
+  private static int stringSize(String str) {
+    return str != null ? 4 + utf8Length(str) : 4;
+  }
+  
+  /**
+   *  Determines the UTF-8 encoded length of a string without encoding it.
+   *  
+   *  @param str The string.
+   *  @return The length in bytes.
+   */
+  static int utf8Length(String str) {
+    final int chars = str.length();
+    int length = chars;
+    for (int i = 0; i < chars; i++) {
+      final char ch = str.charAt(i);
+      if (ch >= 0x80) {
+        if (ch < 0x800) {
+          length++;
+        } else if (Character.isSurrogate(ch)) {
+          // a surrogate pair occupies two chars and encodes to four bytes; an unpaired surrogate
+          // is replaced with a single '?'
+          if (isSurrogatePair(str, i)) {
+            length += 2;
+            i++;
+          }
+        } else {
+          length += 2;
+        }
+      }
+    }
+    return length;
+  }
+  
+  private static boolean isSurrogatePair(String str, int index) {
+    return Character.isHighSurrogate(str.charAt(index)) && index + 1 < str.length() && 
+        Character.isLowSurrogate(str.charAt(index + 1));
+  }
+  
+  /**
+   *  Writes a binary {@link Xid} as a {@link FlyweightLayout#BINARY_XID_LENGTH} prefix followed
+   *  by its two halves, or any other xid as a string.
+   */
+  private static int writeXid(ByteBuffer buf, int pos, Xid xid) {
+    if (xid != null && xid.isBinary()) {
+      buf.putInt(pos, BINARY_XID_LENGTH);
+      buf.putLong(pos + 4, xid.getHigh());
+      buf.putLong(pos + 12, xid.getLow());
+      return pos + BINARY_XID_SIZE;
+    } else {
+      return writeString(buf, pos, xid != null ? xid.toString() : null);
+    }
+  }
+  
+  /**
+   *  Writes a length-prefixed UTF-8 string directly into the buffer's backing array. Unpaired
+   *  surrogates are replaced with '?', consistent with {@link String#getBytes}. A {@code null}
+   *  string is written as a {@link FlyweightLayout#NULL_LENGTH} prefix alone.
+   */
+  private static int writeString(ByteBuffer buf, int pos, String str) {
+    if (str == null) {
+      buf.putInt(pos, NULL_LENGTH);
+      return pos + 4;
+    }
+    
+    final byte[] bytes = buf.array();
+    final int lengthPos = pos;
+    pos += 4;
+    final int chars = str.length();
+    for (int i = 0; i < chars; i++) {
+      final char ch = str.charAt(i);
+      if (ch < 0x80) {
+        bytes[pos++] = (byte) ch;
+      } else if (ch < 0x800) {
+        bytes[pos++] = (byte) (0xC0 | ch >> 6);
+        bytes[pos++] = (byte) (0x80 | ch & 0x3F);
+      } else if (Character.isSurrogate(ch)) {
+        if (isSurrogatePair(str, i)) {
+          final int cp = Character.toCodePoint(ch, str.charAt(++i));
+          bytes[pos++] = (byte) (0xF0 | cp >> 18);
+          bytes[pos++] = (byte) (0x80 | cp >> 12 & 0x3F);
+          bytes[pos++] = (byte) (0x80 | cp >> 6 & 0x3F);
+          bytes[pos++] = (byte) (0x80 | cp & 0x3F);
+        } else {
+          bytes[pos++] = '?';
+        }
+      } else {
+        bytes[pos++] = (byte) (0xE0 | ch >> 12);
+        bytes[pos++] = (byte) (0x80 | ch >> 6 & 0x3F);
+        bytes[pos++] = (byte) (0x80 | ch & 0x3F);
+      }
+    }
+    buf.putInt(lengthPos, pos - lengthPos - 4);
+    return pos;
+  }
+}
@@ -0,0 +1,34 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import com.esotericsoftware.kryo.*;
+import com.esotericsoftware.kryo.io.*;
+import com.obsidiandynamics.blackstrom.codec.KryoMessageCodec.*;
+
+/**
+ *  Encodes payloads with Kryo, for testing and for benchmarking against the {@link KryoMessageCodec}
+ *  on a like-for-like basis.
+ */
+public final class FlyweightKryoPayloadCodec implements FlyweightPayloadCodec {
+  private final ThreadLocal<Kryo> kryo;
+  
+  public FlyweightKryoPayloadCodec(KryoExpansion... expansions) {
+    kryo = ThreadLocal.withInitial(() -> {
+      final Kryo kryo = new Kryo();
+      for (KryoExpansion expansion : expansions) expansion.accept(kryo);
+      kryo.setReferences(false);
+      return kryo;
+    });
+  }
+  
+  @Override
+  public byte[] encode(Object payload) {
+    final Output out = new Output(128, -1);
+    kryo.get().writeClassAndObject(out, payload);
+    return out.toBytes();
+  }
+  
+  @Override
+  public Object decode(byte[] bytes) {
+    return kryo.get().readClassAndObject(new Input(bytes));
+  }
+}
@@ -0,0 +1,273 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import static org.junit.Assert.*;
+
+import java.nio.*;
+
+import org.junit.*;
+import org.junit.runner.*;
+import org.junit.runners.*;
+
+import com.obsidiandynamics.blackstrom.bank.*;
+import com.obsidiandynamics.blackstrom.codec.FlyweightMessage.*;
+import com.obsidiandynamics.blackstrom.codec.FlyweightWriter.*;
+import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.blackstrom.monitor.*;
+import com.obsidiandynamics.func.*;
+import com.obsidiandynamics.testmark.*;
+import com.obsidiandynamics.threads.*;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public final class FlyweightMessageCodecTest {
+  private static FlyweightMessageCodec newCodec() {
+    return new FlyweightMessageCodec(new FlyweightKryoPayloadCodec(new KryoBankExpansion()));
+  }
+  
+  private static void assertRoundTrip(Message m) throws Exception {
+    final FlyweightMessageCodec c = newCodec();
+    final byte[] encoded = c.encode(m);
+    final Message decoded = c.decode(encoded);
+    assertEquals(m, decoded);
+    assertEquals(m.getSource(), decoded.getSource());
+    
+    // re-encoding replays the undecoded payloads verbatim
+    final Message undecoded = c.decode(encoded);
+    assertArrayEquals(encoded, c.encode(undecoded));
+    
+    assertEquals(m, c.decodeText(c.encodeText(m)));
+  }
+  
+  @Test
+  public void testRoundTrip() throws Exception {
+    final KryoAnimal<?> a = new KryoDog().named("Rover").withFriend(new KryoCat().named("Misty"));
+    assertRoundTrip(new Query("X0", a, 1000).withSource("test"));
+    assertRoundTrip(new QueryResponse("X0", a));
+    assertRoundTrip(new Command("X0", a, 1000));
+    assertRoundTrip(new CommandResponse("X0", a));
+    assertRoundTrip(new Notice("X0", a));
+    assertRoundTrip(new Notice("X0", null));
+    assertRoundTrip(new Proposal("X0", new String[] {"a", "b"}, BankSettlement.forTwo(1000), 1000).withSource("test"));
+    assertRoundTrip(new Proposal("X0", new String[0], null, 1000));
+    assertRoundTrip(new Vote("X0", new Response("a", Intent.ACCEPT, a)));
+    assertRoundTrip(new Vote("X0", new Response("a", Intent.REJECT, null)));
+    assertRoundTrip(new Outcome("X0", Resolution.COMMIT, null, 
+                                new Response[] {new Response("a", Intent.ACCEPT, a), new Response("b", Intent.ACCEPT, null)}, 
+                                new OutcomeMetadata(100)));
+    assertRoundTrip(new Outcome("X0", Resolution.ABORT, AbortReason.REJECT, 
+                                new Response[] {new Response("a", Intent.REJECT, null)}, null));
+  }
+  
+  @Test
+  public void testFlyweightFields() throws Exception {
+    final FlyweightMessageCodec c = newCodec();
+    final Proposal p = new Proposal("X100", 1000, new String[] {"a", "bb"}, BankSettlement.forTwo(1000), 500).withSource("src");
+    final byte[] encoded = c.encode(p);
+    
+    // a heap buffer that doesn't start at the beginning of its backing array
+    final byte[] padded = new byte[encoded.length + 3];
+    System.arraycopy(encoded, 0, padded, 2, encoded.length);
+    final ByteBuffer heap = ByteBuffer.wrap(padded, 2, encoded.length);
+    
+    final ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length);
+    direct.put(encoded).flip();
+    
+    for (ByteBuffer buffer : new ByteBuffer[] {heap, direct}) {
+      final int position = buffer.position();
+      final FlyweightMessage f = c.wrap(buffer);
+      assertEquals(MessageType.PROPOSAL, f.getMessageType());
+      assertEquals("X100", f.getXid());
+      assertEquals(1000, f.getTimestamp());
+      assertEquals("src", f.getSource());
+      assertEquals(500, f.getTtl());
+      assertEquals(2, f.getCohortCount());
+      assertEquals("a", f.getCohort(0));
+      assertEquals("bb", f.getCohort(1));
+      assertEquals(0, f.getResponseCount());
+      assertNull(f.getResolution());
+      assertNull(f.getAbortReason());
+      assertTrue(f.hasPayload());
+      assertEquals(p, f.toMessage());
+      assertEquals(position, buffer.position());
+      assertTrue(f.toString().contains("X100"));
+      assertEquals(p, c.decodeBuffer(buffer));
+    }
+  }
+  
+  @Test
+  public void testFlyweightOutcomeFields() throws Exception {
+    final FlyweightMessageCodec c = newCodec();
+    final Outcome o = new Outcome("X100", Resolution.ABORT, AbortReason.REJECT, 
+                                  new Response[] {new Response("a", Intent.ACCEPT, null), new Response("b", Intent.REJECT, null)}, 
+                                  null);
+    final FlyweightMessage f = c.wrap(ByteBuffer.wrap(c.encode(o)));
+    assertEquals(MessageType.OUTCOME, f.getMessageType());
+    assertNull(f.getSource());
+    assertEquals(0, f.getTtl());
+    assertEquals(Resolution.ABORT, f.getResolution());
+    assertEquals(AbortReason.REJECT, f.getAbortReason());
+    assertEquals(0, f.getCohortCount());
+    assertEquals(2, f.getResponseCount());
+    assertEquals("a", f.getResponseCohort(0));
+    assertEquals(Intent.ACCEPT, f.getResponseIntent(0));
+    assertEquals("b", f.getResponseCohort(1));
+    assertEquals(Intent.REJECT, f.getResponseIntent(1));
+    assertFalse(f.hasPayload());
+  }
+  
+  @Test
+  public void testLazyPayload() throws Exception {
+    final FlyweightMessageCodec c = newCodec();
+    final Proposal p = new Proposal("X100", new String[] {"a"}, BankSettlement.forTwo(1000), 1000);
+    final Proposal d = Classes.cast(c.decode(c.encode(p)));
+    final LazyPayload objective = (LazyPayload) d.getRawObjective();
+    assertFalse(objective.isDecoded());
+    assertEquals(BankSettlement.forTwo(1000), d.getObjective());
+    assertTrue(objective.isDecoded());
+  }
+  
+  @Test
+  public void testUnicodeStrings() throws Exception {
+    final String xid = "xé中😀";
+    assertRoundTrip(new Proposal(xid, new String[] {"é", ""}, null, 1000).withSource("中"));
+    assertEquals(new String(xid.getBytes("UTF-8"), "UTF-8").length(), xid.length());
+    assertEquals(xid.getBytes("UTF-8").length, FlyweightWriter.utf8Length(xid));
+    
+    // an unpaired surrogate is replaced, consistently with String.getBytes()
+    final String unpaired = "a\ud83db";
+    assertEquals(unpaired.getBytes("UTF-8").length, FlyweightWriter.utf8Length(unpaired));
+    final FlyweightMessageCodec c = newCodec();
+    final Message decoded = c.decode(c.encode(new Notice(unpaired, null)));
+    assertEquals(new String(unpaired.getBytes("UTF-8"), "UTF-8"), decoded.getXid());
+  }
+  
+  /**
+   *  Null strings are encoded explicitly, and are distinct from empty strings.
+   */
+  @Test
+  public void testNullStrings() throws Exception {
+    assertRoundTrip(new Proposal((String) null, new String[] {null, "", "b"}, null, 1000));
+    assertRoundTrip(new Vote((String) null, new Response(null, Intent.ACCEPT, null)));
+    assertRoundTrip(new Outcome((String) null, Resolution.COMMIT, null, 
+                                new Response[] {new Response(null, Intent.ACCEPT, null)}, null));
+    
+    final FlyweightMessageCodec c = newCodec();
+    final Message decoded = c.decode(c.encode(new Proposal((String) null, new String[] {null, ""}, null, 1000)));
+    assertNull(decoded.getXid());
+    assertNull(((Proposal) decoded).getCohorts()[0]);
+    assertEquals("", ((Proposal) decoded).getCohorts()[1]);
+  }
+  
+  @Test
+  public void testBinaryXid() throws Exception {
+    final FlyweightMessageCodec c = newCodec();
+    final Xid xid = Xid.generate();
+    final byte[] encoded = c.encode(new Notice(xid, 1, null));
+    // a binary xid takes up 20 bytes, against 40 for its string form
+    assertEquals(c.encode(new Notice(xid.toString().toUpperCase(), 1, null)).length - 20, encoded.length);
+    
+    final FlyweightMessage f = c.wrap(ByteBuffer.wrap(encoded));
+    assertTrue(f.getXidValue().isBinary());
+    assertEquals(xid, f.getXidValue());
+    assertEquals(xid.toString(), f.getXid());
+    assertEquals(new Notice(xid, 1, null), f.toMessage());
+    
+    // a canonical string is encoded in binary form, and decodes to an equal message
+    assertRoundTrip(new Notice(xid.toString(), 1, null));
+  }
+  
+  @Test
+  public void testOutcomeMetadataWithoutPayloadCodec() throws Exception {
+    final FlyweightMessageCodec c = new FlyweightMessageCodec(null);
+    final Outcome o = new Outcome("X0", Resolution.COMMIT, null, 
+                                  new Response[] {new Response("a", Intent.ACCEPT, null)}, new OutcomeMetadata(100));
+    assertEquals(o, c.decode(c.encode(o)));
+  }
+  
+  @Test(expected=NoPayloadCodecException.class)
+  public void testApplicationPayloadWithoutPayloadCodec() throws Exception {
+    new FlyweightMessageCodec(null).encode(new Notice("X0", "event"));
+  }
+  
+  @Test(expected=MessageSerializationException.class)
+  public void testSerializeUnknown() throws Exception {
+    newCodec().encode(new UnknownMessage("X0"));
+  }
+  
+  @Test(expected=MalformedMessageException.class)
+  public void testShortBuffer() {
+    newCodec().decode(new byte[FlyweightLayout.HEADER_SIZE - 1]);
+  }
+  
+  @Test(expected=MalformedMessageException.class)
+  public void testUnsupportedVersion() {
+    newCodec().decode(new byte[FlyweightLayout.HEADER_SIZE]);
+  }
+  
+  @Test
+  public void testPeekType() throws Exception {
+    final FlyweightMessageCodec c = newCodec();
+    final Message[] messages = {
+      new Proposal("X0", new String[] {"a"}, null, 1000),
+      new Vote("X0", new Response("a", Intent.ACCEPT, null)),
+      new Outcome("X0", Resolution.COMMIT, null, new Response[0], null)
+    };
+    for (Message m : messages) {
+      final ByteBuffer buffer = c.encodeBuffer(m);
+      final int position = buffer.position();
+      assertEquals(m.getMessageType(), c.peekType(buffer));
+      assertEquals(position, buffer.position());
+    }
+    
+    assertNull(c.peekType(ByteBuffer.wrap(new byte[FlyweightLayout.HEADER_SIZE - 1])));
+    assertNull(c.peekType(ByteBuffer.wrap(new byte[FlyweightLayout.HEADER_SIZE])));
+  }
+  
+  @Test
+  public void testCycle() throws Exception {
+    cycle(100);
+  }
+  
+  @Test
+  public void testCycleBenchmark() throws Exception {
+    Testmark.ifEnabled(() -> cycle(10_000_000));
+  }
+  
+  private static void cycle(int runs) throws Exception {
+    final Message m = new Proposal("X100", new String[] {"branch-0", "branch-1"}, BankSettlement.forTwo(1000), 1000).withSource("test");
+    final MessageCodec flyweight = newCodec();
+    final MessageCodec kryo = new KryoMessageCodec(true, new KryoBankExpansion());
+    cycle(runs, flyweight, m, "flyweight");
+    cycle(runs, kryo, m, "kryo");
+    
+    // the flyweight's raison d'être: reading the header fields without materialising the message
+    final FlyweightMessageCodec c = newCodec();
+    final ByteBuffer encoded = ByteBuffer.wrap(c.encode(m));
+    final long tookHeader = Threads.tookMillis(() -> {
+      for (int i = 0; i < runs; i++) {
+        final FlyweightMessage f = c.wrap(encoded);
+        if (f.getTtl() != 1000 || f.getCohortCount() != 2) throw new AssertionError();
+      }
+    });
+    System.out.format("flyweight header reads: %,d took %,d ms, %,.0f msgs/sec\n", 
+                      runs, tookHeader, (double) runs / tookHeader * 1000);
+  }
+  
+  private static void cycle(int runs, MessageCodec c, Message m, String name) throws Exception {
+    final long tookSer = Threads.tookMillis(() -> {
+      for (int i = 0; i < runs; i++) {
+        final byte[] encoded = c.encode(m);
+        if (encoded == null) throw new AssertionError();
+      }
+    });
+    System.out.format("%s ser'n: %,d took %,d ms, %,.0f msgs/sec\n", name, runs, tookSer, (double) runs / tookSer * 1000);
+    
+    final long tookDes = Threads.tookMillis(() -> {
+      final byte[] encoded = c.encode(m);
+      for (int i = 0; i < runs; i++) {
+        final Message d = c.decode(encoded);
+        if (d == null) throw new AssertionError();
+      }
+    });
+    System.out.format("%s des'n: %,d took %,d ms, %,.0f msgs/sec\n", name, runs, tookDes, (double) runs / tookDes * 1000);
+  }
+}
@@ -0,0 +1,39 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import java.util.function.*;
+
+import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.dataformat.cbor.*;
+import com.fasterxml.jackson.dataformat.smile.*;
+
+/**
+ *  The wire format used by the {@link JacksonMessageCodec}. All formats share the same
+ *  serializers and expansions, differing only in the underlying {@link JsonFactory}.<p>
+ *  
+ *  The binary formats (Smile and CBOR) produce smaller messages and avoid number and
+ *  string escaping on the hot path, at the cost of human readability.
+ */
+public enum JacksonFormat {
+  JSON(false, JsonFactory::new),
+  
+  SMILE(true, SmileFactory::new),
+  
+  CBOR(true, CBORFactory::new);
+  
+  private final boolean binary;
+  
+  private final Supplier<JsonFactory> factoryMaker;
+  
+  private JacksonFormat(boolean binary, Supplier<JsonFactory> factoryMaker) {
+    this.binary = binary;
+    this.factoryMaker = factoryMaker;
+  }
+  
+  public boolean isBinary() {
+    return binary;
+  }
+  
+  JsonFactory createFactory() {
+    return factoryMaker.get();
+  }
+}
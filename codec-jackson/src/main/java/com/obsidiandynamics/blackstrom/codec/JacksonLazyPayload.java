@@ -0,0 +1,38 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import java.io.*;
+
+import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.databind.util.*;
+import com.obsidiandynamics.blackstrom.model.*;
+
+/**
+ *  A payload held as a buffered token stream, bound to an object on first access and
+ *  replayed verbatim by the {@link JacksonMessageSerializer}. Buffering the tokens is
+ *  format-agnostic, and skips the class resolution and object binding of the payload.
+ */
+final class JacksonLazyPayload extends LazyPayload {
+  private final TokenBuffer tokens;
+  
+  private final ObjectCodec codec;
+  
+  private final Class<?> payloadClass;
+  
+  JacksonLazyPayload(TokenBuffer tokens, ObjectCodec codec, Class<?> payloadClass) {
+    this.tokens = tokens;
+    this.codec = codec;
+    this.payloadClass = payloadClass;
+  }
+  
+  void serialize(JsonGenerator gen) throws IOException {
+    tokens.serialize(gen);
+  }
+  
+  @Override
+  protected Object decode() throws IOException {
+    try (JsonParser p = tokens.asParser(codec)) {
+      p.nextToken();
+      return Payload.unpack(codec.readValue(p, payloadClass));
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import java.io.*;
+
+import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.ser.std.*;
+
+final class JacksonLazyPayloadSerializer extends StdSerializer<JacksonLazyPayload> {
+  private static final long serialVersionUID = 1L;
+  
+  JacksonLazyPayloadSerializer() {
+    super(JacksonLazyPayload.class);
+  }
+  
+  @Override
+  public void serialize(JacksonLazyPayload p, JsonGenerator gen, SerializerProvider provider) throws IOException {
+    p.serialize(gen);
+  }
+}
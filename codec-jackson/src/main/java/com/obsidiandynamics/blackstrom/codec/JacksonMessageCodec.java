@@ -1,12 +1,15 @@
 package com.obsidiandynamics.blackstrom.codec;
 
 import java.io.*;
+import java.nio.*;
+import java.util.*;
 import java.util.function.*;
 
 import com.fasterxml.jackson.annotation.JsonInclude.*;
 import com.fasterxml.jackson.core.*;
 import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.databind.module.*;
+import com.fasterxml.jackson.databind.util.*;
 import com.obsidiandynamics.blackstrom.model.*;
 import com.obsidiandynamics.yconf.*;
 
@@ -18,19 +21,69 @@ public final class JacksonMessageCodec implements MessageCodec {
   
   @FunctionalInterface
   public interface JacksonExpansion extends Consumer<SimpleModule> {}
+  
+  private static final int DEF_MESSAGE_BUFFER_SIZE = 128;
+  
+  /**
+   *  Exposes the internal buffer so that the encoded bytes can be wrapped without copying.
+   */
+  private static final class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+    ExposedByteArrayOutputStream(int size) {
+      super(size);
+    }
+    
+    ByteBuffer toByteBuffer() {
+      return ByteBuffer.wrap(buf, 0, count);
+    }
+  }
 
+  private final JacksonFormat format;
+  
   private final ObjectMapper mapper;
   
+  public JacksonMessageCodec(boolean mapPayload, JacksonExpansion... expansions) {
+    this(mapPayload, false, JacksonFormat.JSON, expansions);
+  }
+  
+  public JacksonMessageCodec(boolean mapPayload, JacksonFormat format, JacksonExpansion... expansions) {
+    this(mapPayload, false, format, expansions);
+  }
+  
+  public JacksonMessageCodec(boolean mapPayload, boolean lazyPayload, JacksonFormat format, 
+                             JacksonExpansion... expansions) {
+    this(mapPayload, lazyPayload, format, null, expansions);
+  }
+  
+  /**
+   *  Creates a codec using the given wire format, optionally with lazy payload decoding and
+   *  with dictionary-encoded identifiers. A binary format (Smile or CBOR) reuses the same 
+   *  serializers and expansions as JSON, only changing the encoding of the resulting token stream.
+   *  
+   *  @param mapPayload Whether payloads should be mapped to their concrete types.
+   *  @param lazyPayload Whether payloads should be bound on first access rather than upfront,
+   *                     and re-emitted verbatim if never accessed.
+   *  @param format The wire format; if {@code null}, defaults to {@link JacksonFormat#JSON}.
+   *  @param dictionary If set, encodes the cohort and source identifiers in the dictionary as
+   *                    their numeric IDs. Identifiers may be decoded in either form, but numeric
+   *                    IDs can only be decoded with a matching dictionary.
+   *  @param expansions Additional (de)serializers to register.
+   */
   public JacksonMessageCodec(@YInject(name="mapPayload") boolean mapPayload, 
+                             @YInject(name="lazyPayload") boolean lazyPayload, 
+                             @YInject(name="format") JacksonFormat format,
+                             @YInject(name="dictionary") IdentifierDictionary dictionary,
                              @YInject(name="expansions") JacksonExpansion... expansions) {
-    mapper = new ObjectMapper();
+    this.format = format != null ? format : JacksonFormat.JSON;
+    mapper = new ObjectMapper(this.format.createFactory());
     mapper.setSerializationInclusion(Include.NON_NULL);
     
+    final IdentifierDictionary.Identifiers identifiers = dictionary != null ? dictionary.resolve() : null;
     final SimpleModule module = new SimpleModule();
-    module.addSerializer(Message.class, new JacksonMessageSerializer());
-    module.addDeserializer(Message.class, new JacksonMessageDeserializer(mapPayload));
+    module.addSerializer(Message.class, new JacksonMessageSerializer(identifiers));
+    module.addDeserializer(Message.class, new JacksonMessageDeserializer(mapPayload, lazyPayload, identifiers));
     module.addSerializer(Payload.class, new JacksonPayloadSerializer());
     module.addDeserializer(Payload.class, new JacksonPayloadDeserializer());
+    module.addSerializer(JacksonLazyPayload.class, new JacksonLazyPayloadSerializer());
     
     for (JacksonExpansion expansion : defExpansions) expansion.accept(module);
     for (JacksonExpansion expansion : expansions) expansion.accept(module);
@@ -38,13 +91,59 @@ public final class JacksonMessageCodec implements MessageCodec {
     mapper.registerModule(module);
   }
   
+  public JacksonFormat getFormat() {
+    return format;
+  }
+  
+  ObjectMapper getMapper() {
+    return mapper;
+  }
+  
   @Override
   public byte[] encode(Message message) throws JsonProcessingException {
     return mapper.writeValueAsBytes(message);
   }
+  
+  /**
+   *  Encodes the message as text. Binary formats are Base64-encoded, as their output isn't
+   *  guaranteed to be a valid character sequence.
+   */
+  @Override
+  public String encodeText(Message message) throws JsonProcessingException {
+    if (format.isBinary()) {
+      return Base64.getEncoder().encodeToString(encode(message));
+    } else {
+      return mapper.writeValueAsString(message);
+    }
+  }
 
+  @Override
+  public ByteBuffer encodeBuffer(Message message) throws IOException {
+    final ExposedByteArrayOutputStream out = new ExposedByteArrayOutputStream(DEF_MESSAGE_BUFFER_SIZE);
+    mapper.writeValue(out, message);
+    return out.toByteBuffer();
+  }
+  
   @Override
   public Message decode(byte[] bytes) throws JsonParseException, JsonMappingException, IOException {
     return mapper.readValue(bytes, Message.class);
   }
+  
+  @Override
+  public Message decodeText(String text) throws JsonParseException, JsonMappingException, IOException {
+    if (format.isBinary()) {
+      return decode(Base64.getDecoder().decode(text));
+    } else {
+      return mapper.readValue(text, Message.class);
+    }
+  }
+  
+  @Override
+  public Message decodeBuffer(ByteBuffer buffer) throws IOException {
+    if (buffer.hasArray()) {
+      return mapper.readValue(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), Message.class);
+    } else {
+      return mapper.readValue(new ByteBufferBackedInputStream(buffer.duplicate()), Message.class);
+    }
+  }
 }
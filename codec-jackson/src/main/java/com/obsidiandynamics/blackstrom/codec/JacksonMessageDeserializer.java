@@ -1,11 +1,12 @@
 package com.obsidiandynamics.blackstrom.codec;
 
 import java.io.*;
+import java.util.*;
 
 import com.fasterxml.jackson.core.*;
 import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.databind.deser.std.*;
-import com.fasterxml.jackson.databind.node.*;
+import com.fasterxml.jackson.databind.util.*;
 import com.obsidiandynamics.blackstrom.model.*;
 
 final class JacksonMessageDeserializer extends StdDeserializer<Message> {
@@ -13,9 +14,19 @@ final class JacksonMessageDeserializer extends StdDeserializer<Message> {
   
   private final boolean mapPayload;
   
-  JacksonMessageDeserializer(boolean mapPayload) {
+  private final boolean lazyPayload;
+  
+  /** Lazily resolved; custom deserializers aren't cached by Jackson, and are costly to look up per field. */
+  private transient JsonDeserializer<Object> payloadDeserializer;
+  
+  /** Resolves numeric cohort and source identifiers; {@code null} if not in use. */
+  private final IdentifierDictionary.Identifiers identifiers;
+  
+  JacksonMessageDeserializer(boolean mapPayload, boolean lazyPayload, IdentifierDictionary.Identifiers identifiers) {
     super(Message.class);
     this.mapPayload = mapPayload;
+    this.lazyPayload = lazyPayload;
+    this.identifiers = identifiers;
   }
   
   private Class<?> getPayloadClass() {
@@ -32,45 +43,125 @@ final class JacksonMessageDeserializer extends StdDeserializer<Message> {
   
   @Override
   public Message deserialize(JsonParser p, DeserializationContext ctxt) throws IOException, JsonProcessingException {
-    final JsonNode root = p.getCodec().readTree(p);
-    final MessageType messageType = MessageType.valueOf(root.get("messageType").asText());
-    final JsonNode xidNode = root.get("xid");
-    final String xid = xidNode.asText();
-    final long timestamp = root.get("timestamp").asLong();
-    final String source = JacksonUtils.readString("source", root);
-    final Message message;
+    // fields are read in a single streaming pass, in any order; the message is assembled at the end
+    MessageType messageType = null;
+    String xid = null;
+    long timestamp = 0;
+    String source = null;
+    String[] cohorts = null;
+    int ttl = 0;
+    Object payload = null;
+    Object metadata = null;
+    Response response = null;
+    Response[] responses = null;
+    String[] acceptedCohorts = null;
+    Resolution resolution = null;
+    AbortReason abortReason = null;
+    
+    for (JsonToken t = JacksonUtils.firstField(p); t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+      final String fieldName = p.getCurrentName();
+      p.nextToken();
+      switch (fieldName) {
+        case "messageType":
+          messageType = MessageType.valueOf(p.getText());
+          break;
+        
+        case "xid":
+          xid = p.getText();
+          break;
+        
+        case "timestamp":
+          timestamp = p.getLongValue();
+          break;
+        
+        case "source":
+          source = readIdentifier(p);
+          break;
+        
+        case "cohorts":
+          cohorts = deserializeCohorts(p);
+          break;
+        
+        case "ttl":
+          ttl = p.getIntValue();
+          break;
+        
+        case "objective":
+        case "result":
+        case "event":
+          payload = deserializePayload(p, ctxt);
+          break;
+        
+        case "metadata":
+          metadata = deserializePayload(p, ctxt);
+          break;
+        
+        case "response":
+          response = deserializeResponse(p, ctxt);
+          break;
+        
+        case "responses":
+          responses = deserializeResponses(p, ctxt);
+          break;
+        
+        case "acceptedCohorts":
+          acceptedCohorts = deserializeCohorts(p);
+          break;
+        
+        case "resolution":
+          resolution = Resolution.valueOf(p.getText());
+          break;
+        
+        case "abortReason":
+          final String abortReasonStr = JacksonUtils.readString(p);
+          abortReason = abortReasonStr != null ? AbortReason.valueOf(abortReasonStr) : null;
+          break;
+        
+        default:
+          p.skipChildren();
+      }
+    }
+    
+    if (messageType == null) {
+      throw new MessageDeserializationException(new IllegalStateException("Missing message type"));
+    }
     
+    final Message message;
     switch (messageType) {
       case QUERY:
-        message = deserializeQuery(p, root, xid, timestamp);
+        message = new Query(xid, timestamp, payload, ttl);
         break;
 
       case QUERY_RESPONSE:
-        message = deserializeQueryResponse(p, root, xid, timestamp);
+        message = new QueryResponse(xid, timestamp, payload);
         break;
 
       case COMMAND:
-        message = deserializeCommand(p, root, xid, timestamp);
+        message = new Command(xid, timestamp, payload, ttl);
         break;
 
       case COMMAND_RESPONSE:
-        message = deserializeCommandResponse(p, root, xid, timestamp);
+        message = new CommandResponse(xid, timestamp, payload);
         break;
 
       case NOTICE:
-        message = deserializeNotice(p, root, xid, timestamp);
+        message = new Notice(xid, timestamp, payload);
         break;
       
       case PROPOSAL:
-        message = deserializeProposal(p, root, xid, timestamp);
+        message = new Proposal(xid, timestamp, cohorts, payload, ttl);
         break;
         
       case VOTE:
-        message = deserializeVote(p, root, xid, timestamp);
+        message = new Vote(xid, timestamp, response);
         break;
         
       case OUTCOME:
-        message = deserializeOutcome(p, root, xid, timestamp);
+        if (acceptedCohorts != null) {
+          message = Outcome.compactCommit(xid, timestamp, acceptedCohorts, metadata);
+        } else {
+          message = new Outcome(xid, timestamp, resolution, abortReason, responses, metadata);
+        }
         break;
         
       case $UNKNOWN:
@@ -83,68 +174,83 @@ final class JacksonMessageDeserializer extends StdDeserializer<Message> {
     return message;
   }
   
-  private Message deserializeQuery(JsonParser p, JsonNode root, String xid, long timestamp) throws JsonProcessingException {
-    final int ttl = root.get("ttl").asInt();
-    final Object objective = Payload.unpack(JacksonUtils.readObject("objective", root, p, getPayloadClass()));
-    return new Query(xid, timestamp, objective, ttl);
-  }
-  
-  private Message deserializeQueryResponse(JsonParser p, JsonNode root, String xid, long timestamp) throws JsonProcessingException {
-    final Object reply = Payload.unpack(JacksonUtils.readObject("result", root, p, getPayloadClass()));
-    return new QueryResponse(xid, timestamp, reply);
-  }
-  
-  private Message deserializeCommand(JsonParser p, JsonNode root, String xid, long timestamp) throws JsonProcessingException {
-    final int ttl = root.get("ttl").asInt();
-    final Object objective = Payload.unpack(JacksonUtils.readObject("objective", root, p, getPayloadClass()));
-    return new Command(xid, timestamp, objective, ttl);
-  }
-  
-  private Message deserializeCommandResponse(JsonParser p, JsonNode root, String xid, long timestamp) throws JsonProcessingException {
-    final Object reply = Payload.unpack(JacksonUtils.readObject("result", root, p, getPayloadClass()));
-    return new CommandResponse(xid, timestamp, reply);
-  }
-  
-  private Message deserializeNotice(JsonParser p, JsonNode root, String xid, long timestamp) throws JsonProcessingException {
-    final Object event = Payload.unpack(JacksonUtils.readObject("event", root, p, getPayloadClass()));
-    return new Notice(xid, timestamp, event);
+  private Object deserializePayload(JsonParser p, DeserializationContext ctxt) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) return null;
+    
+    if (lazyPayload) {
+      // defer binding by buffering the payload's tokens
+      final TokenBuffer tokens = new TokenBuffer(p, ctxt);
+      tokens.copyCurrentStructure(p);
+      return new JacksonLazyPayload(tokens, p.getCodec(), getPayloadClass());
+    } else {
+      if (payloadDeserializer == null) {
+        payloadDeserializer = ctxt.findRootValueDeserializer(ctxt.constructType(getPayloadClass()));
+      }
+      return Payload.unpack(payloadDeserializer.deserialize(p, ctxt));
+    }
   }
   
-  private Message deserializeProposal(JsonParser p, JsonNode root, String xid, long timestamp) throws JsonProcessingException {
-    final ArrayNode cohortsNode = (ArrayNode) root.get("cohorts");
-    final String[] cohorts = new String[cohortsNode.size()];
-    for (int i = 0; i < cohorts.length; i++) {
-      cohorts[i] = cohortsNode.get(i).asText();
+  /**
+   *  Reads a cohort or source identifier, which may be either a string or the numeric ID of an
+   *  identifier in the dictionary.
+   *  
+   *  @param p The parser.
+   *  @return The identifier, or {@code null}.
+   *  @throws IOException If an I/O error occurs, or if the ID isn't in the dictionary.
+   */
+  private String readIdentifier(JsonParser p) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NUMBER_INT) {
+      final int id = p.getIntValue();
+      final String identifier = identifiers != null ? identifiers.getIdentifier(id) : null;
+      if (identifier == null) {
+        throw new MessageDeserializationException(new IllegalStateException("Unknown identifier ID " + id));
+      }
+      return identifier;
+    } else {
+      return JacksonUtils.readString(p);
     }
-    
-    final int ttl = root.get("ttl").asInt();
-    final Object objective = Payload.unpack(JacksonUtils.readObject("objective", root, p, getPayloadClass()));
-    return new Proposal(xid, timestamp, cohorts, objective, ttl);
   }
   
-  private Message deserializeVote(JsonParser p, JsonNode root, String xid, long timestamp) throws JsonProcessingException {
-    final JsonNode responseNode = root.get("response");
-    final Response response = deserializeResponse(p, responseNode);
-    return new Vote(xid, timestamp, response);
+  private String[] deserializeCohorts(JsonParser p) throws IOException {
+    final List<String> cohorts = new ArrayList<>();
+    while (p.nextToken() != JsonToken.END_ARRAY) {
+      cohorts.add(readIdentifier(p));
+    }
+    return cohorts.toArray(new String[cohorts.size()]);
   }
   
-  private Response deserializeResponse(JsonParser p, JsonNode responseNode) throws JsonProcessingException {
-    final String cohort = responseNode.get("cohort").asText();
-    final Intent intent = Intent.valueOf(responseNode.get("intent").asText());
-    final Object metadata = Payload.unpack(JacksonUtils.readObject("metadata", responseNode, p, getPayloadClass()));
-    return new Response(cohort, intent, metadata);
+  private Response[] deserializeResponses(JsonParser p, DeserializationContext ctxt) throws IOException {
+    final List<Response> responses = new ArrayList<>();
+    while (p.nextToken() != JsonToken.END_ARRAY) {
+      responses.add(deserializeResponse(p, ctxt));
+    }
+    return responses.toArray(new Response[responses.size()]);
   }
   
-  private Message deserializeOutcome(JsonParser p, JsonNode root, String xid, long timestamp) throws JsonProcessingException {
-    final Resolution resolution = Resolution.valueOf(root.get("resolution").asText());
-    final String abortReasonStr = JacksonUtils.readString("abortReason", root);
-    final AbortReason abortReason = abortReasonStr != null ? AbortReason.valueOf(abortReasonStr) : null;
-    final ArrayNode responsesNode = (ArrayNode) root.get("responses");
-    final Response[] responses = new Response[responsesNode.size()];
-    for (int i = 0; i < responses.length; i++) {
-      responses[i] = deserializeResponse(p, responsesNode.get(i));
+  private Response deserializeResponse(JsonParser p, DeserializationContext ctxt) throws IOException {
+    String cohort = null;
+    Intent intent = null;
+    Object metadata = null;
+    for (JsonToken t = JacksonUtils.firstField(p); t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+      final String fieldName = p.getCurrentName();
+      p.nextToken();
+      switch (fieldName) {
+        case "cohort":
+          cohort = readIdentifier(p);
+          break;
+        
+        case "intent":
+          intent = Intent.valueOf(p.getText());
+          break;
+        
+        case "metadata":
+          metadata = deserializePayload(p, ctxt);
+          break;
+        
+        default:
+          p.skipChildren();
+      }
     }
-    final Object metadata = Payload.unpack(JacksonUtils.readObject("metadata", root, p, getPayloadClass()));
-    return new Outcome(xid, timestamp, resolution, abortReason, responses, metadata);
+    return new Response(cohort, intent, metadata);
   }
 }
@@ -1,7 +1,5 @@
 package com.obsidiandynamics.blackstrom.codec;
 
-import static com.obsidiandynamics.blackstrom.codec.JacksonUtils.*;
-
 import java.io.*;
 import java.util.*;
 
@@ -13,8 +11,12 @@ import com.obsidiandynamics.blackstrom.model.*;
 final class JacksonMessageSerializer extends StdSerializer<Message> {
   private static final long serialVersionUID = 1L;
 
-  JacksonMessageSerializer() {
+  /** Encodes well-known cohort and source identifiers by their IDs; {@code null} if not in use. */
+  private final IdentifierDictionary.Identifiers identifiers;
+  
+  JacksonMessageSerializer(IdentifierDictionary.Identifiers identifiers) {
     super(Message.class);
+    this.identifiers = identifiers;
   }
 
   @Override
@@ -23,7 +25,10 @@ final class JacksonMessageSerializer extends StdSerializer<Message> {
     gen.writeStringField("messageType", m.getMessageType().name());
     gen.writeStringField("xid", m.getXid());
     gen.writeNumberField("timestamp", m.getTimestamp());
-    writeString("source", m.getSource(), gen);
+    if (m.getSource() != null) {
+      gen.writeFieldName("source");
+      writeIdentifier(m.getSource(), gen);
+    }
     
     switch (m.getMessageType()) {
       case QUERY:
@@ -66,40 +71,64 @@ final class JacksonMessageSerializer extends StdSerializer<Message> {
     gen.writeEndObject();
   }
   
+  /**
+   *  Writes a cohort or source identifier as its numeric ID if it is in the dictionary, and as
+   *  a string otherwise.
+   *  
+   *  @param identifier The identifier.
+   *  @param gen The generator.
+   *  @throws IOException If an I/O error occurs.
+   */
+  private void writeIdentifier(String identifier, JsonGenerator gen) throws IOException {
+    final int id = identifiers != null ? identifiers.getId(identifier) : -1;
+    if (id != -1) {
+      gen.writeNumber(id);
+    } else {
+      gen.writeString(identifier);
+    }
+  }
+  
   private Object packConditional(Object value) {
-    return value instanceof LinkedHashMap ? value : Payload.pack(value);
+    if (value instanceof LinkedHashMap || value instanceof JacksonLazyPayload) {
+      return value;
+    } else if (value instanceof LazyPayload) {
+      // a lazy payload originating from a different codec must be decoded first
+      return packConditional(((LazyPayload) value).get());
+    } else {
+      return Payload.pack(value);
+    }
   }
   
   private void serializeQuery(Query m, JsonGenerator gen) throws IOException {
     gen.writeNumberField("ttl", m.getTtl());
-    JacksonUtils.writeObject("objective", packConditional(m.getObjective()), gen);
+    JacksonUtils.writeObject("objective", packConditional(m.getRawObjective()), gen);
   }
   
   private void serializeQueryResponse(QueryResponse m, JsonGenerator gen) throws IOException {
-    JacksonUtils.writeObject("result", packConditional(m.getResult()), gen);
+    JacksonUtils.writeObject("result", packConditional(m.getRawResult()), gen);
   }
   
   private void serializeCommand(Command m, JsonGenerator gen) throws IOException {
     gen.writeNumberField("ttl", m.getTtl());
-    JacksonUtils.writeObject("objective", packConditional(m.getObjective()), gen);
+    JacksonUtils.writeObject("objective", packConditional(m.getRawObjective()), gen);
   }
   
   private void serializeCommandResponse(CommandResponse m, JsonGenerator gen) throws IOException {
-    JacksonUtils.writeObject("result", packConditional(m.getResult()), gen);
+    JacksonUtils.writeObject("result", packConditional(m.getRawResult()), gen);
   }
   
   private void serializeNotice(Notice m, JsonGenerator gen) throws IOException {
-    JacksonUtils.writeObject("event", packConditional(m.getEvent()), gen);
+    JacksonUtils.writeObject("event", packConditional(m.getRawEvent()), gen);
   }
 
   private void serializeProposal(Proposal m, JsonGenerator gen) throws IOException {
     gen.writeArrayFieldStart("cohorts"); 
     for (String cohort : m.getCohorts()) {
-      gen.writeString(cohort);
+      writeIdentifier(cohort, gen);
     }
     gen.writeEndArray();
     gen.writeNumberField("ttl", m.getTtl());
-    JacksonUtils.writeObject("objective", packConditional(m.getObjective()), gen);
+    JacksonUtils.writeObject("objective", packConditional(m.getRawObjective()), gen);
   }
   
   private void serializeVote(Vote m, JsonGenerator gen) throws IOException {
@@ -109,9 +138,10 @@ final class JacksonMessageSerializer extends StdSerializer<Message> {
   
   private void serializeResponse(Response r, JsonGenerator gen) throws IOException {
     gen.writeStartObject();
-    gen.writeStringField("cohort", r.getCohort());
+    gen.writeFieldName("cohort");
+    writeIdentifier(r.getCohort(), gen);
     gen.writeStringField("intent", r.getIntent().name());
-    JacksonUtils.writeObject("metadata", packConditional(r.getMetadata()), gen);
+    JacksonUtils.writeObject("metadata", packConditional(r.getRawMetadata()), gen);
     gen.writeEndObject();
   }
   
@@ -121,12 +151,18 @@ final class JacksonMessageSerializer extends StdSerializer<Message> {
     if (abortReason != null) {
       gen.writeStringField("abortReason", abortReason.name());      
     }
-    gen.writeFieldName("responses");
-    gen.writeStartArray();
-    for (Response response : m.getResponses()) {
-      serializeResponse(response, gen);
+    if (m.isCompact()) {
+      gen.writeArrayFieldStart("acceptedCohorts");
+      for (String cohort : m.getAcceptedCohorts()) {
+        writeIdentifier(cohort, gen);
+      }
+    } else {
+      gen.writeArrayFieldStart("responses");
+      for (Response response : m.getResponses()) {
+        serializeResponse(response, gen);
+      }
     }
     gen.writeEndArray();
-    JacksonUtils.writeObject("metadata", packConditional(m.getMetadata()), gen);
+    JacksonUtils.writeObject("metadata", packConditional(m.getRawMetadata()), gen);
   }
 }
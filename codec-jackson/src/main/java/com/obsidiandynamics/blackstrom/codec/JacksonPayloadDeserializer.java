@@ -7,14 +7,24 @@ import java.util.concurrent.*;
 import com.fasterxml.jackson.core.*;
 import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.databind.deser.std.*;
+import com.fasterxml.jackson.databind.util.*;
 
 final class JacksonPayloadDeserializer extends StdDeserializer<Payload> {
   private static final long serialVersionUID = 1L;
   
   private final Map<String, Class<?>> classCache = new ConcurrentHashMap<>();
   
+  private final Map<Class<?>, JsonDeserializer<Object>> deserializerCache = new ConcurrentHashMap<>();
+  
+  private final PayloadTypeRegistry.Types types;
+  
   JacksonPayloadDeserializer() {
+    this(PayloadTypeRegistry.empty());
+  }
+  
+  JacksonPayloadDeserializer(PayloadTypeRegistry.Types types) {
     super(Payload.class);
+    this.types = types;
   }
   
   static final class PayloadDeserializationException extends JsonProcessingException {
@@ -40,15 +50,71 @@ final class JacksonPayloadDeserializer extends StdDeserializer<Payload> {
       return newClass;
     }
   }
-
+  
+  private Class<?> classForId(int typeId) throws PayloadDeserializationException {
+    final Class<?> type = types.getType(typeId);
+    if (type == null) {
+      throw new PayloadDeserializationException(new IllegalStateException("Unregistered payload type " + typeId));
+    }
+    return type;
+  }
+  
+  private Object readPayload(JsonParser p, DeserializationContext ctxt, Class<?> payloadClass) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) return null;
+    
+    final JsonDeserializer<Object> existing = deserializerCache.get(payloadClass);
+    final JsonDeserializer<Object> deserializer;
+    if (existing != null) {
+      deserializer = existing;
+    } else {
+      deserializer = ctxt.findRootValueDeserializer(ctxt.constructType(payloadClass));
+      deserializerCache.put(payloadClass, deserializer);
+    }
+    return deserializer.deserialize(p, ctxt);
+  }
+  
   @Override
   public Payload deserialize(JsonParser p, DeserializationContext ctxt) throws IOException, JsonProcessingException {
-    final JsonNode root = p.getCodec().readTree(p);
-    final String payloadClassName = root.get("payloadClass").asText();
-    final Class<?> payloadClass = classForName(payloadClassName);
+    Class<?> payloadClass = null;
+    Object payload = null;
+    TokenBuffer bufferedPayload = null;
+    for (JsonToken t = JacksonUtils.firstField(p); t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+      final String fieldName = p.getCurrentName();
+      p.nextToken();
+      switch (fieldName) {
+        case "payloadClass":
+          payloadClass = classForName(p.getText());
+          break;
+        
+        case "payloadType":
+          payloadClass = classForId(p.getIntValue());
+          break;
+        
+        case "payload":
+          if (payloadClass != null) {
+            payload = readPayload(p, ctxt, payloadClass);
+          } else {
+            // the payload preceded its class; buffer its tokens until the class is known
+            bufferedPayload = new TokenBuffer(p, ctxt);
+            bufferedPayload.copyCurrentStructure(p);
+          }
+          break;
+        
+        default:
+          p.skipChildren();
+      }
+    }
+    
+    if (payloadClass == null) {
+      throw new PayloadDeserializationException(new IllegalStateException("Missing payload class"));
+    }
     
-    final JsonNode payloadNode = root.get("payload");
-    final Object payload = p.getCodec().treeToValue(payloadNode, payloadClass);
+    if (bufferedPayload != null) {
+      try (JsonParser bufferedParser = bufferedPayload.asParser(p.getCodec())) {
+        bufferedParser.nextToken();
+        payload = readPayload(bufferedParser, ctxt, payloadClass);
+      }
+    }
     return Payload.pack(payload);
   }
 }
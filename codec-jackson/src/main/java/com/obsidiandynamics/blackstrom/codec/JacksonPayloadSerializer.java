@@ -8,16 +8,28 @@ import com.fasterxml.jackson.databind.ser.std.*;
 
 class JacksonPayloadSerializer extends StdSerializer<Payload> {
   private static final long serialVersionUID = 1L;
-
+  
+  private final PayloadTypeRegistry.Types types;
+  
   JacksonPayloadSerializer() {
+    this(PayloadTypeRegistry.empty());
+  }
+  
+  JacksonPayloadSerializer(PayloadTypeRegistry.Types types) {
     super(Payload.class);
+    this.types = types;
   }
-
+  
   @Override
   public void serialize(Payload p, JsonGenerator gen, SerializerProvider provider) throws IOException {
     gen.writeStartObject();
     final Object value = p.unpack();
-    gen.writeStringField("payloadClass", value.getClass().getName());
+    final Integer typeId = types.getId(value.getClass());
+    if (typeId != null) {
+      gen.writeNumberField("payloadType", typeId);
+    } else {
+      gen.writeStringField("payloadClass", value.getClass().getName());
+    }
     gen.writeObjectField("payload", value);
     gen.writeEndObject();
   }
@@ -0,0 +1,26 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import com.fasterxml.jackson.databind.module.*;
+import com.obsidiandynamics.blackstrom.codec.JacksonMessageCodec.*;
+import com.obsidiandynamics.yconf.*;
+
+/**
+ *  Applies a {@link PayloadTypeRegistry} to the {@link JacksonMessageCodec}, so that payloads
+ *  of registered types are tagged with a numeric {@code payloadType} in place of the textual
+ *  {@code payloadClass}. Payloads of unregistered types continue to be tagged by their class
+ *  name, and both forms are accepted when decoding.
+ */
+@Y
+public final class JacksonPayloadTypeExpansion implements JacksonExpansion {
+  private final PayloadTypeRegistry.Types types;
+  
+  public JacksonPayloadTypeExpansion(@YInject(name="registry") PayloadTypeRegistry registry) {
+    types = registry.resolve();
+  }
+  
+  @Override
+  public void accept(SimpleModule module) {
+    module.addSerializer(Payload.class, new JacksonPayloadSerializer(types));
+    module.addDeserializer(Payload.class, new JacksonPayloadDeserializer(types));
+  }
+}
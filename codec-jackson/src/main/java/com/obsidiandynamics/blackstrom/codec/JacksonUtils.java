@@ -31,4 +31,27 @@ final class JacksonUtils {
     final JsonNode objectNode = node.get(fieldName);
     return objectNode != null ? p.getCodec().treeToValue(objectNode, type) : null;
   }
+  
+  /**
+   *  Advances the parser to the first field of an object, assuming that the parser is positioned either
+   *  at the start of the object or at its first field name.
+   *  
+   *  @param p The parser.
+   *  @return The current token, which will be a {@link JsonToken#FIELD_NAME} unless the object is empty.
+   *  @throws IOException If an I/O error occurs.
+   */
+  static JsonToken firstField(JsonParser p) throws IOException {
+    return p.currentToken() == JsonToken.START_OBJECT ? p.nextToken() : p.currentToken();
+  }
+  
+  /**
+   *  Reads the string value at the parser's current token, which may be a JSON {@code null}.
+   *  
+   *  @param p The parser.
+   *  @return The string value, or {@code null}.
+   *  @throws IOException If an I/O error occurs.
+   */
+  static String readString(JsonParser p) throws IOException {
+    return p.currentToken() != JsonToken.VALUE_NULL ? p.getText() : null;
+  }
 }
@@ -2,6 +2,7 @@ package com.obsidiandynamics.blackstrom.codec;
 
 import static org.junit.Assert.*;
 
+import java.nio.*;
 import java.util.*;
 
 import org.hamcrest.core.*;
@@ -14,6 +15,7 @@ import com.fasterxml.jackson.databind.*;
 import com.obsidiandynamics.blackstrom.bank.*;
 import com.obsidiandynamics.blackstrom.codec.JacksonMessageDeserializer.*;
 import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.blackstrom.util.*;
 import com.obsidiandynamics.func.*;
 import com.obsidiandynamics.testmark.*;
 import com.obsidiandynamics.threads.*;
@@ -62,6 +64,174 @@ public final class JacksonMessageCodecTest {
     assertEquals(m, d2);
   }
   
+  /**
+   *  Covers the codec's buffer overrides for each of the textual and binary formats.
+   */
+  @Test
+  public void testBufferRoundTrip() throws Exception {
+    final Message m = new Proposal("N100", new String[] {"a", "b"}, null, 1000).withSource("test");
+    for (JacksonFormat format : JacksonFormat.values()) {
+      BufferRoundTrip.verify(new JacksonMessageCodec(false, format), m);
+    }
+  }
+  
+  @Test
+  public void testBinaryFormatRoundTrip() throws Exception {
+    final JacksonAnimal<?> a = new JacksonDog().named("Rover").withFriend(new JacksonCat().named("Misty"));
+    final Message m = new Proposal("N100", new String[] {"a", "b"}, a, 1000).withSource("test");
+    final int jsonLength = new JacksonMessageCodec(true).encode(m).length;
+    
+    for (JacksonFormat format : new JacksonFormat[] {JacksonFormat.SMILE, JacksonFormat.CBOR}) {
+      final JacksonMessageCodec c = new JacksonMessageCodec(true, format);
+      assertEquals(format, c.getFormat());
+      assertTrue(format.isBinary());
+      
+      final byte[] encoded = c.encode(m);
+      assertTrue("format=" + format + ", length=" + encoded.length + ", jsonLength=" + jsonLength, 
+                 encoded.length < jsonLength);
+      assertEquals(m, c.decode(encoded));
+      assertArrayEquals(encoded, Binary.toByteArray(c.encodeBuffer(m)));
+      assertEquals(m, c.decodeBuffer(ByteBuffer.wrap(encoded)));
+      
+      final String text = c.encodeText(m);
+      assertEquals(m, c.decodeText(text));
+      
+      // an unmapped payload is preserved across re-encoding
+      final Proposal unmapped = Classes.cast(new JacksonMessageCodec(false, format).decode(encoded));
+      assertEquals(LinkedHashMap.class, unmapped.getObjective().getClass());
+      assertEquals(m, c.decode(new JacksonMessageCodec(false, format).encode(unmapped)));
+    }
+  }
+  
+  @Test
+  public void testDefaultFormat() {
+    assertEquals(JacksonFormat.JSON, new JacksonMessageCodec(false).getFormat());
+    assertEquals(JacksonFormat.JSON, new JacksonMessageCodec(false, (JacksonFormat) null).getFormat());
+    assertFalse(JacksonFormat.JSON.isBinary());
+  }
+  
+  @Test
+  public void testLazyPayload() throws Exception {
+    final JacksonAnimal<?> a = new JacksonDog().named("Rover").withFriend(new JacksonCat().named("Misty"));
+    final Outcome m = new Outcome("N100", Resolution.COMMIT, null, 
+                                  new Response[] { new Response("a", Intent.ACCEPT, a) }, BankSettlement.forTwo(1000));
+    
+    for (JacksonFormat format : JacksonFormat.values()) {
+      final MessageCodec eager = new JacksonMessageCodec(true, format, new JacksonBankExpansion());
+      final byte[] encoded = eager.encode(m);
+      
+      final MessageCodec c = new JacksonMessageCodec(true, true, format, new JacksonBankExpansion());
+      final Outcome d = Classes.cast(c.decode(encoded));
+      final LazyPayload metadata = (LazyPayload) d.getRawMetadata();
+      final LazyPayload responseMetadata = (LazyPayload) d.getResponses()[0].getRawMetadata();
+      
+      // re-encoding replays the payloads verbatim, without binding them
+      assertArrayEquals(encoded, c.encode(d));
+      assertFalse(metadata.isDecoded());
+      assertFalse(responseMetadata.isDecoded());
+      
+      assertEquals(BankSettlement.forTwo(1000), d.getMetadata());
+      assertEquals(a, d.getResponses()[0].getMetadata());
+      assertTrue(metadata.isDecoded());
+      assertEquals(m, d);
+      assertArrayEquals(encoded, c.encode(d));
+    }
+  }
+  
+  @Test
+  public void testLazyUnmappedPayload() throws Exception {
+    final JacksonAnimal<?> a = new JacksonDog().named("Rover");
+    final Message m = new Proposal("N100", new String[] {"a"}, a, 1000);
+    final String encoded = new JacksonMessageCodec(true).encodeText(m);
+    
+    final MessageCodec c = new JacksonMessageCodec(false, true, null);
+    final Proposal d = Classes.cast(c.decodeText(encoded));
+    assertEquals(encoded, c.encodeText(d));
+    assertEquals(LinkedHashMap.class, d.getObjective().getClass());
+  }
+  
+  @Test
+  public void testForeignLazyPayload() throws Exception {
+    final JacksonAnimal<?> a = new JacksonDog().named("Rover");
+    final LazyPayload foreign = new LazyPayload() {
+      @Override
+      protected Object decode() {
+        return a;
+      }
+    };
+    final MessageCodec c = new JacksonMessageCodec(true);
+    final String encoded = c.encodeText(new Proposal("N100", 1, new String[] {"a"}, foreign, 1000));
+    assertEquals(c.encodeText(new Proposal("N100", 1, new String[] {"a"}, a, 1000)), encoded);
+  }
+  
+  @Test
+  public void testDecodeReorderedFields() throws Exception {
+    final MessageCodec c = new JacksonMessageCodec(true);
+    final String json = "{\"unknown\":{\"nested\":[1,2]},\"ttl\":1000," + 
+        "\"objective\":{\"payload\":{\"@type\":\"Cat\",\"name\":\"Misty\"},\"payloadClass\":\"" + JacksonCat.class.getName() + "\"}," +
+        "\"cohorts\":[\"a\",\"b\"],\"source\":\"test\",\"timestamp\":1,\"xid\":\"N100\",\"messageType\":\"PROPOSAL\"}";
+    final Proposal p = Classes.cast(c.decodeText(json));
+    assertEquals("N100", p.getXid());
+    assertEquals(1, p.getTimestamp());
+    assertEquals("test", p.getSource());
+    assertArrayEquals(new String[] {"a", "b"}, p.getCohorts());
+    assertEquals(1000, p.getTtl());
+    assertEquals(new JacksonCat().named("Misty"), p.getObjective());
+  }
+  
+  @Test
+  public void testDictionaryRoundTrip() throws Exception {
+    final IdentifierDictionary dictionary = new IdentifierDictionary().withIdentifiers("branch-0", "branch-1", "source");
+    final Message[] messages = {
+      new Proposal("N100", 1, new String[] {"branch-0", "branch-1", "branch-2"}, null, 1000).withSource("source"),
+      new Vote("N100", 1, new Response("branch-1", Intent.ACCEPT, null)).withSource("other"),
+      new Outcome("N100", 1, Resolution.COMMIT, null, 
+                  new Response[] {new Response("branch-0", Intent.ACCEPT, null), new Response("branch-2", Intent.ACCEPT, null)}, 
+                  null)
+    };
+    
+    for (JacksonFormat format : JacksonFormat.values()) {
+      final MessageCodec c = new JacksonMessageCodec(true, false, format, dictionary);
+      final MessageCodec plain = new JacksonMessageCodec(true, format);
+      for (Message m : messages) {
+        final byte[] encoded = c.encode(m);
+        assertTrue(encoded.length < plain.encode(m).length);
+        final Message decoded = c.decode(encoded);
+        assertEquals(m, decoded);
+        assertEquals(m.getSource(), decoded.getSource());
+        
+        // identifiers encoded as strings are still accepted
+        assertEquals(m, c.decode(plain.encode(m)));
+      }
+      
+      // identifiers in the dictionary are decoded to their interned instances
+      final Proposal decoded = Classes.cast(c.decode(c.encode(messages[0])));
+      assertSame("branch-0", decoded.getCohorts()[0]);
+      assertSame("source", decoded.getSource());
+    }
+    
+    final String encoded = new JacksonMessageCodec(true, false, JacksonFormat.JSON, dictionary).encodeText(messages[0]);
+    logEncoded(encoded);
+    assertTrue(encoded.contains("\"cohorts\":[0,1,\"branch-2\"]"));
+  }
+  
+  @Test
+  public void testDictionaryUnknownId() throws Exception {
+    final MessageCodec c = new JacksonMessageCodec(true, false, JacksonFormat.JSON, new IdentifierDictionary().withIdentifier("a", 1));
+    final byte[] encoded = c.encode(new Proposal("N100", 1, new String[] {"a"}, null, 1000));
+    thrown.expect(MessageDeserializationException.class);
+    thrown.expectCause(IsInstanceOf.instanceOf(IllegalStateException.class));
+    new JacksonMessageCodec(true).decode(encoded);
+  }
+  
+  @Test
+  public void testDecodeMissingMessageType() throws Exception {
+    final MessageCodec c = new JacksonMessageCodec(false);
+    thrown.expect(MessageDeserializationException.class);
+    thrown.expectCause(IsInstanceOf.instanceOf(IllegalStateException.class));
+    c.decodeText("{\"xid\":\"N100\"}");
+  }
+  
   @Test
   public void testCycle() throws Exception {
     testCycle(100);
@@ -317,6 +487,24 @@ public final class JacksonMessageCodecTest {
     assertEquals(m, d2);
   }
 
+  @Test
+  public void testOutcomeCompact() throws Exception {
+    final Outcome m = Outcome.compactCommit("O100", 1, new String[] {"test-cohort-a", "test-cohort-b"}, "metadata")
+        .withSource("test");
+    final Outcome full = new Outcome("O100", 1, Resolution.COMMIT, null, m.getResponses(), "metadata").withSource("test");
+    for (JacksonFormat format : JacksonFormat.values()) {
+      final MessageCodec c = new JacksonMessageCodec(true, format);
+      final byte[] encoded = c.encode(m);
+      assertTrue(encoded.length < c.encode(full).length);
+      
+      final Outcome d = Classes.cast(c.decode(encoded));
+      assertTrue(d.isCompact());
+      assertArrayEquals(m.getAcceptedCohorts(), d.getAcceptedCohorts());
+      assertEquals(m, d);
+      assertEquals(Intent.ACCEPT, d.getResponse("test-cohort-b").getIntent());
+    }
+  }
+  
   @Test
   public void testOutcomeAbortMixedMetadata() throws Exception {
     final JacksonAnimal<?> a = new JacksonDog().named("Rex").withFriend(new JacksonCat().named("Tigger"));
@@ -0,0 +1,74 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.hamcrest.core.*;
+import org.junit.*;
+import org.junit.rules.*;
+
+import com.obsidiandynamics.blackstrom.bank.*;
+import com.obsidiandynamics.blackstrom.codec.JacksonPayloadDeserializer.*;
+import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.func.*;
+
+public final class JacksonPayloadTypeExpansionTest {
+  @Rule 
+  public ExpectedException thrown = ExpectedException.none();
+  
+  private static JacksonPayloadTypeExpansion expansion() {
+    return new JacksonPayloadTypeExpansion(new PayloadTypeRegistry()
+                                           .withType(JacksonDog.class, 1)
+                                           .withType(BankSettlement.class, 2));
+  }
+  
+  @Test
+  public void testRegisteredType() throws Exception {
+    final Message m = new Proposal("N100", new String[] {"a", "b"}, BankSettlement.forTwo(1000), 1000);
+    final MessageCodec plain = new JacksonMessageCodec(true, new JacksonBankExpansion());
+    final MessageCodec c = new JacksonMessageCodec(true, new JacksonBankExpansion(), expansion());
+    
+    final String encoded = c.encodeText(m);
+    assertTrue(encoded, encoded.contains("\"payloadType\":2"));
+    assertFalse(encoded, encoded.contains("payloadClass"));
+    assertTrue(encoded.length() < plain.encodeText(m).length());
+    assertEquals(m, c.decodeText(encoded));
+  }
+  
+  @Test
+  public void testUnregisteredTypeFallback() throws Exception {
+    final JacksonAnimal<?> a = new JacksonCat().named("Misty");
+    final Message m = new Proposal("N100", new String[] {"a", "b"}, a, 1000);
+    final MessageCodec c = new JacksonMessageCodec(true, expansion());
+    
+    final String encoded = c.encodeText(m);
+    assertTrue(encoded, encoded.contains("\"payloadClass\":\"" + JacksonCat.class.getName() + "\""));
+    assertEquals(m, c.decodeText(encoded));
+    
+    // a codec with a registry still accepts payloads tagged by class name and vice versa
+    assertEquals(m, c.decodeText(new JacksonMessageCodec(true).encodeText(m)));
+  }
+  
+  @Test
+  public void testNestedAndUnmappedRoundTrip() throws Exception {
+    final JacksonAnimal<?> a = new JacksonDog().named("Rex").withFriend(new JacksonCat().named("Tigger"));
+    final Message m = new Proposal("N100", new String[] {"a", "b"}, a, 1000);
+    final MessageCodec mapped = new JacksonMessageCodec(true, expansion());
+    final MessageCodec unmapped = new JacksonMessageCodec(false, expansion());
+    
+    final Proposal d1 = Classes.cast(unmapped.decodeText(mapped.encodeText(m)));
+    assertEquals(LinkedHashMap.class, d1.getObjective().getClass());
+    assertEquals(m, mapped.decodeText(unmapped.encodeText(d1)));
+  }
+  
+  @Test
+  public void testUnknownTypeId() throws Exception {
+    final MessageCodec c = new JacksonMessageCodec(true, expansion());
+    final String json = "{\"messageType\":\"PROPOSAL\",\"xid\":\"N100\",\"timestamp\":1,\"cohorts\":[\"a\"],\"ttl\":1000," +
+        "\"objective\":{\"payloadType\":99,\"payload\":{}}}";
+    thrown.expect(PayloadDeserializationException.class);
+    thrown.expectCause(IsInstanceOf.instanceOf(IllegalStateException.class));
+    c.decodeText(json);
+  }
+}
@@ -73,4 +73,17 @@ public final class JacksonUtilsTest {
     assertNull(JacksonUtils.readObject("field2", node, p, String.class));
     assertEquals("value", JacksonUtils.readObject("field3", node, p, String.class));
   }
+  
+  @Test
+  public void testParserFirstFieldAndReadString() throws IOException {
+    final JsonParser p = new JsonFactory().createParser("{\"a\":\"value\",\"b\":null}");
+    p.nextToken();
+    assertEquals(JsonToken.FIELD_NAME, JacksonUtils.firstField(p));
+    assertEquals(JsonToken.FIELD_NAME, JacksonUtils.firstField(p));
+    p.nextToken();
+    assertEquals("value", JacksonUtils.readString(p));
+    p.nextToken();
+    p.nextToken();
+    assertNull(JacksonUtils.readString(p));
+  }
 }
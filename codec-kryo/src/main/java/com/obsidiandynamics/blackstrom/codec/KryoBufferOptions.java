@@ -0,0 +1,54 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import com.obsidiandynamics.yconf.*;
+
+/**
+ *  Enables the thread-local mode of the {@link KryoMessageCodec}, in which every thread that
+ *  uses the codec is pinned to its own {@link com.esotericsoftware.kryo.Kryo} instance and
+ *  reusable I/O buffers, avoiding the per-message buffer allocations and the soft-referenced
+ *  pool of the default mode.<p>
+ *  
+ *  The output buffer starts at {@code initialBufferSize} and grows as needed to fit the largest
+ *  message. If it grows beyond {@code maxRetainedBufferSize}, it is released once the message
+ *  has been encoded, and replaced with a fresh buffer of the initial size, so that an occasional
+ *  large message doesn't permanently inflate the footprint of every thread.
+ */
+@Y
+public final class KryoBufferOptions {
+  @YInject
+  private int initialBufferSize = 128;
+  
+  @YInject
+  private int maxRetainedBufferSize = 64 * 1024;
+  
+  int getInitialBufferSize() {
+    return initialBufferSize;
+  }
+  
+  public KryoBufferOptions withInitialBufferSize(int initialBufferSize) {
+    this.initialBufferSize = initialBufferSize;
+    return this;
+  }
+  
+  int getMaxRetainedBufferSize() {
+    return maxRetainedBufferSize;
+  }
+  
+  public KryoBufferOptions withMaxRetainedBufferSize(int maxRetainedBufferSize) {
+    this.maxRetainedBufferSize = maxRetainedBufferSize;
+    return this;
+  }
+  
+  void validate() {
+    if (initialBufferSize < 1) throw new IllegalArgumentException("Initial buffer size must be greater than 0");
+    if (maxRetainedBufferSize < initialBufferSize) {
+      throw new IllegalArgumentException("Max retained buffer size cannot be less than the initial buffer size");
+    }
+  }
+  
+  @Override
+  public String toString() {
+    return KryoBufferOptions.class.getSimpleName() + " [initialBufferSize=" + initialBufferSize + 
+        ", maxRetainedBufferSize=" + maxRetainedBufferSize + "]";
+  }
+}
@@ -0,0 +1,32 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import com.obsidiandynamics.blackstrom.model.*;
+
+/**
+ *  A payload held in its Kryo-encoded form, decoded on first access and re-emitted verbatim
+ *  by the {@link KryoMessageSerializer}.
+ */
+final class KryoLazyPayload extends LazyPayload {
+  @FunctionalInterface
+  interface Decoder {
+    Object decode(byte[] bytes);
+  }
+  
+  private final byte[] bytes;
+  
+  private final Decoder decoder;
+  
+  KryoLazyPayload(byte[] bytes, Decoder decoder) {
+    this.bytes = bytes;
+    this.decoder = decoder;
+  }
+  
+  byte[] getBytes() {
+    return bytes;
+  }
+  
+  @Override
+  protected Object decode() {
+    return decoder.decode(bytes);
+  }
+}
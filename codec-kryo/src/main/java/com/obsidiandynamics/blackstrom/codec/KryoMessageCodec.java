@@ -1,5 +1,6 @@
 package com.obsidiandynamics.blackstrom.codec;
 
+import java.nio.*;
 import java.util.function.*;
 
 import com.esotericsoftware.kryo.*;
@@ -10,7 +11,7 @@ import com.obsidiandynamics.yconf.*;
 
 @Y
 public final class KryoMessageCodec implements MessageCodec {
-  public static final int ENCODING_VERSION = 4;
+  public static final int ENCODING_VERSION = 6;
   
   private static final int DEF_MESSAGE_BUFFER_SIZE = 128;
   
@@ -19,20 +20,126 @@ public final class KryoMessageCodec implements MessageCodec {
   @FunctionalInterface
   public interface KryoExpansion extends Consumer<Kryo> {}
   
-  private final KryoPool pool;
+  /**
+   *  The {@link Kryo} instance and I/O buffers pinned to a single thread in thread-local mode.
+   */
+  private static final class ThreadContext {
+    private static final byte[] EMPTY_BYTES = {};
+    
+    private final Kryo kryo;
+    
+    private final KryoBufferOptions bufferOptions;
+    
+    private final Input input = new Input();
+    
+    private final ByteBufferInput byteBufferInput = new ByteBufferInput();
+    
+    private final ByteBuffer emptyBuffer = ByteBuffer.allocate(0);
+    
+    private Output output;
+    
+    ThreadContext(Kryo kryo, KryoBufferOptions bufferOptions) {
+      this.kryo = kryo;
+      this.bufferOptions = bufferOptions;
+      output = newOutput();
+    }
+    
+    private Output newOutput() {
+      return new Output(bufferOptions.getInitialBufferSize(), -1);
+    }
+    
+    /**
+     *  Discards an output buffer that has outgrown the retention limit.
+     */
+    void trimOutput() {
+      if (output.getBuffer().length > bufferOptions.getMaxRetainedBufferSize()) {
+        output = newOutput();
+      }
+    }
+    
+    /**
+     *  Detaches the inputs from the last decoded buffer, so that it may be garbage collected.
+     */
+    void releaseInputs() {
+      input.setBuffer(EMPTY_BYTES);
+      byteBufferInput.setBuffer(emptyBuffer);
+    }
+  }
   
   private final KryoMessageSerializer messageSerializer;
   
+  private final KryoBufferOptions bufferOptions;
+  
+  /** Used in the default (pooled) mode; {@code null} in thread-local mode. */
+  private final KryoPool pool;
+  
+  /** Used in thread-local mode; {@code null} in the default (pooled) mode. */
+  private final ThreadLocal<ThreadContext> threadContext;
+  
+  public KryoMessageCodec(boolean mapPayload, KryoExpansion... expansions) {
+    this(mapPayload, false, null, expansions);
+  }
+  
+  public KryoMessageCodec(boolean mapPayload, KryoBufferOptions bufferOptions, KryoExpansion... expansions) {
+    this(mapPayload, false, bufferOptions, expansions);
+  }
+  
+  public KryoMessageCodec(boolean mapPayload, boolean lazyPayload, KryoBufferOptions bufferOptions, 
+                          KryoExpansion... expansions) {
+    this(mapPayload, lazyPayload, bufferOptions, null, expansions);
+  }
+  
+  /**
+   *  Creates a codec, optionally with lazy payload decoding, in thread-local mode, and with
+   *  dictionary-encoded identifiers.
+   *  
+   *  @param mapPayload Whether payloads should be mapped to their concrete types.
+   *  @param lazyPayload Whether mapped payloads should be decoded on first access rather than
+   *                     upfront, and re-emitted verbatim if never accessed. Has no effect unless
+   *                     {@code mapPayload} is set, as unmapped payloads are never decoded.
+   *  @param bufferOptions If set, pins a {@link Kryo} instance and reusable buffers to each
+   *                       thread; if {@code null}, uses a shared pool of {@link Kryo} instances.
+   *  @param dictionary If set, encodes the cohort and source identifiers in the dictionary by
+   *                    their IDs; the dictionary must match on the encoding and decoding sides.
+   *  @param expansions Additional serializers to register.
+   */
   public KryoMessageCodec(@YInject(name="mapPayload") boolean mapPayload, 
+                          @YInject(name="lazyPayload") boolean lazyPayload, 
+                          @YInject(name="bufferOptions") KryoBufferOptions bufferOptions,
+                          @YInject(name="dictionary") IdentifierDictionary dictionary,
                           @YInject(name="expansions") KryoExpansion... expansions) {
-    messageSerializer = new KryoMessageSerializer(mapPayload);
-    pool = new KryoPool.Builder(() -> {
+    messageSerializer = new KryoMessageSerializer(mapPayload, lazyPayload ? this::decodePayload : null, 
+                                                  dictionary != null ? dictionary.resolve() : null);
+    this.bufferOptions = bufferOptions;
+    final KryoFactory factory = () -> {
       final Kryo kryo = new Kryo();
       for (KryoExpansion expansion : defExpansions) expansion.accept(kryo);
       for (KryoExpansion expansion : expansions) expansion.accept(kryo);
       kryo.setReferences(false);
       return kryo;
-    }).softReferences().build();
+    };
+    
+    if (bufferOptions != null) {
+      bufferOptions.validate();
+      pool = null;
+      threadContext = ThreadLocal.withInitial(() -> new ThreadContext(factory.create(), bufferOptions));
+    } else {
+      pool = new KryoPool.Builder(factory).softReferences().build();
+      threadContext = null;
+    }
+  }
+  
+  public boolean isThreadLocal() {
+    return bufferOptions != null;
+  }
+  
+  /**
+   *  Obtains the capacity of the calling thread's retained output buffer, in thread-local mode.
+   *  
+   *  @return The output buffer's capacity, in bytes.
+   */
+  int getOutputCapacity() {
+    return threadContext.get().output.getBuffer().length;
   }
   
   private Kryo acquire() {
@@ -43,25 +150,114 @@ public final class KryoMessageCodec implements MessageCodec {
     pool.release(kryo);
   }
   
-  @Override
-  public byte[] encode(Message message) {
+  private Output serialize(Message message) {
     final Kryo kryo = acquire();
     try {
       final Output out = new Output(DEF_MESSAGE_BUFFER_SIZE, -1);
       kryo.writeObject(out, message, messageSerializer);
-      return out.toBytes();
+      return out;
     } finally {
       release(kryo);
     }
   }
-
-  @Override
-  public Message decode(byte[] bytes) {
+  
+  private byte[] serializeThreadLocal(Message message) {
+    final ThreadContext context = threadContext.get();
+    final Output out = context.output;
+    out.clear();
+    try {
+      context.kryo.writeObject(out, message, messageSerializer);
+      return out.toBytes();
+    } finally {
+      context.trimOutput();
+    }
+  }
+  
+  private Object decodePayload(byte[] bytes) {
+    if (threadContext != null) {
+      return threadContext.get().kryo.readClassAndObject(new Input(bytes));
+    } else {
+      final Kryo kryo = acquire();
+      try {
+        return kryo.readClassAndObject(new Input(bytes));
+      } finally {
+        release(kryo);
+      }
+    }
+  }
+  
+  private Message deserialize(Input in) {
     final Kryo kryo = acquire();
     try {
-      return kryo.readObject(new Input(bytes), Message.class, messageSerializer);
+      return kryo.readObject(in, Message.class, messageSerializer);
     } finally {
       release(kryo);
     }
   }
+  
+  private Message deserializeThreadLocal(ThreadContext context, Input in) {
+    try {
+      return context.kryo.readObject(in, Message.class, messageSerializer);
+    } finally {
+      context.releaseInputs();
+    }
+  }
+  
+  @Override
+  public byte[] encode(Message message) {
+    if (threadContext != null) {
+      return serializeThreadLocal(message);
+    } else {
+      return serialize(message).toBytes();
+    }
+  }
+  
+  @Override
+  public ByteBuffer encodeBuffer(Message message) {
+    if (threadContext != null) {
+      // the thread's output buffer is reused, so the encoded bytes must be copied out of it
+      return ByteBuffer.wrap(serializeThreadLocal(message));
+    } else {
+      final Output out = serialize(message);
+      return ByteBuffer.wrap(out.getBuffer(), 0, out.position());
+    }
+  }
+  
+  @Override
+  public Message decode(byte[] bytes) {
+    if (threadContext != null) {
+      final ThreadContext context = threadContext.get();
+      context.input.setBuffer(bytes);
+      return deserializeThreadLocal(context, context.input);
+    } else {
+      return deserialize(new Input(bytes));
+    }
+  }
+  
+  /**
+   *  Reads the message type from the leading byte of the encoded form, which holds the type's
+   *  ordinal.
+   */
+  @Override
+  public MessageType peekType(ByteBuffer buffer) {
+    return KryoMessageSerializer.peekType(buffer);
+  }
+  
+  @Override
+  public Message decodeBuffer(ByteBuffer buffer) {
+    if (threadContext != null) {
+      final ThreadContext context = threadContext.get();
+      if (buffer.hasArray()) {
+        context.input.setBuffer(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        return deserializeThreadLocal(context, context.input);
+      } else {
+        context.byteBufferInput.setBuffer(buffer.duplicate());
+        return deserializeThreadLocal(context, context.byteBufferInput);
+      }
+    } else if (buffer.hasArray()) {
+      return deserialize(new Input(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining()));
+    } else {
+      return deserialize(new ByteBufferInput(buffer.duplicate()));
+    }
+  }
 }
@@ -1,11 +1,27 @@
 package com.obsidiandynamics.blackstrom.codec;
 
+import java.nio.*;
+
 import com.esotericsoftware.kryo.*;
 import com.esotericsoftware.kryo.io.*;
 import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.blackstrom.util.*;
 
 final class KryoMessageSerializer extends Serializer<Message> {
-  private static final int DEF_PAYLOAD_BUFFER_SIZE = 128;
+  /** Precedes an xid written as a string. */
+  private static final byte XID_STRING = 0;
+  
+  /** Precedes an xid in binary {@link Xid} form, written as two {@code long}s. */
+  private static final byte XID_BINARY = 1;
+  
+  /** Precedes an outcome's responses, written in full. */
+  private static final byte RESPONSES_FULL = 0;
+  
+  /** Precedes the cohorts of a compact outcome, written in place of the responses. */
+  private static final byte RESPONSES_ACCEPTED = 1;
+  
+  /** Filler used to extend the output when a payload's length prefix needs more than one byte. */
+  private static final byte[] LENGTH_PADDING = new byte[4];
   
   static final class MessageSerializationException extends KryoException {
     private static final long serialVersionUID = 1L;
@@ -25,16 +41,38 @@ final class KryoMessageSerializer extends Serializer<Message> {
   
   private final boolean mapPayload;
   
-  KryoMessageSerializer(boolean mapPayload) {
+  /** Decodes lazy payloads on first access; {@code null} if payloads are decoded eagerly. */
+  private final KryoLazyPayload.Decoder lazyDecoder;
+  
+  /** Encodes well-known cohort and source identifiers by their IDs; {@code null} if not in use. */
+  private final IdentifierDictionary.Identifiers identifiers;
+  
+  KryoMessageSerializer(boolean mapPayload, KryoLazyPayload.Decoder lazyDecoder, IdentifierDictionary.Identifiers identifiers) {
     this.mapPayload = mapPayload;
+    this.lazyDecoder = lazyDecoder;
+    this.identifiers = identifiers;
+  }
+  
+  /**
+   *  Obtains the type of an encoded message from its leading byte, without consuming it.
+   *  
+   *  @param buffer The encoded message.
+   *  @return The message type, or {@code null} if the leading byte isn't a valid type ordinal.
+   */
+  static MessageType peekType(ByteBuffer buffer) {
+    if (! buffer.hasRemaining()) return null;
+    
+    final MessageType[] types = MessageType.values();
+    final int ordinal = buffer.get(buffer.position());
+    return ordinal >= 0 && ordinal < types.length ? types[ordinal] : null;
   }
   
   @Override
   public void write(Kryo kryo, Output out, Message message) {
     out.writeByte(message.getMessageType().ordinal());
-    out.writeString(message.getXid());
+    writeXid(out, message.getXidValue());
     out.writeLong(message.getTimestamp());
-    out.writeString(message.getSource());
+    writeIdentifier(out, message.getSource());
     
     switch (message.getMessageType()) {
       case QUERY:
@@ -78,67 +116,163 @@ final class KryoMessageSerializer extends Serializer<Message> {
   
   private static void serializeQuery(Kryo kryo, Output out, Query m) {
     out.writeVarInt(m.getTtl(), true);
-    serializePayload(kryo, out, m.getObjective());
+    serializePayload(kryo, out, m.getRawObjective());
   }
   
   private static void serializeQueryResponse(Kryo kryo, Output out, QueryResponse m) {
-    serializePayload(kryo, out, m.getResult());
+    serializePayload(kryo, out, m.getRawResult());
   }
   
   private static void serializeCommand(Kryo kryo, Output out, Command m) {
     out.writeVarInt(m.getTtl(), true);
-    serializePayload(kryo, out, m.getObjective());
+    serializePayload(kryo, out, m.getRawObjective());
   }
   
   private static void serializeCommandResponse(Kryo kryo, Output out, CommandResponse m) {
-    serializePayload(kryo, out, m.getResult());
+    serializePayload(kryo, out, m.getRawResult());
   }
   
   private static void serializeNotice(Kryo kryo, Output out, Notice m) {
-    serializePayload(kryo, out, m.getEvent());
+    serializePayload(kryo, out, m.getRawEvent());
   }
   
-  private static void serializeProposal(Kryo kryo, Output out, Proposal m) {
-    KryoUtils.writeStringArray(out, m.getCohorts());
+  private void serializeProposal(Kryo kryo, Output out, Proposal m) {
+    final String[] cohorts = m.getCohorts();
+    out.writeVarInt(cohorts.length, true);
+    for (String cohort : cohorts) {
+      writeIdentifier(out, cohort);
+    }
     out.writeVarInt(m.getTtl(), true);
-    serializePayload(kryo, out, m.getObjective());
+    serializePayload(kryo, out, m.getRawObjective());
   }
   
-  private static void serializeVote(Kryo kryo, Output out, Vote m) {
+  private void serializeVote(Kryo kryo, Output out, Vote m) {
     serializeResponse(kryo, out, m.getResponse());
   }
   
-  private static void serializeOutcome(Kryo kryo, Output out, Outcome m) {
+  private void serializeOutcome(Kryo kryo, Output out, Outcome m) {
     out.writeByte(m.getResolution().ordinal());
     final AbortReason abortReason = m.getAbortReason();
     out.writeByte(abortReason != null ? abortReason.ordinal() : -1);
-    final Response[] responses = m.getResponses();
-    out.writeVarInt(responses.length, true);
-    for (Response response : responses) {
-      serializeResponse(kryo, out, response);
+    if (m.isCompact()) {
+      out.writeByte(RESPONSES_ACCEPTED);
+      final String[] acceptedCohorts = m.getAcceptedCohorts();
+      out.writeVarInt(acceptedCohorts.length, true);
+      for (String cohort : acceptedCohorts) {
+        writeIdentifier(out, cohort);
+      }
+    } else {
+      out.writeByte(RESPONSES_FULL);
+      final Response[] responses = m.getResponses();
+      out.writeVarInt(responses.length, true);
+      for (Response response : responses) {
+        serializeResponse(kryo, out, response);
+      }
     }
-    serializePayload(kryo, out, m.getMetadata());
+    serializePayload(kryo, out, m.getRawMetadata());
   }
   
-  private static void serializeResponse(Kryo kryo, Output out, Response r) {
-    out.writeString(r.getCohort());
+  private void serializeResponse(Kryo kryo, Output out, Response r) {
+    writeIdentifier(out, r.getCohort());
     out.writeByte(r.getIntent().ordinal());
-    serializePayload(kryo, out, r.getMetadata());
+    serializePayload(kryo, out, r.getRawMetadata());
   }
   
   private static void serializePayload(Kryo kryo, Output out, Object payload) {
     if (payload == null) {
       out.writeVarInt(0, true);
     } else if (payload instanceof PayloadBuffer) {
-      final byte[] payloadBytes = ((PayloadBuffer) payload).getBytes();
-      out.writeVarInt(payloadBytes.length, true);
-      out.writeBytes(payloadBytes);
+      writePayloadBytes(out, ((PayloadBuffer) payload).getBytes());
+    } else if (payload instanceof KryoLazyPayload) {
+      writePayloadBytes(out, ((KryoLazyPayload) payload).getBytes());
+    } else if (payload instanceof LazyPayload) {
+      // a lazy payload originating from a different codec must be decoded first
+      serializePayload(kryo, out, ((LazyPayload) payload).get());
+    } else {
+      // reserve a single byte for the length prefix, which suffices for payloads under 128 bytes,
+      // and serialize the payload in place; longer payloads are shifted along to widen the prefix
+      // (the output must hold the entire message in memory, which is the case for the codec)
+      final int lengthPosition = out.position();
+      out.writeByte(0);
+      final int payloadPosition = out.position();
+      kryo.writeClassAndObject(out, payload);
+      final int payloadLength = out.position() - payloadPosition;
+      final int extraLengthBytes = Binary.varIntLength(payloadLength) - 1;
+      if (extraLengthBytes != 0) {
+        out.writeBytes(LENGTH_PADDING, 0, extraLengthBytes);
+        final byte[] buffer = out.getBuffer();
+        System.arraycopy(buffer, payloadPosition, buffer, payloadPosition + extraLengthBytes, payloadLength);
+      }
+      final int endPosition = out.position();
+      out.setPosition(lengthPosition);
+      out.writeVarInt(payloadLength, true);
+      out.setPosition(endPosition);
+    }
+  }
+  
+  private static void writePayloadBytes(Output out, byte[] payloadBytes) {
+    out.writeVarInt(payloadBytes.length, true);
+    out.writeBytes(payloadBytes);
+  }
+  
+  private static void writeXid(Output out, Xid xid) {
+    if (xid != null && xid.isBinary()) {
+      out.writeByte(XID_BINARY);
+      out.writeLong(xid.getHigh());
+      out.writeLong(xid.getLow());
     } else {
-      final Output buffer = new Output(DEF_PAYLOAD_BUFFER_SIZE, -1);
-      kryo.writeClassAndObject(buffer, payload);
-      final int bufferSize = buffer.position();
-      out.writeVarInt(bufferSize, true);
-      out.writeBytes(buffer.getBuffer(), 0, bufferSize);
+      out.writeByte(XID_STRING);
+      out.writeString(xid != null ? xid.toString() : null);
+    }
+  }
+  
+  private static Xid readXid(Input in) {
+    final byte xidForm = in.readByte();
+    if (xidForm == XID_BINARY) {
+      final long high = in.readLong();
+      final long low = in.readLong();
+      return new Xid(high, low);
+    } else {
+      return Xid.of(in.readString());
+    }
+  }
+  
+  /**
+   *  Writes a cohort or source identifier. Without a dictionary, the identifier is written as a
+   *  plain string. With a dictionary, a non-zero variable-length prefix holds the identifier's
+   *  ID plus one, while a zero prefix is followed by the identifier as a string.
+   *  
+   *  @param out The output.
+   *  @param identifier The identifier (may be {@code null}).
+   */
+  private void writeIdentifier(Output out, String identifier) {
+    if (identifiers == null) {
+      out.writeString(identifier);
+    } else {
+      final int id = identifiers.getId(identifier);
+      if (id != -1) {
+        out.writeVarInt(id + 1, true);
+      } else {
+        out.writeVarInt(0, true);
+        out.writeString(identifier);
+      }
+    }
+  }
+  
+  private String readIdentifier(Input in) {
+    if (identifiers == null) {
+      return in.readString();
+    } else {
+      final int prefix = in.readVarInt(true);
+      if (prefix == 0) {
+        return in.readString();
+      } else {
+        final String identifier = identifiers.getIdentifier(prefix - 1);
+        if (identifier == null) {
+          throw new MessageDeserializationException(new IllegalStateException("Unknown identifier ID " + (prefix - 1)));
+        }
+        return identifier;
+      }
     }
   }
 
@@ -146,9 +280,9 @@ final class KryoMessageSerializer extends Serializer<Message> {
   public Message read(Kryo kryo, Input in, Class<Message> type) {
     final byte messageTypeOrdinal = in.readByte();
     final MessageType messageType = MessageType.values()[messageTypeOrdinal];
-    final String xid = in.readString();
+    final Xid xid = readXid(in);
     final long timestamp = in.readLong();
-    final String source = in.readString();
+    final String source = readIdentifier(in);
     final Message message;
     
     switch (messageType) {
@@ -194,61 +328,75 @@ final class KryoMessageSerializer extends Serializer<Message> {
     return message;
   }
   
-  private Query deserializeQuery(Kryo kryo, Input in, String xid, long timestamp) {
+  private Query deserializeQuery(Kryo kryo, Input in, Xid xid, long timestamp) {
     final int ttl = in.readVarInt(true);
     final Object objective = deserializePayload(kryo, in);
     return new Query(xid, timestamp, objective, ttl);
   }
   
-  private QueryResponse deserializeQueryResponse(Kryo kryo, Input in, String xid, long timestamp) {
+  private QueryResponse deserializeQueryResponse(Kryo kryo, Input in, Xid xid, long timestamp) {
     final Object result = deserializePayload(kryo, in);
     return new QueryResponse(xid, timestamp, result);
   }
   
-  private Command deserializeCommand(Kryo kryo, Input in, String xid, long timestamp) {
+  private Command deserializeCommand(Kryo kryo, Input in, Xid xid, long timestamp) {
     final int ttl = in.readVarInt(true);
     final Object objective = deserializePayload(kryo, in);
     return new Command(xid, timestamp, objective, ttl);
   }
   
-  private CommandResponse deserializeCommandResponse(Kryo kryo, Input in, String xid, long timestamp) {
+  private CommandResponse deserializeCommandResponse(Kryo kryo, Input in, Xid xid, long timestamp) {
     final Object result = deserializePayload(kryo, in);
     return new CommandResponse(xid, timestamp, result);
   }
   
-  private Notice deserializeNotice(Kryo kryo, Input in, String xid, long timestamp) {
+  private Notice deserializeNotice(Kryo kryo, Input in, Xid xid, long timestamp) {
     final Object event = deserializePayload(kryo, in);
     return new Notice(xid, timestamp, event);
   }
   
-  private Proposal deserializeProposal(Kryo kryo, Input in, String xid, long timestamp) {
-    final String[] cohorts = KryoUtils.readStringArray(in);
+  private Proposal deserializeProposal(Kryo kryo, Input in, Xid xid, long timestamp) {
+    final int cohortsLength = in.readVarInt(true);
+    final String[] cohorts = new String[cohortsLength];
+    for (int i = 0; i < cohortsLength; i++) {
+      cohorts[i] = readIdentifier(in);
+    }
     final int ttl = in.readVarInt(true);
     final Object objective = deserializePayload(kryo, in);
     return new Proposal(xid, timestamp, cohorts, objective, ttl);
   }
   
-  private Vote deserializeVote(Kryo kryo, Input in, String xid, long timestamp) {
+  private Vote deserializeVote(Kryo kryo, Input in, Xid xid, long timestamp) {
     final Response response = deserializeResponse(kryo, in);
     return new Vote(xid, timestamp, response);
   }
   
-  private Outcome deserializeOutcome(Kryo kryo, Input in, String xid, long timestamp) {
+  private Outcome deserializeOutcome(Kryo kryo, Input in, Xid xid, long timestamp) {
     final byte resolutionOrdinal = in.readByte();
     final Resolution resolution = Resolution.values()[resolutionOrdinal];
     final byte abortReasonOrdinal = in.readByte();
     final AbortReason abortReason = abortReasonOrdinal != -1 ? AbortReason.values()[abortReasonOrdinal] : null;
+    final byte responsesForm = in.readByte();
     final int responsesLength = in.readVarInt(true);
-    final Response[] responses = new Response[responsesLength];
-    for (int i = 0; i < responsesLength; i++) {
-      responses[i] = deserializeResponse(kryo, in);
+    if (responsesForm == RESPONSES_ACCEPTED) {
+      final String[] acceptedCohorts = new String[responsesLength];
+      for (int i = 0; i < responsesLength; i++) {
+        acceptedCohorts[i] = readIdentifier(in);
+      }
+      final Object metadata = deserializePayload(kryo, in);
+      return Outcome.compactCommit(xid, timestamp, acceptedCohorts, metadata);
+    } else {
+      final Response[] responses = new Response[responsesLength];
+      for (int i = 0; i < responsesLength; i++) {
+        responses[i] = deserializeResponse(kryo, in);
+      }
+      final Object metadata = deserializePayload(kryo, in);
+      return new Outcome(xid, timestamp, resolution, abortReason, responses, metadata);
     }
-    final Object metadata = deserializePayload(kryo, in);
-    return new Outcome(xid, timestamp, resolution, abortReason, responses, metadata);
   }
   
   private Response deserializeResponse(Kryo kryo, Input in) {
-    final String cohort = in.readString();
+    final String cohort = readIdentifier(in);
     final byte intentOrdinal = in.readByte();
     final Intent intent = Intent.values()[intentOrdinal];
     final Object metadata = deserializePayload(kryo, in);
@@ -258,11 +406,22 @@ final class KryoMessageSerializer extends Serializer<Message> {
   private Object deserializePayload(Kryo kryo, Input in) {
     final int bufferSize = in.readVarInt(true);
     if (bufferSize != 0) {
-      final byte[] buffer = new byte[bufferSize];
-      in.readBytes(buffer);
-      if (mapPayload) {
-        return kryo.readClassAndObject(new Input(buffer));
+      if (mapPayload && lazyDecoder != null) {
+        return new KryoLazyPayload(in.readBytes(bufferSize), lazyDecoder);
+      } else if (mapPayload) {
+        // read the payload in place, skipping over any bytes that its serializer left unread
+        final int payloadPosition = in.position();
+        final Object payload = kryo.readClassAndObject(in);
+        final int bytesRead = in.position() - payloadPosition;
+        if (bytesRead > bufferSize) {
+          final String m = "Payload overran its length: read " + bytesRead + " of " + bufferSize + " bytes";
+          throw new MessageDeserializationException(new IllegalStateException(m));
+        }
+        in.setPosition(payloadPosition + bufferSize);
+        return payload;
       } else {
+        final byte[] buffer = new byte[bufferSize];
+        in.readBytes(buffer);
         return new PayloadBuffer(buffer);
       }
     } else {
@@ -0,0 +1,34 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import java.util.*;
+
+import com.esotericsoftware.kryo.*;
+import com.obsidiandynamics.blackstrom.codec.KryoMessageCodec.*;
+import com.obsidiandynamics.yconf.*;
+
+/**
+ *  Applies a {@link PayloadTypeRegistry} to the {@link KryoMessageCodec} by registering each
+ *  type with Kryo, so that {@code writeClassAndObject} emits a variable-length ID in place of
+ *  the class name. Payloads of unregistered types continue to be written by their class name.<p>
+ *  
+ *  Registry IDs are offset by {@link #FIRST_REGISTRATION_ID}, keeping them clear of Kryo's
+ *  built-in registrations. Because a type's serializer is fixed at registration, this expansion
+ *  must be listed after any expansions that add default serializers for the registered types.
+ */
+@Y
+public final class KryoPayloadTypeExpansion implements KryoExpansion {
+  public static final int FIRST_REGISTRATION_ID = 32;
+  
+  private final PayloadTypeRegistry.Types types;
+  
+  public KryoPayloadTypeExpansion(@YInject(name="registry") PayloadTypeRegistry registry) {
+    types = registry.resolve();
+  }
+  
+  @Override
+  public void accept(Kryo kryo) {
+    for (Map.Entry<Class<?>, Integer> entry : types.getIds().entrySet()) {
+      kryo.register(entry.getKey(), FIRST_REGISTRATION_ID + entry.getValue());
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.assertion.*;
+
+public final class KryoBufferOptionsTest {
+  @Test
+  public void testConfig() {
+    final KryoBufferOptions options = new KryoBufferOptions()
+        .withInitialBufferSize(256)
+        .withMaxRetainedBufferSize(1024);
+    assertEquals(256, options.getInitialBufferSize());
+    assertEquals(1024, options.getMaxRetainedBufferSize());
+    options.validate();
+    Assertions.assertToStringOverride(options);
+  }
+  
+  @Test(expected=IllegalArgumentException.class)
+  public void testInvalidInitialBufferSize() {
+    new KryoBufferOptions().withInitialBufferSize(0).validate();
+  }
+  
+  @Test(expected=IllegalArgumentException.class)
+  public void testMaxRetainedLessThanInitial() {
+    new KryoMessageCodec(false, new KryoBufferOptions().withInitialBufferSize(256).withMaxRetainedBufferSize(128));
+  }
+}
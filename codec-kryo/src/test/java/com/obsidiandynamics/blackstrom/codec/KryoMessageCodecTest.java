@@ -2,6 +2,10 @@ package com.obsidiandynamics.blackstrom.codec;
 
 import static org.junit.Assert.*;
 
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
 import org.hamcrest.core.*;
 import org.junit.*;
 import org.junit.rules.*;
@@ -62,6 +66,276 @@ public final class KryoMessageCodecTest {
     assertEquals(m, d2);
   }
   
+  /**
+   *  Covers both the pooled and the thread-local buffer paths of the codec's buffer overrides.
+   */
+  @Test
+  public void testBufferRoundTrip() throws Exception {
+    final Message m = new Proposal("N100", new String[] {"a", "b"}, null, 1000).withSource("test");
+    BufferRoundTrip.verify(new KryoMessageCodec(false), m);
+    BufferRoundTrip.verify(new KryoMessageCodec(false, new KryoBufferOptions()), m);
+  }
+  
+  @Test
+  public void testLazyPayload() throws Exception {
+    final KryoAnimal<?> a = new KryoDog().named("Rover").withFriend(new KryoCat().named("Misty"));
+    final Outcome m = new Outcome("N100", Resolution.COMMIT, null, 
+                                  new Response[] { new Response("a", Intent.ACCEPT, a) }, BankSettlement.forTwo(1000));
+    final MessageCodec eager = new KryoMessageCodec(true, new KryoBankExpansion());
+    final byte[] encoded = eager.encode(m);
+    
+    for (KryoBufferOptions bufferOptions : new KryoBufferOptions[] {null, new KryoBufferOptions()}) {
+      final MessageCodec c = new KryoMessageCodec(true, true, bufferOptions, new KryoBankExpansion());
+      final Outcome d = Classes.cast(c.decode(encoded));
+      final KryoLazyPayload metadata = (KryoLazyPayload) d.getRawMetadata();
+      final KryoLazyPayload responseMetadata = (KryoLazyPayload) d.getResponses()[0].getRawMetadata();
+      
+      // re-encoding emits the payloads verbatim, without decoding them
+      assertArrayEquals(encoded, c.encode(d));
+      assertFalse(metadata.isDecoded());
+      assertFalse(responseMetadata.isDecoded());
+      
+      assertEquals(BankSettlement.forTwo(1000), d.getMetadata());
+      assertEquals(a, d.getResponses()[0].getMetadata());
+      assertTrue(metadata.isDecoded());
+      assertEquals(m, d);
+      assertArrayEquals(encoded, c.encode(d));
+    }
+  }
+  
+  @Test
+  public void testForeignLazyPayload() throws Exception {
+    final KryoAnimal<?> a = new KryoDog().named("Rover");
+    final LazyPayload foreign = new LazyPayload() {
+      @Override
+      protected Object decode() {
+        return a;
+      }
+    };
+    final MessageCodec c = new KryoMessageCodec(true);
+    final byte[] encoded = c.encode(new Proposal("N100", 1, new String[] {"a"}, foreign, 1000));
+    assertArrayEquals(c.encode(new Proposal("N100", 1, new String[] {"a"}, a, 1000)), encoded);
+  }
+  
+  @Test
+  public void testXidForms() throws Exception {
+    final MessageCodec c = new KryoMessageCodec(true);
+    final Xid xid = Xid.generate();
+    final Notice n = new Notice(xid, 1, null);
+    final byte[] encoded = c.encode(n);
+    // an empty string takes up a single byte, while a binary xid takes up 16
+    assertEquals(c.encode(new Notice("", 1, null)).length + 15, encoded.length);
+    final Message decoded = c.decode(encoded);
+    assertEquals(n, decoded);
+    assertTrue(decoded.getXidValue().isBinary());
+    assertEquals(xid, decoded.getXidValue());
+    
+    // canonical strings are written in binary form, other xids as strings
+    for (String other : new String[] {UUID.randomUUID().toString(), "N100", xid.toString().toUpperCase(), null}) {
+      assertEquals(new Notice(other, 1, null), c.decode(c.encode(new Notice(other, 1, null))));
+    }
+  }
+  
+  @Test
+  public void testDictionaryRoundTrip() throws Exception {
+    final IdentifierDictionary dictionary = new IdentifierDictionary().withIdentifiers("branch-0", "branch-1", "source");
+    final MessageCodec c = new KryoMessageCodec(true, false, null, dictionary);
+    final MessageCodec plain = new KryoMessageCodec(true);
+    final Message[] messages = {
+      new Proposal("N100", 1, new String[] {"branch-0", "branch-1", "branch-2"}, null, 1000).withSource("source"),
+      new Vote("N100", 1, new Response("branch-1", Intent.ACCEPT, null)).withSource("other"),
+      new Outcome("N100", 1, Resolution.COMMIT, null, 
+                  new Response[] {new Response("branch-0", Intent.ACCEPT, null), new Response("branch-2", Intent.ACCEPT, null)}, 
+                  null)
+    };
+    
+    for (Message m : messages) {
+      final byte[] encoded = c.encode(m);
+      logEncoded(encoded);
+      assertTrue(encoded.length < plain.encode(m).length);
+      final Message decoded = c.decode(encoded);
+      assertEquals(m, decoded);
+      assertEquals(m.getSource(), decoded.getSource());
+    }
+    
+    // identifiers in the dictionary are decoded to their interned instances
+    final Proposal decoded = Classes.cast(c.decode(c.encode(messages[0])));
+    assertSame("branch-0", decoded.getCohorts()[0]);
+    assertSame("source", decoded.getSource());
+  }
+  
+  @Test
+  public void testDictionaryUnknownId() throws Exception {
+    final MessageCodec c = new KryoMessageCodec(true, false, null, new IdentifierDictionary().withIdentifier("a", 1));
+    final byte[] encoded = c.encode(new Proposal("N100", 1, new String[] {"a"}, null, 1000));
+    final MessageCodec other = new KryoMessageCodec(true, false, null, new IdentifierDictionary().withIdentifier("a", 0));
+    thrown.expect(MessageDeserializationException.class);
+    thrown.expectCause(IsInstanceOf.instanceOf(IllegalStateException.class));
+    other.decode(encoded);
+  }
+  
+  @Test
+  public void testThreadLocalBufferRoundTrip() throws Exception {
+    final KryoAnimal<?> a = new KryoDog().named("Rover").withFriend(new KryoCat().named("Misty"));
+    final Message m = new Proposal("N100", new String[] {"a", "b"}, a, 1000).withSource("test");
+    final KryoMessageCodec c = new KryoMessageCodec(true, new KryoBufferOptions());
+    assertTrue(c.isThreadLocal());
+    assertFalse(new KryoMessageCodec(true).isThreadLocal());
+    
+    final byte[] encoded = c.encode(m);
+    assertArrayEquals(new KryoMessageCodec(true).encode(m), encoded);
+    assertArrayEquals(encoded, Binary.toByteArray(c.encodeBuffer(m)));
+    assertEquals(m, c.decode(encoded));
+    
+    final byte[] padded = new byte[encoded.length + 3];
+    System.arraycopy(encoded, 0, padded, 2, encoded.length);
+    final ByteBuffer heap = ByteBuffer.wrap(padded, 2, encoded.length);
+    assertEquals(m, c.decodeBuffer(heap));
+    assertEquals(2, heap.position());
+    
+    final ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length);
+    direct.put(encoded).flip();
+    assertEquals(m, c.decodeBuffer(direct));
+    assertEquals(0, direct.position());
+    
+    // the encoded array must not be overwritten by subsequent encodes on the same thread
+    final byte[] copy = encoded.clone();
+    c.encode(new Proposal("N200", new String[] {"c"}, null, 2000));
+    assertArrayEquals(copy, encoded);
+  }
+  
+  @Test
+  public void testPeekType() throws Exception {
+    final Message[] messages = {
+      new Proposal("X0", new String[] {"a"}, null, 1000),
+      new Vote("X0", new Response("a", Intent.ACCEPT, null)),
+      new Outcome("X0", Resolution.COMMIT, null, new Response[0], null),
+      new Notice("X0", null)
+    };
+    for (MessageCodec c : new MessageCodec[] {new KryoMessageCodec(false), new KryoMessageCodec(false, new KryoBufferOptions())}) {
+      for (Message m : messages) {
+        final ByteBuffer buffer = c.encodeBuffer(m);
+        final int position = buffer.position();
+        assertEquals(m.getMessageType(), c.peekType(buffer));
+        assertEquals(position, buffer.position());
+      }
+    }
+    
+    assertNull(new KryoMessageCodec(false).peekType(ByteBuffer.allocate(0)));
+    assertNull(new KryoMessageCodec(false).peekType(ByteBuffer.wrap(new byte[] {-1})));
+  }
+  
+  @Test
+  public void testThreadLocalBufferTrim() throws Exception {
+    // records the output buffer's capacity while the payload is being written
+    final AtomicInteger capacityDuringEncode = new AtomicInteger();
+    final KryoDogSerializer dogSerializer = new KryoDogSerializer();
+    final Serializer<KryoDog> probeSerializer = new Serializer<KryoDog>() {
+      @Override
+      public void write(Kryo kryo, Output output, KryoDog object) {
+        dogSerializer.write(kryo, output, object);
+        capacityDuringEncode.set(output.getBuffer().length);
+      }
+      
+      @Override
+      public KryoDog read(Kryo kryo, Input input, Class<KryoDog> type) {
+        return dogSerializer.read(kryo, input, type);
+      }
+    };
+    final KryoMessageCodec c = new KryoMessageCodec(true, new KryoBufferOptions()
+                                                    .withInitialBufferSize(16)
+                                                    .withMaxRetainedBufferSize(256),
+                                                    kryo -> kryo.register(KryoDog.class, probeSerializer));
+    assertEquals(16, c.getOutputCapacity());
+    
+    final Message small = new Proposal("N100", new String[] {"a"}, null, 1000);
+    final Message large = new Proposal("N100", new String[] {"a"}, new KryoDog().named(Binary.randomHexString(1_000)), 1000);
+    for (int i = 0; i < 3; i++) {
+      assertEquals(small, c.decode(c.encode(small)));
+      assertTrue("capacity=" + c.getOutputCapacity(), c.getOutputCapacity() <= 256);
+      
+      assertEquals(large, c.decode(c.encode(large)));
+      assertTrue("capacity=" + capacityDuringEncode.get(), capacityDuringEncode.get() > 256);
+      assertEquals(16, c.getOutputCapacity());
+    }
+  }
+  
+  @Test
+  public void testThreadLocalConcurrent() throws Exception {
+    final KryoMessageCodec c = new KryoMessageCodec(true, new KryoBufferOptions());
+    final int threads = 4;
+    final int runs = 1_000;
+    final List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+    final List<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      final String name = "dog-" + t;
+      final Thread worker = new Thread(() -> {
+        try {
+          for (int i = 0; i < runs; i++) {
+            final Message m = new Proposal("N" + i, new String[] {name}, new KryoDog().named(name), 1000);
+            assertEquals(m, c.decode(c.encode(m)));
+          }
+        } catch (Throwable e) {
+          errors.add(e);
+        }
+      });
+      workers.add(worker);
+      worker.start();
+    }
+    for (Thread worker : workers) worker.join();
+    assertEquals(Collections.emptyList(), errors);
+  }
+  
+  /**
+   *  A payload whose serializer reads more bytes than it wrote.
+   */
+  private static final class Overreader {}
+  
+  @Test
+  public void testPayloadOverrun() {
+    final KryoMessageCodec c = new KryoMessageCodec(true, kryo -> kryo.addDefaultSerializer(Overreader.class, new Serializer<Overreader>() {
+      @Override
+      public void write(Kryo kryo, Output output, Overreader object) {
+        output.writeByte(0);
+      }
+      
+      @Override
+      public Overreader read(Kryo kryo, Input input, Class<Overreader> type) {
+        input.readShort();
+        return new Overreader();
+      }
+    }));
+    final Message m = new Outcome("N100", Resolution.COMMIT, null, 
+                                  new Response[] { new Response("a", Intent.ACCEPT, new Overreader()) }, null);
+    final byte[] encoded = c.encode(m);
+    thrown.expect(MessageDeserializationException.class);
+    thrown.expectCause(IsInstanceOf.instanceOf(IllegalStateException.class));
+    c.decode(encoded);
+  }
+  
+  /**
+   *  Payloads are serialized in place behind a one-byte length prefix, which must be widened
+   *  for payloads of 128 bytes or more. Tests each prefix width, verifying that the unmapped
+   *  payload bytes match an independent serialization of the payload.
+   */
+  @Test
+  public void testPayloadLengthPrefixWidths() throws Exception {
+    final Kryo kryo = new Kryo();
+    kryo.setReferences(false);
+    for (int nameLength : new int[] {1, 100, 200, 20_000, 3_000_000}) {
+      final KryoAnimal<?> a = new KryoDog().named(Binary.randomHexString(nameLength)).withFriend(new KryoCat().named("Misty"));
+      final Proposal m = new Proposal("N100", new String[] {"a", "b"}, a, 1000);
+      final byte[] encoded = new KryoMessageCodec(true).encode(m);
+      assertEquals(m, new KryoMessageCodec(true).decode(encoded));
+      
+      final Proposal unmapped = Classes.cast(new KryoMessageCodec(false).decode(encoded));
+      final Output expected = new Output(128, -1);
+      kryo.writeClassAndObject(expected, a);
+      assertArrayEquals(expected.toBytes(), ((PayloadBuffer) unmapped.getObjective()).getBytes());
+      assertArrayEquals(encoded, new KryoMessageCodec(false).encode(unmapped));
+    }
+  }
+  
   @Test
   public void testCycle() throws Exception {
     testCycle(1_000);
@@ -317,6 +591,24 @@ public final class KryoMessageCodecTest {
     assertEquals(m, d2);
   }
 
+  @Test
+  public void testOutcomeCompact() throws Exception {
+    final Outcome m = Outcome.compactCommit("O100", 1, new String[] {"test-cohort-a", "test-cohort-b"}, "metadata")
+        .withSource("test");
+    final Outcome full = new Outcome("O100", 1, Resolution.COMMIT, null, m.getResponses(), "metadata").withSource("test");
+    final MessageCodec c = new KryoMessageCodec(true);
+    final byte[] encoded = c.encode(m);
+    logEncoded(encoded);
+    // each response sheds its intent and empty metadata
+    assertEquals(c.encode(full).length - 4, encoded.length);
+    
+    final Outcome d = Classes.cast(c.decode(encoded));
+    assertTrue(d.isCompact());
+    assertArrayEquals(m.getAcceptedCohorts(), d.getAcceptedCohorts());
+    assertEquals(m, d);
+    assertEquals(Intent.ACCEPT, d.getResponse("test-cohort-b").getIntent());
+  }
+  
   @Test
   public void testOutcomeAbortMixedMetadata() throws Exception {
     final KryoAnimal<?> a = new KryoDog().named("Rex").withFriend(new KryoCat().named("Tigger"));
@@ -363,6 +655,7 @@ public final class KryoMessageCodecTest {
     try (Output buffer = new Output(16, -1)) {
       if (WRITE_REFERENCES) buffer.writeVarInt(Kryo.NOT_NULL, true);
       buffer.writeByte(MessageType.$UNKNOWN.ordinal());
+      buffer.writeByte(0); // xid written as a string
       buffer.writeString(null);
       buffer.writeLong(0);
       buffer.writeString(null);
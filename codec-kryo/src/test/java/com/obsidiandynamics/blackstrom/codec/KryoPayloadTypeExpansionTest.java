@@ -0,0 +1,47 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.blackstrom.bank.*;
+import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.func.*;
+
+public final class KryoPayloadTypeExpansionTest {
+  private static KryoPayloadTypeExpansion expansion() {
+    return new KryoPayloadTypeExpansion(new PayloadTypeRegistry()
+                                        .withType(KryoDog.class, 1)
+                                        .withType(BankSettlement.class, 2));
+  }
+  
+  @Test
+  public void testRegisteredType() throws Exception {
+    final Message m = new Proposal("N100", new String[] {"a", "b"}, BankSettlement.forTwo(1000), 1000);
+    final MessageCodec plain = new KryoMessageCodec(true, new KryoBankExpansion());
+    final MessageCodec c = new KryoMessageCodec(true, new KryoBankExpansion(), expansion());
+    
+    final byte[] encoded = c.encode(m);
+    assertTrue(encoded.length < plain.encode(m).length);
+    assertEquals(m, c.decode(encoded));
+  }
+  
+  @Test
+  public void testUnregisteredTypeFallback() throws Exception {
+    final KryoAnimal<?> a = new KryoDog().named("Rex").withFriend(new KryoCat().named("Tigger"));
+    final Message m = new Proposal("N100", new String[] {"a", "b"}, a, 1000);
+    final MessageCodec c = new KryoMessageCodec(true, expansion());
+    assertEquals(m, c.decode(c.encode(m)));
+  }
+  
+  @Test
+  public void testUnmappedRoundTrip() throws Exception {
+    final Message m = new Proposal("N100", new String[] {"a", "b"}, new KryoDog().named("Rex"), 1000);
+    final MessageCodec mapped = new KryoMessageCodec(true, expansion());
+    final MessageCodec unmapped = new KryoMessageCodec(false, expansion());
+    
+    final Proposal d1 = Classes.cast(unmapped.decode(mapped.encode(m)));
+    assertEquals(PayloadBuffer.class, d1.getObjective().getClass());
+    assertEquals(m, mapped.decode(unmapped.encode(d1)));
+  }
+}
@@ -1,6 +1,7 @@
 package com.obsidiandynamics.blackstrom.ledger;
 
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.*;
 import java.util.stream.*;
 
@@ -11,6 +12,7 @@ import org.apache.kafka.common.errors.*;
 import org.apache.kafka.common.serialization.*;
 
 import com.obsidiandynamics.blackstrom.handler.*;
+import com.obsidiandynamics.blackstrom.ledger.KafkaLedgerMetrics.*;
 import com.obsidiandynamics.blackstrom.model.*;
 import com.obsidiandynamics.blackstrom.retention.*;
 import com.obsidiandynamics.jackdaw.*;
@@ -23,8 +25,8 @@ import com.obsidiandynamics.yconf.util.*;
 import com.obsidiandynamics.zerolog.*;
 
 public final class KafkaLedger implements Ledger {
-  private static final int POLL_TIMEOUT_MILLIS = 1_000;
-  private static final int PIPELINE_BACKOFF_MILLIS = 1;
+  private static final int POLL_TIMEOUT_MILLIS = 100;
+  private static final int DRAIN_WAIT_MILLIS = 100;
   private static final int RETRY_BACKOFF_MILLIS = 100;
 
   private final Kafka<String, Message> kafka;
@@ -43,16 +45,18 @@ public final class KafkaLedger implements Ledger {
 
   private final ProducerPipe<String, Message> producerPipe;
 
-  private final List<AsyncReceiver<String, Message>> receivers = new ArrayList<>();
+  private final List<AsyncReceiver<String, Message>> receivers = new CopyOnWriteArrayList<>();
 
-  private final List<ConsumerPipe<String, Message>> consumerPipes = new ArrayList<>();
+  private final List<ConsumerPipe<String, Message>> consumerPipes = new CopyOnWriteArrayList<>();
   
-  private final List<ShardedFlow> flows = new ArrayList<>(); 
+  private final List<ShardedFlow> flows = new CopyOnWriteArrayList<>(); 
   
   private final boolean printConfig;
   
   private final int attachRetries;
   
+  private final StaticPartitionAssignment staticAssignment;
+  
   private final WorkerThread retryThread;
   
   private static class RetryTask {
@@ -71,10 +75,122 @@ public final class KafkaLedger implements Ledger {
   private static class ConsumerOffsets {
     final Object lock = new Object();
     Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+    
+    /**
+     *  Takes the offsets confirmed since the last snapshot, limited to the partitions that are
+     *  currently assigned to the consumer. (Confirmations of in-flight messages from revoked 
+     *  partitions are dropped, lest they overwrite the commits of the partitions' new owners.)
+     *  
+     *  @param assignment The consumer's current assignment.
+     *  @return The offsets to commit, or {@code null} if there are none.
+     */
+    Map<TopicPartition, OffsetAndMetadata> snapshot(Set<TopicPartition> assignment) {
+      final Map<TopicPartition, OffsetAndMetadata> snapshot;
+      synchronized (lock) {
+        if (offsets.isEmpty()) return null;
+        snapshot = offsets;
+        offsets = new HashMap<>(snapshot.size());
+      }
+      snapshot.keySet().retainAll(assignment);
+      return snapshot.isEmpty() ? null : snapshot;
+    }
+  }
+  
+  /**
+   *  Tracks record batches that couldn't be admitted into a full consumer pipe. While batches are
+   *  pending, the consumer's partitions are paused so that the poll thread can keep polling 
+   *  without accumulating further records.
+   */
+  private static class Backpressure {
+    final Queue<ConsumerRecords<String, Message>> pending = new ArrayDeque<>();
+    volatile boolean paused;
+    
+    void awaitDrain() throws InterruptedException {
+      synchronized (this) {
+        if (paused) wait(DRAIN_WAIT_MILLIS);
+      }
+    }
+    
+    void signalDrain() {
+      if (paused) {
+        synchronized (this) {
+          notifyAll();
+        }
+      }
+    }
+    
+    /**
+     *  Discards the pending records of partitions that have been revoked from the consumer; these
+     *  will be redelivered to the partitions' new owners from their last committed offsets. The
+     *  order of the remaining records is preserved.
+     *  
+     *  @param revoked The revoked partitions.
+     *  @return The number of discarded records.
+     */
+    int discard(Collection<TopicPartition> revoked) {
+      int discarded = 0;
+      for (int batches = pending.size(); batches > 0; batches--) {
+        final ConsumerRecords<String, Message> batch = pending.remove();
+        final Map<TopicPartition, List<ConsumerRecord<String, Message>>> retained = new HashMap<>();
+        for (TopicPartition partition : batch.partitions()) {
+          final List<ConsumerRecord<String, Message>> records = batch.records(partition);
+          if (revoked.contains(partition)) {
+            discarded += records.size();
+          } else {
+            retained.put(partition, records);
+          }
+        }
+        if (! retained.isEmpty()) pending.add(new ConsumerRecords<>(retained));
+      }
+      return discarded;
+    }
   }
 
+  /** Operational counters for an attached handler, along with its consumer (for lag metrics). */
+  private static class HandlerCounters {
+    final String groupId;
+    final Consumer<String, Message> consumer;
+    final AtomicLong commits = new AtomicLong();
+    final AtomicLong commitFailures = new AtomicLong();
+    final AtomicLong commitLatencyNanos = new AtomicLong();
+    final AtomicLong maxCommitLatencyNanos = new AtomicLong();
+    final AtomicLong deserializationErrors = new AtomicLong();
+    
+    HandlerCounters(String groupId, Consumer<String, Message> consumer) {
+      this.groupId = groupId;
+      this.consumer = consumer;
+    }
+    
+    void onCommit(long latencyNanos, Exception exception) {
+      if (exception == null) {
+        commits.incrementAndGet();
+        commitLatencyNanos.addAndGet(latencyNanos);
+        maxCommitLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+      } else {
+        commitFailures.incrementAndGet();
+      }
+    }
+    
+    HandlerMetrics snapshot(String topic) {
+      final long commitsSnapshot = commits.get();
+      final double meanCommitLatencyMillis = 
+          commitsSnapshot != 0 ? commitLatencyNanos.get() / (double) commitsSnapshot / 1_000_000d : 0;
+      return new HandlerMetrics(groupId, partitionLag(consumer.metrics(), topic), commitsSnapshot, commitFailures.get(),
+                                meanCommitLatencyMillis, maxCommitLatencyNanos.get() / 1_000_000d, 
+                                deserializationErrors.get());
+    }
+  }
+  
+  private final List<HandlerCounters> handlerCounters = new CopyOnWriteArrayList<>();
+  
+  private final AtomicLong pendingAppends = new AtomicLong();
+  
+  private final AtomicLong retryBacklog = new AtomicLong();
+  
+  private final AtomicLong appendFailures = new AtomicLong();
+  
   /** Maps handler IDs to consumer offsets. */
-  private final Map<Integer, ConsumerOffsets> consumers = new HashMap<>();
+  private final Map<Integer, ConsumerOffsets> consumers = new ConcurrentHashMap<>();
 
   private final AtomicInteger nextHandlerId = new AtomicInteger();
 
@@ -86,6 +202,8 @@ public final class KafkaLedger implements Ledger {
     consumerPipeConfig = config.getConsumerPipeConfig();
     maxConsumerPipeYields = config.getMaxConsumerPipeYields();
     attachRetries = config.getAttachRetries();
+    staticAssignment = config.getStaticAssignment();
+    if (staticAssignment != null) staticAssignment.validate();
     codecLocator = CodecRegistry.register(config.getCodec());
     retryThread = WorkerThread.builder()
         .withOptions(new WorkerOptions().daemon().withName(KafkaLedger.class, "retry", topic))
@@ -122,6 +240,7 @@ public final class KafkaLedger implements Ledger {
   private void onRetry(WorkerThread t) throws InterruptedException {
     final RetryTask retryTask = retryQueueConsumer.poll();
     if (retryTask != null) {
+      retryBacklog.decrementAndGet();
       append(retryTask.message, retryTask.callback);
     } else {
       Thread.sleep(RETRY_BACKOFF_MILLIS);
@@ -157,18 +276,57 @@ public final class KafkaLedger implements Ledger {
         .with("key.deserializer", StringDeserializer.class.getName())
         .with("value.deserializer", KafkaMessageDeserializer.class.getName())
         .with(CodecRegistry.CONFIG_CODEC_LOCATOR, codecLocator)
+        .with(KafkaMessageDeserializer.CONFIG_INTEREST_TYPES, KafkaMessageDeserializer.formatInterestTypes(handler.getInterest()))
         .build();
     
     if (printConfig) kafka.describeConsumer(zlg::i, consumerDefaults, consumerOverrides);
     final Consumer<String, Message> consumer = kafka.getConsumer(consumerDefaults, consumerOverrides);
+    final ConsumerOffsets consumerOffsets = groupId != null ? new ConsumerOffsets() : null;
+    final HandlerCounters counters = new HandlerCounters(groupId, consumer);
+    final Backpressure backpressure = new Backpressure();
+    final ConsumerRebalanceListener rebalanceListener = new ConsumerRebalanceListener() {
+      @Override
+      public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        // salvage the progress made on the revoked partitions before handing them over
+        final Map<TopicPartition, OffsetAndMetadata> offsetsSnapshot = consumerOffsets.snapshot(consumer.assignment());
+        if (offsetsSnapshot != null) {
+          final long commitStarted = System.nanoTime();
+          try {
+            consumer.commitSync(offsetsSnapshot);
+            counters.onCommit(System.nanoTime() - commitStarted, null);
+          } catch (KafkaException e) {
+            counters.onCommit(System.nanoTime() - commitStarted, e);
+            logException(e, "Error committing offsets %s", offsetsSnapshot);
+          }
+        }
+        
+        final int discarded = backpressure.discard(partitions);
+        zlg.d("Revoked %s, discarded %,d pending record(s)", z -> z.arg(partitions).arg(discarded));
+      }
+      
+      @Override
+      public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+        zlg.d("Assigned %s", z -> z.arg(partitions));
+      }
+    };
+    
     new Retry()
     .withAttempts(attachRetries)
     .withFaultHandler(zlg::w)
     .withErrorHandler(zlg::e)
     .run(() -> {
-      if (groupId != null) {
-        consumer.subscribe(Collections.singletonList(topic));
+      if (groupId != null && staticAssignment == null) {
+        consumer.subscribe(Collections.singletonList(topic), rebalanceListener);
         zlg.d("subscribed to topic %s", z -> z.arg(topic));
+      } else if (groupId != null) {
+        final List<Integer> available = consumer.partitionsFor(topic).stream()
+            .map(PartitionInfo::partition)
+            .collect(Collectors.toList());
+        final List<TopicPartition> partitions = staticAssignment.resolve(available).stream()
+            .map(p -> new TopicPartition(topic, p))
+            .collect(Collectors.toList());
+        consumer.assign(partitions);
+        zlg.d("assigned partitions %s of %s", z -> z.arg(partitions).arg(available));
       } else {
         final List<PartitionInfo> infos = consumer.partitionsFor(topic);
         final List<TopicPartition> partitions = infos.stream()
@@ -184,93 +342,181 @@ public final class KafkaLedger implements Ledger {
     });
 
     final Integer handlerId;
-    final ConsumerOffsets consumerOffsets;
     final Retention retention;
     if (groupId != null) {
       handlerId = nextHandlerId.getAndIncrement();
-      consumerOffsets = new ConsumerOffsets();
       consumers.put(handlerId, consumerOffsets);
       final ShardedFlow flow = new ShardedFlow();
       retention = flow;
       flows.add(flow);
     } else {
       handlerId = null;
-      consumerOffsets = null;
       retention = NopRetention.getInstance();
     }
 
+    handlerCounters.add(counters);
     final MessageContext context = new DefaultMessageContext(this, handlerId, retention);
+    final MessageHandler filteredHandler = FilteringMessageHandler.of(handler);
     final String consumerPipeThreadName = ConsumerPipe.class.getSimpleName() + "-" + groupId;
     final RecordHandler<String, Message> pipelinedRecordHandler = records -> {
       for (ConsumerRecord<String, Message> record : records) {
-        final DefaultMessageId messageId = new DefaultMessageId(record.partition(), record.offset());
         final Message message = record.value();
+        // an uninterested message may have been skipped by the deserializer
+        if (message == null) continue;
+        
+        final DefaultMessageId messageId = new DefaultMessageId(record.partition(), record.offset());
         message.setMessageId(messageId);
         message.setShardKey(record.key());
         message.setShard(record.partition());
-        handler.onMessage(context, message);
+        filteredHandler.onMessage(context, message);
       }
+      backpressure.signalDrain();
     };
     final ConsumerPipe<String, Message> consumerPipe = 
         new ConsumerPipe<>(consumerPipeConfig, pipelinedRecordHandler, consumerPipeThreadName);
     consumerPipes.add(consumerPipe);
     final RecordHandler<String, Message> recordHandler = records -> {
-      for (int yields = 0;;) {
-        final boolean enqueued = consumerPipe.receive(records);
-
-        if (consumerOffsets != null) {
-          final Map<TopicPartition, OffsetAndMetadata> offsetsSnapshot;
-          synchronized (consumerOffsets.lock) {
-            if (! consumerOffsets.offsets.isEmpty()) {
-              offsetsSnapshot = consumerOffsets.offsets;
-              consumerOffsets.offsets = new HashMap<>(offsetsSnapshot.size());
-            } else {
-              offsetsSnapshot = null;
-            }
-          }
-
-          if (offsetsSnapshot != null) {
-            zlg.t("Committing offsets %s", z -> z.arg(offsetsSnapshot));
-            consumer.commitAsync(offsetsSnapshot, 
-                                 (offsets, exception) -> logException(exception, "Error committing offsets %s", offsets));
-          }
+      if (consumerOffsets != null) {
+        final Map<TopicPartition, OffsetAndMetadata> offsetsSnapshot = consumerOffsets.snapshot(consumer.assignment());
+        if (offsetsSnapshot != null) {
+          zlg.t("Committing offsets %s", z -> z.arg(offsetsSnapshot));
+          final long commitStarted = System.nanoTime();
+          consumer.commitAsync(offsetsSnapshot, (offsets, exception) -> {
+            counters.onCommit(System.nanoTime() - commitStarted, exception);
+            logException(exception, "Error committing offsets %s", offsets);
+          });
         }
-
-        if (enqueued) {
-          break;
+      }
+      
+      if (! records.isEmpty()) {
+        backpressure.pending.add(records);
+      }
+      
+      // briefly yield on a full pipe, so that momentary stalls don't incur a pause-resume cycle
+      for (int yields = 0; ! backpressure.pending.isEmpty();) {
+        if (consumerPipe.receive(backpressure.pending.peek())) {
+          backpressure.pending.remove();
         } else if (yields < maxConsumerPipeYields) {
           yields++;
           Thread.yield();
         } else {
-          Thread.sleep(PIPELINE_BACKOFF_MILLIS);
+          break;
         }
       }
+      
+      if (! backpressure.pending.isEmpty()) {
+        // (re)pausing is idempotent, and also captures any partitions acquired since the last pause
+        consumer.pause(consumer.assignment());
+        if (! backpressure.paused) {
+          backpressure.paused = true;
+          zlg.d("Paused %s", z -> z.arg(consumer.paused()));
+        }
+        
+        // wait for the pipe to drain before returning to the poll loop
+        backpressure.awaitDrain();
+        while (! backpressure.pending.isEmpty() && consumerPipe.receive(backpressure.pending.peek())) {
+          backpressure.pending.remove();
+        }
+      }
+      
+      if (backpressure.paused && backpressure.pending.isEmpty()) {
+        zlg.d("Resuming %s", z -> z.arg(consumer.paused()));
+        consumer.resume(consumer.paused());
+        backpressure.paused = false;
+      }
     };
 
     final String threadName = KafkaLedger.class.getSimpleName() + "-receiver-" + groupId;
+    final ErrorHandler errorHandler = (summary, error) -> {
+      if (error instanceof SerializationException) {
+        counters.deserializationErrors.incrementAndGet();
+      }
+      zlg.w(summary, error);
+    };
     final AsyncReceiver<String, Message> receiver = new AsyncReceiver<>(consumer, POLL_TIMEOUT_MILLIS, 
-        threadName, recordHandler, zlg::w);
+        threadName, recordHandler, errorHandler);
     receivers.add(receiver);
   }
 
+  /**
+   *  Attaches the handler in a dedicated (daemon) worker thread, so that the broker round-trips of 
+   *  multiple concurrent attachments overlap. The thread terminates once the attachment completes.
+   */
+  @Override
+  public CompletableFuture<Void> attachAsync(MessageHandler handler) {
+    final CompletableFuture<Void> future = new CompletableFuture<>();
+    WorkerThread.builder()
+    .withOptions(new WorkerOptions().daemon().withName(KafkaLedger.class, "attach", handler.getGroupId()))
+    .onCycle(t -> {
+      try {
+        attach(handler);
+        future.complete(null);
+      } catch (Throwable e) {
+        future.completeExceptionally(e);
+      } finally {
+        t.terminate();
+      }
+    })
+    .buildAndStart();
+    return future;
+  }
+  
   @Override
   public void append(Message message, AppendCallback callback) {
     final ProducerRecord<String, Message> record = 
         new ProducerRecord<>(topic, message.getShardIfAssigned(), message.getShardKey(), message);
     final Callback sendCallback = (metadata, exception) -> {
+      pendingAppends.decrementAndGet();
       if (exception == null) {
         callback.onAppend(new DefaultMessageId(metadata.partition(), metadata.offset()), null);
       } else if (exception instanceof RetriableException) { 
         logException(exception, "Retriable error publishing %s (queuing in background)", record);
+        retryBacklog.incrementAndGet();
         retryQueue.add(new RetryTask(message, callback));
       } else {
+        appendFailures.incrementAndGet();
         callback.onAppend(null, exception);
         logException(exception, "Error publishing %s", record);
       }
     };
 
+    pendingAppends.incrementAndGet();
     producerPipe.send(record, sendCallback);
   }
+  
+  /**
+   *  Obtains a snapshot of the ledger's metrics.
+   *  
+   *  @return The current {@link KafkaLedgerMetrics}.
+   */
+  public KafkaLedgerMetrics getMetrics() {
+    final List<HandlerMetrics> handlers = handlerCounters.stream()
+        .map(counters -> counters.snapshot(topic))
+        .collect(Collectors.toList());
+    return new KafkaLedgerMetrics(topic, pendingAppends.get(), retryBacklog.get(), appendFailures.get(), handlers);
+  }
+  
+  /**
+   *  Extracts the per-partition lag of the given topic from a set of Kafka consumer metrics.
+   *  
+   *  @param metrics The consumer metrics.
+   *  @param topic The topic.
+   *  @return A map of partition numbers to lag.
+   */
+  static Map<Integer, Long> partitionLag(Map<MetricName, ? extends Metric> metrics, String topic) {
+    final Map<Integer, Long> lag = new TreeMap<>();
+    for (Map.Entry<MetricName, ? extends Metric> entry : metrics.entrySet()) {
+      final MetricName name = entry.getKey();
+      final String partition = name.tags().get("partition");
+      if (name.name().equals("records-lag") && partition != null && topic.equals(name.tags().get("topic"))) {
+        final Object value = entry.getValue().metricValue();
+        if (value instanceof Number && ! Double.isNaN(((Number) value).doubleValue())) {
+          lag.put(Integer.parseInt(partition), ((Number) value).longValue());
+        }
+      }
+    }
+    return lag;
+  }
 
   @Override
   public void confirm(Object handlerId, MessageId messageId) {
@@ -34,6 +34,9 @@ public final class KafkaLedgerConfig {
   
   @YInject
   private boolean printConfig;
+  
+  @YInject
+  private StaticPartitionAssignment staticAssignment;
 
   Kafka<String, Message> getKafka() {
     return kafka;
@@ -84,6 +87,13 @@ public final class KafkaLedgerConfig {
     return maxConsumerPipeYields;
   }
   
+  /**
+   *  Sets the number of times the poll thread yields while waiting for a full consumer pipe
+   *  to admit a batch, before pausing the consumer's partitions until the pipe drains.
+   *  
+   *  @param maxConsumerPipeYields The maximum number of yields.
+   *  @return This config instance, for chaining.
+   */
   public KafkaLedgerConfig withMaxConsumerPipeYields(int maxConsumerPipeYields) {
     this.maxConsumerPipeYields = maxConsumerPipeYields;
     return this;
@@ -115,12 +125,34 @@ public final class KafkaLedgerConfig {
   boolean isPrintConfig() {
     return printConfig;
   }
+  
+  StaticPartitionAssignment getStaticAssignment() {
+    return staticAssignment;
+  }
+  
+  /**
+   *  Assigns a fixed set of partitions to group-aware handlers instead of subscribing to the topic, 
+   *  thereby avoiding group rebalancing. A {@code null} value (the default) reverts to subscription.<p>
+   *  
+   *  The assignment applies to the ledger as a whole: every group-aware handler attached to this
+   *  ledger is assigned the same partitions, irrespective of its group ID. (Handlers without a group
+   *  are unaffected, and continue to consume all partitions.) Where groups must be striped
+   *  differently, attach them to separate ledger instances.
+   *  
+   *  @param staticAssignment The static assignment, or {@code null} to subscribe.
+   *  @return This config instance, for chaining.
+   */
+  public KafkaLedgerConfig withStaticAssignment(StaticPartitionAssignment staticAssignment) {
+    this.staticAssignment = staticAssignment;
+    return this;
+  }
 
   @Override
   public String toString() {
     return KafkaLedgerConfig.class.getSimpleName() + " [kafka=" + kafka + ", topic=" + topic + ", codec=" + codec + 
         ", producerPipeConfig=" + producerPipeConfig + ", consumerPipeConfig=" + consumerPipeConfig + 
         ", maxConsumerPipeYields=" + maxConsumerPipeYields + 
-        ", attachRetries=" + attachRetries + ", printConfig=" + printConfig + "]";
+        ", attachRetries=" + attachRetries + ", printConfig=" + printConfig + 
+        ", staticAssignment=" + staticAssignment + "]";
   }
 }
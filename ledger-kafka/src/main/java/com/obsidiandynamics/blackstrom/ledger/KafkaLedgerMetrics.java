@@ -0,0 +1,137 @@
+package com.obsidiandynamics.blackstrom.ledger;
+
+import java.util.*;
+
+/**
+ *  A point-in-time snapshot of the operational metrics of a {@link KafkaLedger}, combining the
+ *  ledger's own counters with the lag reported by the Kafka consumer clients.
+ */
+public final class KafkaLedgerMetrics {
+  /**
+   *  Metrics pertaining to a single attached handler, identified by its group ID (which
+   *  may be {@code null} for ungrouped handlers).
+   */
+  public static final class HandlerMetrics {
+    private final String groupId;
+    
+    private final Map<Integer, Long> partitionLag;
+    
+    private final long commits;
+    
+    private final long commitFailures;
+    
+    private final double meanCommitLatencyMillis;
+    
+    private final double maxCommitLatencyMillis;
+    
+    private final long deserializationErrors;
+    
+    HandlerMetrics(String groupId, Map<Integer, Long> partitionLag, long commits, long commitFailures,
+                   double meanCommitLatencyMillis, double maxCommitLatencyMillis, long deserializationErrors) {
+      this.groupId = groupId;
+      this.partitionLag = Collections.unmodifiableMap(partitionLag);
+      this.commits = commits;
+      this.commitFailures = commitFailures;
+      this.meanCommitLatencyMillis = meanCommitLatencyMillis;
+      this.maxCommitLatencyMillis = maxCommitLatencyMillis;
+      this.deserializationErrors = deserializationErrors;
+    }
+    
+    public String getGroupId() {
+      return groupId;
+    }
+    
+    /**
+     *  Obtains the lag (in records) of each partition assigned to the handler's consumer, as
+     *  last observed by the Kafka client.
+     *  
+     *  @return A map of partition numbers to lag.
+     */
+    public Map<Integer, Long> getPartitionLag() {
+      return partitionLag;
+    }
+    
+    public long getTotalLag() {
+      return partitionLag.values().stream().mapToLong(Long::longValue).sum();
+    }
+    
+    public long getCommits() {
+      return commits;
+    }
+    
+    public long getCommitFailures() {
+      return commitFailures;
+    }
+    
+    public double getMeanCommitLatencyMillis() {
+      return meanCommitLatencyMillis;
+    }
+    
+    public double getMaxCommitLatencyMillis() {
+      return maxCommitLatencyMillis;
+    }
+    
+    public long getDeserializationErrors() {
+      return deserializationErrors;
+    }
+    
+    @Override
+    public String toString() {
+      return HandlerMetrics.class.getSimpleName() + " [groupId=" + groupId + ", partitionLag=" + partitionLag +
+          ", commits=" + commits + ", commitFailures=" + commitFailures +
+          ", meanCommitLatencyMillis=" + meanCommitLatencyMillis + ", maxCommitLatencyMillis=" + maxCommitLatencyMillis +
+          ", deserializationErrors=" + deserializationErrors + "]";
+    }
+  }
+  
+  private final String topic;
+  
+  private final long pendingAppends;
+  
+  private final long retryBacklog;
+  
+  private final long appendFailures;
+  
+  private final List<HandlerMetrics> handlers;
+  
+  KafkaLedgerMetrics(String topic, long pendingAppends, long retryBacklog, long appendFailures,
+                     List<HandlerMetrics> handlers) {
+    this.topic = topic;
+    this.pendingAppends = pendingAppends;
+    this.retryBacklog = retryBacklog;
+    this.appendFailures = appendFailures;
+    this.handlers = Collections.unmodifiableList(handlers);
+  }
+  
+  public String getTopic() {
+    return topic;
+  }
+  
+  /**
+   *  Obtains the number of appends that have been submitted to the producer pipe but not yet
+   *  acknowledged by the broker, including those queued in the pipe.
+   *  
+   *  @return The number of pending appends.
+   */
+  public long getPendingAppends() {
+    return pendingAppends;
+  }
+  
+  public long getRetryBacklog() {
+    return retryBacklog;
+  }
+  
+  public long getAppendFailures() {
+    return appendFailures;
+  }
+  
+  public List<HandlerMetrics> getHandlers() {
+    return handlers;
+  }
+  
+  @Override
+  public String toString() {
+    return KafkaLedgerMetrics.class.getSimpleName() + " [topic=" + topic + ", pendingAppends=" + pendingAppends +
+        ", retryBacklog=" + retryBacklog + ", appendFailures=" + appendFailures + ", handlers=" + handlers + "]";
+  }
+}
@@ -1,11 +1,14 @@
 package com.obsidiandynamics.blackstrom.ledger;
 
+import java.nio.*;
 import java.util.*;
+import java.util.stream.*;
 
 import org.apache.kafka.common.*;
 import org.apache.kafka.common.serialization.*;
 
 import com.obsidiandynamics.blackstrom.codec.*;
+import com.obsidiandynamics.blackstrom.handler.*;
 import com.obsidiandynamics.blackstrom.model.*;
 import com.obsidiandynamics.blackstrom.util.*;
 import com.obsidiandynamics.zerolog.*;
@@ -13,6 +16,13 @@ import com.obsidiandynamics.zerolog.*;
 public final class KafkaMessageDeserializer implements Deserializer<Message> {
   private static final Zlg zlg = Zlg.forDeclaringClass().get();
   
+  /** 
+   *  The comma-separated names of the {@link MessageType}s of interest to the consumer. If set, 
+   *  messages of other types are skipped ahead of decoding, where the codec can tell their
+   *  type, and are deserialized as {@code null}.
+   */
+  static final String CONFIG_INTEREST_TYPES = "blackstrom.interestTypes";
+  
   static final class MessageDeserializationException extends KafkaException {
     private static final long serialVersionUID = 1L;
 
@@ -23,15 +33,41 @@ public final class KafkaMessageDeserializer implements Deserializer<Message> {
   
   private MessageCodec codec;
   
+  /** The types of interest, or {@code null} if every message is of interest. */
+  private Set<MessageType> interestTypes;
+  
   @Override
   public void configure(Map<String, ?> configs, boolean isKey) {
     codec = CodecRegistry.forLocator((String) configs.get(CodecRegistry.CONFIG_CODEC_LOCATOR));
+    final String interestTypes = (String) configs.get(CONFIG_INTEREST_TYPES);
+    if (interestTypes != null) {
+      this.interestTypes = EnumSet.noneOf(MessageType.class);
+      for (String type : interestTypes.split(",")) {
+        if (! type.isEmpty()) this.interestTypes.add(MessageType.valueOf(type));
+      }
+    }
+  }
+  
+  /**
+   *  Formats the types of the given interest for {@link #CONFIG_INTEREST_TYPES}.
+   *  
+   *  @param interest The handler's interest.
+   *  @return The comma-separated type names, or {@code null} if every message is of interest.
+   */
+  static String formatInterestTypes(Interest interest) {
+    if (interest.isAll()) return null;
+    return interest.getTypes().stream().map(MessageType::name).collect(Collectors.joining(","));
   }
 
   @Override
   public Message deserialize(String topic, byte[] data) {
     try {
-      return codec.decode(data);
+      final ByteBuffer buffer = ByteBuffer.wrap(data);
+      if (interestTypes != null) {
+        final MessageType type = codec.peekType(buffer);
+        if (type != null && ! interestTypes.contains(type)) return null;
+      }
+      return codec.decodeBuffer(buffer);
     } catch (Throwable e) {
       zlg.e("Error deserializing message\n%s", 
             z -> z.arg(Args.map(Args.ref(data), Binary::dump)).threw(e));
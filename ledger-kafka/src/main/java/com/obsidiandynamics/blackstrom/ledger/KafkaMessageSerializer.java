@@ -1,5 +1,6 @@
 package com.obsidiandynamics.blackstrom.ledger;
 
+import java.nio.*;
 import java.util.*;
 
 import org.apache.kafka.common.*;
@@ -7,6 +8,7 @@ import org.apache.kafka.common.serialization.*;
 
 import com.obsidiandynamics.blackstrom.codec.*;
 import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.blackstrom.util.*;
 import com.obsidiandynamics.zerolog.*;
 
 public final class KafkaMessageSerializer implements Serializer<Message> {
@@ -30,7 +32,8 @@ public final class KafkaMessageSerializer implements Serializer<Message> {
   @Override
   public byte[] serialize(String topic, Message data) {
     try {
-      return codec.encode(data);
+      final ByteBuffer buffer = codec.encodeBuffer(data);
+      return Binary.toExactByteArray(buffer);
     } catch (Throwable e) {
       zlg.e("Error serializing message %s", z -> z.arg(data).threw(e));
       throw new MessageSerializationException("Error serializing message", e);
@@ -0,0 +1,96 @@
+package com.obsidiandynamics.blackstrom.ledger;
+
+import java.util.*;
+import java.util.stream.*;
+
+import com.obsidiandynamics.yconf.*;
+
+/**
+ *  Configures a fixed set of topic partitions for a group-aware consumer, bypassing Kafka's
+ *  group membership protocol (and hence the rebalance pauses that accompany every membership
+ *  change). Offsets are still committed under the handler's group ID.<p>
+ *  
+ *  Partitions may be either listed explicitly, or derived by striping the topic's partitions
+ *  across a known number of members, where partition {@code p} is owned by the member whose
+ *  index is {@code p % memberCount}. An explicit list, if set, takes precedence.<p>
+ *  
+ *  It is the operator's responsibility to ensure that the partitions are covered exactly once
+ *  across all members of a group. Note that the assignment is shared by all group-aware handlers
+ *  of a ledger; a process that hosts several groups is thus the same member of each of them.
+ */
+@Y
+public final class StaticPartitionAssignment {
+  @YInject
+  private int memberIndex;
+  
+  @YInject
+  private int memberCount = 1;
+  
+  @YInject
+  private List<Integer> partitions;
+  
+  int getMemberIndex() {
+    return memberIndex;
+  }
+  
+  public StaticPartitionAssignment withMemberIndex(int memberIndex) {
+    this.memberIndex = memberIndex;
+    return this;
+  }
+  
+  int getMemberCount() {
+    return memberCount;
+  }
+  
+  public StaticPartitionAssignment withMemberCount(int memberCount) {
+    this.memberCount = memberCount;
+    return this;
+  }
+  
+  List<Integer> getPartitions() {
+    return partitions;
+  }
+  
+  public StaticPartitionAssignment withPartitions(Integer... partitions) {
+    this.partitions = Arrays.asList(partitions);
+    return this;
+  }
+  
+  void validate() {
+    if (partitions == null) {
+      if (memberCount < 1) throw new IllegalArgumentException("Member count must be greater than 0");
+      if (memberIndex < 0 || memberIndex >= memberCount) {
+        throw new IllegalArgumentException("Member index must be in the range [0, " + memberCount + ")");
+      }
+    }
+  }
+  
+  /**
+   *  Resolves the partitions assigned to this member, given the complete set of partitions
+   *  in the topic. Explicitly listed partitions that don't exist in the topic are skipped.
+   *  
+   *  @param available The partitions that exist in the topic.
+   *  @return The assigned partitions, in ascending order.
+   */
+  List<Integer> resolve(Collection<Integer> available) {
+    validate();
+    return available.stream()
+        .filter(this::isAssigned)
+        .sorted()
+        .collect(Collectors.toList());
+  }
+  
+  private boolean isAssigned(int partition) {
+    if (partitions != null) {
+      return partitions.contains(partition);
+    } else {
+      return partition % memberCount == memberIndex;
+    }
+  }
+  
+  @Override
+  public String toString() {
+    return StaticPartitionAssignment.class.getSimpleName() + " [memberIndex=" + memberIndex +
+        ", memberCount=" + memberCount + ", partitions=" + partitions + "]";
+  }
+}
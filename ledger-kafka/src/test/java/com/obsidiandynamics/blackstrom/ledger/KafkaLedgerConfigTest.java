@@ -43,7 +43,8 @@ public final class KafkaLedgerConfigTest {
         .withMaxConsumerPipeYields(50)
         .withZlg(Zlg.forDeclaringClass().get())
         .withAttachRetries(5)
-        .withPrintConfig(true);
+        .withPrintConfig(true)
+        .withStaticAssignment(new StaticPartitionAssignment());
     
     assertNotNull(config.getKafka());
     assertEquals("test", config.getTopic());
@@ -53,5 +54,6 @@ public final class KafkaLedgerConfigTest {
     assertNotNull(config.getZlg());
     assertEquals(5, config.getAttachRetries());
     assertTrue(config.isPrintConfig());
+    assertNotNull(config.getStaticAssignment());
   }
 }
@@ -0,0 +1,68 @@
+package com.obsidiandynamics.blackstrom.ledger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+
+import org.apache.kafka.common.*;
+import org.junit.*;
+
+import com.obsidiandynamics.assertion.*;
+import com.obsidiandynamics.blackstrom.ledger.KafkaLedgerMetrics.*;
+
+public final class KafkaLedgerMetricsTest {
+  private static Metric metric(Object value) {
+    final Metric metric = mock(Metric.class);
+    when(metric.metricValue()).thenReturn(value);
+    return metric;
+  }
+  
+  private static MetricName lagName(String topic, int partition) {
+    final Map<String, String> tags = new HashMap<>();
+    tags.put("topic", topic);
+    tags.put("partition", String.valueOf(partition));
+    return new MetricName("records-lag", "consumer-fetch-manager-metrics", "", tags);
+  }
+  
+  @Test
+  public void testPartitionLag() {
+    final Map<MetricName, Metric> metrics = new HashMap<>();
+    metrics.put(lagName("test", 0), metric(5.0));
+    metrics.put(lagName("test", 1), metric(Double.NaN));
+    metrics.put(lagName("test", 2), metric(7.0));
+    metrics.put(lagName("other", 3), metric(9.0));
+    metrics.put(new MetricName("records-lag-max", "consumer-fetch-manager-metrics", "", 
+                               Collections.singletonMap("topic", "test")), metric(11.0));
+    
+    final Map<Integer, Long> lag = KafkaLedger.partitionLag(metrics, "test");
+    assertEquals(2, lag.size());
+    assertEquals(5L, (long) lag.get(0));
+    assertEquals(7L, (long) lag.get(2));
+  }
+  
+  @Test
+  public void testSnapshot() {
+    final Map<Integer, Long> lag = new HashMap<>();
+    lag.put(0, 5L);
+    lag.put(1, 7L);
+    final HandlerMetrics handler = new HandlerMetrics("group", lag, 10, 1, 2.5, 4.0, 3);
+    assertEquals("group", handler.getGroupId());
+    assertEquals(lag, handler.getPartitionLag());
+    assertEquals(12, handler.getTotalLag());
+    assertEquals(10, handler.getCommits());
+    assertEquals(1, handler.getCommitFailures());
+    assertEquals(2.5, handler.getMeanCommitLatencyMillis(), 0);
+    assertEquals(4.0, handler.getMaxCommitLatencyMillis(), 0);
+    assertEquals(3, handler.getDeserializationErrors());
+    Assertions.assertToStringOverride(handler);
+    
+    final KafkaLedgerMetrics metrics = new KafkaLedgerMetrics("test", 4, 2, 1, Collections.singletonList(handler));
+    assertEquals("test", metrics.getTopic());
+    assertEquals(4, metrics.getPendingAppends());
+    assertEquals(2, metrics.getRetryBacklog());
+    assertEquals(1, metrics.getAppendFailures());
+    assertEquals(Collections.singletonList(handler), metrics.getHandlers());
+    Assertions.assertToStringOverride(metrics);
+  }
+}
@@ -7,6 +7,7 @@ import java.util.*;
 import org.junit.*;
 
 import com.obsidiandynamics.blackstrom.codec.*;
+import com.obsidiandynamics.blackstrom.handler.*;
 import com.obsidiandynamics.blackstrom.ledger.KafkaMessageDeserializer.*;
 import com.obsidiandynamics.blackstrom.ledger.KafkaMessageSerializer.*;
 import com.obsidiandynamics.blackstrom.model.*;
@@ -59,4 +60,56 @@ public class KafkaMessageSerdeTest {
     deserializer.deserialize("test", "{invalid json}".getBytes());
     deserializer.close();
   }
+  
+  private static Map<String, Object> interestConfigs(String codecLocator, Interest interest) {
+    final Map<String, Object> configs = new HashMap<>();
+    configs.put(CodecRegistry.CONFIG_CODEC_LOCATOR, codecLocator);
+    configs.put(KafkaMessageDeserializer.CONFIG_INTEREST_TYPES, KafkaMessageDeserializer.formatInterestTypes(interest));
+    return configs;
+  }
+  
+  @Test
+  public void testSkipUninterestedBeforeDecode() {
+    final String kryoCodecLocator = CodecRegistry.register(new KryoMessageCodec(false));
+    try {
+      final Map<String, ?> configs = interestConfigs(kryoCodecLocator, Interest.of(MessageType.VOTE));
+      final KafkaMessageSerializer serializer = new KafkaMessageSerializer();
+      serializer.configure(configs, false);
+      final Message proposal = new Proposal("B100", new String[0], null, 0);
+      final Message vote = new Vote("B100", new Response("c", Intent.ACCEPT, null));
+      final byte[] encodedProposal = serializer.serialize("test", proposal);
+      final byte[] encodedVote = serializer.serialize("test", vote);
+      serializer.close();
+      
+      final KafkaMessageDeserializer deserializer = new KafkaMessageDeserializer();
+      deserializer.configure(configs, false);
+      assertNull(deserializer.deserialize("test", encodedProposal));
+      assertEquals(vote, deserializer.deserialize("test", encodedVote));
+      deserializer.close();
+    } finally {
+      CodecRegistry.deregister(kryoCodecLocator);
+    }
+  }
+  
+  @Test
+  public void testUninterestedDecodedWithoutPeek() {
+    // the Jackson codec can't tell the type without decoding, leaving the filtering to the ledger
+    final Map<String, ?> configs = interestConfigs(codecLocator, Interest.of(MessageType.VOTE));
+    final KafkaMessageSerializer serializer = new KafkaMessageSerializer();
+    serializer.configure(configs, false);
+    final Message m = new Proposal("B100", new String[0], null, 0);
+    final byte[] encoded = serializer.serialize("test", m);
+    serializer.close();
+    
+    final KafkaMessageDeserializer deserializer = new KafkaMessageDeserializer();
+    deserializer.configure(configs, false);
+    assertEquals(m, deserializer.deserialize("test", encoded));
+    deserializer.close();
+  }
+  
+  @Test
+  public void testFormatInterestTypes() {
+    assertNull(KafkaMessageDeserializer.formatInterestTypes(Interest.all()));
+    assertEquals("PROPOSAL,OUTCOME", KafkaMessageDeserializer.formatInterestTypes(Interest.of(MessageType.OUTCOME, MessageType.PROPOSAL)));
+  }
 }
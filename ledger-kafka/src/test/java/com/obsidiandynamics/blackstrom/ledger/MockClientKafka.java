@@ -0,0 +1,163 @@
+package com.obsidiandynamics.blackstrom.ledger;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+import org.apache.kafka.clients.consumer.*;
+import org.apache.kafka.clients.producer.*;
+import org.apache.kafka.common.*;
+
+import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.func.*;
+import com.obsidiandynamics.jackdaw.*;
+
+/**
+ *  Supplies a {@link KafkaLedger} with the client library's {@link MockConsumer} and {@link MockProducer},
+ *  giving tests direct control over partition assignment, rebalancing, record delivery and the
+ *  completion of sends and commits.
+ */
+final class MockClientKafka {
+  /** 
+   *  A consumer that captures its rebalance listener and can be made to fail commits. Records are
+   *  staged until their partition is assigned and not paused, as the real consumer would only fetch
+   *  them then (whereas the mock would discard them).
+   */
+  static final class ClientConsumer extends MockConsumer<String, Message> {
+    private final String topic;
+    
+    private ConsumerRebalanceListener listener;
+    
+    private volatile Exception commitException;
+    
+    private final List<ConsumerRecord<String, Message>> staged = new ArrayList<>();
+    
+    ClientConsumer(String topic, int partitions) {
+      super(OffsetResetStrategy.EARLIEST);
+      this.topic = topic;
+      final Map<TopicPartition, Long> offsets = new HashMap<>();
+      final List<PartitionInfo> infos = new ArrayList<>();
+      for (int partition = 0; partition < partitions; partition++) {
+        offsets.put(new TopicPartition(topic, partition), 0L);
+        infos.add(new PartitionInfo(topic, partition, null, null, null));
+      }
+      updatePartitions(topic, infos);
+      updateBeginningOffsets(offsets);
+      updateEndOffsets(offsets);
+    }
+    
+    @Override
+    public synchronized void subscribe(Collection<String> topics, ConsumerRebalanceListener listener) {
+      super.subscribe(topics, listener);
+      this.listener = listener;
+    }
+    
+    @Override
+    public synchronized ConsumerRecords<String, Message> poll(long timeout) {
+      final Set<TopicPartition> fetchable = new HashSet<>(assignment());
+      fetchable.removeAll(paused());
+      for (Iterator<ConsumerRecord<String, Message>> records = staged.iterator(); records.hasNext();) {
+        final ConsumerRecord<String, Message> record = records.next();
+        if (fetchable.contains(new TopicPartition(record.topic(), record.partition()))) {
+          super.addRecord(record);
+          records.remove();
+        }
+      }
+      return super.poll(timeout);
+    }
+    
+    @Override
+    public synchronized void addRecord(ConsumerRecord<String, Message> record) {
+      staged.add(record);
+    }
+    
+    @Override
+    public synchronized void commitAsync(Map<TopicPartition, OffsetAndMetadata> offsets, OffsetCommitCallback callback) {
+      final Exception commitException = this.commitException;
+      if (commitException != null) {
+        callback.onComplete(offsets, commitException);
+      } else {
+        super.commitAsync(offsets, callback);
+      }
+    }
+    
+    void setCommitException(Exception commitException) {
+      this.commitException = commitException;
+    }
+    
+    Set<Integer> assignedPartitions() {
+      return assignment().stream().map(TopicPartition::partition).collect(Collectors.toSet());
+    }
+    
+    Set<Integer> pausedPartitions() {
+      return paused().stream().map(TopicPartition::partition).collect(Collectors.toSet());
+    }
+    
+    /**
+     *  Rebalances the consumer from within its next poll, as the client library would, invoking
+     *  the subscriber's rebalance listener on the polling thread.
+     *  
+     *  @param partitions The partitions to assign.
+     */
+    void scheduleRebalance(Integer... partitions) {
+      final List<TopicPartition> newAssignment = Arrays.stream(partitions)
+          .map(partition -> new TopicPartition(topic, partition))
+          .collect(Collectors.toList());
+      schedulePollTask(() -> {
+        listener.onPartitionsRevoked(assignment());
+        // unlike the real consumer, the mock retains the paused state of revoked partitions
+        resume(paused());
+        rebalance(newAssignment);
+        listener.onPartitionsAssigned(newAssignment);
+      });
+    }
+    
+    void addRecord(int partition, long offset, Message message) {
+      addRecord(new ConsumerRecord<>(topic, partition, offset, message.getShardKey(), message));
+    }
+  }
+  
+  private final String topic;
+  
+  private final int partitions;
+  
+  private final MockProducer<String, Message> producer = new MockProducer<>(false, null, null);
+  
+  private final List<ClientConsumer> consumers = new CopyOnWriteArrayList<>();
+  
+  private final Kafka<String, Message> kafka = Classes.cast(mock(Kafka.class));
+  
+  MockClientKafka(String topic, int partitions) {
+    this.topic = topic;
+    this.partitions = partitions;
+    when(kafka.getProducer(any(), any())).thenReturn(producer);
+    when(kafka.getConsumer(any(), any())).thenAnswer(__ -> {
+      final ClientConsumer consumer = new ClientConsumer(topic, partitions);
+      consumers.add(consumer);
+      return consumer;
+    });
+  }
+  
+  Kafka<String, Message> getKafka() {
+    return kafka;
+  }
+  
+  String getTopic() {
+    return topic;
+  }
+  
+  int getPartitions() {
+    return partitions;
+  }
+  
+  MockProducer<String, Message> getProducer() {
+    return producer;
+  }
+  
+  List<ClientConsumer> getConsumers() {
+    return consumers;
+  }
+}
@@ -0,0 +1,324 @@
+package com.obsidiandynamics.blackstrom.ledger;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+import org.apache.kafka.common.*;
+import org.apache.kafka.common.errors.*;
+import org.junit.*;
+
+import com.obsidiandynamics.await.*;
+import com.obsidiandynamics.blackstrom.handler.*;
+import com.obsidiandynamics.blackstrom.ledger.KafkaLedgerMetrics.*;
+import com.obsidiandynamics.blackstrom.ledger.MockClientKafka.*;
+import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.blackstrom.util.*;
+import com.obsidiandynamics.jackdaw.*;
+import com.obsidiandynamics.threads.*;
+
+/**
+ *  Exercises the {@link KafkaLedger} against the client library's mock consumer and producer, which
+ *  expose the partition assignment, pausing and commits of each consumer.
+ */
+public final class MockClientKafkaLedgerTest {
+  private static final int PARTITIONS = 4;
+  
+  private final Timesert wait = Wait.SHORT;
+  
+  private final MockClientKafka kafka = new MockClientKafka("test", PARTITIONS);
+  
+  private KafkaLedger ledger;
+  
+  @After
+  public void after() {
+    if (ledger != null) ledger.dispose();
+  }
+  
+  /** Records (and optionally confirms) every message it receives. */
+  private static final class RecordingHandler implements MessageHandler {
+    private final String groupId;
+    
+    private final List<Message> received = new CopyOnWriteArrayList<>();
+    
+    RecordingHandler(String groupId) {
+      this.groupId = groupId;
+    }
+    
+    @Override
+    public String getGroupId() {
+      return groupId;
+    }
+    
+    @Override
+    public void onMessage(MessageContext context, Message message) {
+      received.add(message);
+      if (groupId != null) context.beginAndConfirm(message);
+    }
+  }
+  
+  private KafkaLedger createLedger() {
+    return createLedger(__ -> {});
+  }
+  
+  private KafkaLedger createLedger(Consumer<KafkaLedgerConfig> configConsumer) {
+    return MockKafkaLedger.create(config -> {
+      config.withKafka(kafka.getKafka()).withTopic(kafka.getTopic());
+      configConsumer.accept(config);
+    });
+  }
+  
+  private static Proposal proposal(String xid) {
+    return new Proposal(xid, new String[0], null, 0);
+  }
+  
+  /**
+   *  The static assignment is a property of the ledger, rather than of any one group; every
+   *  group-aware handler attached to the ledger is therefore assigned the same partitions.
+   */
+  @Test
+  public void testStaticAssignmentSharedAcrossGroups() {
+    ledger = createLedger(config -> config
+                          .withStaticAssignment(new StaticPartitionAssignment()
+                                                .withMemberIndex(1)
+                                                .withMemberCount(2)));
+    final RecordingHandler handlerA = new RecordingHandler("group-a");
+    final RecordingHandler handlerB = new RecordingHandler("group-b");
+    ledger.attach(handlerA);
+    ledger.attach(handlerB);
+    
+    final List<ClientConsumer> consumers = kafka.getConsumers();
+    assertEquals(2, consumers.size());
+    for (ClientConsumer consumer : consumers) {
+      assertEquals(new HashSet<>(Arrays.asList(1, 3)), consumer.assignedPartitions());
+      consumer.addRecord(3, 0, proposal("X0"));
+    }
+    
+    wait.until(() -> {
+      assertEquals(1, handlerA.received.size());
+      assertEquals(1, handlerB.received.size());
+    });
+    assertEquals(3, handlerA.received.get(0).getShard());
+    assertEquals(3, handlerB.received.get(0).getShard());
+  }
+  
+  @Test
+  public void testAttachAsync() throws Exception {
+    ledger = createLedger();
+    final RecordingHandler handler = new RecordingHandler("group");
+    final CompletableFuture<Void> attachment = ledger.attachAsync(handler);
+    attachment.get(10, TimeUnit.SECONDS);
+    
+    final ClientConsumer consumer = kafka.getConsumers().get(0);
+    assertEquals(Collections.singleton(kafka.getTopic()), consumer.subscription());
+    consumer.scheduleRebalance(0);
+    schedulePolls(consumer, 0, 0);
+    wait.until(() -> assertEquals(1, handler.received.size()));
+  }
+  
+  @Test
+  public void testAttachAsyncFailure() throws Exception {
+    final IllegalStateException cause = new IllegalStateException("testAttachAsyncFailure");
+    when(kafka.getKafka().getConsumer(any(), any())).thenThrow(cause);
+    ledger = createLedger();
+    final CompletableFuture<Void> attachment = ledger.attachAsync(new RecordingHandler("group"));
+    try {
+      attachment.get(10, TimeUnit.SECONDS);
+      fail("Expected an ExecutionException");
+    } catch (ExecutionException e) {
+      assertSame(cause, e.getCause());
+    }
+  }
+  
+  /** Blocks the delivery of the first message until released, recording messages as "partition:offset". */
+  private static final class BlockingHandler implements MessageHandler {
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    
+    private final CountDownLatch release = new CountDownLatch(1);
+    
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    
+    @Override
+    public String getGroupId() {
+      return "group";
+    }
+    
+    @Override
+    public void onMessage(MessageContext context, Message message) {
+      if (received.isEmpty()) {
+        blocked.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+      final DefaultMessageId messageId = (DefaultMessageId) message.getMessageId();
+      received.add(messageId.getShard() + ":" + messageId.getOffset());
+      context.beginAndConfirm(message);
+    }
+    
+    void awaitBlocked() {
+      Threads.await(blocked);
+    }
+  }
+  
+  private KafkaLedger createSaturatingLedger() {
+    return createLedger(config -> config
+                        .withMaxConsumerPipeYields(1)
+                        .withConsumerPipeConfig(new ConsumerPipeConfig()
+                                                .withAsync(true)
+                                                .withBacklogBatches(1)));
+  }
+  
+  /**
+   *  Delivers one record per poll, so that each record forms its own batch.
+   *  
+   *  @param consumer The consumer.
+   *  @param partition The partition to deliver to.
+   *  @param offsets The offsets to deliver.
+   */
+  private static void schedulePolls(ClientConsumer consumer, int partition, long... offsets) {
+    for (long offset : offsets) {
+      consumer.schedulePollTask(() -> consumer.addRecord(partition, offset, proposal("X" + offset)));
+    }
+  }
+  
+  /**
+   *  Saturates the consumer pipe with a blocked handler, so that the ledger must park a batch and
+   *  pause the consumer; once the handler is released, the consumer is resumed without losing 
+   *  or reordering any records.
+   */
+  @Test
+  public void testBackpressurePauseResume() {
+    ledger = createSaturatingLedger();
+    final BlockingHandler handler = new BlockingHandler();
+    ledger.attach(handler);
+    final ClientConsumer consumer = kafka.getConsumers().get(0);
+    consumer.scheduleRebalance(0, 1, 2, 3);
+    schedulePolls(consumer, 0, 0);
+    handler.awaitBlocked();
+    
+    // the first batch fills the pipe's backlog and the second is parked; the rest are staged
+    schedulePolls(consumer, 0, 1, 2, 3, 4);
+    wait.until(() -> assertEquals(new HashSet<>(Arrays.asList(0, 1, 2, 3)), consumer.pausedPartitions()));
+    assertEquals(0, handler.received.size());
+    
+    handler.release.countDown();
+    wait.until(() -> {
+      assertEquals(Arrays.asList("0:0", "0:1", "0:2", "0:3", "0:4"), handler.received);
+      assertEquals(Collections.emptySet(), consumer.pausedPartitions());
+    });
+    
+    // the resumed consumer continues to deliver records
+    schedulePolls(consumer, 0, 5);
+    wait.until(() -> assertEquals(Arrays.asList("0:0", "0:1", "0:2", "0:3", "0:4", "0:5"), handler.received));
+  }
+  
+  /**
+   *  Batches that are parked on a full pipe at the time of a rebalance belong to the partitions' new
+   *  owners, and must be discarded rather than delivered after the partitions have been revoked.
+   */
+  @Test
+  public void testRevokeDiscardsPendingBatches() {
+    ledger = createSaturatingLedger();
+    final BlockingHandler handler = new BlockingHandler();
+    ledger.attach(handler);
+    final ClientConsumer consumer = kafka.getConsumers().get(0);
+    consumer.scheduleRebalance(0, 1);
+    schedulePolls(consumer, 0, 0);
+    handler.awaitBlocked();
+    
+    // 0:1 fills the pipe's backlog, while 1:0 is parked
+    schedulePolls(consumer, 0, 1);
+    schedulePolls(consumer, 1, 0);
+    wait.until(() -> assertFalse(consumer.pausedPartitions().isEmpty()));
+    
+    consumer.scheduleRebalance(0);
+    wait.until(() -> assertEquals(Collections.singleton(0), consumer.assignedPartitions()));
+    
+    handler.release.countDown();
+    wait.until(() -> assertEquals(Collections.emptySet(), consumer.pausedPartitions()));
+    schedulePolls(consumer, 0, 2);
+    wait.until(() -> assertEquals(Arrays.asList("0:0", "0:1", "0:2"), handler.received));
+  }
+  
+  /**
+   *  Sends are left incomplete by the mock producer until the test completes or fails them, so
+   *  that the pending, retried and failed appends can be observed.
+   */
+  @Test
+  public void testAppendMetrics() {
+    ledger = createLedger();
+    final AppendCallback callback = mock(AppendCallback.class);
+    for (int i = 0; i < 3; i++) {
+      ledger.append(proposal("X" + i), callback);
+    }
+    assertEquals(3, ledger.getMetrics().getPendingAppends());
+    
+    assertTrue(kafka.getProducer().completeNext());
+    verify(callback).onAppend(notNull(), isNull());
+    assertEquals(2, ledger.getMetrics().getPendingAppends());
+    
+    // a retriable error queues the message for resending, which restores the pending count
+    assertTrue(kafka.getProducer().errorNext(new CorruptRecordException("testAppendMetrics")));
+    assertEquals(1, ledger.getMetrics().getPendingAppends());
+    assertEquals(1, ledger.getMetrics().getRetryBacklog());
+    wait.until(() -> {
+      assertEquals(0, ledger.getMetrics().getRetryBacklog());
+      assertEquals(2, ledger.getMetrics().getPendingAppends());
+    });
+    
+    final RecordTooLargeException nonRetriable = new RecordTooLargeException("testAppendMetrics");
+    assertTrue(kafka.getProducer().errorNext(nonRetriable));
+    verify(callback).onAppend(isNull(), eq(nonRetriable));
+    final KafkaLedgerMetrics metrics = ledger.getMetrics();
+    assertEquals(1, metrics.getPendingAppends());
+    assertEquals(0, metrics.getRetryBacklog());
+    assertEquals(1, metrics.getAppendFailures());
+  }
+  
+  @Test
+  public void testCommitMetrics() {
+    ledger = createLedger();
+    final RecordingHandler handler = new RecordingHandler("group");
+    ledger.attach(handler);
+    final ClientConsumer consumer = kafka.getConsumers().get(0);
+    consumer.scheduleRebalance(0);
+    schedulePolls(consumer, 0, 0);
+    
+    wait.until(() -> {
+      final HandlerMetrics metrics = ledger.getMetrics().getHandlers().get(0);
+      assertEquals("group", metrics.getGroupId());
+      assertEquals(1, metrics.getCommits());
+      assertEquals(0, metrics.getCommitFailures());
+      assertTrue(metrics.getMeanCommitLatencyMillis() >= 0);
+      assertEquals(metrics.getMeanCommitLatencyMillis(), metrics.getMaxCommitLatencyMillis(), 0);
+    });
+    
+    consumer.setCommitException(new KafkaException("testCommitMetrics"));
+    schedulePolls(consumer, 0, 1);
+    wait.until(() -> {
+      final HandlerMetrics metrics = ledger.getMetrics().getHandlers().get(0);
+      assertEquals(1, metrics.getCommits());
+      assertEquals(1, metrics.getCommitFailures());
+    });
+  }
+  
+  @Test
+  public void testDeserializationErrorMetrics() {
+    ledger = createLedger();
+    ledger.attach(new RecordingHandler("group"));
+    final ClientConsumer consumer = kafka.getConsumers().get(0);
+    consumer.scheduleRebalance(0);
+    consumer.setException(new SerializationException("testDeserializationErrorMetrics"));
+    wait.until(() -> {
+      assertEquals(1, ledger.getMetrics().getHandlers().get(0).getDeserializationErrors());
+    });
+  }
+}
@@ -0,0 +1,54 @@
+package com.obsidiandynamics.blackstrom.ledger;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.assertion.*;
+
+public final class StaticPartitionAssignmentTest {
+  private static final List<Integer> AVAILABLE = Arrays.asList(4, 0, 3, 1, 2);
+  
+  @Test
+  public void testDefault() {
+    final StaticPartitionAssignment assignment = new StaticPartitionAssignment();
+    assertEquals(Arrays.asList(0, 1, 2, 3, 4), assignment.resolve(AVAILABLE));
+    Assertions.assertToStringOverride(assignment);
+  }
+  
+  @Test
+  public void testStriped() {
+    final StaticPartitionAssignment assignment = new StaticPartitionAssignment()
+        .withMemberIndex(1)
+        .withMemberCount(2);
+    assertEquals(1, assignment.getMemberIndex());
+    assertEquals(2, assignment.getMemberCount());
+    assertEquals(Arrays.asList(1, 3), assignment.resolve(AVAILABLE));
+  }
+  
+  @Test
+  public void testExplicit() {
+    final StaticPartitionAssignment assignment = new StaticPartitionAssignment()
+        .withMemberCount(0)
+        .withPartitions(3, 0, 7);
+    assertEquals(Arrays.asList(3, 0, 7), assignment.getPartitions());
+    assertEquals(Arrays.asList(0, 3), assignment.resolve(AVAILABLE));
+  }
+  
+  @Test(expected=IllegalArgumentException.class)
+  public void testInvalidMemberCount() {
+    new StaticPartitionAssignment().withMemberCount(0).validate();
+  }
+  
+  @Test(expected=IllegalArgumentException.class)
+  public void testInvalidMemberIndexTooHigh() {
+    new StaticPartitionAssignment().withMemberIndex(2).withMemberCount(2).validate();
+  }
+  
+  @Test(expected=IllegalArgumentException.class)
+  public void testInvalidMemberIndexNegative() {
+    new StaticPartitionAssignment().withMemberIndex(-1).validate();
+  }
+}
@@ -0,0 +1,64 @@
+package com.obsidiandynamics.blackstrom.ledger;
+
+import com.obsidiandynamics.meteor.*;
+import com.obsidiandynamics.worker.*;
+
+/**
+ *  Drives a {@link Subscriber} with a poll timeout that adapts to the stream's activity. While records
+ *  keep arriving, the subscriber is polled again immediately; once the stream goes quiet, the timeout 
+ *  backs off exponentially, up to a ceiling.<p>
+ *  
+ *  The ceiling is the ledger's poll interval (100 ms by default), which also bounds the worst case:
+ *  a subscriber that has backed off fully may wait out the entire poll timeout before picking up a
+ *  record that arrives on an idle stream (or noticing that it has been assigned a stream, or has 
+ *  been terminated). This is no worse than conventional polling with the same interval; a smaller 
+ *  interval tightens the bound at the cost of more frequent polling of idle streams.
+ */
+final class AdaptivePoller implements Terminable, Joinable {
+  private final Subscriber subscriber;
+  
+  private final RecordHandler handler;
+  
+  private final int maxPollIntervalMillis;
+  
+  private final WorkerThread thread;
+  
+  private int pollIntervalMillis;
+  
+  AdaptivePoller(Subscriber subscriber, RecordHandler handler, int maxPollIntervalMillis, String threadName) {
+    this.subscriber = subscriber;
+    this.handler = handler;
+    this.maxPollIntervalMillis = maxPollIntervalMillis;
+    thread = WorkerThread.builder()
+        .withOptions(new WorkerOptions().daemon().withName(AdaptivePoller.class, threadName))
+        .onCycle(this::onCycle)
+        .buildAndStart();
+  }
+  
+  static int nextPollInterval(int currentMillis, int maxMillis) {
+    return Math.min(maxMillis, currentMillis == 0 ? 1 : currentMillis * 2);
+  }
+  
+  private void onCycle(WorkerThread t) throws InterruptedException {
+    final RecordBatch records = subscriber.poll(pollIntervalMillis);
+    if (! records.isEmpty()) {
+      for (Record record : records) {
+        handler.onRecord(record);
+      }
+      pollIntervalMillis = 0;
+    } else {
+      pollIntervalMillis = nextPollInterval(pollIntervalMillis, maxPollIntervalMillis);
+    }
+  }
+  
+  @Override
+  public Joinable terminate() {
+    thread.terminate();
+    return this;
+  }
+  
+  @Override
+  public boolean join(long timeoutMillis) throws InterruptedException {
+    return thread.join(timeoutMillis);
+  }
+}
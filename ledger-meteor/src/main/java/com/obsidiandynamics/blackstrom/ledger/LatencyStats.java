@@ -0,0 +1,40 @@
+package com.obsidiandynamics.blackstrom.ledger;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ *  Accumulates latency observations, tracking their count, mean and maximum. Observations
+ *  may be recorded concurrently.
+ */
+public final class LatencyStats {
+  private final AtomicLong count = new AtomicLong();
+  
+  private final AtomicLong totalNanos = new AtomicLong();
+  
+  private final AtomicLong maxNanos = new AtomicLong();
+  
+  void record(long latencyNanos) {
+    count.incrementAndGet();
+    totalNanos.addAndGet(latencyNanos);
+    maxNanos.accumulateAndGet(latencyNanos, Math::max);
+  }
+  
+  public long getCount() {
+    return count.get();
+  }
+  
+  public double getMeanMillis() {
+    final long countSnapshot = count.get();
+    return countSnapshot != 0 ? totalNanos.get() / (double) countSnapshot / 1_000_000d : 0;
+  }
+  
+  public double getMaxMillis() {
+    return maxNanos.get() / 1_000_000d;
+  }
+  
+  @Override
+  public String toString() {
+    return LatencyStats.class.getSimpleName() + " [count=" + getCount() + ", meanMillis=" + getMeanMillis() + 
+        ", maxMillis=" + getMaxMillis() + "]";
+  }
+}
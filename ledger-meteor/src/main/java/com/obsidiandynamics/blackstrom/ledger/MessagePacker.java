@@ -1,30 +1,56 @@
 package com.obsidiandynamics.blackstrom.ledger;
 
 import java.nio.*;
+import java.nio.charset.*;
 
 import com.obsidiandynamics.blackstrom.codec.*;
 import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.blackstrom.util.*;
 
+/**
+ *  Packs a message into a single byte array, comprising a header with the shard key followed by
+ *  the encoded message. The layout is as follows:<br>
+ *  {@code
+ *  format | varint(shardKeyLength + 1) | shardKey (UTF-8) | varint(payloadLength) | payload
+ *  }<p>
+ *  
+ *  A shard key length of zero denotes a {@code null} shard key.<p>
+ *  
+ *  The leading format byte has its high bit set, which distinguishes it from the legacy layout 
+ *  {@code int8(shardKeyLength or -1) | shardKey | int32(payloadLength) | payload}, whose leading 
+ *  byte was either non-negative or -1. Records in the legacy layout can still be unpacked, so that 
+ *  upgraded subscribers may read streams written by earlier publishers. The converse doesn't hold:
+ *  subscribers that predate the format byte can't read records packed in the current layout, and
+ *  must therefore be upgraded before the publishers.
+ */
 final class MessagePacker {
   private MessagePacker() {}
   
+  /** The current format, identifying the varint-delimited layout. */
+  static final byte FORMAT_V1 = (byte) 0x81;
+  
+  /** The leading byte of a legacy record with a {@code null} shard key. */
+  private static final byte LEGACY_NULL_KEY = -1;
+  
   private static final byte[] emptyBytes = {};
   
   static byte[] pack(MessageCodec codec, Message message) throws Exception {
     final String shardKey = message.getShardKey();
-    final byte[] shardKeyBytes = shardKey != null ? shardKey.getBytes() : emptyBytes;
-    final byte shardKeyLength = (byte) (shardKey != null ? shardKeyBytes.length : -1);
+    final byte[] shardKeyBytes = shardKey != null ? shardKey.getBytes(StandardCharsets.UTF_8) : emptyBytes;
+    final int shardKeyHeader = shardKey != null ? shardKeyBytes.length + 1 : 0;
     
-    final byte[] payload = codec.encode(message);
-    final int payloadLength = payload.length;
+    // the codec's buffer is a view over its own output, which is copied exactly once, into the packed array
+    final ByteBuffer payload = codec.encodeBuffer(message);
+    final int payloadLength = payload.remaining();
     
     final int totalLength = 
-        1 + shardKeyBytes.length + 
-        4 + payload.length;
+        1 + Binary.varIntLength(shardKeyHeader) + shardKeyBytes.length + 
+        Binary.varIntLength(payloadLength) + payloadLength;
     final ByteBuffer buf = ByteBuffer.allocate(totalLength);
-    buf.put(shardKeyLength);
+    buf.put(FORMAT_V1);
+    Binary.writeVarInt(buf, shardKeyHeader);
     buf.put(shardKeyBytes);
-    buf.putInt(payloadLength);
+    Binary.writeVarInt(buf, payloadLength);
     buf.put(payload);
     return buf.array();
   }
@@ -37,26 +63,96 @@ final class MessagePacker {
   static Message unpack(MessageCodec codec, byte[] bytes) throws Exception {
     final ByteBuffer buf = ByteBuffer.wrap(bytes);
     
-    final byte shardKeyLength = buf.get();
+    final byte format = buf.get();
+    if (format != FORMAT_V1) {
+      if (format >= 0 || format == LEGACY_NULL_KEY) {
+        return unpackLegacy(codec, format, buf);
+      } else {
+        throw new DeserializationException(String.format("Unsupported format 0x%02X", format));
+      }
+    }
+    
+    final int shardKeyHeader = Binary.readVarInt(buf);
+    final String shardKey;
+    if (shardKeyHeader != 0) {
+      final int shardKeyLength = shardKeyHeader - 1;
+      shardKey = new String(bytes, buf.position(), shardKeyLength, StandardCharsets.UTF_8);
+      buf.position(buf.position() + shardKeyLength);
+    } else {
+      shardKey = null;
+    }
+    
+    final int payloadLength = Binary.readVarInt(buf);
+    if (buf.remaining() != payloadLength) {
+      throw new DeserializationException(String.format("Expected %,d payload bytes, %,d remaining", 
+                                                       payloadLength, buf.remaining()));
+    }
+    
+    // decode in place, from a view over the payload
+    final Message message = codec.decodeBuffer(buf.slice());
+    message.setShardKey(shardKey);
+    return message;
+  }
+  
+  /**
+   *  Determines the type of a packed message without decoding it, by skipping over the header
+   *  and consulting {@link MessageCodec#peekType}.
+   *  
+   *  @param codec The codec.
+   *  @param bytes The packed record.
+   *  @return The message type, or {@code null} if it can't be determined without decoding.
+   */
+  static MessageType peekType(MessageCodec codec, byte[] bytes) {
+    final ByteBuffer buf = ByteBuffer.wrap(bytes);
+    
+    final byte format = buf.get();
+    if (format == FORMAT_V1) {
+      final int shardKeyHeader = Binary.readVarInt(buf);
+      if (shardKeyHeader != 0) {
+        buf.position(buf.position() + shardKeyHeader - 1);
+      }
+      Binary.readVarInt(buf);
+    } else if (format >= 0 || format == LEGACY_NULL_KEY) {
+      if (format != LEGACY_NULL_KEY) {
+        buf.position(buf.position() + format);
+      }
+      buf.getInt();
+    } else {
+      // left to unpack() to report
+      return null;
+    }
+    
+    return codec.peekType(buf.slice());
+  }
+  
+  /**
+   *  Unpacks the remainder of a record in the legacy layout, where the shard key length (or -1 for 
+   *  a {@code null} key) has already been read.
+   *  
+   *  @param codec The codec.
+   *  @param shardKeyLength The shard key length, or -1.
+   *  @param buf The buffer, positioned after the shard key length.
+   *  @return The message.
+   *  @throws Exception If an error occurs.
+   */
+  private static Message unpackLegacy(MessageCodec codec, byte shardKeyLength, ByteBuffer buf) throws Exception {
     final String shardKey;
-    if (shardKeyLength != -1) {
+    if (shardKeyLength != LEGACY_NULL_KEY) {
       final byte[] shardKeyBytes = new byte[shardKeyLength];
       buf.get(shardKeyBytes);
-      shardKey = new String(shardKeyBytes);
+      shardKey = new String(shardKeyBytes, StandardCharsets.UTF_8);
     } else {
       shardKey = null;
     }
     
     final int payloadLength = buf.getInt();
-    final byte[] payloadBytes = new byte[payloadLength];
-    buf.get(payloadBytes);
-    if (buf.remaining() != 0) {
-      throw new DeserializationException(String.format("%,d unread bytes remaining", buf.remaining()));
+    if (buf.remaining() != payloadLength) {
+      throw new DeserializationException(String.format("Expected %,d payload bytes, %,d remaining", 
+                                                       payloadLength, buf.remaining()));
     }
     
-    final Message message = codec.decode(payloadBytes);
+    final Message message = codec.decodeBuffer(buf.slice());
     message.setShardKey(shardKey);
-    message.setShard(0);
     return message;
   }
 }
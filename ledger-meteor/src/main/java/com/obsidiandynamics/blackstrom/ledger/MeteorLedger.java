@@ -11,23 +11,38 @@ import com.obsidiandynamics.blackstrom.model.Message;
 import com.obsidiandynamics.blackstrom.retention.*;
 import com.obsidiandynamics.blackstrom.util.*;
 import com.obsidiandynamics.meteor.*;
+import com.obsidiandynamics.nanoclock.*;
 import com.obsidiandynamics.worker.Terminator;
 import com.obsidiandynamics.zerolog.*;
 
 public final class MeteorLedger implements Ledger {
+  /** The time to wait on disposal for lingering records to be published. */
+  private static final int BATCHER_DRAIN_TIMEOUT_MILLIS = 10_000;
+  
   private final HazelcastInstance instance;
   
   private final MeteorLedgerConfig config;
   
-  private final Publisher publisher;
+  /** Publishers for each stream, indexed by shard. */
+  private final Publisher[] publishers;
+  
+  /** Publishing operations for each stream, which may be batched in front of the publishers. */
+  private final RecordPublisher[] recordPublishers;
+  
+  private final List<PublishBatcher> batchers = new ArrayList<>();
   
   private final MessageCodec codec;
   
   private final List<Subscriber> allSubscribers = new ArrayList<>();
   
-  private final Map<Integer, Subscriber> groupSubscribers = new HashMap<>();
+  /** Maps handler IDs to subscribers, indexed by shard. */
+  private final Map<Integer, Subscriber[]> groupSubscribers = new HashMap<>();
   
   private final List<ShardedFlow> flows = new ArrayList<>(); 
+  
+  private final List<AdaptivePoller> pollers = new ArrayList<>();
+  
+  private final LatencyStats deliveryLatency = new LatencyStats();
 
   private final AtomicInteger nextHandlerId = new AtomicInteger();
   
@@ -35,28 +50,47 @@ public final class MeteorLedger implements Ledger {
     this.instance = instance;
     this.config = config;
     codec = config.getCodec();
-    final PublisherConfig pubConfig = new PublisherConfig()
-        .withZlg(config.getZlg())
-        .withStreamConfig(config.getStreamConfig());
-    publisher = Publisher.createDefault(instance, pubConfig);
+    final List<StreamConfig> streamConfigs = config.getStreamConfigs();
+    publishers = new Publisher[streamConfigs.size()];
+    recordPublishers = new RecordPublisher[streamConfigs.size()];
+    for (int shard = 0; shard < publishers.length; shard++) {
+      final PublisherConfig pubConfig = new PublisherConfig()
+          .withZlg(config.getZlg())
+          .withStreamConfig(streamConfigs.get(shard));
+      final Publisher publisher = Publisher.createDefault(instance, pubConfig);
+      publishers[shard] = publisher;
+      if (config.getPublishLingerMillis() > 0) {
+        final PublishBatcher batcher = 
+            new PublishBatcher(publisher, config.getPublishLingerMillis(), streamConfigs.get(shard).getName());
+        batchers.add(batcher);
+        recordPublishers[shard] = batcher;
+      } else {
+        recordPublishers[shard] = publisher::publishAsync;
+      }
+    }
   }
   
   @Override
   public void attach(MessageHandler handler) {
     final String group = handler.getGroupId();
-    final SubscriberConfig subConfig = new SubscriberConfig()
-        .withZlg(config.getZlg())
-        .withStreamConfig(config.getStreamConfig())
-        .withElectionConfig(config.getElectionConfig())
-        .withGroup(group);
-    final Subscriber subscriber = Subscriber.createDefault(instance, subConfig);
-    allSubscribers.add(subscriber);
+    final List<StreamConfig> streamConfigs = config.getStreamConfigs();
+    final Subscriber[] subscribers = new Subscriber[streamConfigs.size()];
+    for (int shard = 0; shard < subscribers.length; shard++) {
+      // group subscribers are elected per stream, thereby spreading the streams across the group's members
+      final SubscriberConfig subConfig = new SubscriberConfig()
+          .withZlg(config.getZlg())
+          .withStreamConfig(streamConfigs.get(shard))
+          .withElectionConfig(config.getElectionConfig())
+          .withGroup(group);
+      subscribers[shard] = Subscriber.createDefault(instance, subConfig);
+      allSubscribers.add(subscribers[shard]);
+    }
 
     final Integer handlerId;
     final Retention retention;
     if (group != null) {
       handlerId = nextHandlerId.getAndIncrement();
-      groupSubscribers.put(handlerId, subscriber);
+      groupSubscribers.put(handlerId, subscribers);
       final ShardedFlow flow = new ShardedFlow();
       retention = flow;
       flows.add(flow);
@@ -66,30 +100,55 @@ public final class MeteorLedger implements Ledger {
     }
 
     final MessageContext context = new DefaultMessageContext(this, handlerId, retention);
-    subscriber.attachReceiver(record -> receive(codec, record, config.getZlg(), handler, context), 
-                              config.getPollInterval());
+    final MessageHandler filteredHandler = FilteringMessageHandler.of(handler);
+    final Interest interest = filteredHandler.getInterest();
+    for (int shard = 0; shard < subscribers.length; shard++) {
+      final int _shard = shard;
+      final RecordHandler recordHandler = 
+          record -> receive(codec, _shard, record, config.getZlg(), deliveryLatency, interest, filteredHandler, context);
+      if (config.isAdaptivePolling()) {
+        final String pollerName = streamConfigs.get(shard).getName() + "-" + group;
+        pollers.add(new AdaptivePoller(subscribers[shard], recordHandler, config.getPollInterval(), pollerName));
+      } else {
+        subscribers[shard].attachReceiver(recordHandler, config.getPollInterval());
+      }
+    }
   }
   
-  static void receive(MessageCodec codec, Record record, Zlg zlg, MessageHandler handler, MessageContext context) {
-    final DefaultMessageId messageId = new DefaultMessageId(0, record.getOffset());
+  static void receive(MessageCodec codec, int shard, Record record, Zlg zlg, LatencyStats deliveryLatency, 
+                      Interest interest, MessageHandler handler, MessageContext context) {
     final Message message;
     try {
+      if (! interest.isAll()) {
+        // skip uninterested messages ahead of decoding, where the codec can tell their type
+        final MessageType type = MessagePacker.peekType(codec, record.getData());
+        if (type != null && ! interest.includes(type)) return;
+      }
       message = MessagePacker.unpack(codec, record.getData());
     } catch (Exception e) {
       zlg.e("Could not decode message at offset %,d\n%s", 
             z -> z.arg(record::getOffset).arg(Args.map(record::getData, Binary::dump)).threw(e));
       return;
     }
-    message.setMessageId(messageId);
+    message.setMessageId(new DefaultMessageId(shard, record.getOffset()));
+    message.setShard(shard);
+    deliveryLatency.record(NanoClock.now() - message.getTimestamp());
     handler.onMessage(context, message);
   }
 
   @Override
   public void append(Message message, AppendCallback callback) {
-    appendWithCallback(codec, publisher, message, callback);
+    final int shard;
+    try {
+      shard = Hash.getShard(message, publishers.length);
+    } catch (IndexOutOfBoundsException e) {
+      callback.onAppend(null, e);
+      return;
+    }
+    appendWithCallback(codec, recordPublishers[shard], shard, message, callback);
   }
   
-  static void appendWithCallback(MessageCodec codec, Publisher publisher, Message message, AppendCallback callback) {
+  static void appendWithCallback(MessageCodec codec, RecordPublisher publisher, int shard, Message message, AppendCallback callback) {
     final byte[] bytes;
     try {
       bytes = MessagePacker.pack(codec, message);
@@ -99,22 +158,40 @@ public final class MeteorLedger implements Ledger {
     }
     
     publisher.publishAsync(new Record(bytes), (offset, error) -> {
-      final MessageId messageId = offset != Record.UNASSIGNED_OFFSET ? new DefaultMessageId(0, offset) : null;
+      final MessageId messageId = offset != Record.UNASSIGNED_OFFSET ? new DefaultMessageId(shard, offset) : null;
       callback.onAppend(messageId, error);
     });
   }
   
+  /**
+   *  Obtains the latency between the creation of messages and their delivery to this ledger's
+   *  handlers, across all streams.
+   *  
+   *  @return The delivery latency statistics.
+   */
+  public LatencyStats getDeliveryLatency() {
+    return deliveryLatency;
+  }
+  
   @Override
   public void confirm(Object handlerId, MessageId messageId) {
-    final Subscriber subscriber = groupSubscribers.get(handlerId);
+    final Subscriber[] subscribers = groupSubscribers.get(handlerId);
     final DefaultMessageId defaultMessageId = (DefaultMessageId) messageId;
-    subscriber.confirm(defaultMessageId.getOffset());
+    subscribers[defaultMessageId.getShard()].confirm(defaultMessageId.getOffset());
   }
   
   @Override
   public void dispose() {
+    // batchers hand their remaining records to the publishers, which must remain live until the
+    // records are acknowledged (or the wait times out)
+    try {
+      Terminator.of(batchers).terminate().join(BATCHER_DRAIN_TIMEOUT_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
     Terminator.blank()
-    .add(publisher)
+    .add(pollers)
+    .add(Arrays.asList(publishers))
     .add(allSubscribers)
     .add(flows)
     .terminate()
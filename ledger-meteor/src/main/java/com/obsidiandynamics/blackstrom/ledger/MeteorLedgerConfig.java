@@ -1,5 +1,7 @@
 package com.obsidiandynamics.blackstrom.ledger;
 
+import java.util.*;
+
 import com.obsidiandynamics.blackstrom.codec.*;
 import com.obsidiandynamics.meteor.*;
 import com.obsidiandynamics.yconf.*;
@@ -16,11 +18,20 @@ public final class MeteorLedgerConfig {
   @YInject
   private StreamConfig streamConfig = new StreamConfig();
   
+  @YInject
+  private List<StreamConfig> streamConfigs;
+  
   @YInject
   private ElectionConfig electionConfig = new ElectionConfig();
   
   @YInject
   private int pollIntervalMillis = 100;
+  
+  @YInject
+  private int publishLingerMillis;
+  
+  @YInject
+  private boolean adaptivePolling;
 
   MessageCodec getCodec() {
     return codec;
@@ -46,6 +57,33 @@ public final class MeteorLedgerConfig {
 
   public MeteorLedgerConfig withStreamConfig(StreamConfig streamConfig) {
     this.streamConfig = streamConfig;
+    streamConfigs = null;
+    return this;
+  }
+  
+  /**
+   *  Obtains the configurations of the streams backing the ledger, one per shard. If multiple
+   *  streams haven't been configured, this comprises the single {@link #getStreamConfig()}.
+   *  
+   *  @return The list of stream configurations.
+   */
+  List<StreamConfig> getStreamConfigs() {
+    return streamConfigs != null ? streamConfigs : Collections.singletonList(streamConfig);
+  }
+  
+  /**
+   *  Configures multiple streams, each acting as a separate shard of the ledger. Messages are
+   *  mapped to streams by their shard (or shard key), and each stream is subscribed to 
+   *  independently, so that group members may divide the streams among themselves.<p>
+   *  
+   *  Each stream must have a distinct name, and all ledger instances sharing a set of streams
+   *  must list them in the same order.
+   *  
+   *  @param streamConfigs The stream configurations, in shard order.
+   *  @return This config instance, for chaining.
+   */
+  public MeteorLedgerConfig withStreamConfigs(StreamConfig... streamConfigs) {
+    this.streamConfigs = Arrays.asList(streamConfigs);
     return this;
   }
   
@@ -67,9 +105,44 @@ public final class MeteorLedgerConfig {
     return this;
   }
 
+  boolean isAdaptivePolling() {
+    return adaptivePolling;
+  }
+  
+  /**
+   *  Enables adaptive polling, whereby subscribers re-poll immediately while records keep arriving, 
+   *  backing off exponentially when the stream is idle, up to the configured poll interval. The 
+   *  poll interval thus remains the worst-case wait for a record arriving on an idle stream.
+   *  
+   *  @param adaptivePolling Whether adaptive polling should be used.
+   *  @return This config instance, for chaining.
+   */
+  public MeteorLedgerConfig withAdaptivePolling(boolean adaptivePolling) {
+    this.adaptivePolling = adaptivePolling;
+    return this;
+  }
+  
+  int getPublishLingerMillis() {
+    return publishLingerMillis;
+  }
+  
+  /**
+   *  Sets the time that appended records may linger before being handed to the publisher, so
+   *  that records appended in close succession are written to the stream in larger batches. 
+   *  A value of zero (the default) publishes each record immediately.
+   *  
+   *  @param publishLingerMillis The linger time, in milliseconds.
+   *  @return This config instance, for chaining.
+   */
+  public MeteorLedgerConfig withPublishLingerMillis(int publishLingerMillis) {
+    this.publishLingerMillis = publishLingerMillis;
+    return this;
+  }
+  
   @Override
   public String toString() {
-    return MeteorLedgerConfig.class.getSimpleName() + " [codec=" + codec + ", streamConfig=" + streamConfig
-        + ", electionConfig=" + electionConfig + ", pollInterval=" + pollIntervalMillis + "]";
+    return MeteorLedgerConfig.class.getSimpleName() + " [codec=" + codec + ", streamConfig=" + streamConfig + ", streamConfigs=" + streamConfigs
+        + ", electionConfig=" + electionConfig + ", pollInterval=" + pollIntervalMillis + 
+        ", publishLingerMillis=" + publishLingerMillis + ", adaptivePolling=" + adaptivePolling + "]";
   }
 }
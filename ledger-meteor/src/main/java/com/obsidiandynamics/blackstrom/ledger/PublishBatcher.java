@@ -0,0 +1,131 @@
+package com.obsidiandynamics.blackstrom.ledger;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import com.obsidiandynamics.meteor.*;
+import com.obsidiandynamics.nodequeue.*;
+import com.obsidiandynamics.worker.*;
+
+/**
+ *  Gathers records over a linger window before handing them to a {@link Publisher} in a single
+ *  burst, allowing the publisher to coalesce them into fewer (and larger) ringbuffer writes. Each
+ *  record's callback is completed individually by the publisher.<p>
+ *  
+ *  The linger window opens when the first record is queued following a flush; an idle batcher
+ *  therefore doesn't delay the next record by more than the linger time.<p>
+ *  
+ *  Upon termination, records that are still queued are handed to the publisher once the batcher's
+ *  thread has stopped, and {@link #join} waits for the publisher to complete their callbacks. The
+ *  publisher must thus remain operational until the batcher has been joined; callbacks that are
+ *  still outstanding when a timed join elapses are left to the publisher.
+ */
+final class PublishBatcher implements RecordPublisher, Terminable, Joinable {
+  private static final int IDLE_BACKOFF_MILLIS = 1;
+  
+  private static final int ACKNOWLEDGE_POLL_MILLIS = 1;
+  
+  private static class PendingRecord {
+    final Record record;
+    final PublishCallback callback;
+    
+    PendingRecord(Record record, PublishCallback callback) {
+      this.record = record;
+      this.callback = callback;
+    }
+  }
+  
+  private final Publisher publisher;
+  
+  private final long lingerNanos;
+  
+  private final NodeQueue<PendingRecord> queue = new NodeQueue<>();
+  
+  private final QueueConsumer<PendingRecord> queueConsumer = queue.consumer();
+  
+  /** The time when the oldest unflushed record was queued, or zero if the window isn't open. */
+  private final AtomicLong windowOpened = new AtomicLong();
+  
+  /** The number of records whose callbacks have yet to be completed by the publisher. */
+  private final AtomicInteger unacknowledged = new AtomicInteger();
+  
+  private final WorkerThread thread;
+  
+  PublishBatcher(Publisher publisher, int lingerMillis, String streamName) {
+    this.publisher = publisher;
+    lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+    thread = WorkerThread.builder()
+        .withOptions(new WorkerOptions().daemon().withName(PublishBatcher.class, streamName))
+        .onCycle(this::onCycle)
+        .buildAndStart();
+  }
+  
+  private void onCycle(WorkerThread t) throws InterruptedException {
+    final long opened = windowOpened.get();
+    if (opened == 0) {
+      Thread.sleep(IDLE_BACKOFF_MILLIS);
+      return;
+    }
+    
+    final long remainingNanos = opened + lingerNanos - System.nanoTime();
+    if (remainingNanos > 0) {
+      TimeUnit.NANOSECONDS.sleep(remainingNanos);
+    }
+    
+    // close the window before draining, so that a record queued during the flush opens a new one
+    windowOpened.set(0);
+    flush();
+  }
+  
+  synchronized void flush() {
+    for (PendingRecord pending; (pending = queueConsumer.poll()) != null;) {
+      publisher.publishAsync(pending.record, pending.callback);
+    }
+  }
+  
+  @Override
+  public void publishAsync(Record record, PublishCallback callback) {
+    unacknowledged.incrementAndGet();
+    queue.add(new PendingRecord(record, (offset, error) -> {
+      try {
+        callback.onComplete(offset, error);
+      } finally {
+        unacknowledged.decrementAndGet();
+      }
+    }));
+    if (windowOpened.get() == 0) {
+      windowOpened.compareAndSet(0, System.nanoTime());
+    }
+  }
+  
+  int getUnacknowledged() {
+    return unacknowledged.get();
+  }
+  
+  @Override
+  public Joinable terminate() {
+    thread.terminate();
+    return this;
+  }
+  
+  /**
+   *  Waits for the batcher's thread to stop, hands any remaining records to the publisher, and
+   *  waits for the publisher to complete their callbacks.
+   *  
+   *  @param timeoutMillis The time to wait, in milliseconds, or zero to wait indefinitely.
+   *  @return True if all records were acknowledged within the given time.
+   *  @throws InterruptedException If the thread was interrupted while waiting.
+   */
+  @Override
+  public boolean join(long timeoutMillis) throws InterruptedException {
+    final long deadline = timeoutMillis != 0 ? System.currentTimeMillis() + timeoutMillis : Long.MAX_VALUE;
+    if (! thread.join(timeoutMillis)) return false;
+    
+    flush();
+    while (unacknowledged.get() != 0) {
+      if (System.currentTimeMillis() > deadline) return false;
+      Thread.sleep(ACKNOWLEDGE_POLL_MILLIS);
+    }
+    return true;
+  }
+}
@@ -0,0 +1,12 @@
+package com.obsidiandynamics.blackstrom.ledger;
+
+import com.obsidiandynamics.meteor.*;
+
+/**
+ *  The publishing operation used by {@link MeteorLedger} — either a {@link Publisher} directly, or 
+ *  a {@link PublishBatcher} in front of it.
+ */
+@FunctionalInterface
+interface RecordPublisher {
+  void publishAsync(Record record, PublishCallback callback);
+}
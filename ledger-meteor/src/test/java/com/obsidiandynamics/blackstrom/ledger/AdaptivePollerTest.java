@@ -0,0 +1,63 @@
+package com.obsidiandynamics.blackstrom.ledger;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.await.*;
+import com.obsidiandynamics.blackstrom.util.*;
+import com.obsidiandynamics.meteor.*;
+
+public final class AdaptivePollerTest {
+  private final Timesert wait = Wait.SHORT;
+  
+  private AdaptivePoller poller;
+  
+  @After
+  public void after() {
+    if (poller != null) poller.terminate().joinSilently();
+  }
+  
+  @Test
+  public void testNextPollInterval() {
+    assertEquals(1, AdaptivePoller.nextPollInterval(0, 100));
+    assertEquals(2, AdaptivePoller.nextPollInterval(1, 100));
+    assertEquals(64, AdaptivePoller.nextPollInterval(32, 100));
+    assertEquals(100, AdaptivePoller.nextPollInterval(64, 100));
+    assertEquals(100, AdaptivePoller.nextPollInterval(100, 100));
+  }
+  
+  private static RecordBatch batchOf(Record... records) {
+    final RecordBatch batch = mock(RecordBatch.class);
+    when(batch.isEmpty()).thenReturn(records.length == 0);
+    when(batch.iterator()).thenAnswer(invocation -> Arrays.asList(records).iterator());
+    return batch;
+  }
+  
+  @Test
+  public void testPollBackoffAndReset() throws InterruptedException {
+    final Subscriber subscriber = mock(Subscriber.class);
+    final Record record = new Record(new byte[0]);
+    final RecordBatch empty = batchOf();
+    final RecordBatch nonEmpty = batchOf(record);
+    when(subscriber.poll(anyLong())).thenReturn(empty, empty, empty, nonEmpty, empty);
+    final RecordHandler handler = mock(RecordHandler.class);
+    poller = new AdaptivePoller(subscriber, handler, 4, "test");
+    
+    wait.until(() -> verify(handler).onRecord(eq(record)));
+    wait.until(() -> {
+      try {
+        verify(subscriber, atLeast(1)).poll(eq(1L));
+        verify(subscriber, atLeast(1)).poll(eq(2L));
+        verify(subscriber, atLeast(2)).poll(eq(4L));
+        verify(subscriber, atLeast(2)).poll(eq(0L));
+      } catch (InterruptedException e) {
+        throw new AssertionError(e);
+      }
+    });
+  }
+}
@@ -0,0 +1,28 @@
+package com.obsidiandynamics.blackstrom.ledger;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.assertion.*;
+
+public final class LatencyStatsTest {
+  @Test
+  public void testEmpty() {
+    final LatencyStats stats = new LatencyStats();
+    assertEquals(0, stats.getCount());
+    assertEquals(0, stats.getMeanMillis(), 0);
+    assertEquals(0, stats.getMaxMillis(), 0);
+    Assertions.assertToStringOverride(stats);
+  }
+  
+  @Test
+  public void testRecord() {
+    final LatencyStats stats = new LatencyStats();
+    stats.record(1_000_000);
+    stats.record(3_000_000);
+    assertEquals(2, stats.getCount());
+    assertEquals(2, stats.getMeanMillis(), 0);
+    assertEquals(3, stats.getMaxMillis(), 0);
+  }
+}
@@ -2,6 +2,9 @@ package com.obsidiandynamics.blackstrom.ledger;
 
 import static org.junit.Assert.*;
 
+import java.nio.*;
+import java.nio.charset.*;
+
 import org.junit.*;
 
 import com.obsidiandynamics.assertion.*;
@@ -36,6 +39,30 @@ public final class MessagePackerTest {
     assertEquals(m, decoded);
   }
 
+  @Test
+  public void testPackUnpackWithLongUnicodeShardKey() throws Exception {
+    final MessageCodec codec = new IdentityMessageCodec();
+    final StringBuilder shardKey = new StringBuilder();
+    for (int i = 0; i < 100; i++) shardKey.append("k\u00e9y");
+    final Message m = new Proposal("100", new String[0], null, 0).withShardKey(shardKey.toString()).withShard(0);
+    final byte[] encoded = MessagePacker.pack(codec, m);
+    
+    final Message decoded = MessagePacker.unpack(codec, encoded);
+    assertEquals(m, decoded);
+    assertEquals(shardKey.toString(), decoded.getShardKey());
+  }
+  
+  @Test(expected=MessagePacker.DeserializationException.class)
+  public void testUnpackWithMissingBytes() throws Exception {
+    final MessageCodec codec = new IdentityMessageCodec();
+    final Message m = new Proposal("100", new String[0], null, 0);
+    final byte[] encoded = MessagePacker.pack(codec, m);
+    
+    final byte[] truncated = new byte[encoded.length - 1];
+    System.arraycopy(encoded, 0, truncated, 0, truncated.length);
+    MessagePacker.unpack(codec, truncated);
+  }
+  
   @Test(expected=MessagePacker.DeserializationException.class)
   public void testUnpackWithRemainingBytes() throws Exception {
     final MessageCodec codec = new IdentityMessageCodec();
@@ -47,4 +74,85 @@ public final class MessagePackerTest {
     System.arraycopy(encoded, 0, padded, 0, encoded.length);
     MessagePacker.unpack(codec, padded);
   }
+  
+  @Test
+  public void testFormatByte() throws Exception {
+    final byte[] encoded = MessagePacker.pack(new IdentityMessageCodec(), new Proposal("100", new String[0], null, 0));
+    assertEquals(MessagePacker.FORMAT_V1, encoded[0]);
+  }
+  
+  @Test(expected=MessagePacker.DeserializationException.class)
+  public void testUnpackUnsupportedFormat() throws Exception {
+    final MessageCodec codec = new IdentityMessageCodec();
+    final byte[] encoded = MessagePacker.pack(codec, new Proposal("100", new String[0], null, 0));
+    encoded[0] = (byte) 0x82;
+    MessagePacker.unpack(codec, encoded);
+  }
+  
+  @Test
+  public void testUnpackLegacy() throws Exception {
+    final MessageCodec codec = new IdentityMessageCodec();
+    final Message withKey = new Proposal("100", new String[0], null, 0).withShardKey("shardKey").withShard(0);
+    assertEquals(withKey, MessagePacker.unpack(codec, packLegacy(codec, withKey)));
+    
+    final Message withoutKey = new Proposal("200", new String[0], null, 0).withShard(0);
+    final Message decoded = MessagePacker.unpack(codec, packLegacy(codec, withoutKey));
+    assertEquals(withoutKey, decoded);
+    assertNull(decoded.getShardKey());
+  }
+  
+  /**
+   *  A codec that encodes only the message type, which it can then peek.
+   */
+  private static final class TypeOnlyCodec implements MessageCodec {
+    @Override
+    public byte[] encode(Message message) {
+      return new byte[] {(byte) message.getMessageType().ordinal()};
+    }
+    
+    @Override
+    public Message decode(byte[] bytes) {
+      throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public MessageType peekType(ByteBuffer buffer) {
+      return MessageType.values()[buffer.get(buffer.position())];
+    }
+  }
+  
+  @Test
+  public void testPeekType() throws Exception {
+    final MessageCodec codec = new TypeOnlyCodec();
+    final Message withKey = new Vote("100", new Response("c", Intent.ACCEPT, null)).withShardKey("shardKey");
+    final Message withoutKey = new Proposal("200", new String[0], null, 0);
+    assertEquals(MessageType.VOTE, MessagePacker.peekType(codec, MessagePacker.pack(codec, withKey)));
+    assertEquals(MessageType.PROPOSAL, MessagePacker.peekType(codec, MessagePacker.pack(codec, withoutKey)));
+    assertEquals(MessageType.VOTE, MessagePacker.peekType(codec, packLegacy(codec, withKey)));
+    assertEquals(MessageType.PROPOSAL, MessagePacker.peekType(codec, packLegacy(codec, withoutKey)));
+  }
+  
+  @Test
+  public void testPeekTypeUnsupported() throws Exception {
+    final byte[] encoded = MessagePacker.pack(new TypeOnlyCodec(), new Proposal("100", new String[0], null, 0));
+    assertNull(MessagePacker.peekType(new IdentityMessageCodec(), encoded));
+    
+    encoded[0] = (byte) 0x82;
+    assertNull(MessagePacker.peekType(new TypeOnlyCodec(), encoded));
+  }
+  
+  /**
+   *  Packs a message in the layout used prior to the introduction of the format byte.
+   */
+  private static byte[] packLegacy(MessageCodec codec, Message message) throws Exception {
+    final String shardKey = message.getShardKey();
+    final byte[] shardKeyBytes = shardKey != null ? shardKey.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    final byte[] payload = codec.encode(message);
+    final ByteBuffer buf = ByteBuffer.allocate(1 + shardKeyBytes.length + 4 + payload.length);
+    buf.put((byte) (shardKey != null ? shardKeyBytes.length : -1));
+    buf.put(shardKeyBytes);
+    buf.putInt(payload.length);
+    buf.put(payload);
+    return buf.array();
+  }
 }
@@ -0,0 +1,97 @@
+package com.obsidiandynamics.blackstrom.ledger;
+
+import static junit.framework.TestCase.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+import org.junit.runner.*;
+import org.junit.runners.*;
+
+import com.hazelcast.config.*;
+import com.hazelcast.core.*;
+import com.obsidiandynamics.await.*;
+import com.obsidiandynamics.blackstrom.codec.*;
+import com.obsidiandynamics.blackstrom.handler.*;
+import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.blackstrom.model.Message;
+import com.obsidiandynamics.blackstrom.util.*;
+import com.obsidiandynamics.junit.*;
+import com.obsidiandynamics.meteor.*;
+import com.obsidiandynamics.threads.*;
+
+/**
+ *  Runs the group ledger test suite over a {@link MeteorLedger} with adaptive polling, additionally
+ *  verifying that a subscriber that has backed off over an idle stream still picks up new messages.
+ */
+@RunWith(Parameterized.class)
+public final class MeteorKryoAdaptivePollingLedgerGroupTest extends AbstractGroupLedgerTest {
+  private static final int POLL_INTERVAL_MILLIS = 20;
+  
+  @Parameterized.Parameters
+  public static List<Object[]> data() {
+    return TestCycle.timesQuietly(1);
+  }
+  
+  @Override
+  protected Timesert getWait() {
+    return Wait.SHORT;
+  }
+  
+  private HazelcastInstance instance;
+  
+  @Before
+  public void before() {
+    final Config config = new Config()
+        .setProperty("hazelcast.logging.type", "none");
+    instance = new TestProvider().createInstance(config);
+  }
+  
+  @After
+  public void after() {
+    afterBase();
+    if (instance != null) instance.getLifecycleService().terminate();
+  }
+  
+  @Override
+  protected Ledger createLedger() {
+    final MeteorLedgerConfig config = new MeteorLedgerConfig()
+        .withCodec(new KryoMessageCodec(true, new KryoBankExpansion()))
+        .withStreamConfig(new StreamConfig()
+                          .withName("stream")
+                          .withHeapCapacity(100_000))
+        .withElectionConfig(new ElectionConfig().withScavengeInterval(1))
+        .withPollInterval(POLL_INTERVAL_MILLIS)
+        .withAdaptivePolling(true);
+    return new MeteorLedger(instance, config);
+  }
+  
+  @Test
+  public void testDeliveryAfterIdle() {
+    useLedger(createLedger());
+    final String group = Sandbox.forInstance(this).key();
+    final List<String> received = new CopyOnWriteArrayList<>();
+    ledger.attach(new MessageHandler() {
+      @Override
+      public String getGroupId() {
+        return group;
+      }
+      
+      @Override
+      public void onMessage(MessageContext context, Message message) {
+        received.add(message.getXid());
+        context.beginAndConfirm(message);
+      }
+    });
+    ledger.init();
+    
+    ledger.append(new Proposal("X0", 0, new String[0], null, 0));
+    wait.until(() -> assertEquals(Arrays.asList("X0"), received));
+    
+    // idle for long enough for the poller to back off to its ceiling
+    Threads.sleep(POLL_INTERVAL_MILLIS * 10);
+    ledger.append(new Proposal("X1", 0, new String[0], null, 0));
+    wait.until(() -> assertEquals(Arrays.asList("X0", "X1"), received));
+  }
+}
@@ -0,0 +1,138 @@
+package com.obsidiandynamics.blackstrom.ledger;
+
+import static junit.framework.TestCase.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+import org.junit.*;
+import org.junit.runner.*;
+import org.junit.runners.*;
+
+import com.hazelcast.config.*;
+import com.hazelcast.core.*;
+import com.obsidiandynamics.await.*;
+import com.obsidiandynamics.blackstrom.codec.*;
+import com.obsidiandynamics.blackstrom.handler.*;
+import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.blackstrom.model.Message;
+import com.obsidiandynamics.blackstrom.util.*;
+import com.obsidiandynamics.junit.*;
+import com.obsidiandynamics.meteor.*;
+import com.obsidiandynamics.threads.*;
+
+/**
+ *  Runs the group ledger test suite over a {@link MeteorLedger} backed by several streams, 
+ *  additionally verifying that each group receives every message exactly once, even as the 
+ *  group's members divide the streams among themselves.
+ */
+@RunWith(Parameterized.class)
+public final class MeteorKryoMultiStreamLedgerGroupTest extends AbstractGroupLedgerTest {
+  private static final int STREAMS = 3;
+  
+  @Parameterized.Parameters
+  public static List<Object[]> data() {
+    return TestCycle.timesQuietly(1);
+  }
+  
+  @Override
+  protected Timesert getWait() {
+    return Wait.SHORT;
+  }
+  
+  private HazelcastInstance instance;
+  
+  private final Timesert wait = getWait();
+  
+  private Ledger ledger;
+  
+  @Before
+  public void before() {
+    final Config config = new Config()
+        .setProperty("hazelcast.logging.type", "none");
+    instance = new TestProvider().createInstance(config);
+  }
+  
+  @After
+  public void after() {
+    afterBase();
+    if (ledger != null) ledger.dispose();
+    if (instance != null) instance.getLifecycleService().terminate();
+  }
+  
+  @Override
+  protected Ledger createLedger() {
+    final StreamConfig[] streamConfigs = IntStream.range(0, STREAMS)
+        .mapToObj(i -> new StreamConfig()
+                  .withName("stream-" + i)
+                  .withHeapCapacity(100_000))
+        .toArray(StreamConfig[]::new);
+    final MeteorLedgerConfig config = new MeteorLedgerConfig()
+        .withCodec(new KryoMessageCodec(true, new KryoBankExpansion()))
+        .withStreamConfigs(streamConfigs)
+        .withElectionConfig(new ElectionConfig().withScavengeInterval(1));
+    return new MeteorLedger(instance, config);
+  }
+  
+  /** Tallies the messages received by all members of a group, keyed by their XID. */
+  private static final class GroupTally {
+    final Map<String, Integer> counts = new ConcurrentHashMap<>();
+    
+    MessageHandler member(String groupId, String keyPrefix) {
+      return new MessageHandler() {
+        @Override
+        public String getGroupId() {
+          return groupId;
+        }
+        
+        @Override
+        public void onMessage(MessageContext context, Message message) {
+          if (! message.getShardKey().startsWith(keyPrefix)) return;
+          counts.merge(message.getXid(), 1, Integer::sum);
+          context.beginAndConfirm(message);
+        }
+      };
+    }
+  }
+  
+  @Test
+  public void testExactlyOncePerGroup() {
+    ledger = createLedger();
+    final int keys = 8;
+    final int messagesPerKey = 10;
+    final int membersPerGroup = 2;
+    final String keyPrefix = Sandbox.forInstance(this).key();
+    final GroupTally groupA = new GroupTally();
+    final GroupTally groupB = new GroupTally();
+    for (int i = 0; i < membersPerGroup; i++) {
+      ledger.attach(groupA.member("group-a", keyPrefix));
+      ledger.attach(groupB.member("group-b", keyPrefix));
+    }
+    ledger.init();
+    
+    final Set<String> xids = new HashSet<>();
+    for (int m = 0; m < messagesPerKey; m++) {
+      for (int k = 0; k < keys; k++) {
+        final String xid = k + "-" + m;
+        xids.add(xid);
+        ledger.append(new Proposal(xid, 0, new String[] {"a", "b"}, null, 0)
+                      .withShardKey(keyPrefix + "-" + k));
+      }
+    }
+    
+    wait.until(() -> {
+      for (GroupTally group : Arrays.asList(groupA, groupB)) {
+        assertEquals(xids, group.counts.keySet());
+      }
+    });
+    
+    // allow time for any duplicate deliveries to surface
+    Threads.sleep(100);
+    for (GroupTally group : Arrays.asList(groupA, groupB)) {
+      for (Map.Entry<String, Integer> entry : group.counts.entrySet()) {
+        assertEquals("xid=" + entry.getKey(), 1, (int) entry.getValue());
+      }
+    }
+  }
+}
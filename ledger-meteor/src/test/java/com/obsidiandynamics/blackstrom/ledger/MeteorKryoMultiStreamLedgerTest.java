@@ -0,0 +1,112 @@
+package com.obsidiandynamics.blackstrom.ledger;
+
+import static junit.framework.TestCase.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+import org.junit.*;
+import org.junit.runner.*;
+import org.junit.runners.*;
+
+import com.hazelcast.config.*;
+import com.hazelcast.core.*;
+import com.obsidiandynamics.await.*;
+import com.obsidiandynamics.blackstrom.codec.*;
+import com.obsidiandynamics.blackstrom.handler.*;
+import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.blackstrom.model.Message;
+import com.obsidiandynamics.blackstrom.util.*;
+import com.obsidiandynamics.junit.*;
+import com.obsidiandynamics.meteor.*;
+
+/**
+ *  Runs the ledger test suite over a {@link MeteorLedger} backed by several streams, additionally
+ *  verifying that messages sharing a key are delivered in order while the keys themselves are 
+ *  spread across the streams.
+ */
+@RunWith(Parameterized.class)
+public final class MeteorKryoMultiStreamLedgerTest extends AbstractLedgerTest {
+  private static final int STREAMS = 3;
+  
+  @Parameterized.Parameters
+  public static List<Object[]> data() {
+    return TestCycle.timesQuietly(1);
+  }
+  
+  @Override
+  protected Timesert getWait() {
+    return Wait.SHORT;
+  }
+  
+  private HazelcastInstance instance;
+  
+  @Before
+  public void before() {
+    final Config config = new Config()
+        .setProperty("hazelcast.logging.type", "none");
+    instance = new TestProvider().createInstance(config);
+  }
+  
+  @After
+  public void after() {
+    afterBase();
+    if (instance != null) instance.getLifecycleService().terminate();
+  }
+  
+  @Override
+  protected Ledger createLedger() {
+    final StreamConfig[] streamConfigs = IntStream.range(0, STREAMS)
+        .mapToObj(i -> new StreamConfig()
+                  .withName("stream-" + i)
+                  .withHeapCapacity(100_000))
+        .toArray(StreamConfig[]::new);
+    final MeteorLedgerConfig config = new MeteorLedgerConfig()
+        .withCodec(new KryoMessageCodec(true, new KryoBankExpansion()))
+        .withStreamConfigs(streamConfigs)
+        .withElectionConfig(new ElectionConfig().withScavengeInterval(1));
+    return new MeteorLedger(instance, config);
+  }
+  
+  @Test
+  public void testOrderPerKeyAcrossStreams() {
+    useLedger(createLedger());
+    final int keys = 8;
+    final int messagesPerKey = 20;
+    final String keyPrefix = Sandbox.forInstance(this).key();
+    final Map<String, List<Long>> received = new ConcurrentHashMap<>();
+    final Set<Integer> shards = ConcurrentHashMap.newKeySet();
+    ledger.attach(new MessageHandler() {
+      @Override
+      public String getGroupId() {
+        return null;
+      }
+      
+      @Override
+      public void onMessage(MessageContext context, Message message) {
+        if (! message.getShardKey().startsWith(keyPrefix)) return;
+        received.computeIfAbsent(message.getShardKey(), __ -> new CopyOnWriteArrayList<>())
+        .add(Long.parseLong(message.getXid()));
+        shards.add(message.getShard());
+      }
+    });
+    ledger.init();
+    
+    for (long m = 0; m < messagesPerKey; m++) {
+      for (int k = 0; k < keys; k++) {
+        ledger.append(new Proposal(String.valueOf(m), 0, new String[] {"a", "b"}, null, 0)
+                      .withShardKey(keyPrefix + "-" + k));
+      }
+    }
+    
+    final List<Long> expected = LongStream.range(0, messagesPerKey).boxed().collect(Collectors.toList());
+    wait.until(() -> {
+      assertEquals(keys, received.size());
+      for (List<Long> xids : received.values()) {
+        assertEquals(expected, xids);
+      }
+    });
+    assertTrue("shards=" + shards, shards.size() > 1);
+  }
+}
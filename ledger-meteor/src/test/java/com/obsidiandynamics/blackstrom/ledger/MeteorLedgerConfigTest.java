@@ -2,6 +2,8 @@ package com.obsidiandynamics.blackstrom.ledger;
 
 import static org.junit.Assert.*;
 
+import java.util.*;
+
 import org.junit.*;
 
 import com.obsidiandynamics.assertion.*;
@@ -22,12 +24,29 @@ public final class MeteorLedgerConfigTest {
         .withElectionConfig(electionConfig)
         .withZlg(zlg)
         .withPollInterval(pollIntervalMillis)
-        .withStreamConfig(streamConfig);
+        .withStreamConfig(streamConfig)
+        .withPublishLingerMillis(5)
+        .withAdaptivePolling(true);
     assertEquals(codec, config.getCodec());
     assertEquals(electionConfig, config.getElectionConfig());
     assertEquals(zlg, config.getZlg());
     assertEquals(pollIntervalMillis, config.getPollInterval());
     assertEquals(streamConfig, config.getStreamConfig());
+    assertEquals(5, config.getPublishLingerMillis());
+    assertTrue(config.isAdaptivePolling());
+    assertEquals(Collections.singletonList(streamConfig), config.getStreamConfigs());
+  }
+  
+  @Test
+  public void testMultipleStreams() {
+    final StreamConfig streamConfig0 = new StreamConfig();
+    final StreamConfig streamConfig1 = new StreamConfig();
+    final MeteorLedgerConfig config = new MeteorLedgerConfig()
+        .withStreamConfigs(streamConfig0, streamConfig1);
+    assertEquals(Arrays.asList(streamConfig0, streamConfig1), config.getStreamConfigs());
+    
+    config.withStreamConfig(streamConfig0);
+    assertEquals(Collections.singletonList(streamConfig0), config.getStreamConfigs());
   }
 
   @Test
@@ -0,0 +1,84 @@
+package com.obsidiandynamics.blackstrom.ledger;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+import com.hazelcast.config.*;
+import com.hazelcast.core.*;
+import com.obsidiandynamics.await.*;
+import com.obsidiandynamics.blackstrom.codec.*;
+import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.blackstrom.util.*;
+import com.obsidiandynamics.meteor.*;
+
+/**
+ *  Verifies that the callbacks of appends that linger in front of the publisher are completed, 
+ *  both in the course of regular batching and when the ledger is disposed with records still
+ *  lingering.
+ */
+public final class MeteorLedgerLingerTest {
+  private final Timesert wait = Wait.SHORT;
+  
+  private HazelcastInstance instance;
+  
+  private MeteorLedger ledger;
+  
+  @Before
+  public void before() {
+    final Config config = new Config()
+        .setProperty("hazelcast.logging.type", "none");
+    instance = new TestProvider().createInstance(config);
+  }
+  
+  @After
+  public void after() {
+    if (ledger != null) ledger.dispose();
+    if (instance != null) instance.getLifecycleService().terminate();
+  }
+  
+  private MeteorLedger createLedger(int publishLingerMillis) {
+    final MeteorLedgerConfig config = new MeteorLedgerConfig()
+        .withCodec(new KryoMessageCodec(true))
+        .withStreamConfig(new StreamConfig()
+                          .withName("stream")
+                          .withHeapCapacity(10_000))
+        .withPublishLingerMillis(publishLingerMillis);
+    return new MeteorLedger(instance, config);
+  }
+  
+  private static List<MessageId> appendAll(Ledger ledger, int messages) {
+    final List<MessageId> appended = new CopyOnWriteArrayList<>();
+    for (int i = 0; i < messages; i++) {
+      ledger.append(new Proposal(String.valueOf(i), new String[0], null, 0), (messageId, error) -> {
+        assertNull(error);
+        appended.add(messageId);
+      });
+    }
+    return appended;
+  }
+  
+  @Test
+  public void testCallbacksComplete() {
+    ledger = createLedger(5);
+    final int messages = 100;
+    final List<MessageId> appended = appendAll(ledger, messages);
+    wait.until(() -> assertEquals(messages, appended.size()));
+    assertEquals(messages, new HashSet<>(appended).size());
+  }
+  
+  @Test
+  public void testCallbacksCompleteOnDispose() {
+    ledger = createLedger(60_000);
+    final int messages = 100;
+    final List<MessageId> appended = appendAll(ledger, messages);
+    assertEquals(0, appended.size());
+    
+    ledger.dispose();
+    assertEquals(messages, appended.size());
+    assertEquals(messages, new HashSet<>(appended).size());
+  }
+}
@@ -4,7 +4,10 @@ import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import java.nio.*;
+
 import org.junit.*;
+import org.mockito.*;
 
 import com.obsidiandynamics.blackstrom.codec.*;
 import com.obsidiandynamics.blackstrom.handler.*;
@@ -19,7 +22,7 @@ public final class MeteorLedgerTest {
     final Publisher publisher = mock(Publisher.class);
     final Message m = new Proposal("100", new String[0], null, 0);
     final AppendCallback callback = mock(AppendCallback.class);
-    MeteorLedger.appendWithCallback(codec, publisher, m, callback);
+    MeteorLedger.appendWithCallback(codec, publisher::publishAsync, 0, m, callback);
     
     verify(callback).onAppend(isNull(), isA(UnsupportedOperationException.class));
   }
@@ -37,7 +40,7 @@ public final class MeteorLedgerTest {
     
     final Message m = new Proposal("100", new String[0], null, 0);
     final AppendCallback callback = mock(AppendCallback.class);
-    MeteorLedger.appendWithCallback(codec, publisher, m, callback);
+    MeteorLedger.appendWithCallback(codec, publisher::publishAsync, 0, m, callback);
     
     verify(callback).onAppend(isNull(), eq(cause));
   }
@@ -54,7 +57,7 @@ public final class MeteorLedgerTest {
     final Record record = new Record(MessagePacker.pack(codec, m));
     final MessageHandler handler = mock(MessageHandler.class);
     final MessageContext context = mock(MessageContext.class);
-    MeteorLedger.receive(codec, record, logTarget.logger(), handler, context);
+    MeteorLedger.receive(codec, 0, record, logTarget.logger(), new LatencyStats(), Interest.all(), handler, context);
     
     assertEquals(1, logTarget.entries().list().size());
     assertEquals(1, logTarget.entries().forLevel(LogLevel.ERROR).list().size());
@@ -62,4 +65,64 @@ public final class MeteorLedgerTest {
     verifyNoMoreInteractions(handler);
     verifyNoMoreInteractions(context);
   }
+  
+  @Test
+  public void testAppendCallbackShard() {
+    final MessageCodec codec = new IdentityMessageCodec();
+    final Publisher publisher = mock(Publisher.class);
+    doAnswer(invocation -> {
+      final PublishCallback callback = invocation.getArgument(1);
+      callback.onComplete(5, null);
+      return null;
+    }).when(publisher).publishAsync(any(), any());
+    
+    final Message m = new Proposal("100", new String[0], null, 0);
+    final AppendCallback callback = mock(AppendCallback.class);
+    MeteorLedger.appendWithCallback(codec, publisher::publishAsync, 3, m, callback);
+    
+    verify(callback).onAppend(eq(new DefaultMessageId(3, 5)), isNull());
+  }
+  
+  @Test
+  public void testReceiveShard() throws Exception {
+    final MessageCodec codec = new IdentityMessageCodec();
+    final Message m = new Proposal("100", new String[0], null, 0);
+    final Record record = new Record(MessagePacker.pack(codec, m));
+    final MessageHandler handler = mock(MessageHandler.class);
+    final MessageContext context = mock(MessageContext.class);
+    final LatencyStats deliveryLatency = new LatencyStats();
+    MeteorLedger.receive(codec, 3, record, Zlg.forDeclaringClass().get(), deliveryLatency, Interest.all(), handler, context);
+    
+    final ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+    verify(handler).onMessage(eq(context), captor.capture());
+    assertEquals(3, captor.getValue().getShard());
+    assertEquals(new DefaultMessageId(3, record.getOffset()), captor.getValue().getMessageId());
+    assertEquals(1, deliveryLatency.getCount());
+  }
+  
+  @Test
+  public void testReceiveSkipsUninterestedBeforeDecode() throws Exception {
+    final Message m = new Proposal("100", new String[0], null, 0);
+    final MessageCodec codec = mock(MessageCodec.class);
+    when(codec.encodeBuffer(any())).thenReturn(ByteBuffer.wrap(new byte[1]));
+    when(codec.decodeBuffer(any())).thenReturn(m);
+    when(codec.peekType(any())).thenReturn(MessageType.PROPOSAL);
+    
+    final Record record = new Record(MessagePacker.pack(codec, m));
+    final MessageHandler handler = mock(MessageHandler.class);
+    final MessageContext context = mock(MessageContext.class);
+    final LatencyStats deliveryLatency = new LatencyStats();
+    MeteorLedger.receive(codec, 0, record, Zlg.forDeclaringClass().get(), deliveryLatency, 
+                         Interest.of(MessageType.VOTE), handler, context);
+    verify(codec, never()).decodeBuffer(any());
+    verifyNoMoreInteractions(handler);
+    assertEquals(0, deliveryLatency.getCount());
+    
+    // a codec that can't peek leaves the filtering to the handler
+    when(codec.peekType(any())).thenReturn(null);
+    MeteorLedger.receive(codec, 0, record, Zlg.forDeclaringClass().get(), deliveryLatency, 
+                         Interest.of(MessageType.VOTE), handler, context);
+    verify(codec).decodeBuffer(any());
+    verify(handler).onMessage(eq(context), eq(m));
+  }
 }
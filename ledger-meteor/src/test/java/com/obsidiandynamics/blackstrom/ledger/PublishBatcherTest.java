@@ -0,0 +1,103 @@
+package com.obsidiandynamics.blackstrom.ledger;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+import org.mockito.*;
+
+import com.obsidiandynamics.await.*;
+import com.obsidiandynamics.blackstrom.util.*;
+import com.obsidiandynamics.meteor.*;
+import com.obsidiandynamics.threads.*;
+
+public final class PublishBatcherTest {
+  private final Timesert wait = Wait.SHORT;
+  
+  private PublishBatcher batcher;
+  
+  @After
+  public void after() {
+    // the mock publishers don't necessarily acknowledge records, so the batcher isn't joined
+    if (batcher != null) batcher.terminate();
+  }
+  
+  @Test
+  public void testPublishInOrder() {
+    final Publisher publisher = mock(Publisher.class);
+    batcher = new PublishBatcher(publisher, 1, "test");
+    
+    final Record r0 = new Record(new byte[0]);
+    final Record r1 = new Record(new byte[0]);
+    batcher.publishAsync(r0, mock(PublishCallback.class));
+    batcher.publishAsync(r1, mock(PublishCallback.class));
+    
+    wait.until(() -> verify(publisher, times(2)).publishAsync(any(), any()));
+    final InOrder inOrder = inOrder(publisher);
+    inOrder.verify(publisher).publishAsync(eq(r0), any());
+    inOrder.verify(publisher).publishAsync(eq(r1), any());
+  }
+  
+  @Test
+  public void testFlush() {
+    final Publisher publisher = mock(Publisher.class);
+    batcher = new PublishBatcher(publisher, 60_000, "test");
+    
+    final Record r0 = new Record(new byte[0]);
+    final PublishCallback c0 = mock(PublishCallback.class);
+    batcher.publishAsync(r0, c0);
+    verifyNoMoreInteractions(publisher);
+    
+    batcher.flush();
+    final ArgumentCaptor<PublishCallback> callback = ArgumentCaptor.forClass(PublishCallback.class);
+    verify(publisher).publishAsync(eq(r0), callback.capture());
+    
+    // the publisher's completion is relayed to the original callback
+    final Exception error = new Exception("Simulated");
+    callback.getValue().onComplete(-1, error);
+    verify(c0).onComplete(eq(-1L), eq(error));
+  }
+  
+  /**
+   *  The linger window opens with the first queued record, rather than running continuously; a 
+   *  record queued into an idle batcher is therefore held for the full linger time.
+   */
+  @Test
+  public void testLingerFromFirstRecord() {
+    final Publisher publisher = mock(Publisher.class);
+    batcher = new PublishBatcher(publisher, 200, "test");
+    Threads.sleep(150);
+    
+    batcher.publishAsync(new Record(new byte[0]), mock(PublishCallback.class));
+    Threads.sleep(100);
+    verifyNoMoreInteractions(publisher);
+    wait.until(() -> verify(publisher).publishAsync(any(), any()));
+  }
+  
+  @Test
+  public void testJoinFlushesAndAwaitsAcknowledgement() throws InterruptedException {
+    final List<PublishCallback> callbacks = new CopyOnWriteArrayList<>();
+    final Publisher publisher = mock(Publisher.class);
+    doAnswer(invocation -> callbacks.add(invocation.getArgument(1))).when(publisher).publishAsync(any(), any());
+    batcher = new PublishBatcher(publisher, 60_000, "test");
+    
+    final Record r0 = new Record(new byte[0]);
+    final PublishCallback c0 = mock(PublishCallback.class);
+    batcher.publishAsync(r0, c0);
+    assertEquals(1, batcher.getUnacknowledged());
+    
+    batcher.terminate();
+    assertFalse(batcher.join(10));
+    verify(publisher).publishAsync(eq(r0), any());
+    assertEquals(1, callbacks.size());
+    
+    callbacks.get(0).onComplete(0, null);
+    verify(c0).onComplete(eq(0L), isNull());
+    assertEquals(0, batcher.getUnacknowledged());
+    assertTrue(batcher.join(10));
+  }
+}
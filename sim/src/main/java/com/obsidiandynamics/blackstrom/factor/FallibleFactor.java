@@ -226,4 +226,9 @@ public final class FallibleFactor implements Factor, ProposalProcessor, VoteProc
   public String getGroupId() {
     return backingHandler.getGroupId();
   }
+  
+  @Override
+  public Interest getInterest() {
+    return backingHandler.getInterest();
+  }
 }
@@ -129,7 +129,7 @@ public final class BalancedLedgerView implements Ledger {
   @Override
   public void attach(MessageHandler handler) {
     final ConsumerGroup group = handler.getGroupId() != null ? hub.getOrCreateGroup(handler.getGroupId()) : null;
-    final Consumer consumer = new Consumer(handler, group);
+    final Consumer consumer = new Consumer(FilteringMessageHandler.of(handler), group);
     consumers.put(consumer.handlerId, consumer);
     consumer.start();
   }
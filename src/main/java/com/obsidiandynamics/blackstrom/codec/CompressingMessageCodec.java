@@ -0,0 +1,213 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import java.nio.*;
+import java.util.*;
+import java.util.zip.*;
+
+import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.blackstrom.util.*;
+import com.obsidiandynamics.yconf.*;
+
+/**
+ *  A {@link MessageCodec} decorator that compresses the delegate's encoded messages once they
+ *  reach a size threshold, using the Deflate algorithm at its fastest setting. Being independent
+ *  of the delegate and of the ledger, the decorator works with any pairing of the two.<p>
+ *  
+ *  Every encoded message starts with a flag byte, denoting whether the remainder is the
+ *  delegate's output as is, or compressed. A compressed message is laid out as follows:<br>
+ *  {@code
+ *  FLAG_DEFLATE | varint(uncompressedLength) | deflated bytes
+ *  }<p>
+ *  
+ *  Messages below the threshold cost just the flag byte, as do messages that don't shrink when
+ *  compressed. The decoder accepts both forms irrespective of its own threshold, so the threshold
+ *  may differ between processes.<p>
+ *  
+ *  Owing to the flag byte, the encoded form is <em>not</em> wire-compatible with that of the 
+ *  delegate: messages encoded by the plain delegate can't be decoded by the decorator, and vice
+ *  versa. All processes sharing a ledger must therefore agree on whether the decorator is used.<p>
+ *  
+ *  The uncompressed length in a compressed message's header is validated against the greatest
+ *  expansion that Deflate can achieve before the output array is allocated, so that a corrupt or
+ *  hostile header can't trigger an outsized allocation.
+ */
+@Y
+public final class CompressingMessageCodec implements MessageCodec {
+  public static final int DEF_THRESHOLD = 1024;
+  
+  static final byte FLAG_NONE = 0;
+  
+  static final byte FLAG_DEFLATE = 1;
+  
+  /** The greatest ratio of uncompressed to compressed size that Deflate can achieve. */
+  static final int MAX_DEFLATE_RATIO = 1032;
+  
+  public static final class MalformedMessageException extends Exception {
+    private static final long serialVersionUID = 1L;
+    MalformedMessageException(String m) { super(m); }
+    MalformedMessageException(String m, Throwable cause) { super(m, cause); }
+  }
+  
+  /** Deflaters and inflaters hold native zlib state, and are costly to create for each message. */
+  private static final ThreadLocal<Deflater> deflater = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+  
+  private static final ThreadLocal<Inflater> inflater = ThreadLocal.withInitial(() -> new Inflater());
+  
+  private final MessageCodec delegate;
+  
+  private final int threshold;
+  
+  public CompressingMessageCodec(MessageCodec delegate) {
+    this(delegate, null);
+  }
+  
+  /**
+   *  Creates a compressing decorator.
+   *  
+   *  @param delegate The codec that encodes and decodes the messages.
+   *  @param threshold The minimum size of the delegate's output (in bytes) that is compressed;
+   *                   if {@code null}, defaults to {@link #DEF_THRESHOLD}.
+   */
+  public CompressingMessageCodec(@YInject(name="delegate") MessageCodec delegate, 
+                                 @YInject(name="threshold") Integer threshold) {
+    this.delegate = delegate;
+    this.threshold = threshold != null ? threshold : DEF_THRESHOLD;
+    if (this.threshold < 0) throw new IllegalArgumentException("Threshold cannot be negative");
+  }
+  
+  public MessageCodec getDelegate() {
+    return delegate;
+  }
+  
+  public int getThreshold() {
+    return threshold;
+  }
+  
+  @Override
+  public byte[] encode(Message message) throws Exception {
+    return Binary.toExactByteArray(encodeBuffer(message));
+  }
+  
+  @Override
+  public ByteBuffer encodeBuffer(Message message) throws Exception {
+    final ByteBuffer encoded = delegate.encodeBuffer(message);
+    final int length = encoded.remaining();
+    if (length >= threshold && length != 0) {
+      final ByteBuffer compressed = compress(encoded);
+      if (compressed != null) return compressed;
+    }
+    
+    final ByteBuffer uncompressed = ByteBuffer.allocate(length + 1);
+    uncompressed.put(FLAG_NONE).put(encoded).flip();
+    return uncompressed;
+  }
+  
+  /**
+   *  Compresses the given buffer, returning {@code null} if the result isn't any smaller.
+   *  
+   *  @param encoded The buffer to compress.
+   *  @return The compressed buffer, with the flag byte and length header, or {@code null}.
+   */
+  private static ByteBuffer compress(ByteBuffer encoded) {
+    final int length = encoded.remaining();
+    final int headerLength = 1 + Binary.varIntLength(length);
+    
+    // a compressed message is only worth keeping if it is smaller than the uncompressed one,
+    // which bounds the size of the output array
+    final byte[] out = new byte[length + 1];
+    final Deflater deflater = CompressingMessageCodec.deflater.get();
+    try {
+      if (encoded.hasArray()) {
+        deflater.setInput(encoded.array(), encoded.arrayOffset() + encoded.position(), length);
+      } else {
+        deflater.setInput(Binary.toByteArray(encoded));
+      }
+      deflater.finish();
+      int deflatedLength = 0;
+      while (! deflater.finished() && headerLength + deflatedLength < out.length) {
+        deflatedLength += deflater.deflate(out, headerLength + deflatedLength, out.length - headerLength - deflatedLength);
+      }
+      if (! deflater.finished()) return null;
+      
+      final ByteBuffer compressed = ByteBuffer.wrap(out, 0, headerLength + deflatedLength);
+      compressed.put(FLAG_DEFLATE);
+      Binary.writeVarInt(compressed, length);
+      compressed.position(0);
+      return compressed;
+    } finally {
+      deflater.reset();
+    }
+  }
+  
+  /**
+   *  Encodes the message as Base64 text, as compressed output isn't a valid character sequence.
+   */
+  @Override
+  public String encodeText(Message message) throws Exception {
+    return Base64.getEncoder().encodeToString(encode(message));
+  }
+  
+  @Override
+  public Message decode(byte[] bytes) throws Exception {
+    return decodeBuffer(ByteBuffer.wrap(bytes));
+  }
+  
+  @Override
+  public Message decodeText(String text) throws Exception {
+    return decode(Base64.getDecoder().decode(text));
+  }
+  
+  @Override
+  public Message decodeBuffer(ByteBuffer buffer) throws Exception {
+    final ByteBuffer view = buffer.slice();
+    if (! view.hasRemaining()) throw new MalformedMessageException("Missing compression flag");
+    
+    final byte flag = view.get();
+    switch (flag) {
+      case FLAG_NONE:
+        return delegate.decodeBuffer(view.slice());
+      
+      case FLAG_DEFLATE:
+        return delegate.decode(decompress(view));
+      
+      default:
+        throw new MalformedMessageException("Unsupported compression flag " + flag);
+    }
+  }
+  
+  private static byte[] decompress(ByteBuffer view) throws MalformedMessageException {
+    final int length = Binary.readVarInt(view);
+    if (length < 0 || length > (long) view.remaining() * MAX_DEFLATE_RATIO) {
+      throw new MalformedMessageException("Implausible uncompressed length " + length + " for " + 
+          view.remaining() + " compressed bytes");
+    }
+    final byte[] uncompressed = new byte[length];
+    final Inflater inflater = CompressingMessageCodec.inflater.get();
+    try {
+      if (view.hasArray()) {
+        inflater.setInput(view.array(), view.arrayOffset() + view.position(), view.remaining());
+      } else {
+        inflater.setInput(Binary.toByteArray(view));
+      }
+      int inflatedLength = 0;
+      while (! inflater.finished()) {
+        final int inflated = inflater.inflate(uncompressed, inflatedLength, length - inflatedLength);
+        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary() || inflatedLength == length)) break;
+        inflatedLength += inflated;
+      }
+      if (inflatedLength != length || ! inflater.finished()) {
+        throw new MalformedMessageException("Expected " + length + " uncompressed bytes, got " + inflatedLength);
+      }
+      return uncompressed;
+    } catch (DataFormatException e) {
+      throw new MalformedMessageException("Corrupt compressed message", e);
+    } finally {
+      inflater.reset();
+    }
+  }
+  
+  @Override
+  public String toString() {
+    return CompressingMessageCodec.class.getSimpleName() + " [delegate=" + delegate + ", threshold=" + threshold + "]";
+  }
+}
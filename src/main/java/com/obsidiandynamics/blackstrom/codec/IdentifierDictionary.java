@@ -0,0 +1,141 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import java.util.*;
+
+import com.obsidiandynamics.yconf.*;
+
+/**
+ *  Maps well-known cohort and source identifiers to small, stable integer IDs, allowing codecs
+ *  to encode them compactly rather than repeating the full strings in every message. Identifiers
+ *  that aren't in the dictionary are still encoded as strings.<p>
+ *  
+ *  Decoded identifiers are the dictionary's interned {@link String} instances, so that equality
+ *  checks between them reduce to reference comparisons.<p>
+ *  
+ *  IDs are part of the wire format: the dictionary must be shared by every process in the
+ *  manifold, and an ID must not be reused for a different identifier while messages bearing
+ *  it may still be decoded.
+ */
+@Y
+public final class IdentifierDictionary {
+  /** The upper bound on IDs, which keeps the reverse lookup table compact. */
+  public static final int MAX_ID = 0xFFFF;
+  
+  public static final class DuplicateIdentifierException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+    DuplicateIdentifierException(String m) { super(m); }
+  }
+  
+  /**
+   *  An immutable, resolved view of the dictionary, providing lookups in both directions.
+   */
+  public static final class Identifiers {
+    private final Map<String, Integer> ids;
+    
+    private final String[] identifiers;
+    
+    Identifiers(Map<String, Integer> ids, String[] identifiers) {
+      this.ids = ids;
+      this.identifiers = identifiers;
+    }
+    
+    /**
+     *  Obtains the ID of the given identifier.
+     *  
+     *  @param identifier The identifier (may be {@code null}).
+     *  @return The ID, or {@code -1} if the identifier is not in the dictionary.
+     */
+    public int getId(String identifier) {
+      if (identifier == null) return -1;
+      final Integer id = ids.get(identifier);
+      return id != null ? id : -1;
+    }
+    
+    /**
+     *  Obtains the interned identifier registered under the given ID.
+     *  
+     *  @param id The ID.
+     *  @return The identifier, or {@code null} if no identifier is registered under the ID.
+     */
+    public String getIdentifier(int id) {
+      return id >= 0 && id < identifiers.length ? identifiers[id] : null;
+    }
+    
+    public Map<String, Integer> getIds() {
+      return ids;
+    }
+    
+    public boolean isEmpty() {
+      return ids.isEmpty();
+    }
+    
+    @Override
+    public String toString() {
+      return Identifiers.class.getSimpleName() + " [ids=" + ids + "]";
+    }
+  }
+  
+  /** Maps identifiers to their IDs. */
+  @YInject
+  private Map<String, Integer> identifiers = new LinkedHashMap<>();
+  
+  Map<String, Integer> getIdentifiers() {
+    return identifiers;
+  }
+  
+  public IdentifierDictionary withIdentifier(String identifier, int id) {
+    identifiers.put(identifier, id);
+    return this;
+  }
+  
+  /**
+   *  Adds the given identifiers, assigning them consecutive IDs following the highest ID
+   *  currently in the dictionary.
+   *  
+   *  @param identifiers The identifiers to add.
+   *  @return This dictionary, for chaining.
+   */
+  public IdentifierDictionary withIdentifiers(String... identifiers) {
+    int nextId = this.identifiers.values().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
+    for (String identifier : identifiers) {
+      withIdentifier(identifier, nextId++);
+    }
+    return this;
+  }
+  
+  /**
+   *  Resolves the dictionary, verifying that every ID lies in the range [0, {@link #MAX_ID}]
+   *  and is unique.
+   *  
+   *  @return The resolved {@link Identifiers}.
+   *  @throws DuplicateIdentifierException If an ID is assigned to more than one identifier.
+   */
+  public Identifiers resolve() {
+    final Map<String, Integer> ids = new HashMap<>(identifiers.size());
+    final Map<Integer, String> byId = new HashMap<>(identifiers.size());
+    int maxId = -1;
+    for (Map.Entry<String, Integer> entry : identifiers.entrySet()) {
+      final String identifier = entry.getKey().intern();
+      final int id = entry.getValue();
+      if (id < 0 || id > MAX_ID) throw new IllegalArgumentException("Invalid ID " + id + " for " + identifier);
+      
+      final String existing = byId.put(id, identifier);
+      if (existing != null) {
+        throw new DuplicateIdentifierException("ID " + id + " is assigned to both " + existing + " and " + identifier);
+      }
+      ids.put(identifier, id);
+      maxId = Math.max(maxId, id);
+    }
+    
+    final String[] identifiersById = new String[maxId + 1];
+    for (Map.Entry<Integer, String> entry : byId.entrySet()) {
+      identifiersById[entry.getKey()] = entry.getValue();
+    }
+    return new Identifiers(Collections.unmodifiableMap(ids), identifiersById);
+  }
+  
+  @Override
+  public String toString() {
+    return IdentifierDictionary.class.getSimpleName() + " [identifiers=" + identifiers + "]";
+  }
+}
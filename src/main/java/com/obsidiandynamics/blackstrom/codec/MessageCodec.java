@@ -1,6 +1,9 @@
 package com.obsidiandynamics.blackstrom.codec;
 
+import java.nio.*;
+
 import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.blackstrom.util.*;
 
 public interface MessageCodec {
   static int SCHEMA_VERSION = 2;
@@ -11,9 +14,50 @@ public interface MessageCodec {
     return new String(encode(message));
   }
   
+  /**
+   *  Encodes the message into a {@link ByteBuffer}, positioned at the start of the encoded
+   *  data and limited to its end. The buffer may be backed by a larger array than the encoded
+   *  data; implementations that can avoid a trailing copy should override this method.
+   *  
+   *  @param message The message to encode.
+   *  @return The encoded buffer.
+   *  @throws Exception If an error occurs.
+   */
+  default ByteBuffer encodeBuffer(Message message) throws Exception {
+    return ByteBuffer.wrap(encode(message));
+  }
+  
   Message decode(byte[] bytes) throws Exception;
   
   default Message decodeText(String text) throws Exception {
     return decode(text.getBytes());
   }
+  
+  /**
+   *  Decodes a message from the remaining bytes of the given {@link ByteBuffer}, leaving the
+   *  buffer's position unchanged. The default implementation copies the remaining bytes only
+   *  if they don't span the entire backing array.
+   *  
+   *  @param buffer The buffer to decode.
+   *  @return The decoded message.
+   *  @throws Exception If an error occurs.
+   */
+  default Message decodeBuffer(ByteBuffer buffer) throws Exception {
+    return decode(Binary.toExactByteArray(buffer));
+  }
+  
+  /**
+   *  Determines the type of the message encoded in the remaining bytes of the given 
+   *  {@link ByteBuffer} without decoding it, leaving the buffer's position unchanged. Ledgers use
+   *  this to skip messages that a handler has no interest in before paying for their decoding.<p>
+   *  
+   *  Codecs whose encoded form doesn't carry the message type in a fixed position should 
+   *  return {@code null}, which is also the default.
+   *  
+   *  @param buffer The buffer holding the encoded message.
+   *  @return The message type, or {@code null} if it can't be determined without decoding.
+   */
+  default MessageType peekType(ByteBuffer buffer) {
+    return null;
+  }
 }
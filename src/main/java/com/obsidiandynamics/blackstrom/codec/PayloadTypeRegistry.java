@@ -0,0 +1,129 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import java.util.*;
+
+import com.obsidiandynamics.yconf.*;
+
+/**
+ *  Maps application payload classes to small, stable integer IDs, allowing codecs to identify
+ *  a payload's type compactly rather than by its fully qualified class name. The registry is
+ *  applied to a codec through its expansion mechanism; payloads of unregistered types are still
+ *  encoded by their class name.<p>
+ *  
+ *  IDs are part of the wire format: once assigned, an ID must not be reused for a different
+ *  type while messages bearing it may still be decoded.
+ */
+@Y
+public final class PayloadTypeRegistry {
+  public static final class DuplicateTypeException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+    DuplicateTypeException(String m) { super(m); }
+  }
+  
+  public static final class InvalidTypeException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+    InvalidTypeException(String m, Throwable cause) { super(m, cause); }
+  }
+  
+  /**
+   *  An immutable, resolved view of the registry, providing lookups in both directions.
+   */
+  public static final class Types {
+    private final Map<Class<?>, Integer> ids;
+    
+    private final Map<Integer, Class<?>> classes;
+    
+    Types(Map<Class<?>, Integer> ids, Map<Integer, Class<?>> classes) {
+      this.ids = ids;
+      this.classes = classes;
+    }
+    
+    /**
+     *  Obtains the ID of the given type.
+     *  
+     *  @param type The type.
+     *  @return The ID, or {@code null} if the type is not registered.
+     */
+    public Integer getId(Class<?> type) {
+      return ids.get(type);
+    }
+    
+    /**
+     *  Obtains the type registered under the given ID.
+     *  
+     *  @param id The ID.
+     *  @return The type, or {@code null} if no type is registered under the ID.
+     */
+    public Class<?> getType(int id) {
+      return classes.get(id);
+    }
+    
+    public Map<Class<?>, Integer> getIds() {
+      return ids;
+    }
+    
+    public boolean isEmpty() {
+      return ids.isEmpty();
+    }
+    
+    @Override
+    public String toString() {
+      return Types.class.getSimpleName() + " [ids=" + ids + "]";
+    }
+  }
+  
+  private static final Types EMPTY = new Types(Collections.emptyMap(), Collections.emptyMap());
+  
+  /** Maps fully qualified class names to their IDs. */
+  @YInject
+  private Map<String, Integer> types = new LinkedHashMap<>();
+  
+  public static Types empty() {
+    return EMPTY;
+  }
+  
+  Map<String, Integer> getTypes() {
+    return types;
+  }
+  
+  public PayloadTypeRegistry withType(Class<?> type, int id) {
+    types.put(type.getName(), id);
+    return this;
+  }
+  
+  /**
+   *  Resolves the registered class names, verifying that every ID is non-negative and unique.
+   *  
+   *  @return The resolved {@link Types}.
+   *  @throws DuplicateTypeException If an ID is assigned to more than one type.
+   *  @throws InvalidTypeException If a class cannot be loaded.
+   */
+  public Types resolve() {
+    final Map<Class<?>, Integer> ids = new HashMap<>(types.size());
+    final Map<Integer, Class<?>> classes = new HashMap<>(types.size());
+    for (Map.Entry<String, Integer> entry : types.entrySet()) {
+      final String className = entry.getKey();
+      final int id = entry.getValue();
+      if (id < 0) throw new IllegalArgumentException("Invalid ID " + id + " for " + className);
+      
+      final Class<?> type;
+      try {
+        type = Class.forName(className);
+      } catch (ClassNotFoundException e) {
+        throw new InvalidTypeException("Cannot load payload type " + className, e);
+      }
+      
+      final Class<?> existing = classes.put(id, type);
+      if (existing != null) {
+        throw new DuplicateTypeException("ID " + id + " is assigned to both " + existing.getName() + " and " + className);
+      }
+      ids.put(type, id);
+    }
+    return new Types(Collections.unmodifiableMap(ids), Collections.unmodifiableMap(classes));
+  }
+  
+  @Override
+  public String toString() {
+    return PayloadTypeRegistry.class.getSimpleName() + " [types=" + types + "]";
+  }
+}
@@ -0,0 +1,56 @@
+package com.obsidiandynamics.blackstrom.cohort;
+
+import java.util.concurrent.*;
+
+import com.obsidiandynamics.blackstrom.factor.*;
+import com.obsidiandynamics.blackstrom.handler.*;
+import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.flow.*;
+import com.obsidiandynamics.zerolog.*;
+
+/**
+ *  Adapts an {@link AsyncOutcomeProcessor} to the {@link OutcomeProcessor} contract.<p>
+ *  
+ *  The outcome's confirmation is begun on the consumer thread and confirmed once the outcome
+ *  has been applied; a {@code null} stage is taken to mean that the outcome was applied 
+ *  synchronously. An application that fails (either by throwing or by completing exceptionally)
+ *  is logged and never confirmed, so that the outcome is redelivered once the ledger is 
+ *  reassigned.<p>
+ *  
+ *  Because confirmations are ordered per shard, a single failed outcome blocks the confirmation
+ *  of every later message on its shard until the ledger is reassigned (following a restart or a
+ *  rebalance), at which point all of those messages are redelivered. Processors should therefore
+ *  only fail an outcome when it can't be applied at all, handling transient errors themselves.
+ */
+final class AsyncOutcomeAdapter implements OutcomeProcessor {
+  private static final Zlg zlg = Zlg.forDeclaringClass().get();
+  
+  private final AsyncOutcomeProcessor processor;
+  
+  AsyncOutcomeAdapter(AsyncOutcomeProcessor processor) {
+    this.processor = processor;
+  }
+  
+  @Override
+  public void onOutcome(MessageContext context, Outcome outcome) {
+    final Confirmation confirmation = context.begin(outcome);
+    apply(outcome).whenComplete((__, error) -> {
+      if (error == null) {
+        confirmation.confirm();
+      } else {
+        zlg.w("Error applying %s; withholding confirmation", z -> z.arg(outcome).threw(error));
+      }
+    });
+  }
+  
+  private CompletionStage<Void> apply(Outcome outcome) {
+    try {
+      final CompletionStage<Void> stage = processor.apply(outcome);
+      return stage != null ? stage : CompletableFuture.completedFuture(null);
+    } catch (Throwable e) {
+      final CompletableFuture<Void> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      return failed;
+    }
+  }
+}
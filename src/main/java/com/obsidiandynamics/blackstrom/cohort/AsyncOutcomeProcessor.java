@@ -0,0 +1,20 @@
+package com.obsidiandynamics.blackstrom.cohort;
+
+import java.util.concurrent.*;
+
+import com.obsidiandynamics.blackstrom.model.*;
+
+/**
+ *  An asynchronous counterpart of {@link com.obsidiandynamics.blackstrom.factor.OutcomeProcessor},
+ *  allowing a cohort to apply an outcome without holding up the ledger's consumer thread. The 
+ *  outcome is confirmed when the returned stage completes normally; a {@code null} stage is 
+ *  treated as an outcome applied synchronously.<p>
+ *  
+ *  An outcome whose application throws or completes exceptionally is never confirmed, which 
+ *  holds back the confirmation of all later messages on its shard until they are redelivered
+ *  following a restart or a rebalance.
+ */
+@FunctionalInterface
+public interface AsyncOutcomeProcessor {
+  CompletionStage<Void> apply(Outcome outcome);
+}
@@ -0,0 +1,81 @@
+package com.obsidiandynamics.blackstrom.cohort;
+
+import java.util.concurrent.*;
+
+import com.obsidiandynamics.blackstrom.factor.*;
+import com.obsidiandynamics.blackstrom.handler.*;
+import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.flow.*;
+import com.obsidiandynamics.zerolog.*;
+
+/**
+ *  Adapts an {@link AsyncProposalProcessor} to the {@link ProposalProcessor} contract.<p>
+ *  
+ *  The proposal's confirmation is begun on the consumer thread, preserving the per-shard 
+ *  confirmation order under an ordered retention, and is confirmed from the ledger's append 
+ *  callback once the vote has been appended, or straight away if the cohort abstains. A 
+ *  decision that fails (either by throwing or by completing exceptionally) is logged and 
+ *  treated as a rejection.<p>
+ *  
+ *  A vote that can't be appended is logged and the proposal is confirmed regardless; the 
+ *  missing vote is then resolved by the transaction's timeout, rather than by holding back 
+ *  the confirmation of later messages on the same shard.
+ */
+final class AsyncProposalAdapter implements ProposalProcessor {
+  private static final Zlg zlg = Zlg.forDeclaringClass().get();
+  
+  private final String cohort;
+  
+  private final AsyncProposalProcessor processor;
+  
+  AsyncProposalAdapter(String cohort, AsyncProposalProcessor processor) {
+    this.cohort = cohort;
+    this.processor = processor;
+  }
+  
+  @Override
+  public void onProposal(MessageContext context, Proposal proposal) {
+    final Confirmation confirmation = context.begin(proposal);
+    decide(proposal).whenComplete((intent, error) -> {
+      final Intent vote;
+      if (error != null) {
+        zlg.w("Error deciding %s; voting REJECT", z -> z.arg(proposal).threw(error));
+        vote = Intent.REJECT;
+      } else {
+        vote = intent;
+      }
+      
+      if (vote == null) {
+        confirmation.confirm();
+        return;
+      }
+      
+      final Vote message = new Vote(proposal.getXidValue(), new Response(cohort, vote, null))
+          .inResponseTo(proposal).withSource(cohort);
+      try {
+        context.getLedger().append(message, (__id, appendError) -> {
+          if (appendError != null) logAppendError(message, appendError);
+          confirmation.confirm();
+        });
+      } catch (Throwable e) {
+        logAppendError(message, e);
+        confirmation.confirm();
+      }
+    });
+  }
+  
+  private static void logAppendError(Vote vote, Throwable error) {
+    zlg.w("Error appending %s", z -> z.arg(vote).threw(error));
+  }
+  
+  private CompletionStage<Intent> decide(Proposal proposal) {
+    try {
+      final CompletionStage<Intent> stage = processor.decide(proposal);
+      return stage != null ? stage : CompletableFuture.completedFuture(null);
+    } catch (Throwable e) {
+      final CompletableFuture<Intent> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      return failed;
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package com.obsidiandynamics.blackstrom.cohort;
+
+import java.util.concurrent.*;
+
+import com.obsidiandynamics.blackstrom.model.*;
+
+/**
+ *  An asynchronous counterpart of {@link com.obsidiandynamics.blackstrom.factor.ProposalProcessor},
+ *  allowing a cohort to arrive at its decision (for example, by way of remote I/O) without 
+ *  holding up the ledger's consumer thread. The cohort's vote is cast when the returned stage
+ *  completes.
+ */
+@FunctionalInterface
+public interface AsyncProposalProcessor {
+  /**
+   *  Decides on the given proposal.
+   *  
+   *  @param proposal The proposal.
+   *  @return A stage yielding the cohort's {@link Intent}, or {@code null} if the proposal 
+   *          doesn't concern this cohort (in which case no vote is cast).
+   */
+  CompletionStage<Intent> decide(Proposal proposal);
+}
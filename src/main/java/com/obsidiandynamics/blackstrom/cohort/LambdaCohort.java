@@ -8,6 +8,8 @@ import com.obsidiandynamics.blackstrom.model.*;
 public final class LambdaCohort implements Cohort {
   private final String groupId;
   
+  private final Interest interest;
+  
   private final Initable onInit;
   
   private final Disposable onDispose;
@@ -25,6 +27,7 @@ public final class LambdaCohort implements Cohort {
   private final OutcomeProcessor onOutcome;
   
   LambdaCohort(String groupId, 
+               Interest interest,
                Initable onInit, 
                Disposable onDispose, 
                QueryProcessor onQuery,
@@ -34,6 +37,7 @@ public final class LambdaCohort implements Cohort {
                VoteProcessor onVote,
                OutcomeProcessor onOutcome) {
     this.groupId = groupId;
+    this.interest = interest;
     this.onInit = onInit;
     this.onDispose = onDispose;
     this.onQuery = onQuery;
@@ -58,6 +62,11 @@ public final class LambdaCohort implements Cohort {
   public String getGroupId() {
     return groupId;
   }
+  
+  @Override
+  public Interest getInterest() {
+    return interest;
+  }
 
   @Override
   public void onQuery(MessageContext context, Query query) {
@@ -2,10 +2,13 @@ package com.obsidiandynamics.blackstrom.cohort;
 
 import com.obsidiandynamics.blackstrom.*;
 import com.obsidiandynamics.blackstrom.factor.*;
+import com.obsidiandynamics.blackstrom.handler.*;
 
 public final class LambdaCohortBuilder {
   private String groupId;
   
+  private Interest interest = Interest.all();
+  
   private Initable onInit = __ -> {};
   
   private Disposable onDispose = () -> {};
@@ -22,12 +25,28 @@ public final class LambdaCohortBuilder {
   
   private OutcomeProcessor onOutcome = (__context, __outcome) -> {};
   
+  private AsyncProposalProcessor onProposalAsync;
+  
+  private AsyncOutcomeProcessor onOutcomeAsync;
+  
   LambdaCohortBuilder() {}
   
   public LambdaCohortBuilder withGroupId(String groupId) {
     this.groupId = groupId;
     return this;
   }
+  
+  /**
+   *  Restricts the messages delivered to the cohort, allowing ledgers to skip the remainder 
+   *  without invoking the cohort.
+   *  
+   *  @param interest The {@link Interest}.
+   *  @return This builder instance for chaining.
+   */
+  public LambdaCohortBuilder withInterest(Interest interest) {
+    this.interest = interest;
+    return this;
+  }
 
   public LambdaCohortBuilder onInit(Initable onInit) {
     this.onInit = onInit;
@@ -56,6 +75,20 @@ public final class LambdaCohortBuilder {
 
   public LambdaCohortBuilder onProposal(ProposalProcessor onProposal) {
     this.onProposal = onProposal;
+    onProposalAsync = null;
+    return this;
+  }
+  
+  /**
+   *  Sets an asynchronous proposal handler in place of {@link #onProposal(ProposalProcessor)}.
+   *  The cohort's vote is appended (under the cohort's group ID) when the decision completes,
+   *  leaving the consumer thread free to process subsequent messages in the meantime.
+   *  
+   *  @param onProposalAsync The asynchronous proposal handler.
+   *  @return This builder instance for chaining.
+   */
+  public LambdaCohortBuilder onProposalAsync(AsyncProposalProcessor onProposalAsync) {
+    this.onProposalAsync = onProposalAsync;
     return this;
   }
 
@@ -66,10 +99,31 @@ public final class LambdaCohortBuilder {
 
   public LambdaCohortBuilder onOutcome(OutcomeProcessor onOutcome) {
     this.onOutcome = onOutcome;
+    onOutcomeAsync = null;
+    return this;
+  }
+  
+  /**
+   *  Sets an asynchronous outcome handler in place of {@link #onOutcome(OutcomeProcessor)}.
+   *  The outcome is confirmed when its application completes.
+   *  
+   *  @param onOutcomeAsync The asynchronous outcome handler.
+   *  @return This builder instance for chaining.
+   */
+  public LambdaCohortBuilder onOutcomeAsync(AsyncOutcomeProcessor onOutcomeAsync) {
+    this.onOutcomeAsync = onOutcomeAsync;
     return this;
   }
   
   public LambdaCohort build() {
-    return new LambdaCohort(groupId, onInit, onDispose, onQuery, onCommand, onNotice, onProposal, onVote, onOutcome);
+    final ProposalProcessor onProposal;
+    if (onProposalAsync != null) {
+      if (groupId == null) throw new IllegalStateException("A group ID is required for asynchronous proposal handling");
+      onProposal = new AsyncProposalAdapter(groupId, onProposalAsync);
+    } else {
+      onProposal = this.onProposal;
+    }
+    final OutcomeProcessor onOutcome = onOutcomeAsync != null ? new AsyncOutcomeAdapter(onOutcomeAsync) : this.onOutcome;
+    return new LambdaCohort(groupId, interest, onInit, onDispose, onQuery, onCommand, onNotice, onProposal, onVote, onOutcome);
   }
 }
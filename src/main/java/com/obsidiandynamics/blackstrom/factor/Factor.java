@@ -3,4 +3,4 @@ package com.obsidiandynamics.blackstrom.factor;
 import com.obsidiandynamics.blackstrom.*;
 import com.obsidiandynamics.blackstrom.handler.*;
 
-public interface Factor extends ElementalProcessor, Initable, Disposable, Groupable {}
+public interface Factor extends ElementalProcessor, Initable, Disposable, Groupable, Interested {}
@@ -1,5 +1,7 @@
 package com.obsidiandynamics.blackstrom.factor;
 
+import java.util.*;
+
 import com.obsidiandynamics.blackstrom.handler.*;
 import com.obsidiandynamics.blackstrom.model.*;
 
@@ -15,6 +17,9 @@ public final class MessageHandlerAdapter implements MessageHandler {
   private final boolean voteCapable;
   private final boolean outcomeCapable;
   
+  /** Derived from the factor's interest on first use, as the factor may not be fully formed at construction. */
+  private Interest interest;
+  
   public MessageHandlerAdapter(Factor factor) {
     this.factor = factor;
     queryCapable = factor instanceof QueryProcessor;
@@ -26,6 +31,45 @@ public final class MessageHandlerAdapter implements MessageHandler {
     voteCapable = factor instanceof VoteProcessor;
     outcomeCapable = factor instanceof OutcomeProcessor;
   }
+  
+  private List<MessageType> getCapableTypes() {
+    final List<MessageType> types = new ArrayList<>(MessageType.values().length);
+    if (queryCapable) types.add(MessageType.QUERY);
+    if (queryResponseCapable) types.add(MessageType.QUERY_RESPONSE);
+    if (commandCapable) types.add(MessageType.COMMAND);
+    if (commandResponseCapable) types.add(MessageType.COMMAND_RESPONSE);
+    if (noticeCapable) types.add(MessageType.NOTICE);
+    if (proposalCapable) types.add(MessageType.PROPOSAL);
+    if (voteCapable) types.add(MessageType.VOTE);
+    if (outcomeCapable) types.add(MessageType.OUTCOME);
+    return types;
+  }
+  
+  /**
+   *  Obtains the factor's interest, limited to the message types that the factor is capable of 
+   *  processing. A factor that doesn't specify an interest is assumed to be interested in all
+   *  messages.<p>
+   *  
+   *  {@link MessageType#$UNKNOWN} is always included, so that unsupported messages still reach 
+   *  {@link #onMessage} and are rejected there, rather than being silently filtered out. (A
+   *  factor capable of every type is therefore interested in all messages, and is dispatched to
+   *  without filtering.)
+   *  
+   *  @return The {@link Interest}.
+   */
+  @Override
+  public Interest getInterest() {
+    // a benign race: concurrent callers derive equal (immutable) interests
+    Interest interest = this.interest;
+    if (interest == null) {
+      final Interest factorInterest = factor.getInterest();
+      interest = (factorInterest != null ? factorInterest : Interest.all())
+          .retainTypes(getCapableTypes())
+          .withTypes(Collections.singleton(MessageType.$UNKNOWN));
+      this.interest = interest;
+    }
+    return interest;
+  }
 
   @Override
   public void onMessage(MessageContext context, Message message) {
@@ -0,0 +1,289 @@
+package com.obsidiandynamics.blackstrom.factor;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+import com.obsidiandynamics.blackstrom.handler.*;
+import com.obsidiandynamics.blackstrom.ledger.*;
+import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.blackstrom.retention.*;
+import com.obsidiandynamics.blackstrom.util.*;
+import com.obsidiandynamics.flow.*;
+import com.obsidiandynamics.nodequeue.*;
+import com.obsidiandynamics.worker.*;
+import com.obsidiandynamics.worker.Terminator;
+import com.obsidiandynamics.zerolog.*;
+
+/**
+ *  Decorates a {@link Factor}, spreading the processing of messages over a fixed pool of worker
+ *  threads so that a factor dominated by blocking work (such as database I/O) isn't limited by the
+ *  single ledger consumer thread that ordinarily drives it.<p>
+ *  
+ *  Messages are assigned to workers by their shard key (or by their shard index, if no key is set),
+ *  so that messages bearing the same key are processed strictly in the order of their receipt.
+ *  Messages with different keys may be processed concurrently; the backing factor must therefore
+ *  be safe for concurrent use across keys.<p>
+ *  
+ *  The message's {@link Confirmation} is begun on the consumer thread, in receipt order, before the
+ *  message is handed to a worker; when the backing factor calls {@link MessageContext#begin} for
+ *  the message that it is processing, it is given this pre-begun confirmation. Under an ordered
+ *  retention such as {@link ShardedFlow}, a message is thus only confirmed once all earlier messages
+ *  on its shard have been confirmed, irrespective of which worker processed them. A message that
+ *  the backing factor returns from without beginning is confirmed on its behalf.<p>
+ *  
+ *  An exception thrown by the backing factor is logged, and the worker moves on to its next 
+ *  message. The failed message is <em>not</em> confirmed on the factor's behalf (unless the factor 
+ *  had already done so), so that it is redelivered following a restart or a rebalance rather than
+ *  being skipped; under an ordered retention, this also holds back the confirmation of every later
+ *  message on its shard.<p>
+ *  
+ *  Each worker admits a bounded backlog of messages (queued or in progress). Once a worker's 
+ *  backlog is at capacity, dispatching to it blocks the calling (ledger consumer) thread until 
+ *  the worker catches up, thereby applying backpressure to the ledger.
+ */
+public final class OrderedParallelFactor implements Factor, QueryProcessor, QueryResponseProcessor,
+CommandProcessor, CommandResponseProcessor, NoticeProcessor, ProposalProcessor, VoteProcessor, OutcomeProcessor {
+  private static final int MAX_YIELDS = 100;
+  
+  private static final int POLL_BACKOFF_MILLIS = 1;
+  
+  private static final int BACKPRESSURE_BACKOFF_MILLIS = 1;
+  
+  public static final int DEF_BACKLOG_CAPACITY = 1_000;
+  
+  private static final Zlg zlg = Zlg.forDeclaringClass().get();
+  
+  private final Factor backingFactor;
+  
+  private final MessageHandler backingHandler;
+  
+  private final Worker[] workers;
+  
+  private final int backlogCapacity;
+  
+  private volatile boolean disposed;
+  
+  /** A message that has been queued for a worker, along with its pre-begun confirmation. */
+  private static final class Task implements MessageContext, Retention {
+    private final MessageContext context;
+    private final Message message;
+    private final Confirmation confirmation;
+    private boolean begun;
+    
+    Task(MessageContext context, Message message) {
+      this.context = context;
+      this.message = message;
+      confirmation = context.begin(message);
+    }
+    
+    @Override
+    public Ledger getLedger() {
+      return context.getLedger();
+    }
+    
+    @Override
+    public Object getHandlerId() {
+      return context.getHandlerId();
+    }
+    
+    @Override
+    public Retention getRetention() {
+      return this;
+    }
+    
+    @Override
+    public Confirmation begin(MessageContext context, Message message) {
+      if (message == this.message) {
+        begun = true;
+        return confirmation;
+      } else {
+        return this.context.begin(message);
+      }
+    }
+  }
+  
+  private final class Worker implements WorkerCycle {
+    private final NodeQueue<Task> queue = new NodeQueue<>();
+    private final QueueConsumer<Task> consumer = queue.consumer();
+    /** The number of tasks that have been queued but not yet fully processed. */
+    private final AtomicInteger backlog = new AtomicInteger();
+    private final WorkerThread thread;
+    private int yields;
+    
+    Worker(int index) {
+      thread = WorkerThread.builder()
+          .withOptions(new WorkerOptions().daemon().withName(OrderedParallelFactor.class,
+                                                             backingFactor.getGroupId(), index))
+          .onCycle(this)
+          .buildAndStart();
+    }
+    
+    @Override
+    public void cycle(WorkerThread thread) throws InterruptedException {
+      final Task task = consumer.poll();
+      if (task != null) {
+        try {
+          backingHandler.onMessage(task, task.message);
+          if (! task.begun) {
+            task.confirmation.confirm();
+          }
+        } catch (Throwable e) {
+          zlg.w("Error processing %s", z -> z.arg(task.message).threw(e));
+        } finally {
+          backlog.decrementAndGet();
+        }
+      } else if (yields++ < MAX_YIELDS) {
+        Thread.yield();
+      } else {
+        // as in MultiNodeQueueLedger, yields are reset on a miss to keep the hotspot free of field writes
+        yields = 0;
+        Thread.sleep(POLL_BACKOFF_MILLIS);
+      }
+    }
+  }
+  
+  public OrderedParallelFactor(Factor backingFactor, int threads) {
+    this(backingFactor, threads, DEF_BACKLOG_CAPACITY);
+  }
+  
+  /**
+   *  Creates a parallel decorator.
+   *  
+   *  @param backingFactor The factor to decorate.
+   *  @param threads The number of worker threads.
+   *  @param backlogCapacity The number of messages that each worker may have queued or in 
+   *                         progress before dispatching to it blocks.
+   */
+  public OrderedParallelFactor(Factor backingFactor, int threads, int backlogCapacity) {
+    if (threads < 1) throw new IllegalArgumentException("Number of threads must be greater than 0");
+    if (backlogCapacity < 1) throw new IllegalArgumentException("Backlog capacity must be greater than 0");
+    this.backingFactor = backingFactor;
+    this.backlogCapacity = backlogCapacity;
+    backingHandler = new MessageHandlerAdapter(backingFactor);
+    workers = new Worker[threads];
+  }
+  
+  public int getThreads() {
+    return workers.length;
+  }
+  
+  public int getBacklogCapacity() {
+    return backlogCapacity;
+  }
+  
+  @Override
+  public void init(InitContext context) {
+    backingFactor.init(context);
+    for (int i = 0; i < workers.length; i++) {
+      workers[i] = new Worker(i);
+    }
+  }
+  
+  @Override
+  public void dispose() {
+    disposed = true;
+    final List<WorkerThread> threads = new ArrayList<>(workers.length);
+    for (Worker worker : workers) {
+      if (worker != null) threads.add(worker.thread);
+    }
+    Terminator.of(threads).terminate().joinSilently();
+    backingFactor.dispose();
+  }
+  
+  @Override
+  public String getGroupId() {
+    return backingFactor.getGroupId();
+  }
+  
+  /**
+   *  Obtains the interest of the backing factor, limited to the message types that it is capable
+   *  of processing.
+   *  
+   *  @return The {@link Interest}.
+   */
+  @Override
+  public Interest getInterest() {
+    return backingHandler.getInterest();
+  }
+  
+  int getWorkerIndex(Message message) {
+    final String shardKey = message.getShardKey();
+    if (shardKey != null) {
+      return Hash.fold(shardKey.hashCode()) % workers.length;
+    } else if (message.isShardAssigned()) {
+      return message.getShard() % workers.length;
+    } else {
+      return 0;
+    }
+  }
+  
+  private void dispatch(MessageContext context, Message message) {
+    if (backingHandler.getInterest().includes(message)) {
+      final Worker worker = workers[getWorkerIndex(message)];
+      awaitCapacity(worker);
+      worker.backlog.incrementAndGet();
+      worker.queue.add(new Task(context, message));
+    }
+  }
+  
+  /**
+   *  Blocks until the worker's backlog drops below capacity. The message is dispatched regardless 
+   *  if the factor is disposed, or if the calling thread is interrupted while waiting.
+   */
+  private void awaitCapacity(Worker worker) {
+    while (worker.backlog.get() >= backlogCapacity && ! disposed) {
+      try {
+        Thread.sleep(BACKPRESSURE_BACKOFF_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+  
+  @Override
+  public void onQuery(MessageContext context, Query query) {
+    dispatch(context, query);
+  }
+  
+  @Override
+  public void onQueryResponse(MessageContext context, QueryResponse queryResponse) {
+    dispatch(context, queryResponse);
+  }
+  
+  @Override
+  public void onCommand(MessageContext context, Command command) {
+    dispatch(context, command);
+  }
+  
+  @Override
+  public void onCommandResponse(MessageContext context, CommandResponse commandResponse) {
+    dispatch(context, commandResponse);
+  }
+  
+  @Override
+  public void onNotice(MessageContext context, Notice notice) {
+    dispatch(context, notice);
+  }
+  
+  @Override
+  public void onProposal(MessageContext context, Proposal proposal) {
+    dispatch(context, proposal);
+  }
+  
+  @Override
+  public void onVote(MessageContext context, Vote vote) {
+    dispatch(context, vote);
+  }
+  
+  @Override
+  public void onOutcome(MessageContext context, Outcome outcome) {
+    dispatch(context, outcome);
+  }
+  
+  @Override
+  public String toString() {
+    return OrderedParallelFactor.class.getSimpleName() + " [backingFactor=" + backingFactor +
+        ", threads=" + workers.length + ", backlogCapacity=" + backlogCapacity + "]";
+  }
+}
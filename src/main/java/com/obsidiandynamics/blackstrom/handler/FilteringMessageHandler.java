@@ -0,0 +1,48 @@
+package com.obsidiandynamics.blackstrom.handler;
+
+import com.obsidiandynamics.blackstrom.model.*;
+
+/**
+ *  Decorates a {@link MessageHandler}, forwarding only those messages that are included in 
+ *  its {@link Interest}. Ledgers apply this decorator when attaching a handler, so that 
+ *  uninterested handlers aren't invoked at all.
+ */
+public final class FilteringMessageHandler implements MessageHandler {
+  private final MessageHandler delegate;
+  
+  private final Interest interest;
+  
+  private FilteringMessageHandler(MessageHandler delegate, Interest interest) {
+    this.delegate = delegate;
+    this.interest = interest;
+  }
+  
+  /**
+   *  Applies interest-based filtering to the given handler, returning the handler unchanged if
+   *  it is interested in every message.
+   *  
+   *  @param handler The handler to filter.
+   *  @return The filtering handler, or the original handler if no filtering is needed.
+   */
+  public static MessageHandler of(MessageHandler handler) {
+    final Interest interest = handler.getInterest();
+    return interest.isAll() ? handler : new FilteringMessageHandler(handler, interest);
+  }
+  
+  @Override
+  public String getGroupId() {
+    return delegate.getGroupId();
+  }
+  
+  @Override
+  public Interest getInterest() {
+    return interest;
+  }
+  
+  @Override
+  public void onMessage(MessageContext context, Message message) {
+    if (interest.includes(message)) {
+      delegate.onMessage(context, message);
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package com.obsidiandynamics.blackstrom.handler;
+
+import java.util.*;
+import java.util.function.*;
+
+import com.obsidiandynamics.blackstrom.model.*;
+
+/**
+ *  Describes the messages that a handler wishes to receive, comprising a set of message types
+ *  and an optional cohort filter. Ledgers consult the interest before dispatching a message,
+ *  skipping those that the handler isn't interested in.<p>
+ *  
+ *  The cohort filter applies to proposals only, admitting those that list at least one 
+ *  matching cohort. Other messages aren't filtered by cohort, as a cohort may need to act on
+ *  them (for example, on an outcome that was decided before its vote was counted) without 
+ *  being named in the message.<p>
+ *  
+ *  Instances are immutable.
+ */
+public final class Interest {
+  private static final Interest ALL = new Interest(EnumSet.allOf(MessageType.class), null);
+  
+  private final EnumSet<MessageType> types;
+  
+  private final Predicate<String> cohortFilter;
+  
+  private Interest(EnumSet<MessageType> types, Predicate<String> cohortFilter) {
+    this.types = types;
+    this.cohortFilter = cohortFilter;
+  }
+  
+  /**
+   *  Obtains an interest in every message.
+   *  
+   *  @return The all-inclusive interest.
+   */
+  public static Interest all() {
+    return ALL;
+  }
+  
+  public static Interest of(MessageType first, MessageType... rest) {
+    return new Interest(EnumSet.of(first, rest), null);
+  }
+  
+  public static Interest of(Collection<MessageType> types) {
+    return new Interest(types.isEmpty() ? EnumSet.noneOf(MessageType.class) : EnumSet.copyOf(types), null);
+  }
+  
+  /**
+   *  Derives an interest that only admits proposals listing at least one cohort that satisfies
+   *  the given predicate.
+   *  
+   *  @param cohortFilter The cohort predicate.
+   *  @return A new {@link Interest} instance.
+   */
+  public Interest withCohortFilter(Predicate<String> cohortFilter) {
+    return new Interest(types, cohortFilter);
+  }
+  
+  /**
+   *  Derives an interest that is further limited to the given message types.
+   *  
+   *  @param types The message types to retain.
+   *  @return A new {@link Interest} instance.
+   */
+  public Interest retainTypes(Collection<MessageType> types) {
+    final EnumSet<MessageType> retained = EnumSet.copyOf(this.types);
+    retained.retainAll(types);
+    return new Interest(retained, cohortFilter);
+  }
+  
+  /**
+   *  Derives an interest that additionally includes the given message types.
+   *  
+   *  @param types The message types to add.
+   *  @return A new {@link Interest} instance.
+   */
+  public Interest withTypes(Collection<MessageType> types) {
+    final EnumSet<MessageType> combined = EnumSet.copyOf(this.types);
+    combined.addAll(types);
+    return new Interest(combined, cohortFilter);
+  }
+  
+  public Set<MessageType> getTypes() {
+    return Collections.unmodifiableSet(types);
+  }
+  
+  public Predicate<String> getCohortFilter() {
+    return cohortFilter;
+  }
+  
+  /**
+   *  Determines whether this interest admits every message, in which case ledgers may skip
+   *  the per-message check altogether.
+   *  
+   *  @return True if every message is of interest.
+   */
+  public boolean isAll() {
+    return cohortFilter == null && types.size() == MessageType.values().length;
+  }
+  
+  public boolean includes(MessageType type) {
+    return types.contains(type);
+  }
+  
+  public boolean includes(Message message) {
+    final MessageType type = message.getMessageType();
+    if (! types.contains(type)) {
+      return false;
+    } else if (cohortFilter != null && type == MessageType.PROPOSAL) {
+      for (String cohort : ((Proposal) message).getCohorts()) {
+        if (cohortFilter.test(cohort)) {
+          return true;
+        }
+      }
+      return false;
+    } else {
+      return true;
+    }
+  }
+  
+  @Override
+  public String toString() {
+    return Interest.class.getSimpleName() + " [types=" + types + ", cohortFilter=" + cohortFilter + "]";
+  }
+}
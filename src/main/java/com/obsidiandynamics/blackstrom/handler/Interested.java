@@ -0,0 +1,13 @@
+package com.obsidiandynamics.blackstrom.handler;
+
+public interface Interested {
+  /**
+   *  Obtains the messages that this handler wishes to receive. The interest is queried once,
+   *  when the handler is attached to a ledger; the default implementation admits every message.
+   *  
+   *  @return The {@link Interest}.
+   */
+  default Interest getInterest() {
+    return Interest.all();
+  }
+}
@@ -2,6 +2,6 @@ package com.obsidiandynamics.blackstrom.handler;
 
 import com.obsidiandynamics.blackstrom.model.*;
 
-public interface MessageHandler extends Groupable {
+public interface MessageHandler extends Groupable, Interested {
   void onMessage(MessageContext context, Message message);
 }
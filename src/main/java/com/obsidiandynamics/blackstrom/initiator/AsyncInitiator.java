@@ -12,7 +12,7 @@ import com.obsidiandynamics.blackstrom.model.*;
 import com.obsidiandynamics.func.*;
 
 public final class AsyncInitiator implements Initiator, NullGroup, Disposable.Nop {
-  private final Map<String, Consumer<?>> pending = new ConcurrentHashMap<>();
+  private final Map<Xid, Consumer<?>> pending = new ConcurrentHashMap<>();
   
   private Ledger ledger;
   
@@ -52,7 +52,7 @@ public final class AsyncInitiator implements Initiator, NullGroup, Disposable.No
   }
   
   private <REQ extends Message, RES extends Message> void genericInitiate(REQ message, Consumer<? super RES> callback) {
-    pending.put(message.getXid(), callback);
+    pending.put(message.getXidValue(), callback);
     ledger.append(message);
   }
 
@@ -72,7 +72,7 @@ public final class AsyncInitiator implements Initiator, NullGroup, Disposable.No
   }
   
   private void onMessage(MessageContext context, Message message) {
-    final Consumer<?> callback = pending.remove(message.getXid());
+    final Consumer<?> callback = pending.remove(message.getXidValue());
     if (callback != null) {
       callback.accept(Classes.cast(message));
     }
@@ -1,5 +1,7 @@
 package com.obsidiandynamics.blackstrom.ledger;
 
+import java.util.concurrent.*;
+
 import com.obsidiandynamics.blackstrom.*;
 import com.obsidiandynamics.blackstrom.handler.*;
 import com.obsidiandynamics.blackstrom.model.*;
@@ -11,6 +13,26 @@ public interface Ledger extends Disposable.Nop {
   
   void attach(MessageHandler handler);
   
+  /**
+   *  Attaches a handler asynchronously, returning a future that completes when the handler is 
+   *  ready to receive messages. Ledgers whose attachment involves remote round-trips should
+   *  override this method so that multiple handlers can be attached concurrently; the default
+   *  implementation delegates to {@link #attach(MessageHandler)} in the calling thread.
+   *  
+   *  @param handler The handler to attach.
+   *  @return A future that completes when the handler has been attached.
+   */
+  default CompletableFuture<Void> attachAsync(MessageHandler handler) {
+    final CompletableFuture<Void> future = new CompletableFuture<>();
+    try {
+      attach(handler);
+      future.complete(null);
+    } catch (Throwable e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+  
   void append(Message message, AppendCallback callback);
   
   default void append(Message message) {
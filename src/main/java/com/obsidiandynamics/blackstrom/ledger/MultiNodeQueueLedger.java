@@ -112,7 +112,7 @@ public final class MultiNodeQueueLedger implements Ledger {
     
     final WorkerThread thread = WorkerThread.builder()
         .withOptions(new WorkerOptions().daemon().withName(MultiNodeQueueLedger.class, handler.getGroupId()))
-        .onCycle(new NodeWorker(handler, handler.getGroupId(), queue.consumer()))
+        .onCycle(new NodeWorker(FilteringMessageHandler.of(handler), handler.getGroupId(), queue.consumer()))
         .buildAndStart();
     threads.add(thread);
   }
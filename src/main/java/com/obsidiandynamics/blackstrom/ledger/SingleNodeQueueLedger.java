@@ -79,7 +79,7 @@ public final class SingleNodeQueueLedger implements Ledger {
     if (handler.getGroupId() != null && ! groups.add(handler.getGroupId())) return;
     
     final List<MessageHandler> handlersList = new ArrayList<>(Arrays.asList(handlers));
-    handlersList.add(handler);
+    handlersList.add(FilteringMessageHandler.of(handler));
     handlers = handlersList.toArray(new MessageHandler[handlersList.size()]);
   }
 
@@ -24,7 +24,7 @@ public final class StackLedger implements Ledger {
   public void attach(MessageHandler handler) {
     if (handler.getGroupId() != null && ! groups.add(handler.getGroupId())) return;
     
-    handlers.add(handler);
+    handlers.add(FilteringMessageHandler.of(handler));
   }
 
   @Override
@@ -1,6 +1,7 @@
 package com.obsidiandynamics.blackstrom.manifold;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 import com.obsidiandynamics.blackstrom.*;
 import com.obsidiandynamics.blackstrom.factor.*;
@@ -12,17 +13,58 @@ public final class Manifold implements Disposable {
   
   private final Set<Factor> factors;
   
-  Manifold(Ledger ledger, Set<Factor> factors) {
+  private final CompletableFuture<Void> ready;
+  
+  Manifold(Ledger ledger, Set<Factor> factors, boolean lazyAttach) {
     this.ledger = ledger;
     this.factors = factors;
     
     final InitContext context = new DefaultInitContext(ledger);
     factors.forEach(f -> f.init(context));
     
-    factors.forEach(f -> ledger.attach(new MessageHandlerAdapter(f)));
+    final CompletableFuture<?>[] attachments = factors.stream()
+        .map(f -> ledger.attachAsync(new MessageHandlerAdapter(f)))
+        .toArray(CompletableFuture<?>[]::new);
+    ready = CompletableFuture.allOf(attachments);
+    if (! lazyAttach) awaitAttachments(ready);
     ledger.init();
   }
   
+  /**
+   *  Waits for the attachments to complete, rethrowing the original cause of a failed attachment
+   *  rather than the {@link CompletionException} that wraps it.
+   *  
+   *  @param ready The combined attachment future.
+   */
+  private static void awaitAttachments(CompletableFuture<Void> ready) {
+    try {
+      ready.join();
+    } catch (CompletionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else {
+        throw e;
+      }
+    }
+  }
+  
+  /**
+   *  Obtains a future that completes when all factors have been attached to the ledger. Unless
+   *  the manifold was built with lazy attachment, this future will have completed by the time
+   *  the manifold is constructed.<p>
+   *  
+   *  With lazy attachment, the ledger is initialised before this future completes, and may thus
+   *  begin delivering messages to the handlers that have attached while others are still pending.
+   *  
+   *  @return The readiness future.
+   */
+  public CompletableFuture<Void> ready() {
+    return ready;
+  }
+  
   public Ledger getLedger() {
     return ledger;
   }
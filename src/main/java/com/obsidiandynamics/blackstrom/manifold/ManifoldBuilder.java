@@ -10,6 +10,8 @@ public final class ManifoldBuilder {
   
   private final Set<Factor> factors = new HashSet<>();
   
+  private boolean lazyAttach;
+  
   ManifoldBuilder() {}
   
   public ManifoldBuilder withLedger(Ledger ledger) {
@@ -30,7 +32,25 @@ public final class ManifoldBuilder {
     return this;
   }
   
+  /**
+   *  Returns from {@link #build()} without waiting for the factors to be attached to the ledger;
+   *  use {@link Manifold#ready()} to determine when the manifold is ready.<p>
+   *  
+   *  Note that {@link Ledger#init()} is invoked as part of {@link #build()} either way; with lazy
+   *  attachment, it is therefore called before the attachments complete. Factors should not assume
+   *  that their peers are receiving messages until the manifold is ready. A failed attachment is 
+   *  only reported through the {@link Manifold#ready()} future; without lazy attachment, its cause
+   *  is rethrown from {@link #build()}.
+   *  
+   *  @param lazyAttach Whether attachment should complete lazily.
+   *  @return This builder instance, for chaining.
+   */
+  public ManifoldBuilder withLazyAttach(boolean lazyAttach) {
+    this.lazyAttach = lazyAttach;
+    return this;
+  }
+  
   public Manifold build() {
-    return new Manifold(ledger, factors);
+    return new Manifold(ledger, factors, lazyAttach);
   }
 }
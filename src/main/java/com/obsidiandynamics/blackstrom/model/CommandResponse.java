@@ -8,16 +8,34 @@ public final class CommandResponse extends FluentMessage<CommandResponse> {
   private final Object result;
   
   public CommandResponse(String xid, Object result) {
+    this(Xid.of(xid), NOW, result);
+  }
+  
+  public CommandResponse(Xid xid, Object result) {
     this(xid, NOW, result);
   }
 
   public CommandResponse(String xid, long timestamp, Object result) {
+    this(Xid.of(xid), timestamp, result);
+  }
+  
+  public CommandResponse(Xid xid, long timestamp, Object result) {
     super(xid, timestamp);
     this.result = result;
   }
   
   public <T> T getResult() {
-    return Classes.cast(result);
+    return Classes.cast(LazyPayload.resolve(result));
+  }
+  
+  /**
+   *  Obtains the result without decoding it, which may be a {@link LazyPayload} if the message
+   *  was decoded lazily.
+   *  
+   *  @return The raw result.
+   */
+  public Object getRawResult() {
+    return result;
   }
   
   @Override
@@ -29,7 +47,7 @@ public final class CommandResponse extends FluentMessage<CommandResponse> {
   public int hashCode() {
     return new HashCodeBuilder()
         .appendSuper(baseHashCode())
-        .append(result)
+        .append(LazyPayload.resolve(result))
         .toHashCode();
   }
   
@@ -41,7 +59,7 @@ public final class CommandResponse extends FluentMessage<CommandResponse> {
       final CommandResponse that = (CommandResponse) obj;
       return new EqualsBuilder()
           .appendSuper(baseEquals(that))
-          .append(result, that.result)
+          .append(LazyPayload.resolve(result), LazyPayload.resolve(that.result))
           .isEquals();
     } else {
       return false;
@@ -55,6 +73,6 @@ public final class CommandResponse extends FluentMessage<CommandResponse> {
   
   @Override
   public CommandResponse shallowCopy() {
-    return copyMutableFields(this, new CommandResponse(getXid(), getTimestamp(), result));
+    return copyMutableFields(this, new CommandResponse(getXidValue(), getTimestamp(), result));
   }
 }
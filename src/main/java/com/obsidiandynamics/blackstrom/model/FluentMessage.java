@@ -7,6 +7,10 @@ public abstract class FluentMessage<M extends FluentMessage<?>> extends Message
     super(xid, timestamp);
   }
   
+  protected FluentMessage(Xid xid, long timestamp) {
+    super(xid, timestamp);
+  }
+  
   public final M withMessageId(MessageId messageId) {
     setMessageId(messageId);
     return self();
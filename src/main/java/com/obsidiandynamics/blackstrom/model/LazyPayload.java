@@ -0,0 +1,89 @@
+package com.obsidiandynamics.blackstrom.model;
+
+import java.util.*;
+
+/**
+ *  A payload (an objective, result, event or metadata) that is held in its encoded form, and
+ *  only decoded when first accessed through the getter of the enclosing message. A codec
+ *  re-emits its own lazy payloads verbatim when re-encoding a message, so that a message that
+ *  is merely inspected by its headers or forwarded never has its payload decoded.<p>
+ *  
+ *  The decoded value is cached. Decoding is idempotent, and may occasionally be repeated if
+ *  the payload is first accessed by several threads at once.<p>
+ *  
+ *  Equality and hashing are based on the decoded value.
+ */
+public abstract class LazyPayload {
+  public static final class PayloadDecodeException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+    
+    PayloadDecodeException(Throwable cause) {
+      super("Error decoding payload", cause);
+    }
+  }
+  
+  private static final Object UNDECODED = new Object();
+  
+  private volatile Object decoded = UNDECODED;
+  
+  /**
+   *  Obtains the decoded payload, decoding it on first access.
+   *  
+   *  @return The decoded payload.
+   *  @throws PayloadDecodeException If the payload could not be decoded.
+   */
+  public final Object get() {
+    final Object existing = decoded;
+    if (existing != UNDECODED) {
+      return existing;
+    } else {
+      final Object newDecoded;
+      try {
+        newDecoded = decode();
+      } catch (Exception e) {
+        throw new PayloadDecodeException(e);
+      }
+      decoded = newDecoded;
+      return newDecoded;
+    }
+  }
+  
+  public final boolean isDecoded() {
+    return decoded != UNDECODED;
+  }
+  
+  protected abstract Object decode() throws Exception;
+  
+  /**
+   *  Resolves the given value, decoding it if it is a {@link LazyPayload} and returning
+   *  it unchanged otherwise.
+   *  
+   *  @param value The value to resolve.
+   *  @return The resolved value.
+   */
+  public static Object resolve(Object value) {
+    return value instanceof LazyPayload ? ((LazyPayload) value).get() : value;
+  }
+  
+  @Override
+  public final int hashCode() {
+    return Objects.hashCode(get());
+  }
+  
+  @Override
+  public final boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    } else if (obj instanceof LazyPayload) {
+      return Objects.equals(get(), ((LazyPayload) obj).get());
+    } else {
+      return false;
+    }
+  }
+  
+  @Override
+  public final String toString() {
+    final Object existing = decoded;
+    return existing != UNDECODED ? String.valueOf(existing) : getClass().getSimpleName() + " [undecoded]";
+  }
+}
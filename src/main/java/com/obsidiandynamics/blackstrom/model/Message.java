@@ -11,7 +11,7 @@ public abstract class Message {
   
   private static final int UNASSIGNED = -1;
   
-  private final String xid;
+  private final Xid xid;
   
   private final long timestamp;
   
@@ -24,11 +24,32 @@ public abstract class Message {
   private int shard = UNASSIGNED;
   
   protected Message(String xid, long timestamp) {
+    this(Xid.of(xid), timestamp);
+  }
+  
+  protected Message(Xid xid, long timestamp) {
     this.xid = xid;
     this.timestamp = timestamp != NOW ? timestamp : NanoClock.now();
   }
   
+  /**
+   *  Obtains the xid in its string form, which is formatted on first access if the message was
+   *  created with (or decoded from) a binary {@link Xid}. Retained for compatibility; 
+   *  {@link #getXidValue()} is preferred where the xid is hashed or compared.
+   *  
+   *  @return The xid string.
+   */
   public final String getXid() {
+    return xid != null ? xid.toString() : null;
+  }
+  
+  /**
+   *  Obtains the xid, in the binary form if it is in the canonical form, or in the string form
+   *  otherwise.
+   *  
+   *  @return The {@link Xid}.
+   */
+  public final Xid getXidValue() {
     return xid;
   }
 
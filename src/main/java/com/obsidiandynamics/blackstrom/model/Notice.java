@@ -8,16 +8,34 @@ public final class Notice extends FluentMessage<Notice> {
   private final Object event;
   
   public Notice(String xid, Object event) {
+    this(Xid.of(xid), NOW, event);
+  }
+  
+  public Notice(Xid xid, Object event) {
     this(xid, NOW, event);
   }
 
   public Notice(String xid, long timestamp, Object event) {
+    this(Xid.of(xid), timestamp, event);
+  }
+  
+  public Notice(Xid xid, long timestamp, Object event) {
     super(xid, timestamp);
     this.event = event;
   }
   
   public <T> T getEvent() {
-    return Classes.cast(event);
+    return Classes.cast(LazyPayload.resolve(event));
+  }
+  
+  /**
+   *  Obtains the event without decoding it, which may be a {@link LazyPayload} if the message
+   *  was decoded lazily.
+   *  
+   *  @return The raw event.
+   */
+  public Object getRawEvent() {
+    return event;
   }
   
   @Override
@@ -29,7 +47,7 @@ public final class Notice extends FluentMessage<Notice> {
   public int hashCode() {
     return new HashCodeBuilder()
         .appendSuper(baseHashCode())
-        .append(event)
+        .append(LazyPayload.resolve(event))
         .toHashCode();
   }
   
@@ -41,7 +59,7 @@ public final class Notice extends FluentMessage<Notice> {
       final Notice that = (Notice) obj;
       return new EqualsBuilder()
           .appendSuper(baseEquals(that))
-          .append(event, that.event)
+          .append(LazyPayload.resolve(event), LazyPayload.resolve(that.event))
           .isEquals();
     } else {
       return false;
@@ -55,6 +73,6 @@ public final class Notice extends FluentMessage<Notice> {
   
   @Override
   public Notice shallowCopy() {
-    return copyMutableFields(this, new Notice(getXid(), getTimestamp(), event));
+    return copyMutableFields(this, new Notice(getXidValue(), getTimestamp(), event));
   }
 }
@@ -7,24 +7,79 @@ import org.apache.commons.lang3.builder.*;
 import com.obsidiandynamics.func.*;
 
 public final class Outcome extends FluentMessage<Outcome> {
+  /** Outcomes with up to this many responses are searched linearly, which is cheaper than hashing. */
+  private static final int INDEX_THRESHOLD = 8;
+  
   private final Resolution resolution;
   private final AbortReason abortReason;
-  private final Response[] responses;
+  
+  /** The cohorts of a compact outcome, or {@code null} if the responses were supplied in full. */
+  private final String[] acceptedCohorts;
+  
+  /** The responses, expanded on first access if the outcome is compact. */
+  private volatile Response[] responses;
+  
+  /** Lazily built index of responses keyed by cohort, for outcomes above {@link #INDEX_THRESHOLD}. */
+  private volatile Map<String, Response> responseIndex;
+  
   private final Object metadata;
 
   public Outcome(String xid, Resolution resolution, AbortReason abortReason, Response[] responses, Object metadata) {
+    this(Xid.of(xid), NOW, resolution, abortReason, responses, metadata);
+  }
+  
+  public Outcome(Xid xid, Resolution resolution, AbortReason abortReason, Response[] responses, Object metadata) {
     this(xid, NOW, resolution, abortReason, responses, metadata);
   }
   
   public Outcome(String xid, long timestamp, Resolution resolution, AbortReason abortReason, 
                  Response[] responses, Object metadata) {
+    this(Xid.of(xid), timestamp, resolution, abortReason, null, responses, metadata);
+  }
+  
+  public Outcome(Xid xid, long timestamp, Resolution resolution, AbortReason abortReason, 
+                 Response[] responses, Object metadata) {
+    this(xid, timestamp, resolution, abortReason, null, responses, metadata);
+  }
+  
+  private Outcome(Xid xid, long timestamp, Resolution resolution, AbortReason abortReason, 
+                  String[] acceptedCohorts, Response[] responses, Object metadata) {
     super(xid, timestamp);
     this.resolution = resolution;
     this.abortReason = abortReason;
+    this.acceptedCohorts = acceptedCohorts;
     this.responses = responses;
     this.metadata = metadata;
   }
   
+  /**
+   *  Creates a compact commit outcome, in which every cohort has accepted without attaching any
+   *  metadata to its response. Rather than carrying a full {@link Response} per cohort, a compact
+   *  outcome retains only the cohort names, which codecs may encode in a correspondingly 
+   *  shorter form. The responses are synthesised on demand by {@link #getResponses()}, and a 
+   *  compact outcome is equal to its non-compact counterpart.
+   *  
+   *  @param xid The transaction ID.
+   *  @param acceptedCohorts The cohorts, in the order in which they appear in the proposal.
+   *  @param metadata The outcome metadata.
+   *  @return The compact outcome.
+   */
+  public static Outcome compactCommit(String xid, String[] acceptedCohorts, Object metadata) {
+    return compactCommit(Xid.of(xid), NOW, acceptedCohorts, metadata);
+  }
+  
+  public static Outcome compactCommit(Xid xid, String[] acceptedCohorts, Object metadata) {
+    return compactCommit(xid, NOW, acceptedCohorts, metadata);
+  }
+  
+  public static Outcome compactCommit(String xid, long timestamp, String[] acceptedCohorts, Object metadata) {
+    return compactCommit(Xid.of(xid), timestamp, acceptedCohorts, metadata);
+  }
+  
+  public static Outcome compactCommit(Xid xid, long timestamp, String[] acceptedCohorts, Object metadata) {
+    return new Outcome(xid, timestamp, Resolution.COMMIT, null, acceptedCohorts, null, metadata);
+  }
+  
   public Resolution getResolution() {
     return resolution;
   }
@@ -33,21 +88,91 @@ public final class Outcome extends FluentMessage<Outcome> {
     return abortReason;
   }
   
+  /**
+   *  Determines whether this outcome is in the compact form, created by 
+   *  {@link #compactCommit(String, long, String[], Object)}.
+   *  
+   *  @return True if the outcome is compact.
+   */
+  public boolean isCompact() {
+    return acceptedCohorts != null;
+  }
+  
+  /**
+   *  Obtains the cohorts of a compact outcome.
+   *  
+   *  @return The accepted cohorts, or {@code null} if the outcome isn't compact.
+   */
+  public String[] getAcceptedCohorts() {
+    return acceptedCohorts;
+  }
+  
+  /**
+   *  Obtains the responses. Outcomes produced by the monitor list their responses in the order 
+   *  in which the cohorts appear in the proposal; the responses of a compact outcome are 
+   *  synthesised on first access.
+   *  
+   *  @return The responses.
+   */
   public Response[] getResponses() {
-    return responses;
+    final Response[] responses = this.responses;
+    if (responses != null || acceptedCohorts == null) {
+      return responses;
+    } else {
+      final Response[] expanded = new Response[acceptedCohorts.length];
+      for (int i = 0; i < expanded.length; i++) {
+        expanded[i] = new Response(acceptedCohorts[i], Intent.ACCEPT, null);
+      }
+      return this.responses = expanded;
+    }
   }
   
+  /**
+   *  Obtains the response of the given cohort. Small outcomes are searched linearly; larger 
+   *  ones are indexed by cohort on first use, making subsequent lookups constant-time.
+   *  
+   *  @param cohort The cohort.
+   *  @return The cohort's response, or {@code null} if the cohort hasn't responded.
+   */
   public Response getResponse(String cohort) {
-    for (Response response : responses) {
-      if (response.getCohort().equals(cohort)) {
-        return response;
+    final Response[] responses = getResponses();
+    if (responses.length <= INDEX_THRESHOLD) {
+      for (Response response : responses) {
+        if (response.getCohort().equals(cohort)) {
+          return response;
+        }
       }
+      return null;
+    } else {
+      return getResponseIndex(responses).get(cohort);
+    }
+  }
+  
+  private Map<String, Response> getResponseIndex(Response[] responses) {
+    final Map<String, Response> existing = responseIndex;
+    if (existing != null) {
+      return existing;
+    } else {
+      final Map<String, Response> index = new HashMap<>(responses.length * 4 / 3 + 1);
+      for (Response response : responses) {
+        index.putIfAbsent(response.getCohort(), response);
+      }
+      return responseIndex = index;
     }
-    return null;
   }
   
   public <T> T getMetadata() {
-    return Classes.cast(metadata);
+    return Classes.cast(LazyPayload.resolve(metadata));
+  }
+  
+  /**
+   *  Obtains the metadata without decoding it, which may be a {@link LazyPayload} if the message
+   *  was decoded lazily.
+   *  
+   *  @return The raw metadata.
+   */
+  public Object getRawMetadata() {
+    return metadata;
   }
 
   @Override
@@ -61,8 +186,8 @@ public final class Outcome extends FluentMessage<Outcome> {
         .appendSuper(baseHashCode())
         .append(resolution)
         .append(abortReason)
-        .append(responses)
-        .append(metadata)
+        .append(getResponses())
+        .append(LazyPayload.resolve(metadata))
         .toHashCode();
   }
   
@@ -76,8 +201,8 @@ public final class Outcome extends FluentMessage<Outcome> {
           .appendSuper(baseEquals(that))
           .append(resolution, that.resolution)
           .append(abortReason, that.abortReason)
-          .append(responses, that.responses)
-          .append(metadata, that.metadata)
+          .append(getResponses(), that.getResponses())
+          .append(LazyPayload.resolve(metadata), LazyPayload.resolve(that.metadata))
           .isEquals();
     } else {
       return false;
@@ -87,12 +212,14 @@ public final class Outcome extends FluentMessage<Outcome> {
   @Override
   public String toString() {
     return Outcome.class.getSimpleName() + " [" + baseToString() + ", resolution=" + resolution + 
-        ", abortReason=" + abortReason + ", responses=" + Arrays.toString(responses) + 
+        ", abortReason=" + abortReason + (acceptedCohorts != null 
+            ? ", acceptedCohorts=" + Arrays.toString(acceptedCohorts) : ", responses=" + Arrays.toString(responses)) + 
         ", metadata=" + metadata + "]";
   }
   
   @Override
   public Outcome shallowCopy() {
-    return copyMutableFields(this, new Outcome(getXid(), getTimestamp(), resolution, abortReason, responses, metadata));
+    return copyMutableFields(this, new Outcome(getXidValue(), getTimestamp(), resolution, abortReason, 
+                                              acceptedCohorts, responses, metadata));
   }
 }
@@ -14,10 +14,18 @@ public final class Proposal extends FluentMessage<Proposal> {
   private final int ttlMillis;
 
   public Proposal(String xid, String[] cohorts, Object objective, int ttlMillis) {
+    this(Xid.of(xid), NOW, cohorts, objective, ttlMillis);
+  }
+  
+  public Proposal(Xid xid, String[] cohorts, Object objective, int ttlMillis) {
     this(xid, NOW, cohorts, objective, ttlMillis);
   }
 
   public Proposal(String xid, long timestamp, String[] cohorts, Object objective, int ttlMillis) {
+    this(Xid.of(xid), timestamp, cohorts, objective, ttlMillis);
+  }
+  
+  public Proposal(Xid xid, long timestamp, String[] cohorts, Object objective, int ttlMillis) {
     super(xid, timestamp);
     this.cohorts = cohorts;
     this.objective = objective;
@@ -29,7 +37,17 @@ public final class Proposal extends FluentMessage<Proposal> {
   }
 
   public <T> T getObjective() {
-    return Classes.cast(objective);
+    return Classes.cast(LazyPayload.resolve(objective));
+  }
+  
+  /**
+   *  Obtains the objective without decoding it, which may be a {@link LazyPayload} if the message
+   *  was decoded lazily.
+   *  
+   *  @return The raw objective.
+   */
+  public Object getRawObjective() {
+    return objective;
   }
   
   public int getTtl() {
@@ -46,7 +64,7 @@ public final class Proposal extends FluentMessage<Proposal> {
     return new HashCodeBuilder()
         .appendSuper(baseHashCode())
         .append(cohorts)
-        .append(objective)
+        .append(LazyPayload.resolve(objective))
         .append(ttlMillis)
         .toHashCode();
   }
@@ -60,7 +78,7 @@ public final class Proposal extends FluentMessage<Proposal> {
       return new EqualsBuilder()
           .appendSuper(baseEquals(that))
           .append(cohorts, that.cohorts)
-          .append(objective, that.objective)
+          .append(LazyPayload.resolve(objective), LazyPayload.resolve(that.objective))
           .append(ttlMillis, that.ttlMillis)
           .isEquals();
     } else {
@@ -76,6 +94,6 @@ public final class Proposal extends FluentMessage<Proposal> {
   
   @Override
   public Proposal shallowCopy() {
-    return copyMutableFields(this, new Proposal(getXid(), getTimestamp(), cohorts, objective, ttlMillis));
+    return copyMutableFields(this, new Proposal(getXidValue(), getTimestamp(), cohorts, objective, ttlMillis));
   }
 }
@@ -11,17 +11,35 @@ public final class Query extends FluentMessage<Query> {
   private final int ttlMillis;
 
   public Query(String xid, Object objective, int ttlMillis) {
+    this(Xid.of(xid), NOW, objective, ttlMillis);
+  }
+  
+  public Query(Xid xid, Object objective, int ttlMillis) {
     this(xid, NOW, objective, ttlMillis);
   }
 
   public Query(String xid, long timestamp, Object objective, int ttlMillis) {
+    this(Xid.of(xid), timestamp, objective, ttlMillis);
+  }
+  
+  public Query(Xid xid, long timestamp, Object objective, int ttlMillis) {
     super(xid, timestamp);
     this.objective = objective;
     this.ttlMillis = ttlMillis;
   }
   
   public <T> T getObjective() {
-    return Classes.cast(objective);
+    return Classes.cast(LazyPayload.resolve(objective));
+  }
+  
+  /**
+   *  Obtains the objective without decoding it, which may be a {@link LazyPayload} if the message
+   *  was decoded lazily.
+   *  
+   *  @return The raw objective.
+   */
+  public Object getRawObjective() {
+    return objective;
   }
   
   public int getTtl() {
@@ -37,7 +55,7 @@ public final class Query extends FluentMessage<Query> {
   public int hashCode() {
     return new HashCodeBuilder()
         .appendSuper(baseHashCode())
-        .append(objective)
+        .append(LazyPayload.resolve(objective))
         .append(ttlMillis)
         .toHashCode();
   }
@@ -50,7 +68,7 @@ public final class Query extends FluentMessage<Query> {
       final Query that = (Query) obj;
       return new EqualsBuilder()
           .appendSuper(baseEquals(that))
-          .append(objective, that.objective)
+          .append(LazyPayload.resolve(objective), LazyPayload.resolve(that.objective))
           .append(ttlMillis, that.ttlMillis)
           .isEquals();
     } else {
@@ -66,6 +84,6 @@ public final class Query extends FluentMessage<Query> {
   
   @Override
   public Query shallowCopy() {
-    return copyMutableFields(this, new Query(getXid(), getTimestamp(), objective, ttlMillis));
+    return copyMutableFields(this, new Query(getXidValue(), getTimestamp(), objective, ttlMillis));
   }
 }
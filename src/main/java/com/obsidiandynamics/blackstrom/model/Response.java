@@ -24,7 +24,17 @@ public final class Response {
   }
 
   public <T> T getMetadata() {
-    return Classes.cast(metadata);
+    return Classes.cast(LazyPayload.resolve(metadata));
+  }
+  
+  /**
+   *  Obtains the metadata without decoding it, which may be a {@link LazyPayload} if the message
+   *  was decoded lazily.
+   *  
+   *  @return The raw metadata.
+   */
+  public Object getRawMetadata() {
+    return metadata;
   }
   
   @Override
@@ -32,7 +42,7 @@ public final class Response {
     return new HashCodeBuilder()
         .append(cohort)
         .append(intent)
-        .append(metadata)
+        .append(LazyPayload.resolve(metadata))
         .toHashCode();
   }
   
@@ -45,7 +55,7 @@ public final class Response {
       return new EqualsBuilder()
           .append(cohort, that.cohort)
           .append(intent, that.intent)
-          .append(metadata, that.metadata)
+          .append(LazyPayload.resolve(metadata), LazyPayload.resolve(that.metadata))
           .isEquals();
     } else {
       return false;
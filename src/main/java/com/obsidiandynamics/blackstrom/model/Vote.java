@@ -6,10 +6,18 @@ public final class Vote extends FluentMessage<Vote> {
   private final Response response;
   
   public Vote(String xid, Response response) {
+    this(Xid.of(xid), 0, response);
+  }
+  
+  public Vote(Xid xid, Response response) {
     this(xid, 0, response);
   }
 
   public Vote(String xid, long timestamp, Response response) {
+    this(Xid.of(xid), timestamp, response);
+  }
+  
+  public Vote(Xid xid, long timestamp, Response response) {
     super(xid, timestamp);
     this.response = response;
   }
@@ -53,6 +61,6 @@ public final class Vote extends FluentMessage<Vote> {
   
   @Override
   public Vote shallowCopy() {
-    return copyMutableFields(this, new Vote(getXid(), getTimestamp(), response));
+    return copyMutableFields(this, new Vote(getXidValue(), getTimestamp(), response));
   }
 }
@@ -0,0 +1,228 @@
+package com.obsidiandynamics.blackstrom.model;
+
+import java.util.*;
+
+/**
+ *  A transaction ID, with a precomputed hash code. An xid takes one of two forms:<p>
+ *  
+ *  <ul>
+ *  <li>The binary form: a compact, 128-bit ID held as a pair of {@code long}s, generated cheaply
+ *  by an {@link XidGenerator}. Its string form is that of a {@link UUID}: 32 lowercase hex 
+ *  digits, grouped 8-4-4-4-12 and separated by hyphens. The binary codecs write it in 16 bytes.</li>
+ *  <li>The string form, for compatibility with applications that use arbitrary strings as xids.
+ *  Such xids are written as strings.</li>
+ *  </ul>
+ *  
+ *  {@link #of(String)} maps a string in the canonical form onto a binary xid, retaining the 
+ *  original string, so that an xid is equal to another if and only if their strings are equal.
+ *  Messages carry their xids as {@link Xid}s, which the monitor and initiators use as map keys.
+ */
+public final class Xid implements Comparable<Xid> {
+  /** The length of the canonical string form. */
+  public static final int STRING_LENGTH = 36;
+  
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+  
+  public static final class MalformedXidException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+    MalformedXidException(String m) { super(m); }
+  }
+  
+  private final long high;
+  
+  private final long low;
+  
+  private final boolean binary;
+  
+  private final int hash;
+  
+  /** The string form; formatted on demand (and cached) for binary xids. */
+  private String string;
+  
+  public Xid(long high, long low) {
+    this.high = high;
+    this.low = low;
+    binary = true;
+    hash = Long.hashCode(high) * 31 + Long.hashCode(low);
+  }
+  
+  private Xid(String string) {
+    high = 0;
+    low = 0;
+    binary = false;
+    this.string = string;
+    hash = string.hashCode();
+  }
+  
+  public static Xid generate() {
+    return XidGenerator.getDefault().next();
+  }
+  
+  /**
+   *  Obtains an xid for the given string, in the binary form if the string is in the canonical 
+   *  form, or in the string form otherwise.
+   *  
+   *  @param str The string (may be {@code null}).
+   *  @return The xid, or {@code null} if the string is {@code null}.
+   */
+  public static Xid of(String str) {
+    if (str == null) return null;
+    
+    final Xid binary = tryParse(str);
+    if (binary != null) {
+      binary.string = str;
+      return binary;
+    } else {
+      return new Xid(str);
+    }
+  }
+  
+  /**
+   *  Determines whether this xid is in the compact binary form, which is the case for all 
+   *  generated xids and for those obtained from a string in the canonical form.
+   *  
+   *  @return True if the xid is binary.
+   */
+  public boolean isBinary() {
+    return binary;
+  }
+  
+  public long getHigh() {
+    ensureBinary();
+    return high;
+  }
+  
+  public long getLow() {
+    ensureBinary();
+    return low;
+  }
+  
+  private void ensureBinary() {
+    if (! binary) throw new IllegalStateException("Not a binary xid: " + string);
+  }
+  
+  /**
+   *  Parses an xid from its canonical string form.
+   *  
+   *  @param str The string to parse.
+   *  @return The xid.
+   *  @throws MalformedXidException If the string isn't in canonical form.
+   */
+  public static Xid parse(String str) {
+    final Xid xid = tryParse(str);
+    if (xid == null) throw new MalformedXidException("Not a canonical xid: " + str);
+    return xid;
+  }
+  
+  /**
+   *  Attempts to parse an xid from its canonical string form, which requires lowercase hex digits
+   *  so that {@link #toString()} reproduces the original string exactly.
+   *  
+   *  @param str The string to parse (may be {@code null}).
+   *  @return The xid, or {@code null} if the string isn't in canonical form.
+   */
+  public static Xid tryParse(String str) {
+    if (str == null || str.length() != STRING_LENGTH ||
+        str.charAt(8) != '-' || str.charAt(13) != '-' || str.charAt(18) != '-' || str.charAt(23) != '-') {
+      return null;
+    }
+    
+    long high = 0;
+    for (int i = 0; i < 18; i++) {
+      if (i == 8 || i == 13) continue;
+      final int digit = digit(str.charAt(i));
+      if (digit == -1) return null;
+      high = high << 4 | digit;
+    }
+    
+    long low = 0;
+    for (int i = 19; i < STRING_LENGTH; i++) {
+      if (i == 23) continue;
+      final int digit = digit(str.charAt(i));
+      if (digit == -1) return null;
+      low = low << 4 | digit;
+    }
+    return new Xid(high, low);
+  }
+  
+  private static int digit(char ch) {
+    if (ch >= '0' && ch <= '9') {
+      return ch - '0';
+    } else if (ch >= 'a' && ch <= 'f') {
+      return ch - 'a' + 10;
+    } else {
+      return -1;
+    }
+  }
+  
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+  
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    } else if (obj instanceof Xid) {
+      final Xid that = (Xid) obj;
+      if (binary) {
+        return that.binary && high == that.high && low == that.low;
+      } else {
+        return ! that.binary && hash == that.hash && string.equals(that.string);
+      }
+    } else {
+      return false;
+    }
+  }
+  
+  /**
+   *  Orders binary xids by their unsigned value, ahead of xids in the string form, which are 
+   *  ordered lexicographically.
+   */
+  @Override
+  public int compareTo(Xid o) {
+    if (binary != o.binary) {
+      return binary ? -1 : 1;
+    } else if (! binary) {
+      return string.compareTo(o.string);
+    }
+    
+    final int highComparison = Long.compareUnsigned(high, o.high);
+    return highComparison != 0 ? highComparison : Long.compareUnsigned(low, o.low);
+  }
+  
+  /**
+   *  Obtains the string form of the xid; for a binary xid, this is the canonical form, which is
+   *  formatted on first use.
+   *  
+   *  @return The xid's string.
+   */
+  @Override
+  public String toString() {
+    final String string = this.string;
+    if (string != null) return string;
+    return this.string = format(high, low);
+  }
+  
+  private static String format(long high, long low) {
+    final char[] chars = new char[STRING_LENGTH];
+    formatHex(high >>> 32, chars, 0, 8);
+    chars[8] = '-';
+    formatHex(high >>> 16, chars, 9, 4);
+    chars[13] = '-';
+    formatHex(high, chars, 14, 4);
+    chars[18] = '-';
+    formatHex(low >>> 48, chars, 19, 4);
+    chars[23] = '-';
+    formatHex(low, chars, 24, 12);
+    return new String(chars);
+  }
+  
+  private static void formatHex(long value, char[] chars, int offset, int digits) {
+    for (int i = offset + digits - 1; i >= offset; i--) {
+      chars[i] = HEX_DIGITS[(int) value & 0xF];
+      value >>>= 4;
+    }
+  }
+}
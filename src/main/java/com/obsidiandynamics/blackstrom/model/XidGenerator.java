@@ -0,0 +1,69 @@
+package com.obsidiandynamics.blackstrom.model;
+
+import java.security.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ *  Generates unique {@link Xid}s from a millisecond timestamp, a sequence number and a node ID,
+ *  without locking, and without allocating beyond the {@link Xid} itself.<p>
+ *  
+ *  The high 64 bits hold the timestamp shifted left by {@link #SEQUENCE_BITS}, plus a sequence
+ *  number that orders the xids generated within the same millisecond. The high bits never go
+ *  backwards, even if the clock does, or if the sequence overflows within a millisecond (in
+ *  which case generation borrows from the next millisecond). The low 64 bits hold the node ID,
+ *  which must be unique among the generators in a manifold; by default, it is chosen at random.
+ */
+public final class XidGenerator {
+  public static final int SEQUENCE_BITS = 16;
+  
+  private static final XidGenerator defaultGenerator = new XidGenerator(new SecureRandom().nextLong());
+  
+  private final long node;
+  
+  private final AtomicLong last = new AtomicLong();
+  
+  public XidGenerator(long node) {
+    this.node = node;
+  }
+  
+  /**
+   *  Obtains the default generator, shared by all users in the JVM, with a randomly chosen
+   *  node ID.
+   *  
+   *  @return The default generator.
+   */
+  public static XidGenerator getDefault() {
+    return defaultGenerator;
+  }
+  
+  public long getNode() {
+    return node;
+  }
+  
+  public Xid next() {
+    final long now = System.currentTimeMillis() << SEQUENCE_BITS;
+    for (;;) {
+      final long last = this.last.get();
+      final long next = Math.max(last + 1, now);
+      if (this.last.compareAndSet(last, next)) {
+        return new Xid(next, node);
+      }
+    }
+  }
+  
+  /**
+   *  A convenience for generating the canonical string form of the next xid, for applications
+   *  that handle xids as strings. A message constructed with such a string carries it as a
+   *  binary {@link Xid}.
+   *  
+   *  @return The next xid, as a string.
+   */
+  public String nextString() {
+    return next().toString();
+  }
+  
+  @Override
+  public String toString() {
+    return XidGenerator.class.getSimpleName() + " [node=" + node + "]";
+  }
+}
@@ -5,6 +5,7 @@ import java.util.*;
 import com.obsidiandynamics.blackstrom.*;
 import com.obsidiandynamics.blackstrom.handler.*;
 import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.flow.*;
 import com.obsidiandynamics.nanoclock.*;
 import com.obsidiandynamics.nodequeue.*;
 import com.obsidiandynamics.worker.*;
@@ -14,7 +15,7 @@ import com.obsidiandynamics.zerolog.*;
 public final class MonitorEngine implements Disposable {
   private static final Zlg zlg = Zlg.forDeclaringClass().get();
   
-  private final Map<Object, PendingBallot> pending = new HashMap<>();
+  private final Map<Xid, PendingBallot> pending = new HashMap<>();
   
   private final Object trackerLock = new Object();
   private final List<Outcome> decided = new LinkedList<>();
@@ -43,6 +44,13 @@ public final class MonitorEngine implements Disposable {
   
   private final boolean metadataEnabled;
   
+  private final boolean compactOutcomesEnabled;
+  
+  private final int ballotPoolSize;
+  
+  /** Decided ballots awaiting reuse; guarded by {@link #messageLock}. */
+  private final ArrayDeque<PendingBallot> ballotPool = new ArrayDeque<>();
+  
   private final MonitorAction action;
   
   public MonitorEngine(MonitorAction action, String groupId, MonitorEngineConfig config) {
@@ -52,6 +60,8 @@ public final class MonitorEngine implements Disposable {
     outcomeLifetimeMillis = config.getOutcomeLifetime();
     timeoutIntervalMillis = config.getTimeoutInterval();
     metadataEnabled = config.isMetadataEnabled();
+    compactOutcomesEnabled = config.isCompactOutcomesEnabled();
+    ballotPoolSize = config.getBallotPoolSize();
     this.action = action;
     
     if (trackingEnabled) {
@@ -122,12 +132,14 @@ public final class MonitorEngine implements Disposable {
       final Proposal proposal = pending.getProposal();
       if (proposal.getTimestamp() + proposal.getTtl() * 1_000_000L < NanoClock.now()) {
         for (String cohort : proposal.getCohorts()) {
-          final boolean cohortResponded;
+          final boolean timeoutDue;
           synchronized (messageLock) {
-            cohortResponded = pending.hasResponded(cohort);
+            // a pooled ballot may have been decided and reused for another proposal in the meantime
+            timeoutDue = pending.getProposal() == proposal && 
+                ! pending.hasResponded(cohort) && pending.tryEnqueueExplicitTimeout(cohort);
           }
           
-          if (! cohortResponded && pending.tryEnqueueExplicitTimeout(cohort)) {
+          if (timeoutDue) {
             timeoutCohort(proposal, cohort);
           }
         }
@@ -137,7 +149,7 @@ public final class MonitorEngine implements Disposable {
   
   private void timeoutCohort(Proposal proposal, String cohort) {
     zlg.d("Timed out %s for cohort %s", z -> z.arg(proposal).arg(cohort));
-    append(new Vote(proposal.getXid(), new Response(cohort, Intent.TIMEOUT, null))
+    append(new Vote(proposal.getXidValue(), new Response(cohort, Intent.TIMEOUT, null))
            .inResponseTo(proposal).withSource(groupId));
   }
   
@@ -165,11 +177,12 @@ public final class MonitorEngine implements Disposable {
   
   public void onProposal(MessageContext context, Proposal proposal) {
     synchronized (messageLock) {
-      final PendingBallot newBallot = new PendingBallot(proposal);
-      final PendingBallot existingBallot = pending.put(proposal.getXid(), newBallot);
+      final PendingBallot newBallot = acquireBallot(proposal);
+      final PendingBallot existingBallot = pending.put(proposal.getXidValue(), newBallot);
       if (existingBallot != null) {
         zlg.t("Skipping redundant %s (ballot already pending)", z -> z.arg(proposal));
-        pending.put(proposal.getXid(), existingBallot);
+        pending.put(proposal.getXidValue(), existingBallot);
+        releaseBallot(newBallot);
         return;
       } else {
         newBallot.setConfirmation(context.begin(proposal));
@@ -181,7 +194,7 @@ public final class MonitorEngine implements Disposable {
 
   public void onVote(MessageContext context, Vote vote) {
     synchronized (messageLock) {
-      final PendingBallot ballot = pending.get(vote.getXid());
+      final PendingBallot ballot = pending.get(vote.getXidValue());
       if (ballot != null) {
         zlg.t("Received %s", z -> z.arg(vote));
         final boolean decided = ballot.castVote(zlg, vote);
@@ -197,22 +210,48 @@ public final class MonitorEngine implements Disposable {
   private void decideBallot(PendingBallot ballot) {
     zlg.t("Decided ballot for %s: resolution: %s", z -> z.arg(ballot::getProposal).arg(ballot::getResolution));
     final Proposal proposal = ballot.getProposal();
-    final String xid = proposal.getXid();
+    final Xid xid = proposal.getXidValue();
     final Object metadata = metadataEnabled ? new OutcomeMetadata(proposal.getTimestamp()) : null;
-    final Outcome outcome = new Outcome(xid, ballot.getResolution(), ballot.getAbortReason(), ballot.getResponses(), metadata)
-        .inResponseTo(proposal).withSource(groupId);
+    final Outcome outcome = createOutcome(ballot, metadata).inResponseTo(proposal).withSource(groupId);
+    final Confirmation confirmation = ballot.getConfirmation();
     pending.remove(xid);
+    releaseBallot(ballot);
     if (trackingEnabled) {
       additions.add(outcome);
     }
     action.appendOutcome(outcome, (id, x) -> {
       if (x == null) {
-        ballot.getConfirmation().confirm();
+        confirmation.confirm();
       } else {
         zlg.w("Error appending to ledger [message: %s]", z -> z.arg(outcome).threw(x));
       }
     });
   }
+  
+  private PendingBallot acquireBallot(Proposal proposal) {
+    final PendingBallot pooled = ballotPool.pollFirst();
+    if (pooled != null) {
+      pooled.reset(proposal);
+      return pooled;
+    } else {
+      return new PendingBallot(proposal);
+    }
+  }
+  
+  private void releaseBallot(PendingBallot ballot) {
+    if (ballotPool.size() < ballotPoolSize) {
+      ballotPool.addFirst(ballot);
+    }
+  }
+  
+  private Outcome createOutcome(PendingBallot ballot, Object metadata) {
+    final Proposal proposal = ballot.getProposal();
+    if (compactOutcomesEnabled && ballot.isUnconditionalCommit()) {
+      return Outcome.compactCommit(proposal.getXidValue(), proposal.getCohorts(), metadata);
+    } else {
+      return new Outcome(proposal.getXidValue(), ballot.getResolution(), ballot.getAbortReason(), ballot.getResponses(), metadata);
+    }
+  }
     
   @Override
   public void dispose() {
@@ -19,6 +19,12 @@ public final class MonitorEngineConfig {
   @YInject
   private boolean metadataEnabled = false;
   
+  @YInject
+  private boolean compactOutcomesEnabled = false;
+  
+  @YInject
+  private int ballotPoolSize = 0;
+  
   boolean isTrackingEnabled() {
     return trackingEnabled;
   }
@@ -64,10 +70,43 @@ public final class MonitorEngineConfig {
     return this;
   }
 
+  boolean isCompactOutcomesEnabled() {
+    return compactOutcomesEnabled;
+  }
+  
+  /**
+   *  Enables the emission of compact outcomes for commits in which no cohort attached metadata
+   *  to its vote. (See {@link com.obsidiandynamics.blackstrom.model.Outcome#compactCommit}.)
+   *  
+   *  @param compactOutcomesEnabled Whether compact outcomes are enabled.
+   *  @return This config instance for chaining.
+   */
+  public MonitorEngineConfig withCompactOutcomesEnabled(boolean compactOutcomesEnabled) {
+    this.compactOutcomesEnabled = compactOutcomesEnabled;
+    return this;
+  }
+  
+  int getBallotPoolSize() {
+    return ballotPoolSize;
+  }
+  
+  /**
+   *  Sets the maximum number of decided ballots that are retained for reuse by subsequent 
+   *  proposals, reducing the allocation rate of the monitor. Pooling is disabled by default.
+   *  
+   *  @param ballotPoolSize The pool size, or 0 to disable pooling.
+   *  @return This config instance for chaining.
+   */
+  public MonitorEngineConfig withBallotPoolSize(int ballotPoolSize) {
+    this.ballotPoolSize = ballotPoolSize;
+    return this;
+  }
+  
   @Override
   public String toString() {
     return MonitorEngineConfig.class.getSimpleName() + " [gcIntervalMillis=" + gcIntervalMillis
            + ", outcomeLifetimeMillis=" + outcomeLifetimeMillis + ", timeoutIntervalMillis=" + timeoutIntervalMillis
-           + ", trackingEnabled=" + trackingEnabled + ", metadataEnabled=" + metadataEnabled + "]";
+           + ", trackingEnabled=" + trackingEnabled + ", metadataEnabled=" + metadataEnabled
+           + ", compactOutcomesEnabled=" + compactOutcomesEnabled + ", ballotPoolSize=" + ballotPoolSize + "]";
   }
 }
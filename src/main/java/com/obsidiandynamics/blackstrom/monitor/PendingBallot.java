@@ -7,7 +7,7 @@ import com.obsidiandynamics.flow.*;
 import com.obsidiandynamics.zerolog.*;
 
 final class PendingBallot {
-  private final Proposal proposal;
+  private Proposal proposal;
   
   private final Map<String, Response> responses;
   
@@ -24,6 +24,23 @@ final class PendingBallot {
     responses = new HashMap<>(proposal.getCohorts().length);
   }
   
+  /**
+   *  Reinitialises a decided ballot for a new proposal, retaining its internal collections
+   *  (and their capacities) for reuse.
+   *  
+   *  @param proposal The new proposal.
+   */
+  void reset(Proposal proposal) {
+    this.proposal = proposal;
+    responses.clear();
+    resolution = Resolution.COMMIT;
+    abortReason = null;
+    confirmation = null;
+    if (explicitTimeoutsSent != null) {
+      explicitTimeoutsSent.clear();
+    }
+  }
+  
   Proposal getProposal() {
     return proposal;
   }
@@ -36,10 +53,47 @@ final class PendingBallot {
     return abortReason;
   }
   
+  /**
+   *  Obtains the responses in the order in which their cohorts first appear in the proposal,
+   *  omitting cohorts that haven't responded.<p>
+   *  
+   *  Only votes from cohorts listed in the proposal are included; a vote cast by any other 
+   *  cohort is dropped from the result. A cohort that is listed more than once contributes its 
+   *  response once.
+   *  
+   *  @return The ordered responses.
+   */
   Response[] getResponses() {
-    final Collection<Response> responses = this.responses.values();
-    final Response[] array = responses.toArray(new Response[responses.size()]);
-    return array;
+    final String[] cohorts = proposal.getCohorts();
+    final Response[] array = new Response[responses.size()];
+    // a repeated cohort is only possible when the proposal lists more cohorts than have responded
+    final Set<String> added = cohorts.length > array.length ? new HashSet<>(array.length) : null;
+    int i = 0;
+    for (String cohort : cohorts) {
+      if (i == array.length) break;
+      final Response response = responses.get(cohort);
+      if (response != null && (added == null || added.add(cohort))) {
+        array[i++] = response;
+      }
+    }
+    return i == array.length ? array : Arrays.copyOf(array, i);
+  }
+  
+  /**
+   *  Determines whether the ballot has committed with every cohort accepting without 
+   *  metadata, meaning that the outcome can be emitted in its compact form.
+   *  
+   *  @return True if the ballot is an unconditional commit.
+   */
+  boolean isUnconditionalCommit() {
+    if (resolution != Resolution.COMMIT || ! allResponsesPresent()) return false;
+    
+    for (Response response : responses.values()) {
+      if (response.getIntent() != Intent.ACCEPT || response.getRawMetadata() != null) {
+        return false;
+      }
+    }
+    return true;
   }
   
   Confirmation getConfirmation() {
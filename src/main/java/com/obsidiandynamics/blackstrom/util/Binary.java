@@ -52,6 +52,77 @@ public final class Binary {
     return bytes;
   }
   
+  /**
+   *  Obtains the remaining contents of a {@link ByteBuffer} as a byte array, returning the
+   *  backing array directly if the remaining bytes span it exactly, and copying otherwise.<p>
+   *  
+   *  The buffer's position is left unchanged.
+   *  
+   *  @param buf The buffer to convert.
+   *  @return The resulting byte array, which may be shared with the buffer.
+   */
+  public static byte[] toExactByteArray(ByteBuffer buf) {
+    if (buf.hasArray() && buf.arrayOffset() == 0 && buf.position() == 0 &&
+        buf.remaining() == buf.array().length) {
+      return buf.array();
+    } else {
+      return toByteArray(buf);
+    }
+  }
+  
+  /**
+   *  Determines the number of bytes needed to encode the given non-negative {@code int} as an
+   *  unsigned variable-length integer, using 7 bits per byte.
+   *  
+   *  @param value The value to encode.
+   *  @return The encoded length, between 1 and 5 bytes.
+   */
+  public static int varIntLength(int value) {
+    int length = 1;
+    while ((value >>>= 7) != 0) length++;
+    return length;
+  }
+  
+  /**
+   *  Writes an unsigned variable-length integer, least significant group first, with the high
+   *  bit of each byte indicating whether more bytes follow.
+   *  
+   *  @param buf The buffer to write to.
+   *  @param value The value to write.
+   */
+  public static void writeVarInt(ByteBuffer buf, int value) {
+    while ((value & ~0x7F) != 0) {
+      buf.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buf.put((byte) value);
+  }
+  
+  public static final class MalformedVarIntException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+    MalformedVarIntException(String m) { super(m); }
+  }
+  
+  /**
+   *  Reads an unsigned variable-length integer written by {@link #writeVarInt}. An encoding that
+   *  spans more than 5 bytes, or whose 5th byte carries bits beyond the 32nd, is rejected.
+   *  
+   *  @param buf The buffer to read from.
+   *  @return The value.
+   */
+  public static int readVarInt(ByteBuffer buf) {
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      final byte b = buf.get();
+      if (shift == 28 && (b & 0x70) != 0) {
+        throw new MalformedVarIntException("Variable-length integer exceeds 32 bits");
+      }
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) return value;
+    }
+    throw new MalformedVarIntException("Variable-length integer exceeds 5 bytes");
+  }
+  
   /**
    *  A variant of {@link #dump} that works on a {@link ByteBuffer}.
    *  
@@ -0,0 +1,37 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import static org.junit.Assert.*;
+
+import java.nio.*;
+
+import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.blackstrom.util.*;
+
+/**
+ *  Verifies a codec's {@link MessageCodec#encodeBuffer} and {@link MessageCodec#decodeBuffer}
+ *  overrides against its byte array methods, decoding from both a heap buffer slice and a direct
+ *  buffer.
+ */
+public final class BufferRoundTrip {
+  private BufferRoundTrip() {}
+  
+  public static void verify(MessageCodec codec, Message message) throws Exception {
+    final byte[] encoded = codec.encode(message);
+    
+    final ByteBuffer buffer = codec.encodeBuffer(message);
+    assertArrayEquals(encoded, Binary.toByteArray(buffer));
+    
+    // decode from a heap buffer slice that doesn't start at the beginning of its backing array
+    final byte[] padded = new byte[encoded.length + 3];
+    System.arraycopy(encoded, 0, padded, 2, encoded.length);
+    final ByteBuffer heap = ByteBuffer.wrap(padded, 2, encoded.length);
+    assertEquals(message, codec.decodeBuffer(heap));
+    assertEquals(2, heap.position());
+    
+    // decode from a direct buffer
+    final ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length);
+    direct.put(encoded).flip();
+    assertEquals(message, codec.decodeBuffer(direct));
+    assertEquals(0, direct.position());
+  }
+}
@@ -0,0 +1,155 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import static org.junit.Assert.*;
+
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.assertion.*;
+import com.obsidiandynamics.blackstrom.codec.CompressingMessageCodec.*;
+import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.blackstrom.util.*;
+
+public final class CompressingMessageCodecTest {
+  /**
+   *  Encodes a {@link Notice} as its XID and (string) event, separated by a newline.
+   */
+  private static final class NoticeTextCodec implements MessageCodec {
+    @Override
+    public byte[] encode(Message message) {
+      final Notice notice = (Notice) message;
+      return (notice.getXid() + "\n" + notice.getEvent()).getBytes(StandardCharsets.UTF_8);
+    }
+    
+    @Override
+    public Message decode(byte[] bytes) {
+      final String[] parts = new String(bytes, StandardCharsets.UTF_8).split("\n", 2);
+      return new Notice(parts[0], 1, parts[1]);
+    }
+  }
+  
+  private static String repeat(String str, int times) {
+    final StringBuilder sb = new StringBuilder(str.length() * times);
+    for (int i = 0; i < times; i++) sb.append(str);
+    return sb.toString();
+  }
+  
+  private static Notice notice(String event) {
+    return new Notice("X0", 1, event);
+  }
+  
+  @Test
+  public void testBelowThreshold() throws Exception {
+    final CompressingMessageCodec c = new CompressingMessageCodec(new NoticeTextCodec(), 100);
+    final Notice n = notice(repeat("a", 50));
+    final byte[] encoded = c.encode(n);
+    assertEquals(CompressingMessageCodec.FLAG_NONE, encoded[0]);
+    assertEquals(new NoticeTextCodec().encode(n).length + 1, encoded.length);
+    assertEquals(n, c.decode(encoded));
+  }
+  
+  @Test
+  public void testAboveThreshold() throws Exception {
+    final CompressingMessageCodec c = new CompressingMessageCodec(new NoticeTextCodec(), 100);
+    final Notice n = notice(repeat("abcd", 1000));
+    final byte[] encoded = c.encode(n);
+    assertEquals(CompressingMessageCodec.FLAG_DEFLATE, encoded[0]);
+    assertTrue("encoded.length=" + encoded.length, encoded.length < 100);
+    assertEquals(n, c.decode(encoded));
+    assertEquals(n, c.decodeText(c.encodeText(n)));
+    
+    // decoding from a heap buffer that doesn't start at the beginning of its backing array
+    final byte[] padded = new byte[encoded.length + 2];
+    System.arraycopy(encoded, 0, padded, 1, encoded.length);
+    assertEquals(n, c.decodeBuffer(ByteBuffer.wrap(padded, 1, encoded.length)));
+    
+    // and from a direct buffer
+    final ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length);
+    direct.put(encoded).flip();
+    assertEquals(n, c.decodeBuffer(direct));
+    assertEquals(0, direct.position());
+    
+    // the decoder accepts compressed messages irrespective of its own threshold
+    assertEquals(n, new CompressingMessageCodec(new NoticeTextCodec(), Integer.MAX_VALUE).decode(encoded));
+  }
+  
+  @Test
+  public void testIncompressible() throws Exception {
+    final CompressingMessageCodec c = new CompressingMessageCodec(new NoticeTextCodec(), 0);
+    final Notice n = notice(Binary.randomHexString(10));
+    final byte[] encoded = c.encode(n);
+    assertEquals(CompressingMessageCodec.FLAG_NONE, encoded[0]);
+    assertEquals(n, c.decode(encoded));
+  }
+  
+  @Test
+  public void testDefaultThreshold() {
+    final CompressingMessageCodec c = new CompressingMessageCodec(new NoticeTextCodec());
+    assertEquals(CompressingMessageCodec.DEF_THRESHOLD, c.getThreshold());
+    assertNotNull(c.getDelegate());
+    Assertions.assertToStringOverride(c);
+  }
+  
+  @Test(expected=IllegalArgumentException.class)
+  public void testNegativeThreshold() {
+    new CompressingMessageCodec(new NoticeTextCodec(), -1);
+  }
+  
+  @Test(expected=MalformedMessageException.class)
+  public void testEmpty() throws Exception {
+    new CompressingMessageCodec(new NoticeTextCodec()).decode(new byte[0]);
+  }
+  
+  @Test(expected=MalformedMessageException.class)
+  public void testUnsupportedFlag() throws Exception {
+    new CompressingMessageCodec(new NoticeTextCodec()).decode(new byte[] {(byte) 0xFF});
+  }
+  
+  @Test(expected=MalformedMessageException.class)
+  public void testCorrupt() throws Exception {
+    final CompressingMessageCodec c = new CompressingMessageCodec(new NoticeTextCodec(), 0);
+    final byte[] encoded = c.encode(notice(repeat("abcd", 100)));
+    Arrays.fill(encoded, 3, encoded.length, (byte) 0xFF);
+    c.decode(encoded);
+  }
+  
+  @Test(expected=MalformedMessageException.class)
+  public void testTruncated() throws Exception {
+    final CompressingMessageCodec c = new CompressingMessageCodec(new NoticeTextCodec(), 0);
+    final byte[] encoded = c.encode(notice(repeat("abcd", 100)));
+    c.decode(Arrays.copyOf(encoded, encoded.length - 4));
+  }
+  
+  @Test(expected=MalformedMessageException.class)
+  public void testImplausibleLength() throws Exception {
+    final ByteBuffer buf = ByteBuffer.allocate(16);
+    buf.put(CompressingMessageCodec.FLAG_DEFLATE);
+    Binary.writeVarInt(buf, Integer.MAX_VALUE);
+    buf.put(new byte[] {1, 2, 3, 4});
+    new CompressingMessageCodec(new NoticeTextCodec()).decode(Binary.toByteArray((ByteBuffer) buf.flip()));
+  }
+  
+  @Test(expected=MalformedMessageException.class)
+  public void testNegativeLength() throws Exception {
+    final ByteBuffer buf = ByteBuffer.allocate(16);
+    buf.put(CompressingMessageCodec.FLAG_DEFLATE);
+    Binary.writeVarInt(buf, -1);
+    buf.put(new byte[] {1, 2, 3, 4});
+    new CompressingMessageCodec(new NoticeTextCodec()).decode(Binary.toByteArray((ByteBuffer) buf.flip()));
+  }
+  
+  /**
+   *  A highly compressible message approaches the maximum ratio, but must remain within it.
+   */
+  @Test
+  public void testMaximumRatio() throws Exception {
+    final CompressingMessageCodec c = new CompressingMessageCodec(new NoticeTextCodec(), 0);
+    final Notice n = notice(repeat("a", 1_000_000));
+    final byte[] encoded = c.encode(n);
+    assertEquals(CompressingMessageCodec.FLAG_DEFLATE, encoded[0]);
+    assertEquals(n, c.decode(encoded));
+  }
+}
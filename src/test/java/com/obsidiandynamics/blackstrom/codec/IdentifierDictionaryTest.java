@@ -0,0 +1,77 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.assertion.*;
+import com.obsidiandynamics.blackstrom.codec.IdentifierDictionary.*;
+
+public final class IdentifierDictionaryTest {
+  @Test
+  public void testResolve() {
+    final Identifiers identifiers = new IdentifierDictionary()
+        .withIdentifier("alpha", 0)
+        .withIdentifier("bravo", 7)
+        .resolve();
+    assertFalse(identifiers.isEmpty());
+    assertEquals(0, identifiers.getId("alpha"));
+    assertEquals(7, identifiers.getId("bravo"));
+    assertEquals(-1, identifiers.getId("charlie"));
+    assertEquals(-1, identifiers.getId(null));
+    assertEquals("alpha", identifiers.getIdentifier(0));
+    assertEquals("bravo", identifiers.getIdentifier(7));
+    assertNull(identifiers.getIdentifier(1));
+    assertNull(identifiers.getIdentifier(8));
+    assertNull(identifiers.getIdentifier(-1));
+    assertEquals(2, identifiers.getIds().size());
+    Assertions.assertToStringOverride(identifiers);
+  }
+  
+  @Test
+  public void testInterned() {
+    final String identifier = new String("alpha");
+    final Identifiers identifiers = new IdentifierDictionary().withIdentifier(identifier, 0).resolve();
+    assertSame("alpha", identifiers.getIdentifier(0));
+  }
+  
+  @Test
+  public void testWithIdentifiers() {
+    final Identifiers identifiers = new IdentifierDictionary()
+        .withIdentifier("alpha", 4)
+        .withIdentifiers("bravo", "charlie")
+        .resolve();
+    assertEquals(4, identifiers.getId("alpha"));
+    assertEquals(5, identifiers.getId("bravo"));
+    assertEquals(6, identifiers.getId("charlie"));
+    
+    assertEquals(0, new IdentifierDictionary().withIdentifiers("alpha").resolve().getId("alpha"));
+  }
+  
+  @Test
+  public void testEmpty() {
+    final Identifiers identifiers = new IdentifierDictionary().resolve();
+    assertTrue(identifiers.isEmpty());
+    assertNull(identifiers.getIdentifier(0));
+  }
+  
+  @Test(expected=DuplicateIdentifierException.class)
+  public void testDuplicateId() {
+    new IdentifierDictionary().withIdentifier("alpha", 1).withIdentifier("bravo", 1).resolve();
+  }
+  
+  @Test(expected=IllegalArgumentException.class)
+  public void testNegativeId() {
+    new IdentifierDictionary().withIdentifier("alpha", -1).resolve();
+  }
+  
+  @Test(expected=IllegalArgumentException.class)
+  public void testIdTooLarge() {
+    new IdentifierDictionary().withIdentifier("alpha", IdentifierDictionary.MAX_ID + 1).resolve();
+  }
+  
+  @Test
+  public void testToString() {
+    Assertions.assertToStringOverride(new IdentifierDictionary().withIdentifier("alpha", 0));
+  }
+}
@@ -0,0 +1,55 @@
+package com.obsidiandynamics.blackstrom.codec;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.assertion.*;
+import com.obsidiandynamics.blackstrom.codec.PayloadTypeRegistry.*;
+
+public final class PayloadTypeRegistryTest {
+  @Test
+  public void testResolve() {
+    final Types types = new PayloadTypeRegistry()
+        .withType(String.class, 0)
+        .withType(Integer.class, 7)
+        .resolve();
+    assertFalse(types.isEmpty());
+    assertEquals(Integer.valueOf(0), types.getId(String.class));
+    assertEquals(Integer.valueOf(7), types.getId(Integer.class));
+    assertNull(types.getId(Long.class));
+    assertEquals(String.class, types.getType(0));
+    assertEquals(Integer.class, types.getType(7));
+    assertNull(types.getType(1));
+    assertEquals(2, types.getIds().size());
+    Assertions.assertToStringOverride(types);
+  }
+  
+  @Test
+  public void testEmpty() {
+    assertTrue(PayloadTypeRegistry.empty().isEmpty());
+    assertTrue(new PayloadTypeRegistry().resolve().isEmpty());
+  }
+  
+  @Test(expected=DuplicateTypeException.class)
+  public void testDuplicateId() {
+    new PayloadTypeRegistry().withType(String.class, 1).withType(Integer.class, 1).resolve();
+  }
+  
+  @Test(expected=IllegalArgumentException.class)
+  public void testNegativeId() {
+    new PayloadTypeRegistry().withType(String.class, -1).resolve();
+  }
+  
+  @Test(expected=InvalidTypeException.class)
+  public void testUnknownClass() {
+    final PayloadTypeRegistry registry = new PayloadTypeRegistry();
+    registry.getTypes().put("com.acme.NoSuchClass", 1);
+    registry.resolve();
+  }
+  
+  @Test
+  public void testToString() {
+    Assertions.assertToStringOverride(new PayloadTypeRegistry().withType(String.class, 0));
+  }
+}
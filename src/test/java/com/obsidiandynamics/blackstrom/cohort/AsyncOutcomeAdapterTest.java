@@ -0,0 +1,59 @@
+package com.obsidiandynamics.blackstrom.cohort;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.blackstrom.handler.*;
+import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.flow.*;
+
+public final class AsyncOutcomeAdapterTest {
+  private final Confirmation confirmation = mock(Confirmation.class);
+  
+  private final MessageContext context = mock(MessageContext.class);
+  
+  private final Outcome outcome = new Outcome("X0", Resolution.COMMIT, null, new Response[0], null);
+  
+  @Before
+  public void before() {
+    when(context.begin(any())).thenReturn(confirmation);
+  }
+  
+  @Test
+  public void testConfirmOnCompletion() {
+    final CompletableFuture<Void> application = new CompletableFuture<>();
+    new AsyncOutcomeAdapter(__ -> application).onOutcome(context, outcome);
+    verify(context).begin(eq(outcome));
+    verify(confirmation, never()).confirm();
+    
+    application.complete(null);
+    verify(confirmation).confirm();
+  }
+  
+  @Test
+  public void testNoConfirmOnExceptionalCompletion() {
+    final CompletableFuture<Void> application = new CompletableFuture<>();
+    new AsyncOutcomeAdapter(__ -> application).onOutcome(context, outcome);
+    application.completeExceptionally(new Exception("simulated"));
+    verify(confirmation, never()).confirm();
+  }
+  
+  @Test
+  public void testNoConfirmOnThrow() {
+    new AsyncOutcomeAdapter(__ -> {
+      throw new RuntimeException("simulated");
+    }).onOutcome(context, outcome);
+    verify(context).begin(eq(outcome));
+    verify(confirmation, never()).confirm();
+  }
+  
+  @Test
+  public void testConfirmOnNullStage() {
+    new AsyncOutcomeAdapter(__ -> null).onOutcome(context, outcome);
+    verify(confirmation).confirm();
+  }
+}
@@ -0,0 +1,112 @@
+package com.obsidiandynamics.blackstrom.cohort;
+
+import static junit.framework.TestCase.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.*;
+
+import org.junit.*;
+import org.mockito.*;
+
+import com.obsidiandynamics.blackstrom.handler.*;
+import com.obsidiandynamics.blackstrom.ledger.*;
+import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.flow.*;
+
+public final class AsyncProposalAdapterTest {
+  private final Ledger ledger = mock(Ledger.class);
+  
+  private final Confirmation confirmation = mock(Confirmation.class);
+  
+  private final MessageContext context = mock(MessageContext.class);
+  
+  private final Proposal proposal = new Proposal("X0", new String[] {"cohort"}, null, 1_000);
+  
+  @Before
+  public void before() {
+    when(context.getLedger()).thenReturn(ledger);
+    when(context.begin(any())).thenReturn(confirmation);
+  }
+  
+  private Vote captureVote() {
+    final ArgumentCaptor<Vote> captor = ArgumentCaptor.forClass(Vote.class);
+    verify(ledger).append(captor.capture(), any());
+    return captor.getValue();
+  }
+  
+  private AppendCallback captureCallback() {
+    final ArgumentCaptor<AppendCallback> captor = ArgumentCaptor.forClass(AppendCallback.class);
+    verify(ledger).append(any(), captor.capture());
+    return captor.getValue();
+  }
+  
+  @Test
+  public void testVoteOnCompletion() {
+    final CompletableFuture<Intent> decision = new CompletableFuture<>();
+    new AsyncProposalAdapter("cohort", __ -> decision).onProposal(context, proposal);
+    verify(context).begin(eq(proposal));
+    verifyNoMoreInteractions(ledger, confirmation);
+    
+    decision.complete(Intent.ACCEPT);
+    final Vote vote = captureVote();
+    assertEquals("X0", vote.getXid());
+    assertEquals("cohort", vote.getSource());
+    assertEquals("cohort", vote.getResponse().getCohort());
+    assertEquals(Intent.ACCEPT, vote.getResponse().getIntent());
+    verify(confirmation, never()).confirm();
+    
+    // the proposal is only confirmed once the append has completed
+    captureCallback().onAppend(vote.getMessageId(), null);
+    verify(confirmation).confirm();
+  }
+  
+  @Test
+  public void testAbstain() {
+    new AsyncProposalAdapter("cohort", __ -> CompletableFuture.completedFuture(null)).onProposal(context, proposal);
+    verify(ledger, never()).append(any(), any());
+    verify(confirmation).confirm();
+  }
+  
+  @Test
+  public void testNullStage() {
+    new AsyncProposalAdapter("cohort", __ -> null).onProposal(context, proposal);
+    verify(ledger, never()).append(any(), any());
+    verify(confirmation).confirm();
+  }
+  
+  @Test
+  public void testRejectOnExceptionalCompletion() {
+    final CompletableFuture<Intent> decision = new CompletableFuture<>();
+    new AsyncProposalAdapter("cohort", __ -> decision).onProposal(context, proposal);
+    decision.completeExceptionally(new Exception("simulated"));
+    assertEquals(Intent.REJECT, captureVote().getResponse().getIntent());
+    captureCallback().onAppend(null, null);
+    verify(confirmation).confirm();
+  }
+  
+  @Test
+  public void testRejectOnThrow() {
+    new AsyncProposalAdapter("cohort", __ -> {
+      throw new RuntimeException("simulated");
+    }).onProposal(context, proposal);
+    assertEquals(Intent.REJECT, captureVote().getResponse().getIntent());
+    captureCallback().onAppend(null, null);
+    verify(confirmation).confirm();
+  }
+  
+  @Test
+  public void testConfirmOnAppendError() {
+    new AsyncProposalAdapter("cohort", __ -> CompletableFuture.completedFuture(Intent.ACCEPT)).onProposal(context, proposal);
+    verify(confirmation, never()).confirm();
+    captureCallback().onAppend(null, new Exception("simulated"));
+    verify(confirmation).confirm();
+  }
+  
+  @Test
+  public void testConfirmOnAppendThrow() {
+    doThrow(new RuntimeException("simulated")).when(ledger).append(any(), any());
+    new AsyncProposalAdapter("cohort", __ -> CompletableFuture.completedFuture(Intent.ACCEPT)).onProposal(context, proposal);
+    verify(confirmation).confirm();
+  }
+}
@@ -4,12 +4,18 @@ import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import java.util.*;
+import java.util.concurrent.*;
+
 import org.junit.*;
+import org.mockito.*;
 
 import com.obsidiandynamics.blackstrom.*;
 import com.obsidiandynamics.blackstrom.factor.*;
 import com.obsidiandynamics.blackstrom.handler.*;
+import com.obsidiandynamics.blackstrom.ledger.*;
 import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.flow.*;
 
 public final class LambdaCohortTest {
   @Test
@@ -29,6 +35,19 @@ public final class LambdaCohortTest {
     assertEquals("test", l.getGroupId());
   }
   
+  @Test
+  public void testInterest() {
+    assertTrue(LambdaCohort.builder().build().getInterest().isAll());
+    
+    final Interest interest = Interest.of(MessageType.PROPOSAL, MessageType.OUTCOME);
+    final LambdaCohort l = LambdaCohort.builder()
+        .withInterest(interest)
+        .build();
+    assertSame(interest, l.getInterest());
+    assertEquals(EnumSet.of(MessageType.PROPOSAL, MessageType.OUTCOME, MessageType.$UNKNOWN), 
+                 new MessageHandlerAdapter(l).getInterest().getTypes());
+  }
+  
   @Test
   public void testDefaultHandlers() {
     final InitContext initContext = mock(InitContext.class);
@@ -112,4 +131,68 @@ public final class LambdaCohortTest {
     
     verifyNoMoreInteractions(initContext, messageContext, onInit, onDispose, onQuery, onCommand, onNotice, onProposal, onVote, onOutcome);
   }
+  
+  @Test
+  public void testAsyncHandlers() {
+    final Ledger ledger = mock(Ledger.class);
+    final Confirmation confirmation = mock(Confirmation.class);
+    final MessageContext messageContext = mock(MessageContext.class);
+    when(messageContext.getLedger()).thenReturn(ledger);
+    when(messageContext.begin(any())).thenReturn(confirmation);
+    final CompletableFuture<Intent> decision = new CompletableFuture<>();
+    final CompletableFuture<Void> application = new CompletableFuture<>();
+    final Proposal proposal = new Proposal("X0", new String[] {"test"}, null, 1_000);
+    final Outcome outcome = new Outcome("X0", Resolution.COMMIT, null, new Response[0], null);
+    
+    final LambdaCohort l = LambdaCohort.builder()
+        .withGroupId("test")
+        .onProposalAsync(__ -> decision)
+        .onOutcomeAsync(__ -> application)
+        .build();
+    
+    l.onProposal(messageContext, proposal);
+    l.onOutcome(messageContext, outcome);
+    verify(ledger, never()).append(any(), any());
+    verify(confirmation, never()).confirm();
+    
+    decision.complete(Intent.ACCEPT);
+    final ArgumentCaptor<AppendCallback> callback = ArgumentCaptor.forClass(AppendCallback.class);
+    verify(ledger).append(isA(Vote.class), callback.capture());
+    verify(confirmation, never()).confirm();
+    
+    callback.getValue().onAppend(null, null);
+    verify(confirmation).confirm();
+    
+    application.complete(null);
+    verify(confirmation, times(2)).confirm();
+  }
+  
+  @Test(expected=IllegalStateException.class)
+  public void testAsyncProposalWithoutGroupId() {
+    LambdaCohort.builder()
+        .onProposalAsync(__ -> CompletableFuture.completedFuture(Intent.ACCEPT))
+        .build();
+  }
+  
+  @Test
+  public void testSyncHandlersOverrideAsync() {
+    final ProposalProcessor onProposal = mock(ProposalProcessor.class);
+    final OutcomeProcessor onOutcome = mock(OutcomeProcessor.class);
+    final MessageContext messageContext = mock(MessageContext.class);
+    final Proposal proposal = new Proposal("X0", new String[0], null, 1_000);
+    final Outcome outcome = new Outcome("X0", Resolution.COMMIT, null, new Response[0], null);
+    
+    final LambdaCohort l = LambdaCohort.builder()
+        .onProposalAsync(__ -> CompletableFuture.completedFuture(Intent.ACCEPT))
+        .onProposal(onProposal)
+        .onOutcomeAsync(__ -> CompletableFuture.completedFuture(null))
+        .onOutcome(onOutcome)
+        .build();
+    
+    l.onProposal(messageContext, proposal);
+    verify(onProposal).onProposal(eq(messageContext), eq(proposal));
+    l.onOutcome(messageContext, outcome);
+    verify(onOutcome).onOutcome(eq(messageContext), eq(outcome));
+    verifyNoMoreInteractions(messageContext);
+  }
 }
@@ -4,6 +4,8 @@ import static junit.framework.TestCase.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import java.util.*;
+
 import org.junit.*;
 import org.mockito.*;
 
@@ -27,6 +29,10 @@ public final class MessageHandlerAdapterTest {
   
   interface NoticeFactor extends Factor, NoticeProcessor, Groupable.NullGroup {};
   
+  interface AllFactor extends Factor, QueryProcessor, QueryResponseProcessor, CommandProcessor, 
+  CommandResponseProcessor, NoticeProcessor, ProposalProcessor, VoteProcessor, OutcomeProcessor, 
+  Groupable.NullGroup {};
+  
   @Test
   public void testProposalAndGroup() {
     final ProposalFactor factor = mock(ProposalFactor.class, Answers.CALLS_REAL_METHODS);
@@ -36,6 +42,44 @@ public final class MessageHandlerAdapterTest {
     verify(factor).onProposal(isNotNull(), isA(Proposal.class));
     assertEquals("test-proposal-group", adapter.getGroupId());
   }
+  
+  @Test
+  public void testInterest() {
+    final ProposalFactor factor = mock(ProposalFactor.class, Answers.CALLS_REAL_METHODS);
+    assertEquals(EnumSet.of(MessageType.PROPOSAL, MessageType.$UNKNOWN), 
+                 new MessageHandlerAdapter(factor).getInterest().getTypes());
+    
+    when(factor.getInterest()).thenReturn(Interest.of(MessageType.OUTCOME));
+    assertEquals(EnumSet.of(MessageType.$UNKNOWN), new MessageHandlerAdapter(factor).getInterest().getTypes());
+  }
+  
+  /**
+   *  The interest is derived on first use, and a factor that doesn't specify one (such as a 
+   *  plain mock) is treated as interested in all messages.
+   */
+  @Test
+  public void testInterestLazyAndUnspecified() {
+    final ProposalFactor factor = mock(ProposalFactor.class);
+    final MessageHandlerAdapter adapter = new MessageHandlerAdapter(factor);
+    verify(factor, never()).getInterest();
+    
+    assertEquals(EnumSet.of(MessageType.PROPOSAL, MessageType.$UNKNOWN), adapter.getInterest().getTypes());
+    assertSame(adapter.getInterest(), adapter.getInterest());
+    verify(factor).getInterest();
+  }
+  
+  @Test
+  public void testAllCapableNotFiltered() {
+    final MessageHandlerAdapter adapter = new MessageHandlerAdapter(mock(AllFactor.class, Answers.CALLS_REAL_METHODS));
+    assertTrue(adapter.getInterest().isAll());
+    assertSame(adapter, FilteringMessageHandler.of(adapter));
+  }
+  
+  @Test(expected=UnsupportedOperationException.class)
+  public void testUnsupportedThroughFilter() {
+    final ProposalFactor factor = mock(ProposalFactor.class, Answers.CALLS_REAL_METHODS);
+    FilteringMessageHandler.of(new MessageHandlerAdapter(factor)).onMessage(null, new UnknownMessage("X0"));
+  }
 
   @Test
   public void testVoteAndNullGroup() {
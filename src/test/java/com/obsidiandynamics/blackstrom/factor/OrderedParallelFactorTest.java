@@ -0,0 +1,293 @@
+package com.obsidiandynamics.blackstrom.factor;
+
+import static junit.framework.TestCase.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.junit.*;
+import org.mockito.*;
+
+import com.obsidiandynamics.assertion.*;
+import com.obsidiandynamics.await.*;
+import com.obsidiandynamics.blackstrom.*;
+import com.obsidiandynamics.blackstrom.handler.*;
+import com.obsidiandynamics.blackstrom.ledger.*;
+import com.obsidiandynamics.blackstrom.model.*;
+import com.obsidiandynamics.blackstrom.retention.*;
+import com.obsidiandynamics.blackstrom.util.*;
+import com.obsidiandynamics.flow.*;
+import com.obsidiandynamics.threads.*;
+
+public final class OrderedParallelFactorTest {
+  interface ProposalFactor extends Factor, ProposalProcessor, Groupable.NullGroup, Initable.Nop, Disposable.Nop {};
+  
+  private final Timesert wait = Wait.SHORT;
+  
+  private final List<Long> confirmed = new CopyOnWriteArrayList<>();
+  
+  private final Ledger ledger = new Ledger() {
+    @Override public void attach(MessageHandler handler) {
+      throw new UnsupportedOperationException();
+    }
+    
+    @Override public void append(Message message, AppendCallback callback) {
+      throw new UnsupportedOperationException();
+    }
+    
+    @Override public void confirm(Object handlerId, MessageId messageId) {
+      confirmed.add(((DefaultMessageId) messageId).getOffset());
+    }
+  };
+  
+  private ShardedFlow flow;
+  
+  private OrderedParallelFactor factor;
+  
+  @Before
+  public void before() {
+    flow = new ShardedFlow();
+  }
+  
+  @After
+  public void after() {
+    if (factor != null) factor.dispose();
+    flow.terminate().joinSilently();
+  }
+  
+  private void createFactor(Factor backingFactor, int threads) {
+    createFactor(backingFactor, threads, OrderedParallelFactor.DEF_BACKLOG_CAPACITY);
+  }
+  
+  private void createFactor(Factor backingFactor, int threads, int backlogCapacity) {
+    factor = new OrderedParallelFactor(backingFactor, threads, backlogCapacity);
+    factor.init(new DefaultInitContext(ledger));
+  }
+  
+  private MessageContext context() {
+    return new DefaultMessageContext(ledger, null, flow);
+  }
+  
+  private static Proposal proposal(long offset, String shardKey) {
+    return new Proposal(String.valueOf(offset), new String[0], null, 0)
+        .withShardKey(shardKey)
+        .withShard(0)
+        .withMessageId(new DefaultMessageId(0, offset));
+  }
+  
+  @Test(expected=IllegalArgumentException.class)
+  public void testInvalidThreads() {
+    new OrderedParallelFactor(mock(ProposalFactor.class, Answers.CALLS_REAL_METHODS), 0);
+  }
+  
+  @Test(expected=IllegalArgumentException.class)
+  public void testInvalidBacklogCapacity() {
+    new OrderedParallelFactor(mock(ProposalFactor.class, Answers.CALLS_REAL_METHODS), 1, 0);
+  }
+  
+  @Test
+  public void testDelegation() {
+    final ProposalFactor backingFactor = mock(ProposalFactor.class, Answers.CALLS_REAL_METHODS);
+    when(backingFactor.getGroupId()).thenReturn("test-group");
+    createFactor(backingFactor, 2);
+    verify(backingFactor).init(isNotNull());
+    assertEquals("test-group", factor.getGroupId());
+    assertEquals(EnumSet.of(MessageType.PROPOSAL, MessageType.$UNKNOWN), factor.getInterest().getTypes());
+    assertEquals(2, factor.getThreads());
+    assertEquals(OrderedParallelFactor.DEF_BACKLOG_CAPACITY, factor.getBacklogCapacity());
+    Assertions.assertToStringOverride(factor);
+    
+    factor.dispose();
+    verify(backingFactor).dispose();
+    factor = null;
+  }
+  
+  /**
+   *  Messages with the same shard key must be processed in the order of receipt, even though
+   *  the keys themselves are spread across several workers.
+   */
+  @Test
+  public void testOrderPerKey() {
+    final int keys = 10;
+    final int messages = 1_000;
+    final Map<String, List<Long>> received = new ConcurrentHashMap<>();
+    final AtomicInteger processed = new AtomicInteger();
+    final ProposalFactor backingFactor = mock(ProposalFactor.class, Answers.CALLS_REAL_METHODS);
+    doAnswer(invocation -> {
+      final Proposal proposal = invocation.getArgument(1);
+      received.computeIfAbsent(proposal.getShardKey(), __ -> new CopyOnWriteArrayList<>())
+      .add(((DefaultMessageId) proposal.getMessageId()).getOffset());
+      processed.incrementAndGet();
+      return null;
+    }).when(backingFactor).onProposal(any(), any());
+    createFactor(backingFactor, 4);
+    
+    final MessageContext context = context();
+    for (long offset = 0; offset < messages; offset++) {
+      factor.onProposal(context, proposal(offset, "key-" + offset % keys));
+    }
+    
+    wait.until(() -> assertEquals(messages, processed.get()));
+    assertEquals(keys, received.size());
+    for (List<Long> offsets : received.values()) {
+      final List<Long> sorted = new ArrayList<>(offsets);
+      Collections.sort(sorted);
+      assertEquals(sorted, offsets);
+    }
+    wait.until(() -> assertEquals(Long.valueOf(messages - 1), confirmed.get(confirmed.size() - 1)));
+  }
+  
+  /**
+   *  A slow message on one key must hold back the confirmation of later messages on other keys
+   *  that have already completed.
+   */
+  @Test
+  public void testConfirmationOrder() throws InterruptedException {
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger processed = new AtomicInteger();
+    final ProposalFactor backingFactor = mock(ProposalFactor.class, Answers.CALLS_REAL_METHODS);
+    doAnswer(invocation -> {
+      final Proposal proposal = invocation.getArgument(1);
+      if (proposal.getShardKey().equals("slow")) {
+        release.await();
+      }
+      invocation.<MessageContext>getArgument(0).beginAndConfirm(proposal);
+      processed.incrementAndGet();
+      return null;
+    }).when(backingFactor).onProposal(any(), any());
+    createFactor(backingFactor, 2);
+    
+    final String slowKey = "slow";
+    final String fastKey = findKeyOnOtherWorker(slowKey);
+    final MessageContext context = context();
+    factor.onProposal(context, proposal(0, fastKey));
+    factor.onProposal(context, proposal(1, slowKey));
+    factor.onProposal(context, proposal(2, fastKey));
+    factor.onProposal(context, proposal(3, fastKey));
+    
+    wait.until(() -> assertEquals(3, processed.get()));
+    assertEquals(Arrays.asList(0L), confirmed);
+    
+    release.countDown();
+    wait.until(() -> assertEquals(3L, (long) confirmed.get(confirmed.size() - 1)));
+  }
+  
+  /**
+   *  A message that the backing factor doesn't begin is confirmed on its behalf; one that it
+   *  begins remains unconfirmed until the factor confirms it.
+   */
+  @Test
+  public void testImplicitAndRetainedConfirmation() {
+    final AtomicReference<Confirmation> retained = new AtomicReference<>();
+    final ProposalFactor backingFactor = mock(ProposalFactor.class, Answers.CALLS_REAL_METHODS);
+    doAnswer(invocation -> {
+      final Proposal proposal = invocation.getArgument(1);
+      if (proposal.getShardKey().equals("retain")) {
+        retained.set(invocation.<MessageContext>getArgument(0).begin(proposal));
+      }
+      return null;
+    }).when(backingFactor).onProposal(any(), any());
+    createFactor(backingFactor, 2);
+    
+    final MessageContext context = context();
+    factor.onProposal(context, proposal(0, "ignore"));
+    wait.until(() -> assertEquals(Arrays.asList(0L), confirmed));
+    
+    factor.onProposal(context, proposal(1, "retain"));
+    factor.onProposal(context, proposal(2, "ignore"));
+    wait.until(() -> assertNotNull(retained.get()));
+    assertEquals(Arrays.asList(0L), confirmed);
+    
+    retained.get().confirm();
+    wait.until(() -> assertEquals(Arrays.asList(0L, 2L), confirmed));
+  }
+  
+  /**
+   *  A message that the backing factor fails on is left unconfirmed, holding back the confirmation 
+   *  of later messages; the worker nonetheless carries on processing them.
+   */
+  @Test
+  public void testFailureNotConfirmed() {
+    final List<Long> processed = new CopyOnWriteArrayList<>();
+    final ProposalFactor backingFactor = mock(ProposalFactor.class, Answers.CALLS_REAL_METHODS);
+    doAnswer(invocation -> {
+      final Proposal proposal = invocation.getArgument(1);
+      final long offset = ((DefaultMessageId) proposal.getMessageId()).getOffset();
+      processed.add(offset);
+      if (offset == 1) throw new IllegalStateException("Simulated failure");
+      return null;
+    }).when(backingFactor).onProposal(any(), any());
+    createFactor(backingFactor, 1);
+    
+    final MessageContext context = context();
+    factor.onProposal(context, proposal(0, "key"));
+    factor.onProposal(context, proposal(1, "key"));
+    factor.onProposal(context, proposal(2, "key"));
+    
+    wait.until(() -> assertEquals(Arrays.asList(0L, 1L, 2L), processed));
+    Threads.sleep(10);
+    assertEquals(Arrays.asList(0L), confirmed);
+  }
+  
+  /**
+   *  Dispatching to a worker whose backlog is at capacity blocks until the worker catches up.
+   */
+  @Test
+  public void testBackpressure() throws InterruptedException {
+    final CountDownLatch release = new CountDownLatch(1);
+    final ProposalFactor backingFactor = mock(ProposalFactor.class, Answers.CALLS_REAL_METHODS);
+    doAnswer(invocation -> {
+      release.await();
+      return null;
+    }).when(backingFactor).onProposal(any(), any());
+    createFactor(backingFactor, 1, 2);
+    
+    final MessageContext context = context();
+    final AtomicInteger dispatched = new AtomicInteger();
+    final Thread dispatcher = new Thread(() -> {
+      for (long offset = 0; offset < 3; offset++) {
+        factor.onProposal(context, proposal(offset, "key"));
+        dispatched.incrementAndGet();
+      }
+    });
+    dispatcher.start();
+    
+    wait.until(() -> assertEquals(2, dispatched.get()));
+    Threads.sleep(10);
+    assertEquals(2, dispatched.get());
+    
+    release.countDown();
+    wait.until(() -> assertEquals(3, dispatched.get()));
+    dispatcher.join();
+    wait.until(() -> assertEquals(Arrays.asList(0L, 1L, 2L), confirmed));
+  }
+  
+  @Test
+  public void testUninterestingMessageNotBegun() {
+    final MessageContext context = mock(MessageContext.class);
+    final ProposalFactor backingFactor = mock(ProposalFactor.class, Answers.CALLS_REAL_METHODS);
+    createFactor(backingFactor, 1);
+    factor.onVote(context, new Vote("X0", new Response("c", Intent.ACCEPT, null)));
+    factor.onOutcome(context, new Outcome("X0", Resolution.COMMIT, null, new Response[0], null));
+    verify(context, never()).begin(any());
+  }
+  
+  @Test
+  public void testWorkerIndex() {
+    createFactor(mock(ProposalFactor.class, Answers.CALLS_REAL_METHODS), 3);
+    assertEquals(Hash.fold("key".hashCode()) % 3, factor.getWorkerIndex(proposal(0, "key")));
+    assertEquals(2, factor.getWorkerIndex(new Proposal("X0", new String[0], null, 0).withShard(5)));
+    assertEquals(0, factor.getWorkerIndex(new Proposal("X0", new String[0], null, 0)));
+  }
+  
+  private String findKeyOnOtherWorker(String key) {
+    final int index = factor.getWorkerIndex(proposal(0, key));
+    for (int i = 0;; i++) {
+      final String candidate = "key-" + i;
+      if (factor.getWorkerIndex(proposal(0, candidate)) != index) return candidate;
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package com.obsidiandynamics.blackstrom.handler;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.blackstrom.model.*;
+
+public final class FilteringMessageHandlerTest {
+  @Test
+  public void testAllInterestUnfiltered() {
+    final MessageHandler handler = mock(MessageHandler.class);
+    when(handler.getInterest()).thenReturn(Interest.all());
+    assertSame(handler, FilteringMessageHandler.of(handler));
+  }
+  
+  @Test
+  public void testFiltered() {
+    final MessageHandler handler = mock(MessageHandler.class);
+    final Interest interest = Interest.of(MessageType.VOTE);
+    when(handler.getInterest()).thenReturn(interest);
+    when(handler.getGroupId()).thenReturn("group");
+    final MessageHandler filtered = FilteringMessageHandler.of(handler);
+    assertNotSame(handler, filtered);
+    assertEquals("group", filtered.getGroupId());
+    assertSame(interest, filtered.getInterest());
+    
+    final MessageContext context = mock(MessageContext.class);
+    final Proposal proposal = new Proposal("X0", new String[0], null, 0);
+    final Vote vote = new Vote("X0", new Response("a", Intent.ACCEPT, null));
+    filtered.onMessage(context, proposal);
+    filtered.onMessage(context, vote);
+    verify(handler).onMessage(context, vote);
+    verify(handler, never()).onMessage(context, proposal);
+  }
+}
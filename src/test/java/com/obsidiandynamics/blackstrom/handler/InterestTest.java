@@ -0,0 +1,74 @@
+package com.obsidiandynamics.blackstrom.handler;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.assertion.*;
+import com.obsidiandynamics.blackstrom.model.*;
+
+public final class InterestTest {
+  private static final Proposal PROPOSAL_AB = new Proposal("X0", new String[] {"a", "b"}, null, 0);
+  
+  private static final Proposal PROPOSAL_C = new Proposal("X1", new String[] {"c"}, null, 0);
+  
+  private static final Vote VOTE_C = new Vote("X1", new Response("c", Intent.ACCEPT, null));
+  
+  private static final Outcome OUTCOME = new Outcome("X1", Resolution.COMMIT, null, new Response[0], null);
+  
+  @Test
+  public void testAll() {
+    final Interest all = Interest.all();
+    assertTrue(all.isAll());
+    assertNull(all.getCohortFilter());
+    assertEquals(EnumSet.allOf(MessageType.class), all.getTypes());
+    assertTrue(all.includes(PROPOSAL_AB));
+    assertTrue(all.includes(VOTE_C));
+    assertTrue(all.includes(OUTCOME));
+    Assertions.assertToStringOverride(all);
+  }
+  
+  @Test
+  public void testTypes() {
+    final Interest interest = Interest.of(MessageType.PROPOSAL, MessageType.OUTCOME);
+    assertFalse(interest.isAll());
+    assertTrue(interest.includes(MessageType.PROPOSAL));
+    assertFalse(interest.includes(MessageType.VOTE));
+    assertTrue(interest.includes(PROPOSAL_AB));
+    assertFalse(interest.includes(VOTE_C));
+    assertTrue(interest.includes(OUTCOME));
+    
+    assertEquals(interest.getTypes(), Interest.of(Arrays.asList(MessageType.OUTCOME, MessageType.PROPOSAL)).getTypes());
+    assertTrue(Interest.of(Collections.emptySet()).getTypes().isEmpty());
+  }
+  
+  @Test
+  public void testRetainTypes() {
+    final Interest interest = Interest.all().withCohortFilter("a"::equals)
+        .retainTypes(Arrays.asList(MessageType.PROPOSAL, MessageType.VOTE));
+    assertEquals(EnumSet.of(MessageType.PROPOSAL, MessageType.VOTE), interest.getTypes());
+    assertNotNull(interest.getCohortFilter());
+  }
+  
+  @Test
+  public void testWithTypes() {
+    final Interest interest = Interest.of(Collections.emptySet()).withCohortFilter("a"::equals)
+        .withTypes(Arrays.asList(MessageType.PROPOSAL, MessageType.VOTE));
+    assertEquals(EnumSet.of(MessageType.PROPOSAL, MessageType.VOTE), interest.getTypes());
+    assertNotNull(interest.getCohortFilter());
+  }
+  
+  @Test
+  public void testCohortFilter() {
+    final Interest interest = Interest.all().withCohortFilter("b"::equals);
+    assertFalse(interest.isAll());
+    assertTrue(interest.includes(PROPOSAL_AB));
+    assertFalse(interest.includes(PROPOSAL_C));
+    
+    // messages other than proposals aren't filtered by cohort
+    assertTrue(interest.includes(VOTE_C));
+    assertTrue(interest.includes(OUTCOME));
+  }
+}
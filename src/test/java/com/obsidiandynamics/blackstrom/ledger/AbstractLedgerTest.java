@@ -127,6 +127,42 @@ public abstract class AbstractLedgerTest {
     ledger.dispose();
   }
   
+  @Test
+  public final void testInterest() {
+    useLedger(createLedger());
+    final List<Message> received = new CopyOnWriteArrayList<>();
+    ledger.attach(new MessageHandler() {
+      @Override
+      public String getGroupId() {
+        return null;
+      }
+      
+      @Override
+      public Interest getInterest() {
+        return Interest.of(MessageType.PROPOSAL).withCohortFilter("b"::equals);
+      }
+      
+      @Override
+      public void onMessage(MessageContext context, Message message) {
+        if (! sandbox.contains(message)) return;
+        received.add(message);
+        context.beginAndConfirm(message);
+      }
+    });
+    ledger.init();
+    
+    final Proposal uninteresting = new Proposal("0", new String[] {"a"}, null, 0).withShardKey(sandbox.key());
+    final Vote vote = new Vote("1", new Response("b", Intent.ACCEPT, null)).withShardKey(sandbox.key());
+    final Proposal interesting = new Proposal("2", new String[] {"a", "b"}, null, 0).withShardKey(sandbox.key());
+    ledger.append(uninteresting);
+    ledger.append(vote);
+    ledger.append(interesting);
+    
+    wait.until(() -> assertEquals(Collections.singletonList(interesting), received));
+    Threads.sleep(10);
+    assertEquals(1, received.size());
+  }
+  
   @Test
   public final void testOneWay() {
     testOneWay(2, 4, 10_000 * scale);
@@ -1,5 +1,9 @@
 package com.obsidiandynamics.blackstrom.ledger;
 
+import static org.junit.Assert.*;
+
+import java.util.concurrent.*;
+
 import org.junit.*;
 
 import com.obsidiandynamics.blackstrom.handler.*;
@@ -21,4 +25,33 @@ public final class LedgerTest {
     ledger.confirm(null, null);
     ledger.append(null);
   }
+  
+  @Test
+  public void testAttachAsync() {
+    final Ledger ledger = new Ledger() {
+      @Override
+      public void attach(MessageHandler handler) {}
+      
+      @Override
+      public void append(Message message, AppendCallback callback) {}
+    };
+    final CompletableFuture<Void> future = ledger.attachAsync(null);
+    assertTrue(future.isDone());
+    assertFalse(future.isCompletedExceptionally());
+  }
+  
+  @Test
+  public void testAttachAsyncError() {
+    final Ledger ledger = new Ledger() {
+      @Override
+      public void attach(MessageHandler handler) {
+        throw new UnsupportedOperationException();
+      }
+      
+      @Override
+      public void append(Message message, AppendCallback callback) {}
+    };
+    final CompletableFuture<Void> future = ledger.attachAsync(null);
+    assertTrue(future.isCompletedExceptionally());
+  }
 }
@@ -4,6 +4,8 @@ import static junit.framework.TestCase.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import java.util.concurrent.*;
+
 import org.junit.*;
 
 import com.obsidiandynamics.blackstrom.cohort.*;
@@ -15,6 +17,7 @@ public final class ManifoldTest {
   @Test
   public void testBuilder() {
     final Ledger ledger = mock(Ledger.class);
+    when(ledger.attachAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
     final Initiator initiator = mock(Initiator.class);
     final Cohort cohort = mock(Cohort.class);
     final Monitor monitor = mock(Monitor.class);
@@ -28,7 +31,9 @@ public final class ManifoldTest {
     verify(initiator).init(notNull());
     verify(cohort).init(notNull());
     verify(monitor).init(notNull());
+    verify(ledger, times(3)).attachAsync(notNull());
     verify(ledger).init();
+    assertTrue(manifold.ready().isDone());
     
     assertEquals(ledger, manifold.getLedger());
     assertTrue(manifold.getFactors().contains(initiator));
@@ -42,4 +47,56 @@ public final class ManifoldTest {
     verify(cohort).dispose();
     verify(monitor).dispose();
   }
+  
+  @Test
+  public void testLazyAttach() {
+    final Ledger ledger = mock(Ledger.class);
+    final CompletableFuture<Void> attachment = new CompletableFuture<>();
+    when(ledger.attachAsync(any())).thenReturn(attachment);
+    final Cohort cohort = mock(Cohort.class);
+    
+    final Manifold manifold = Manifold.builder()
+        .withLedger(ledger)
+        .withFactor(cohort)
+        .withLazyAttach(true)
+        .build();
+    
+    verify(ledger).attachAsync(notNull());
+    assertFalse(manifold.ready().isDone());
+    attachment.complete(null);
+    assertTrue(manifold.ready().isDone());
+    
+    manifold.dispose();
+  }
+  
+  @Test(expected=IllegalStateException.class)
+  public void testAttachFailureUnwrapped() {
+    final Ledger ledger = mock(Ledger.class);
+    final CompletableFuture<Void> attachment = new CompletableFuture<>();
+    attachment.completeExceptionally(new IllegalStateException("testAttachFailureUnwrapped"));
+    when(ledger.attachAsync(any())).thenReturn(attachment);
+    
+    Manifold.builder()
+    .withLedger(ledger)
+    .withFactor(mock(Cohort.class))
+    .build();
+  }
+  
+  @Test
+  public void testLazyAttachFailure() {
+    final Ledger ledger = mock(Ledger.class);
+    final CompletableFuture<Void> attachment = new CompletableFuture<>();
+    when(ledger.attachAsync(any())).thenReturn(attachment);
+    
+    final Manifold manifold = Manifold.builder()
+        .withLedger(ledger)
+        .withFactor(mock(Cohort.class))
+        .withLazyAttach(true)
+        .build();
+    verify(ledger).init();
+    
+    attachment.completeExceptionally(new IllegalStateException("testLazyAttachFailure"));
+    assertTrue(manifold.ready().isCompletedExceptionally());
+    manifold.dispose();
+  }
 }
@@ -0,0 +1,100 @@
+package com.obsidiandynamics.blackstrom.model;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.blackstrom.model.LazyPayload.*;
+
+public final class LazyPayloadTest {
+  private static final class TestLazyPayload extends LazyPayload {
+    private final Object value;
+    
+    final AtomicInteger decodes = new AtomicInteger();
+    
+    TestLazyPayload(Object value) {
+      this.value = value;
+    }
+    
+    @Override
+    protected Object decode() throws Exception {
+      decodes.incrementAndGet();
+      if (value instanceof Exception) throw (Exception) value;
+      return value;
+    }
+  }
+  
+  @Test
+  public void testDecodeOnce() {
+    final TestLazyPayload p = new TestLazyPayload("value");
+    assertFalse(p.isDecoded());
+    assertEquals("TestLazyPayload [undecoded]", p.toString());
+    assertEquals(0, p.decodes.get());
+    
+    assertEquals("value", p.get());
+    assertTrue(p.isDecoded());
+    assertEquals("value", p.get());
+    assertEquals(1, p.decodes.get());
+    assertEquals("value", p.toString());
+  }
+  
+  @Test
+  public void testDecodeNull() {
+    final TestLazyPayload p = new TestLazyPayload(null);
+    assertNull(p.get());
+    assertNull(p.get());
+    assertEquals(1, p.decodes.get());
+    assertEquals("null", p.toString());
+  }
+  
+  @Test
+  public void testDecodeError() {
+    final Exception cause = new Exception("simulated");
+    final TestLazyPayload p = new TestLazyPayload(cause);
+    try {
+      p.get();
+      fail("Expected " + PayloadDecodeException.class.getSimpleName());
+    } catch (PayloadDecodeException e) {
+      assertSame(cause, e.getCause());
+    }
+    assertFalse(p.isDecoded());
+  }
+  
+  @Test
+  public void testResolve() {
+    assertNull(LazyPayload.resolve(null));
+    assertEquals("value", LazyPayload.resolve("value"));
+    assertEquals("value", LazyPayload.resolve(new TestLazyPayload("value")));
+  }
+  
+  @Test
+  public void testEqualsHashCode() {
+    final TestLazyPayload p = new TestLazyPayload("value");
+    assertEquals(p, p);
+    assertEquals(p, new TestLazyPayload("value"));
+    assertNotEquals(p, new TestLazyPayload("other"));
+    assertNotEquals(p, "value");
+    assertEquals("value".hashCode(), p.hashCode());
+  }
+  
+  @Test
+  public void testMessageAccessors() {
+    final TestLazyPayload objective = new TestLazyPayload("objective");
+    final Proposal lazy = new Proposal("B1", 1, new String[] {"a"}, objective, 1000);
+    final Proposal eager = new Proposal("B1", 1, new String[] {"a"}, "objective", 1000);
+    assertSame(objective, lazy.getRawObjective());
+    assertFalse(objective.isDecoded());
+    
+    assertEquals(eager, lazy);
+    assertEquals(lazy, eager);
+    assertEquals(eager.hashCode(), lazy.hashCode());
+    assertEquals("objective", lazy.getObjective());
+    assertSame(objective, lazy.getRawObjective());
+    
+    final Response response = new Response("a", Intent.ACCEPT, new TestLazyPayload("metadata"));
+    assertEquals("metadata", response.getMetadata());
+    assertEquals(new Response("a", Intent.ACCEPT, "metadata"), response);
+  }
+}
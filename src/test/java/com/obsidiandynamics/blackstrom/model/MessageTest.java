@@ -29,6 +29,23 @@ public final class MessageTest {
     assertTrue(m.getTimestamp() >= time);
   }
   
+  @Test
+  public void testXidForms() {
+    final Xid xid = Xid.generate();
+    final Message binary = new UntypedMessage(xid.toString(), 0);
+    assertTrue(binary.getXidValue().isBinary());
+    assertEquals(xid, binary.getXidValue());
+    assertEquals(xid.toString(), binary.getXid());
+    
+    final Message string = new UntypedMessage("X0", 0);
+    assertFalse(string.getXidValue().isBinary());
+    assertEquals(Xid.of("X0"), string.getXidValue());
+    
+    final Message none = new UntypedMessage(null, 0);
+    assertNull(none.getXid());
+    assertNull(none.getXidValue());
+  }
+  
   @Test
   public void testShardAssigned() {
     final long time = 1000;
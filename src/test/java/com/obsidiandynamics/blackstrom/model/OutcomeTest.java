@@ -25,9 +25,50 @@ public final class OutcomeTest {
     Assertions.assertToStringOverride(outcome);
   }
   
+  @Test
+  public void testIndexedLookup() {
+    final Response[] responses = new Response[20];
+    for (int i = 0; i < responses.length; i++) {
+      responses[i] = new Response("cohort-" + i, Intent.ACCEPT, null);
+    }
+    final Outcome outcome = new Outcome("B1", Resolution.COMMIT, null, responses, null);
+    for (int i = 0; i < responses.length; i++) {
+      assertSame(responses[i], outcome.getResponse("cohort-" + i));
+    }
+    assertNull(outcome.getResponse("cohort-" + responses.length));
+  }
+  
+  @Test
+  public void testCompact() {
+    final Outcome compact = Outcome.compactCommit("B1", 1, new String[] {"a", "b"}, "metadata");
+    assertTrue(compact.isCompact());
+    assertEquals(Resolution.COMMIT, compact.getResolution());
+    assertNull(compact.getAbortReason());
+    assertArrayEquals(new String[] {"a", "b"}, compact.getAcceptedCohorts());
+    assertEquals(2, compact.getResponses().length);
+    assertSame(compact.getResponses(), compact.getResponses());
+    assertEquals(new Response("a", Intent.ACCEPT, null), compact.getResponse("a"));
+    assertEquals(new Response("b", Intent.ACCEPT, null), compact.getResponse("b"));
+    assertNull(compact.getResponse("c"));
+    Assertions.assertToStringOverride(compact);
+    
+    final Outcome full = new Outcome("B1", 1, Resolution.COMMIT, null, 
+                                     new Response[] {new Response("a", Intent.ACCEPT, null), 
+                                                     new Response("b", Intent.ACCEPT, null)}, "metadata");
+    assertFalse(full.isCompact());
+    assertNull(full.getAcceptedCohorts());
+    assertEquals(full, compact);
+    assertEquals(full.hashCode(), compact.hashCode());
+    
+    final Outcome copy = compact.withShardKey("shardKey").shallowCopy();
+    assertTrue(copy.isCompact());
+    assertEquals(compact, copy);
+  }
+  
   @Test
   public void testEqualsHashCode() {
-    EqualsVerifier.forClass(Outcome.class).suppress(Warning.NONFINAL_FIELDS).verify();
+    EqualsVerifier.forClass(Outcome.class).suppress(Warning.NONFINAL_FIELDS)
+    .withIgnoredFields("acceptedCohorts", "responseIndex").verify();
   }
   
   @Test
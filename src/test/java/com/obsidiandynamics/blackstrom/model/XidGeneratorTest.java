@@ -0,0 +1,86 @@
+package com.obsidiandynamics.blackstrom.model;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.assertion.*;
+import com.obsidiandynamics.testmark.*;
+import com.obsidiandynamics.threads.*;
+
+public final class XidGeneratorTest {
+  @Test
+  public void testMonotonic() {
+    final XidGenerator generator = new XidGenerator(42);
+    assertEquals(42, generator.getNode());
+    Xid last = generator.next();
+    for (int i = 0; i < 100_000; i++) {
+      final Xid next = generator.next();
+      assertEquals(42, next.getLow());
+      assertTrue(next.getHigh() > last.getHigh());
+      last = next;
+    }
+  }
+  
+  @Test
+  public void testTimestamp() {
+    final long before = System.currentTimeMillis();
+    final Xid xid = new XidGenerator(0).next();
+    final long after = System.currentTimeMillis();
+    final long timestamp = xid.getHigh() >>> XidGenerator.SEQUENCE_BITS;
+    assertTrue(timestamp >= before);
+    assertTrue(timestamp <= after);
+  }
+  
+  @Test
+  public void testConcurrentUniqueness() throws Exception {
+    final XidGenerator generator = new XidGenerator(0);
+    final Set<Xid> xids = ConcurrentHashMap.newKeySet();
+    final int threads = 4;
+    final int perThread = 10_000;
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < perThread; i++) {
+            xids.add(generator.next());
+          }
+        }));
+      }
+      for (Future<?> future : futures) future.get();
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(threads * perThread, xids.size());
+  }
+  
+  @Test
+  public void testNextString() {
+    final String xid = XidGenerator.getDefault().nextString();
+    assertEquals(XidGenerator.getDefault().getNode(), Xid.parse(xid).getLow());
+    Assertions.assertToStringOverride(XidGenerator.getDefault());
+  }
+  
+  @Test
+  public void testBenchmark() {
+    Testmark.ifEnabled(() -> {
+      final int runs = 10_000_000;
+      final long tookUuid = Threads.tookMillis(() -> {
+        for (int i = 0; i < runs; i++) UUID.randomUUID().toString();
+      });
+      System.out.format("UUID.randomUUID().toString(): %,d took %,d ms, %,.0f ids/sec\n", 
+                        runs, tookUuid, (double) runs / tookUuid * 1000);
+      
+      final XidGenerator generator = XidGenerator.getDefault();
+      final long tookXid = Threads.tookMillis(() -> {
+        for (int i = 0; i < runs; i++) generator.nextString();
+      });
+      System.out.format("XidGenerator.nextString(): %,d took %,d ms, %,.0f ids/sec\n", 
+                        runs, tookXid, (double) runs / tookXid * 1000);
+    });
+  }
+}
@@ -0,0 +1,117 @@
+package com.obsidiandynamics.blackstrom.model;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+import com.obsidiandynamics.blackstrom.model.Xid.*;
+
+public final class XidTest {
+  @Test
+  public void testFields() {
+    final Xid xid = new Xid(1, 2);
+    assertEquals(1, xid.getHigh());
+    assertEquals(2, xid.getLow());
+  }
+  
+  @Test
+  public void testToStringMatchesUuid() {
+    for (int i = 0; i < 100; i++) {
+      final UUID uuid = UUID.randomUUID();
+      final Xid xid = new Xid(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+      assertEquals(uuid.toString(), xid.toString());
+    }
+    assertEquals("00000000-0000-0000-0000-000000000000", new Xid(0, 0).toString());
+    assertEquals("ffffffff-ffff-ffff-ffff-ffffffffffff", new Xid(-1, -1).toString());
+  }
+  
+  @Test
+  public void testParse() {
+    for (int i = 0; i < 100; i++) {
+      final String uuid = UUID.randomUUID().toString();
+      final Xid xid = Xid.parse(uuid);
+      assertEquals(uuid, xid.toString());
+    }
+    final Xid xid = Xid.generate();
+    assertEquals(xid, Xid.parse(xid.toString()));
+  }
+  
+  @Test
+  public void testTryParseNonCanonical() {
+    assertNull(Xid.tryParse(null));
+    assertNull(Xid.tryParse(""));
+    assertNull(Xid.tryParse("X100"));
+    assertNull(Xid.tryParse("0123456789abcdef0123456789abcdef0123"));
+    assertNull(Xid.tryParse("01234567-89ab-cdef-0123-456789abcdeg"));
+    assertNull(Xid.tryParse("01234567-89AB-CDEF-0123-456789ABCDEF"));
+    assertNull(Xid.tryParse("01234567-89ab-cdef-0123-456789abcde"));
+    assertNotNull(Xid.tryParse("01234567-89ab-cdef-0123-456789abcdef"));
+  }
+  
+  @Test
+  public void testOfCanonical() {
+    final String str = UUID.randomUUID().toString();
+    final Xid xid = Xid.of(str);
+    assertTrue(xid.isBinary());
+    assertSame(str, xid.toString());
+    assertEquals(Xid.parse(str), xid);
+    assertEquals(Xid.parse(str).hashCode(), xid.hashCode());
+  }
+  
+  @Test
+  public void testOfNonCanonical() {
+    assertNull(Xid.of(null));
+    final Xid xid = Xid.of("X100");
+    assertFalse(xid.isBinary());
+    assertEquals("X100", xid.toString());
+    assertEquals(Xid.of("X100"), xid);
+    assertEquals(Xid.of("X100").hashCode(), xid.hashCode());
+    assertNotEquals(Xid.of("X200"), xid);
+    
+    // a non-canonical string is never equal to a binary xid, even if it denotes the same value
+    final Xid binary = Xid.generate();
+    assertNotEquals(binary, Xid.of(binary.toString().toUpperCase()));
+    assertNotEquals(Xid.of(binary.toString().toUpperCase()), binary);
+  }
+  
+  @Test(expected=IllegalStateException.class)
+  public void testHighOfNonBinary() {
+    Xid.of("X100").getHigh();
+  }
+  
+  @Test(expected=IllegalStateException.class)
+  public void testLowOfNonBinary() {
+    Xid.of("X100").getLow();
+  }
+  
+  @Test(expected=MalformedXidException.class)
+  public void testParseNonCanonical() {
+    Xid.parse("X100");
+  }
+  
+  @Test
+  public void testEqualsHashCode() {
+    final Xid x1 = new Xid(1, 2);
+    final Xid x2 = new Xid(1, 2);
+    final Xid x3 = new Xid(2, 1);
+    assertEquals(x1, x1);
+    assertEquals(x1, x2);
+    assertEquals(x1.hashCode(), x2.hashCode());
+    assertNotEquals(x1, x3);
+    assertNotEquals(x1, new Object());
+  }
+  
+  @Test
+  public void testCompareTo() {
+    assertEquals(0, new Xid(1, 2).compareTo(new Xid(1, 2)));
+    assertTrue(new Xid(1, 2).compareTo(new Xid(1, 3)) < 0);
+    assertTrue(new Xid(2, 0).compareTo(new Xid(1, 3)) > 0);
+    assertTrue(new Xid(-1, 0).compareTo(new Xid(1, 0)) > 0);
+    assertTrue(new Xid(1, 2).compareTo(Xid.of("X100")) < 0);
+    assertTrue(Xid.of("X100").compareTo(new Xid(1, 2)) > 0);
+    assertTrue(Xid.of("X100").compareTo(Xid.of("X200")) < 0);
+    assertEquals(0, Xid.of("X100").compareTo(Xid.of("X100")));
+  }
+}
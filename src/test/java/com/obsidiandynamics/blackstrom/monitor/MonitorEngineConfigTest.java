@@ -21,6 +21,8 @@ public final class MonitorEngineConfigTest {
     assertEquals(3, config.getTimeoutInterval());
     assertTrue(config.isTrackingEnabled());
     assertTrue(config.isMetadataEnabled());
+    assertTrue(config.isCompactOutcomesEnabled());
+    assertEquals(4, config.getBallotPoolSize());
   }
   
   @Test
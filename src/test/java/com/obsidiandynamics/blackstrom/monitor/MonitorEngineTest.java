@@ -4,6 +4,7 @@ import static junit.framework.TestCase.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import java.lang.management.*;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.*;
@@ -22,6 +23,7 @@ import com.obsidiandynamics.blackstrom.util.*;
 import com.obsidiandynamics.func.*;
 import com.obsidiandynamics.junit.*;
 import com.obsidiandynamics.nanoclock.*;
+import com.obsidiandynamics.testmark.*;
 import com.obsidiandynamics.threads.*;
 
 @RunWith(Parameterized.class)
@@ -201,6 +203,169 @@ public final class MonitorEngineTest {
     outcomes.clear();
   }
   
+  @Test
+  public void testResponseOrder_threeCohorts() {
+    final String xid = UUID.randomUUID().toString();
+    propose(xid, "c", "a", "b");
+    vote(xid, "a", Intent.ACCEPT);
+    vote(xid, "b", Intent.ACCEPT);
+    vote(xid, "c", Intent.ACCEPT);
+    
+    wait.until(numOutcomesIs(1));
+    final Response[] responses = outcomes.get(0).getResponses();
+    assertEquals(3, responses.length);
+    assertEquals("c", responses[0].getCohort());
+    assertEquals("a", responses[1].getCohort());
+    assertEquals("b", responses[2].getCohort());
+  }
+  
+  @Test
+  public void testResponseOrder_duplicateCohort() {
+    final String xid = UUID.randomUUID().toString();
+    propose(xid, "a", "a", "b");
+    vote(xid, "a", Intent.REJECT);
+    
+    wait.until(numOutcomesIs(1));
+    final Response[] responses = outcomes.get(0).getResponses();
+    assertEquals(1, responses.length);
+    assertEquals("a", responses[0].getCohort());
+  }
+  
+  /**
+   *  A vote from a cohort outside of the proposal may still decide the ballot, but isn't 
+   *  listed among the outcome's responses.
+   */
+  @Test
+  public void testResponseOrder_foreignCohort() {
+    final String xid = UUID.randomUUID().toString();
+    propose(xid, "a", "b");
+    vote(xid, "a", Intent.ACCEPT);
+    vote(xid, "z", Intent.REJECT);
+    
+    wait.until(numOutcomesIs(1));
+    assertEquals(Resolution.ABORT, outcomes.get(0).getResolution());
+    final Response[] responses = outcomes.get(0).getResponses();
+    assertEquals(1, responses.length);
+    assertEquals("a", responses[0].getCohort());
+  }
+  
+  @Test
+  public void testCompactOutcome_twoCohorts() {
+    setMonitorAndInit(new DefaultMonitor(new MonitorEngineConfig().withCompactOutcomesEnabled(true)));
+    
+    String xid;
+    
+    xid = UUID.randomUUID().toString();
+    propose(xid, "b", "a");
+    monitor.onVote(context, new Vote(xid, new Response("a", Intent.ACCEPT, null)));
+    monitor.onVote(context, new Vote(xid, new Response("b", Intent.ACCEPT, null)));
+    
+    wait.until(numOutcomesIs(1));
+    assertTrue(outcomes.get(0).isCompact());
+    assertEquals(Resolution.COMMIT, outcomes.get(0).getResolution());
+    Assert.assertArrayEquals(new String[] {"b", "a"}, outcomes.get(0).getAcceptedCohorts());
+    assertEquals(Intent.ACCEPT, outcomes.get(0).getResponse("a").getIntent());
+    outcomes.clear();
+    
+    // responses carrying metadata preclude compaction
+    xid = UUID.randomUUID().toString();
+    propose(xid, "a", "b");
+    vote(xid, "a", Intent.ACCEPT);
+    vote(xid, "b", Intent.ACCEPT);
+    
+    wait.until(numOutcomesIs(1));
+    assertFalse(outcomes.get(0).isCompact());
+    assertEquals(Resolution.COMMIT, outcomes.get(0).getResolution());
+    assertEquals("ACCEPT", outcomes.get(0).getResponse("b").getMetadata());
+    outcomes.clear();
+    
+    // as do aborts
+    xid = UUID.randomUUID().toString();
+    propose(xid, "a", "b");
+    monitor.onVote(context, new Vote(xid, new Response("a", Intent.REJECT, null)));
+    
+    wait.until(numOutcomesIs(1));
+    assertFalse(outcomes.get(0).isCompact());
+    assertEquals(Resolution.ABORT, outcomes.get(0).getResolution());
+    outcomes.clear();
+  }
+  
+  @Test
+  public void testBallotPooling_twoCohorts() {
+    setMonitorAndInit(new DefaultMonitor(new MonitorEngineConfig().withBallotPoolSize(1)));
+    
+    for (int i = 0; i < 4; i++) {
+      final String xid = UUID.randomUUID().toString();
+      propose(xid, "a", "b");
+      propose(xid, "a", "b");
+      vote(xid, "a", Intent.ACCEPT);
+      vote(xid, "b", i % 2 == 0 ? Intent.ACCEPT : Intent.REJECT);
+      
+      wait.until(numOutcomesIs(1));
+      assertEquals(xid, outcomes.get(0).getXid());
+      assertEquals(i % 2 == 0 ? Resolution.COMMIT : Resolution.ABORT, outcomes.get(0).getResolution());
+      assertEquals(2, outcomes.get(0).getResponses().length);
+      outcomes.clear();
+    }
+  }
+  
+  @Test
+  public void testBallotPoolingBenchmark() {
+    Testmark.ifEnabled(() -> {
+      final int scale = Testmark.getOptions(Scale.class, Scale.unity()).magnitude();
+      for (int ballotPoolSize : new int[] {0, 1_000, 0, 1_000}) {
+        benchmarkBallotPooling(ballotPoolSize, 4, 2_000_000 * scale);
+      }
+    });
+  }
+  
+  private void benchmarkBallotPooling(int ballotPoolSize, int numCohorts, int numTransactions) {
+    final MonitorAction action = new MonitorAction() {
+      @Override public void appendVote(Vote vote, AppendCallback callback) {
+        callback.onAppend(null, null);
+      }
+      
+      @Override public void appendOutcome(Outcome outcome, AppendCallback callback) {
+        callback.onAppend(null, null);
+      }
+    };
+    final MonitorEngine engine = new MonitorEngine(action, "bench", new MonitorEngineConfig()
+                                                   .withTrackingEnabled(false)
+                                                   .withTimeoutInterval(60_000)
+                                                   .withBallotPoolSize(ballotPoolSize));
+    final String[] cohorts = new String[numCohorts];
+    for (int i = 0; i < numCohorts; i++) {
+      cohorts[i] = "cohort-" + i;
+    }
+    
+    final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    final long threadId = Thread.currentThread().getId();
+    final long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+    final long gcMillisBefore = getTotalGCMillis();
+    try {
+      final long tookMillis = Threads.tookMillis(() -> {
+        for (int i = 0; i < numTransactions; i++) {
+          final String xid = Integer.toString(i);
+          engine.onProposal(context, new Proposal(xid, cohorts, null, Integer.MAX_VALUE));
+          for (String cohort : cohorts) {
+            engine.onVote(context, new Vote(xid, new Response(cohort, Intent.ACCEPT, null)));
+          }
+        }
+      });
+      final long allocated = threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+      final long gcMillis = getTotalGCMillis() - gcMillisBefore;
+      System.out.format("Ballot pool size %,d: %,d txns took %,d ms, %,.0f txn/s, %,.0f bytes/txn, GC %,d ms\n", 
+                        ballotPoolSize, numTransactions, tookMillis, (double) numTransactions / tookMillis * 1000, 
+                        (double) allocated / numTransactions, gcMillis);
+    } finally {
+      engine.dispose();
+    }
+  }
+  
+  private static long getTotalGCMillis() {
+    return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+  }
+  
   @Test
   public void testDuplicateProposal_twoCohorts() {
     setMonitorAndInit(new DefaultMonitor(new MonitorEngineConfig()
@@ -260,6 +425,33 @@ public final class MonitorEngineTest {
     assertEquals(0, outcomes.size());
   }
   
+  @Test
+  public void testXidForms_twoCohorts() {
+    // a generated xid, proposed in binary form and voted on by its string
+    final Xid binary = Xid.generate();
+    monitor.onProposal(context, new Proposal(binary, new String[] {"a", "b"}, null, Integer.MAX_VALUE));
+    vote(binary.toString(), "a", Intent.ACCEPT);
+    monitor.onVote(context, new Vote(binary, new Response("b", Intent.ACCEPT, null)));
+    
+    wait.until(numOutcomesIs(1));
+    assertEquals(binary, outcomes.get(0).getXidValue());
+    assertEquals(Resolution.COMMIT, outcomes.get(0).getResolution());
+    outcomes.clear();
+    
+    // an xid that isn't in canonical form
+    final String string = binary.toString().toUpperCase();
+    propose(string, "a", "b");
+    vote(string, "a", Intent.ACCEPT);
+    vote(binary.toString(), "b", Intent.REJECT);
+    Threads.sleep(10);
+    assertEquals(0, outcomes.size());
+    
+    vote(string, "b", Intent.ACCEPT);
+    wait.until(numOutcomesIs(1));
+    assertEquals(string, outcomes.get(0).getXid());
+    assertEquals(Resolution.COMMIT, outcomes.get(0).getResolution());
+  }
+  
   @Test
   public void testVoteWithoutBallot() {
     final String xid = UUID.randomUUID().toString();
@@ -483,4 +675,9 @@ public final class MonitorEngineTest {
   private void vote(String xid, long timestamp, String cohort, Intent intent) {
     monitor.onVote(context, new Vote(xid.toString(), timestamp, new Response(cohort, intent, intent.name())));
   }
+  
+  public static void main(String[] args) {
+    Testmark.enable();
+    JUnitCore.runClasses(MonitorEngineTest.class);
+  }
 }
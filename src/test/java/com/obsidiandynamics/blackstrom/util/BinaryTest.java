@@ -63,6 +63,55 @@ public final class BinaryTest {
     assertEquals(0, buf.position());
   }
   
+  @Test
+  public void testBufferToExactByteArrayShared() {
+    final byte[] orig = { (byte) 0x00, (byte) 0x01 };
+    final ByteBuffer buf = ByteBuffer.wrap(orig);
+    
+    assertSame(orig, Binary.toExactByteArray(buf));
+    assertEquals(0, buf.position());
+  }
+  
+  @Test
+  public void testBufferToExactByteArrayCopied() {
+    final byte[] orig = { (byte) 0x00, (byte) 0x01, (byte) 0x02 };
+    final ByteBuffer buf = ByteBuffer.wrap(orig, 1, 2);
+    
+    final byte[] bytes = Binary.toExactByteArray(buf);
+    assertNotSame(orig, bytes);
+    assertArrayEquals(new byte[] { (byte) 0x01, (byte) 0x02 }, bytes);
+    assertEquals(1, buf.position());
+  }
+  
+  @Test
+  public void testVarInt() {
+    final int[] values = { 0, 1, 0x7F, 0x80, 0x3FFF, 0x4000, 0x1FFFFF, 0x200000, Integer.MAX_VALUE, -1 };
+    final int[] lengths = { 1, 1, 1, 2, 2, 3, 3, 4, 5, 5 };
+    final ByteBuffer buf = ByteBuffer.allocate(5 * values.length);
+    for (int i = 0; i < values.length; i++) {
+      final int start = buf.position();
+      Binary.writeVarInt(buf, values[i]);
+      assertEquals(lengths[i], buf.position() - start);
+      assertEquals(lengths[i], Binary.varIntLength(values[i]));
+    }
+    
+    buf.flip();
+    for (int value : values) {
+      assertEquals(value, Binary.readVarInt(buf));
+    }
+    assertEquals(0, buf.remaining());
+  }
+  
+  @Test(expected=MalformedVarIntException.class)
+  public void testVarIntMalformed() {
+    Binary.readVarInt(Binary.toByteBuffer(0x80, 0x80, 0x80, 0x80, 0x80, 0x01));
+  }
+  
+  @Test(expected=MalformedVarIntException.class)
+  public void testVarIntOverflow() {
+    Binary.readVarInt(Binary.toByteBuffer(0xFF, 0xFF, 0xFF, 0xFF, 0x1F));
+  }
+  
   private static String pad(String str) {
     return String.format("%-52s", str);
   }